@@ -0,0 +1,60 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import avlbench.TreeOps;
+
+/**
+ *
+ * ConcurrentSkipListMapOps
+ *
+ * Benchmark adapter for java.util.concurrent.ConcurrentSkipListMap, the JDK's
+ * concurrent sorted map, as a reference for ConcurrentAVLTree.
+ * insert and delete report 0 (there is no rebalancing to count) or -1 like the trees.
+ *
+ */
+public class ConcurrentSkipListMapOps implements TreeOps {
+
+	private final ConcurrentSkipListMap<Integer, String> map = new ConcurrentSkipListMap<>();
+
+	public boolean empty() {
+		return map.isEmpty();
+	}
+
+	public String search(int k) {
+		return map.get(k);
+	}
+
+	public int insert(int k, String i) {
+		return (map.putIfAbsent(k, i) == null) ? 0 : -1;
+	}
+
+	public int delete(int k) {
+		return (map.remove(k) == null) ? -1 : 0;
+	}
+
+	public String min() {
+		Map.Entry<Integer, String> e = map.firstEntry();
+		return (e == null) ? null : e.getValue();
+	}
+
+	public String max() {
+		Map.Entry<Integer, String> e = map.lastEntry();
+		return (e == null) ? null : e.getValue();
+	}
+
+	public int[] keysToArray() {
+		return map.keySet().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	public String[] infoToArray() {
+		return map.values().toArray(new String[0]);
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public int splitJoin(int x) {
+		throw new UnsupportedOperationException("ConcurrentSkipListMap has no split/join");
+	}
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import avlbench.TreeOps;
+
+/**
+ *
+ * DurableAVLTreeOps
+ *
+ * Benchmark adapter for DurableAVLTree, logging to a new temporary directory.
+ * The Sync policy is read from the system property avlbench.sync (default BATCH),
+ * see avlbench.DurableBenchmark. close() closes the tree and deletes the directory.
+ *
+ */
+public class DurableAVLTreeOps implements TreeOps, AutoCloseable {
+
+	public static final String SYNC_PROPERTY = "avlbench.sync";
+
+	private final Path dir;
+	private final DurableAVLTree tree;
+
+	public DurableAVLTreeOps() {
+		try {
+			dir = Files.createTempDirectory("avlwal");
+			DurableAVLTree.Sync sync = DurableAVLTree.Sync.valueOf(System.getProperty(SYNC_PROPERTY, "BATCH"));
+			tree = DurableAVLTree.open(dir, sync, DurableAVLTree.DEFAULT_BATCH_MILLIS, DurableAVLTree.DEFAULT_CHECKPOINT_EVERY);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public boolean empty() {
+		return tree.empty();
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public int insert(int k, String i) {
+		return tree.insert(k, i);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String min() {
+		return tree.min();
+	}
+
+	public String max() {
+		return tree.max();
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public String[] infoToArray() {
+		return tree.infoToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+
+	public int splitJoin(int x) {
+		throw new UnsupportedOperationException("DurableAVLTree does not log split/join");
+	}
+
+	public void close() throws IOException {
+		tree.close();
+		try (var files = Files.list(dir)) {
+			for (Path f : (Iterable<Path>) files::iterator) {
+				Files.delete(f);
+			}
+		}
+		Files.delete(dir);
+	}
+}
@@ -0,0 +1,57 @@
+import avlbench.TreeOps;
+
+/**
+ *
+ * IntAVLTreeOps
+ *
+ * Benchmark adapter for IntAVLTree (see avlbench.TreeOps).
+ *
+ */
+public class IntAVLTreeOps implements TreeOps {
+
+	private IntAVLTree tree = new IntAVLTree();
+
+	public boolean empty() {
+		return tree.empty();
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public int insert(int k, String i) {
+		return tree.insert(k, i);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String min() {
+		return tree.min();
+	}
+
+	public String max() {
+		return tree.max();
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public String[] infoToArray() {
+		return tree.infoToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+
+	public int splitJoin(int x) {
+		String info = tree.search(x);
+		IntAVLTree[] parts = tree.split(x);
+		int cost = parts[0].join(x, info, parts[1]);
+		tree = parts[0];
+		return cost;
+	}
+}
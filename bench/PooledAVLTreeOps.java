@@ -0,0 +1,70 @@
+import avlbench.TreeOps;
+
+/**
+ *
+ * PooledAVLTreeOps
+ *
+ * Benchmark adapter for AVLTree with a node pool (see avlbench.TreeOps and AVLTree.enableNodePool).
+ *
+ */
+public class PooledAVLTreeOps implements TreeOps {
+
+	static final int POOL_CAPACITY = 1024;
+
+	private AVLTree tree = newTree();
+
+	private static AVLTree newTree() {
+		AVLTree t = new AVLTree();
+		t.enableNodePool(POOL_CAPACITY);
+		return t;
+	}
+
+	public boolean empty() {
+		return tree.empty();
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public int insert(int k, String i) {
+		return tree.insert(k, i);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String min() {
+		return tree.min();
+	}
+
+	public String max() {
+		return tree.max();
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public String[] infoToArray() {
+		return tree.infoToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+
+	public int splitJoin(int x) {
+		if (tree.size() == 1) {            // both halves would be empty, join has nothing to do
+			return 1;
+		}
+		String info = tree.search(x);
+		AVLTree[] parts = tree.split(x);
+		AVLTree t1 = parts[0];
+		int cost = t1.join(t1.new AVLNode(x, info), parts[1]);
+		t1.enableNodePool(POOL_CAPACITY);      // the trees of split do not share the pool
+		tree = t1;
+		return cost;
+	}
+}
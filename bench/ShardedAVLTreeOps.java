@@ -0,0 +1,54 @@
+import avlbench.TreeOps;
+
+/**
+ *
+ * ShardedAVLTreeOps
+ *
+ * Benchmark adapter for ShardedAVLTree (see avlbench.TreeOps).
+ * Safe to share between benchmark threads.
+ *
+ */
+public class ShardedAVLTreeOps implements TreeOps {
+
+	private final ShardedAVLTree tree = new ShardedAVLTree();
+
+	public boolean empty() {
+		return tree.empty();
+	}
+
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	public int insert(int k, String i) {
+		return tree.insert(k, i);
+	}
+
+	public int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public String min() {
+		return tree.min();
+	}
+
+	public String max() {
+		return tree.max();
+	}
+
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public String[] infoToArray() {
+		return tree.infoToArray();
+	}
+
+	public int size() {
+		return tree.size();
+	}
+
+	public int splitJoin(int x) {
+		throw new UnsupportedOperationException("ShardedAVLTree has no split/join");
+	}
+}
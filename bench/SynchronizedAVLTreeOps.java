@@ -0,0 +1,62 @@
+import avlbench.TreeOps;
+
+/**
+ *
+ * SynchronizedAVLTreeOps
+ *
+ * Benchmark adapter for AVLTree behind one lock: every operation is synchronized
+ * on the adapter. The baseline for the concurrent engines.
+ *
+ */
+public class SynchronizedAVLTreeOps implements TreeOps {
+
+	private AVLTree tree = new AVLTree();
+
+	public synchronized boolean empty() {
+		return tree.empty();
+	}
+
+	public synchronized String search(int k) {
+		return tree.search(k);
+	}
+
+	public synchronized int insert(int k, String i) {
+		return tree.insert(k, i);
+	}
+
+	public synchronized int delete(int k) {
+		return tree.delete(k);
+	}
+
+	public synchronized String min() {
+		return tree.min();
+	}
+
+	public synchronized String max() {
+		return tree.max();
+	}
+
+	public synchronized int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	public synchronized String[] infoToArray() {
+		return tree.infoToArray();
+	}
+
+	public synchronized int size() {
+		return tree.size();
+	}
+
+	public synchronized int splitJoin(int x) {
+		if (tree.size() == 1) {
+			return 1;
+		}
+		String info = tree.search(x);
+		AVLTree[] parts = tree.split(x);
+		AVLTree t1 = parts[0];
+		int cost = t1.join(t1.new AVLNode(x, info), parts[1]);
+		tree = t1;
+		return cost;
+	}
+}
@@ -0,0 +1,88 @@
+package avlbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * AVLTreeBenchmark
+ *
+ * ns/op of every public operation of the tree.
+ * Mutating operations are measured in pairs that restore the tree, so
+ * the size stays fixed for the whole trial:
+ * insertDelete adds and removes a missing key, deleteInsert removes and
+ * re-adds a present key, splitJoin splits around a key and joins back.
+ * Run with -prof gc for the allocation rate.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AVLTreeBenchmark {
+
+	@Benchmark
+	public String search(TreeState s) {
+		return s.tree.search(2 * s.next());
+	}
+
+	@Benchmark
+	public String searchMiss(TreeState s) {
+		return s.tree.search(2 * s.next() + 1);
+	}
+
+	@Benchmark
+	public int insertDelete(TreeState s) {
+		int k = 2 * s.next() + 1;
+		return s.tree.insert(k, TreeState.info(k)) + s.tree.delete(k);
+	}
+
+	@Benchmark
+	public int deleteInsert(TreeState s) {
+		int k = 2 * s.next();
+		return s.tree.delete(k) + s.tree.insert(k, TreeState.info(k));
+	}
+
+	@Benchmark
+	public int splitJoin(TreeState s) {
+		return s.tree.splitJoin(2 * s.next());
+	}
+
+	@Benchmark
+	public String min(TreeState s) {
+		return s.tree.min();
+	}
+
+	@Benchmark
+	public String max(TreeState s) {
+		return s.tree.max();
+	}
+
+	@Benchmark
+	public int size(TreeState s) {
+		return s.tree.size();
+	}
+
+	@Benchmark
+	public boolean empty(TreeState s) {
+		return s.tree.empty();
+	}
+
+	@Benchmark
+	public int[] keysToArray(TreeState s) {
+		return s.tree.keysToArray();
+	}
+
+	@Benchmark
+	public String[] infoToArray(TreeState s) {
+		return s.tree.infoToArray();
+	}
+}
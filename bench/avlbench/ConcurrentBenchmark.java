@@ -0,0 +1,103 @@
+package avlbench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * ConcurrentBenchmark
+ *
+ * The read/write mix of MixedWorkloadBenchmark on one tree shared by all threads,
+ * reported as throughput. Compares ConcurrentAVLTree and ShardedAVLTree with AVLTree
+ * behind one lock and with ConcurrentSkipListMap. Each thread reads its own access stream.
+ * Change the thread count with -t, e.g. -t 1 / -t 8 for a scaling curve.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SharedTree {
+		@Param({"ConcurrentAVLTree", "ShardedAVLTree", "SynchronizedAVLTree", "ConcurrentSkipListMap"})
+		public String engine;
+
+		@Param({"1000", "1000000"})
+		public int size;
+
+		@Param({KeyStreams.RANDOM, KeyStreams.ZIPFIAN})
+		public String dist;
+
+		@Param({"50", "90", "99"})
+		public int readPercent;
+
+		public TreeOps tree;
+		final AtomicInteger seeds = new AtomicInteger();
+
+		@Setup(Level.Trial)
+		public void build() {
+			tree = Engines.create(engine);
+			for (int i : KeyStreams.insertionOrder(dist, size, 42)) {
+				tree.insert(2 * i, TreeState.info(2 * i));
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadStream {
+		private int[] stream;
+		private final byte[] coins = new byte[TreeState.STREAM_LENGTH];
+		private int pos;
+
+		@Setup(Level.Trial)
+		public void build(SharedTree s) {
+			int seed = s.seeds.getAndIncrement();
+			stream = KeyStreams.accessStream(s.dist, s.size, TreeState.STREAM_LENGTH, 7 + seed);
+			SplittableRandom rnd = new SplittableRandom(11 + seed);
+			for (int i = 0; i < coins.length; i++) {
+				coins[i] = (byte) rnd.nextInt(100);
+			}
+		}
+
+		int next() {
+			return stream[pos & (TreeState.STREAM_LENGTH - 1)];
+		}
+
+		boolean read(int readPercent) {
+			return coins[pos++ & (coins.length - 1)] < readPercent;
+		}
+	}
+
+	@Benchmark
+	public int mixed(SharedTree s, ThreadStream t) {
+		int i = t.next();
+		if (t.read(s.readPercent)) {
+			return s.tree.search(2 * i) == null ? 0 : 1;
+		}
+		int k = 2 * i + 1;
+		int steps = s.tree.insert(k, TreeState.info(k));
+		if (steps == -1) {          // already there, the write becomes a delete
+			steps = s.tree.delete(k);
+		}
+		return steps;
+	}
+}
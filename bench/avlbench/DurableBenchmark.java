@@ -0,0 +1,86 @@
+package avlbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * DurableBenchmark
+ *
+ * Logged updates per microsecond of DurableAVLTree for each Sync policy, as insert/delete pairs
+ * on a tree of `size` keys (see DurableAVLTreeOps). The log lives in a temporary directory under
+ * -Djava.io.tmpdir, so point that at the disk to measure. Use -t for the number of writer threads
+ * (with Sync.ALWAYS, more threads share each fsync).
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurableBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Log {
+		@Param({"ALWAYS", "BATCH", "OS"})
+		public String sync;
+
+		@Param({"100000"})
+		public int size;
+
+		public TreeOps tree;
+
+		@Setup(Level.Trial)
+		public void open() {
+			System.setProperty("avlbench.sync", sync);     // read by the DurableAVLTree adapter
+			tree = Engines.create("DurableAVLTree");
+			for (int i : KeyStreams.insertionOrder(KeyStreams.RANDOM, size, 42)) {
+				tree.insert(2 * i, TreeState.info(2 * i));
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws Exception {
+			((AutoCloseable) tree).close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Keys {
+		private int[] stream;
+		private int pos;
+
+		@Setup(Level.Trial)
+		public void build(Log log) {
+			stream = KeyStreams.accessStream(KeyStreams.RANDOM, log.size, TreeState.STREAM_LENGTH,
+					(int) Thread.currentThread().getId());
+		}
+
+		int next() {
+			return stream[pos++ & (TreeState.STREAM_LENGTH - 1)];
+		}
+	}
+
+	@Benchmark
+	public int insertDelete(Log log, Keys keys) {
+		int k = 2 * keys.next() + 1;
+		int steps = log.tree.insert(k, TreeState.info(k));
+		if (steps == -1) {          // another thread has it, the write becomes a delete
+			steps = log.tree.delete(k);
+		}
+		return steps;
+	}
+}
@@ -0,0 +1,23 @@
+package avlbench;
+
+/**
+ *
+ * Engines
+ *
+ * Creates a TreeOps adapter for an engine by its class name,
+ * e.g. "AVLTree" loads the default package class AVLTreeOps.
+ *
+ */
+public final class Engines {
+
+	private Engines() {
+	}
+
+	public static TreeOps create(String engine) {
+		try {
+			return (TreeOps) Class.forName(engine + "Ops").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("no benchmark adapter for engine " + engine, e);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package avlbench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ *
+ * Footprint
+ *
+ * Heap bytes per entry of each engine, measured as the used heap after a full GC
+ * with and without a tree of n keys. The infos are shared strings (TreeState.info),
+ * so only the tree itself is counted.
+ *
+ * usage: java -cp target/benchmarks.jar avlbench.Footprint [n] [engine...]
+ *
+ */
+public final class Footprint {
+
+	private Footprint() {
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		String[] engines = args.length > 1
+				? java.util.Arrays.copyOfRange(args, 1, args.length)
+				: new String[] {"AVLTree", "IntAVLTree", "OffHeapAVLTree"};
+		int[] order = KeyStreams.insertionOrder(KeyStreams.RANDOM, n, 42);
+		for (String engine : engines) {
+			long before = usedHeap();
+			TreeOps tree = Engines.create(engine);
+			for (int i : order) {
+				tree.insert(2 * i, TreeState.info(2 * i));
+			}
+			long after = usedHeap();
+			System.out.printf("%-18s %,d keys: %,d bytes, %.1f bytes/entry%n",
+					engine, tree.size(), after - before, (after - before) / (double) n);
+		}
+	}
+
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
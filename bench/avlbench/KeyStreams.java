@@ -0,0 +1,116 @@
+package avlbench;
+
+import java.util.SplittableRandom;
+
+/**
+ *
+ * KeyStreams
+ *
+ * Key streams used by the benchmarks.
+ * A tree of n keys holds the even keys 0, 2, ..., 2(n-1), so an odd key is
+ * always a miss. Streams return indexes in [0, n); callers map an index i
+ * to the key 2i (hit) or 2i+1 (miss).
+ *
+ */
+public final class KeyStreams {
+
+	public static final String SEQUENTIAL = "sequential";
+	public static final String RANDOM = "random";
+	public static final String ZIPFIAN = "zipfian";
+
+	private KeyStreams() {
+	}
+
+	/** the order in which the n keys are inserted when building the tree */
+	public static int[] insertionOrder(String dist, int n, long seed) {
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		if (!SEQUENTIAL.equals(dist)) {        // random and zipfian trees are built from a shuffled order
+			SplittableRandom rnd = new SplittableRandom(seed);
+			for (int i = n - 1; i > 0; i--) {
+				int j = rnd.nextInt(i + 1);
+				int tmp = order[i];
+				order[i] = order[j];
+				order[j] = tmp;
+			}
+		}
+		return order;
+	}
+
+	/** an access stream of length len (a power of two) over [0, n) */
+	public static int[] accessStream(String dist, int n, int len, long seed) {
+		int[] stream = new int[len];
+		SplittableRandom rnd = new SplittableRandom(seed);
+		switch (dist) {
+			case SEQUENTIAL:
+				for (int i = 0; i < len; i++) {
+					stream[i] = i % n;
+				}
+				break;
+			case RANDOM:
+				for (int i = 0; i < len; i++) {
+					stream[i] = rnd.nextInt(n);
+				}
+				break;
+			case ZIPFIAN:
+				Zipfian zipf = new Zipfian(n, 0.99);
+				for (int i = 0; i < len; i++) {
+					stream[i] = scramble(zipf.next(rnd), n);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("unknown key distribution " + dist);
+		}
+		return stream;
+	}
+
+	/** spread the hot ranks over the key space, so that the hot keys are not all in the leftmost subtree */
+	private static int scramble(int rank, int n) {
+		long h = (rank + 1) * 0x9E3779B97F4A7C15L;
+		return (int) Long.remainderUnsigned(h ^ (h >>> 32), n);
+	}
+
+	/**
+	 * Zipfian generator over [0, n) (Gray et al., "Quickly generating billion-record synthetic databases").
+	 * rank 0 is the most popular.
+	 */
+	static final class Zipfian {
+		private final int n;
+		private final double theta;
+		private final double alpha;
+		private final double zetan;
+		private final double eta;
+
+		Zipfian(int n, double theta) {
+			this.n = n;
+			this.theta = theta;
+			this.alpha = 1.0 / (1.0 - theta);
+			this.zetan = zeta(n, theta);
+			double zeta2 = zeta(2, theta);
+			this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+		}
+
+		private static double zeta(int n, double theta) {
+			double sum = 0;
+			for (int i = 1; i <= n; i++) {
+				sum += 1 / Math.pow(i, theta);
+			}
+			return sum;
+		}
+
+		int next(SplittableRandom rnd) {
+			double u = rnd.nextDouble();
+			double uz = u * zetan;
+			if (uz < 1.0) {
+				return 0;
+			}
+			if (uz < 1.0 + Math.pow(0.5, theta)) {
+				return 1;
+			}
+			int rank = (int) (n * Math.pow(eta * u - eta + 1, alpha));
+			return Math.min(rank, n - 1);
+		}
+	}
+}
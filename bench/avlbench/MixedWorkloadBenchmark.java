@@ -0,0 +1,69 @@
+package avlbench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * MixedWorkloadBenchmark
+ *
+ * A mix of reads and writes over the same key stream.
+ * A read searches a present (even) key, a write toggles the matching odd key:
+ * insert it, or delete it if it is already there.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixedWorkloadBenchmark {
+
+	@State(Scope.Thread)
+	public static class Mix {
+		@Param({"50", "90", "99"})
+		public int readPercent;
+
+		private final byte[] coins = new byte[TreeState.STREAM_LENGTH];
+		private int pos;
+
+		@Setup(Level.Trial)
+		public void roll() {
+			SplittableRandom rnd = new SplittableRandom(11);
+			for (int i = 0; i < coins.length; i++) {
+				coins[i] = (byte) rnd.nextInt(100);
+			}
+		}
+
+		boolean read() {
+			return coins[pos++ & (coins.length - 1)] < readPercent;
+		}
+	}
+
+	@Benchmark
+	public int mixed(TreeState s, Mix mix) {
+		int i = s.next();
+		if (mix.read()) {
+			return s.tree.search(2 * i) == null ? 0 : 1;
+		}
+		int k = 2 * i + 1;
+		int steps = s.tree.insert(k, TreeState.info(k));
+		if (steps == -1) {          // already there, the write becomes a delete
+			steps = s.tree.delete(k);
+		}
+		return steps;
+	}
+}
@@ -0,0 +1,37 @@
+package avlbench;
+
+/**
+ *
+ * TreeOps
+ *
+ * The operations of the AVL tree as seen by the benchmarks.
+ * AVLTree lives in the default package, which code in a named package
+ * (and JMH requires one) cannot reference, so every engine is reached
+ * through an adapter class in the default package that implements this
+ * interface. The adapter is loaded by name, see Engines.
+ *
+ */
+public interface TreeOps {
+	public boolean empty();
+
+	public String search(int k);
+
+	public int insert(int k, String i);
+
+	public int delete(int k);
+
+	public String min();
+
+	public String max();
+
+	public int[] keysToArray();
+
+	public String[] infoToArray();
+
+	public int size();
+
+	/** splits the tree around x (which must be in the tree) and joins the two halves back with x.
+	 *  the tree keeps the same keys, so the operation can be measured repeatedly.
+	 *  returns the cost reported by join */
+	public int splitJoin(int x);
+}
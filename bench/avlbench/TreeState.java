@@ -0,0 +1,61 @@
+package avlbench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ *
+ * TreeState
+ *
+ * A tree of `size` keys built in the order given by `dist`, together with an
+ * access stream of the same distribution (see KeyStreams).
+ * The 10M and 100M sizes need a large heap, e.g. -jvmArgs -Xmx16g.
+ *
+ */
+@State(Scope.Thread)
+public class TreeState {
+
+	static final int STREAM_LENGTH = 1 << 20;   // power of two, the stream is read with a mask
+	static final String[] INFOS = new String[1024];
+
+	static {
+		for (int i = 0; i < INFOS.length; i++) {
+			INFOS[i] = "info" + i;
+		}
+	}
+
+	@Param({"AVLTree", "IntAVLTree", "OffHeapAVLTree", "PathAVLTree", "MonomorphicAVLTree"})
+	public String engine;
+
+	@Param({"1000", "100000", "10000000", "100000000"})
+	public int size;
+
+	@Param({KeyStreams.SEQUENTIAL, KeyStreams.RANDOM, KeyStreams.ZIPFIAN})
+	public String dist;
+
+	public TreeOps tree;
+	private int[] stream;
+	private int pos;
+
+	@Setup(Level.Trial)
+	public void build() {
+		tree = Engines.create(engine);
+		for (int i : KeyStreams.insertionOrder(dist, size, 42)) {
+			tree.insert(2 * i, info(2 * i));
+		}
+		stream = KeyStreams.accessStream(dist, size, STREAM_LENGTH, 7);
+		pos = 0;
+	}
+
+	/** the next index of the access stream, in [0, size) */
+	public int next() {
+		return stream[pos++ & (STREAM_LENGTH - 1)];
+	}
+
+	public static String info(int key) {
+		return INFOS[key & (INFOS.length - 1)];
+	}
+}
@@ -1,1153 +1,2382 @@
-
-/**
- *
- * AVLTree
- *
- * An implementation of a AVL Tree with
- * distinct integer keys and info
- *
- */
-
-public class AVLTree {
-
-	private static final ExtLeaf extLeaf = new ExtLeaf();
-	private IAVLNode root;
-	private IAVLNode min_node;
-	private IAVLNode max_node;
-	// constructor
-	public AVLTree() {
-		this.root = AVLTree.extLeaf;
-	}
-
-
-	/**
-	 * public boolean empty()
-	 * <p>
-	 * returns true if and only if the tree is empty
-	 */
-	//if the root is an external leaf it's an empty tree
-	public boolean empty() {
-		return root==extLeaf;
-	}
-
-	/**
-	 * public String search(int k)
-	 * <p>
-	 * returns the info of an item with key k if it exists in the tree
-	 * otherwise, returns null
-	 */
-	public String search(int k) {
-		if (this.empty()) {                   // return null in case the tree is empty
-			return null;
-		}
-		IAVLNode node = this.root;            // if the tree isn't empty we need to search k
-		while (node != AVLTree.extLeaf) {
-			if (node.getKey() == k) {         // if root.key == k
-				return node.getValue();
-			}
-			else {                            // if root.key > k going left
-				if (node.getKey() > k) {
-					node = node.getLeft();
-				}
-				else {
-					node = node.getRight();   // if root.key < k going right
-				}
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * public int insert(int k, String i)
-	 * <p>
-	 * inserts an item with key k and info i to the AVL tree.
-	 * the tree must remain valid (keep its invariants).
-	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
-	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
-	 * returns -1 if an item with key k already exists in the tree.
-	 */
-	public int insert(int k, String i) {
-		AVLNode y = (AVLNode) (this.TreePosition(root, k));
-
-		AVLNode node = new AVLNode(k, i);         // create new AVLNode for the key = k
-
-		if (y == null) {                          // if the tree is empty insert the node as the root and return 0
-			node.setHeight(0);
-			node.setLeft(AVLTree.extLeaf);
-			node.setRight(AVLTree.extLeaf);
-			node.setParent(null);
-			node.fixSize();
-			this.setRootForTree(node, this);
-			return 0;
-		}
-		if (k == y.getKey()) {                    // if the node already exists return -1
-			return -1;
-		}
-
-		node.setParent(y);                        // set node's parent to be y
-
-		if (node.getKey() < y.getKey()) {         // insert node as left son
-			y.setLeft(node);
-		} else {                                  // insert node a right son
-			y.setRight(node);
-		}
-		node.setRight(AVLTree.extLeaf);           // setting external leaves
-		node.setLeft(AVLTree.extLeaf);
-		node.setHeight(0);                        // setting node height to 0
-		node.setSize(1);
-
-		if (node.getKey() < this.min_node.getKey()) {  // check if needed to update the min reference
-			this.min_node = node;
-		}
-		if (node.getKey() > this.max_node.getKey()) {  // check if needed to update the max reference
-			this.max_node = node;
-		}
-
-		y.fixSize();      // correct node.parent size (+1)
-
-		// Rebalancing Process
-		int steps = 0;                               // if y isn't a leaf the tree is balanced so return 0
-		if (y.getHeight() == 0) {                    // if y is a leaf we need to rebalance the tree
-			steps = InsertBalance(y);
-		}
-		else {                 // we need to continue the path to the root in order to maintain size field
-			while (y != null) {
-				y.fixSize();
-				y = (AVLNode)y.getParent();
-			}
-		}
-		return steps;
-	}
-	/** function for rebalance after insertion  */
-	public int InsertBalance(IAVLNode y){
-		int steps = 0;
-		int y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());       // calc rank difference between node and sons
-		int y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight());
-
-
-		// while node is not 1-1, 1-2 or 2-1
-		while (!((y_left_rank_diff == 1 && y_right_rank_diff == 1) || (y_left_rank_diff == 1 && y_right_rank_diff == 2)
-				|| (y_left_rank_diff == 2 && y_right_rank_diff == 1))) {
-			// for 0-1 or 1-0 node we need to promote y
-			if ((y_left_rank_diff == 1 && y_right_rank_diff == 0) || (y_left_rank_diff == 0 && y_right_rank_diff == 1)) {
-				y.setHeight(y.getHeight()+1);
-				steps++;
-				((AVLNode) y).fixSize();
-				// if we are in the root, exit loop
-				if(y.getParent() == null) {
-					this.root = y;
-					break;
-				}
-			}
-
-			// for 0-2 node
-			else {
-				if (y_left_rank_diff == 0 && y_right_rank_diff == 2) {
-					// calc rank differences for y left son and his sons to decided which rotate to do
-					// current node: y.getLeft()
-					int y_leftleft_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getLeft());
-					int y_leftright_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getRight());
-
-					// for 1-2 node we need to rotate right
-					if (y_leftleft_rank_diff == 1 && y_leftright_rank_diff == 2) {
-						IAVLNode curr = rotate_right(y, y.getLeft());
-
-						curr.getRight().setHeight(curr.getRight().getHeight()-1);
-						fixParentPointer(curr, y.getKey());
-						steps = steps+2;
-						((AVLNode) curr.getRight()).fixSize();
-						((AVLNode) curr).fixSize();
-						break;
-
-					}
-					// for 2-1 node we need double rotation: left-right rotation
-					if (y_leftleft_rank_diff == 2 && y_leftright_rank_diff == 1) {
-						IAVLNode curr = rotate_left_right(y, y.getLeft(), y.getLeft().getRight());
-
-						curr.setHeight(curr.getHeight()+1);
-						curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
-						curr.getRight().setHeight(curr.getRight().getHeight()-1);
-						fixParentPointer(curr, y.getKey());
-						steps= steps+5;
-						((AVLNode) curr.getLeft()).fixSize();
-						((AVLNode) curr.getRight()).fixSize();
-						((AVLNode) curr).fixSize();
-						break;
-					}
-				}
-				// for 2-0 nodes
-				else {
-					if (y_left_rank_diff == 2 && y_right_rank_diff == 0) {
-
-						// calc rank differences for y right son and his sons to decided which rotate to do
-						// current node: y.getLeft()
-						int y_rightleft_rank_diff =  ((AVLNode) y.getRight()).rank_difference(y.getRight().getLeft());
-						int y_rightright_rank_diff = ((AVLNode) y.getRight()).rank_difference(y.getRight().getRight());
-
-						// for 1-2 node we need double rotation: right-left rotation
-						if (y_rightleft_rank_diff == 1 && y_rightright_rank_diff == 2) {
-							IAVLNode curr = rotate_right_left(y, y.getRight(), y.getRight().getLeft());
-							curr.setHeight(curr.getHeight()+1);
-							curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
-							curr.getRight().setHeight(curr.getRight().getHeight()-1);
-							fixParentPointer(curr, y.getKey());
-							steps= steps+5;
-							((AVLNode) curr.getLeft()).fixSize();
-							((AVLNode) curr.getRight()).fixSize();
-							((AVLNode) curr).fixSize();
-							break;
-
-						}
-
-						// for 2-1 node we need one rotation: left rotation
-						if (y_rightleft_rank_diff == 2 && y_rightright_rank_diff == 1) {
-							IAVLNode curr = rotate_left(y, y.getRight());
-							curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
-							fixParentPointer(curr, y.getKey());
-							((AVLNode) curr.getLeft()).fixSize();
-							((AVLNode) curr).fixSize();
-							steps= steps+2;
-							break;
-						}
-					}
-				}
-			}
-			y = y.getParent();
-			y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());   // calc rank difference between node and left son
-			y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight()); // calc rank difference between node and right son
-
-		}
-
-		while(y != null) {  // we need to continue the path to the root in order to maintain size field
-			((AVLNode) y).fixSize();
-			y = y.getParent();
-		}
-		return steps;
-	}
-
-	/** function that connect the current node's parent to the current node */
-	public void fixParentPointer(IAVLNode curr, int curr_key){
-		if(curr.getParent() != null) {           // if curr is not the root
-			IAVLNode parent = curr.getParent();  // connect curr.parent with curr
-			if (parent.getRight().getKey() == curr_key) {
-				parent.setRight(curr);
-			} else {
-				parent.setLeft(curr);
-			}
-		}
-		else {
-			this.root = curr;                   // if curr is the root, change the root
-		}
-
-	}
-	/** function for left rotation */
-	public IAVLNode rotate_left(IAVLNode curr, IAVLNode right_son) {
-		IAVLNode tmp = right_son.getLeft();
-		right_son.setLeft(curr);
-		right_son.setParent(curr.getParent());
-		curr.setParent(right_son);
-		curr.setRight(tmp);
-		tmp.setParent(curr);
-		return right_son;
-
-	}
-	/** function for right rotation */
-	public IAVLNode rotate_right(IAVLNode curr, IAVLNode left_son) {
-		IAVLNode tmp = left_son.getRight();
-		left_son.setRight(curr);
-		left_son.setParent(curr.getParent());
-		curr.setParent(left_son);
-		curr.setLeft(tmp);
-		tmp.setParent(curr);
-		return left_son;
-	}
-	/** function for right-left rotation */
-	public IAVLNode rotate_right_left(IAVLNode curr, IAVLNode right_son, IAVLNode rightleft_son) {
-		IAVLNode tmp_left = rightleft_son.getLeft();
-		IAVLNode tmp_right = rightleft_son.getRight();
-
-		rightleft_son.setParent(curr.getParent());
-		curr.setParent(rightleft_son);
-		rightleft_son.setLeft(curr);
-		curr.setRight(tmp_left);
-		tmp_left.setParent(curr);
-
-		rightleft_son.setRight(right_son);
-		right_son.setParent(rightleft_son);
-		right_son.setLeft(tmp_right);
-		tmp_right.setParent(right_son);
-		return rightleft_son;
-
-	}
-	/** function for left-right rotation */
-	public IAVLNode rotate_left_right(IAVLNode curr, IAVLNode left_son, IAVLNode leftright_son) {
-		IAVLNode tmp_left = leftright_son.getLeft();
-		IAVLNode tmp_right = leftright_son.getRight();
-
-		leftright_son.setParent(curr.getParent());
-
-		leftright_son.setLeft(left_son);
-		left_son.setParent(leftright_son);
-		leftright_son.setRight(curr);
-		curr.setParent(leftright_son);
-
-		left_son.setRight(tmp_left);
-		tmp_left.setParent(left_son);
-		curr.setLeft(tmp_right);
-		tmp_right.setParent(curr);
-		return leftright_son;
-
-	}
-	/** function for rebalance after deletion  */
-	public int DeleteBalance(IAVLNode y){
-
-		int steps=0;
-		int y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());       // calc rank difference between node and sons
-		int y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight());
-
-		// while node is not 1-1, 1-2 or 2-1
-		while (!((y_left_rank_diff == 1 && y_right_rank_diff == 1) || (y_left_rank_diff == 1 && y_right_rank_diff == 2)
-				|| (y_left_rank_diff == 2 && y_right_rank_diff == 1))) {
-
-			// for 2-2 node
-			if (y_left_rank_diff == 2 && y_right_rank_diff == 2) {
-				y.setHeight(y.getHeight() - 1);
-				steps=steps+1;
-				if(y.getParent() == null) {
-					this.root = y;
-					break;
-				}
-			}
-			else {
-				// for 3-1 node
-				if (y_left_rank_diff == 3 && y_right_rank_diff == 1) {
-
-					// calc rank differences for y left son and his sons to decided which rotate to do
-					// current node: y.getLeft()
-					int y_rightleft_rank_diff =  ((AVLNode) y.getRight()).rank_difference(y.getRight().getLeft());
-					int y_rightright_rank_diff = ((AVLNode) y.getRight()).rank_difference(y.getRight().getRight());
-
-					// for 1-1 node we need to rotate left
-					if (y_rightleft_rank_diff == 1 && y_rightright_rank_diff == 1) {
-						IAVLNode curr = rotate_left(y, y.getRight());
-						curr.setHeight(curr.getHeight()+1);
-						curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
-						fixParentPointer(curr, y.getKey());
-						((AVLNode) curr.getLeft()).fixSize();
-						((AVLNode) curr).fixSize();
-						steps= steps+3;
-						break;
-					}
-					// for 2-1 node we need to rotate left
-					if (y_rightleft_rank_diff == 2 && y_rightright_rank_diff == 1) {
-						IAVLNode curr = rotate_left(y, y.getRight());
-						curr.getLeft().setHeight(curr.getLeft().getHeight()-2);
-						fixParentPointer(curr, y.getKey());
-						((AVLNode) curr.getLeft()).fixSize();
-						((AVLNode) curr).fixSize();
-						y=curr;
-						steps+=2;
-					}
-					// for 1-2 node we need to rotate right-left
-					else if (y_rightleft_rank_diff == 1 && y_rightright_rank_diff == 2) {
-						IAVLNode curr = rotate_right_left(y, y.getRight(), y.getRight().getLeft());
-						curr.setHeight(curr.getHeight()+1);
-						curr.getLeft().setHeight(curr.getLeft().getHeight()-2);
-						curr.getRight().setHeight(curr.getRight().getHeight()-1);
-						fixParentPointer(curr, y.getKey());
-						((AVLNode) curr.getLeft()).fixSize();
-						((AVLNode) curr.getRight()).fixSize();
-						((AVLNode) curr).fixSize();
-						y=curr;
-						steps+=5;
-					}
-				}
-				else {
-					// for 1-3 node
-					if (y_left_rank_diff == 1 && y_right_rank_diff == 3) {
-
-						// calc rank differences for y left son and his sons to decided which rotate to do
-						// current node: y.getLeft()
-						int y_leftleft_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getLeft());
-						int y_leftright_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getRight());
-
-						// for 1-1 node we need to rotate left
-						if (y_leftleft_rank_diff == 1 && y_leftright_rank_diff == 1) {
-							IAVLNode curr = rotate_right(y, y.getLeft());
-							curr.setHeight(curr.getHeight()+1);
-							curr.getRight().setHeight(curr.getRight().getHeight() - 1);
-							fixParentPointer(curr, y.getKey());
-							((AVLNode) curr.getRight()).fixSize();
-							steps= steps + 3;
-							break;
-						}
-						// for 2-1 node we need to rotate left
-						if (y_leftleft_rank_diff == 2 && y_leftright_rank_diff == 1) {
-							IAVLNode curr = rotate_left_right(y, y.getLeft(), y.getLeft().getRight());
-							curr.setHeight(curr.getHeight() + 1);
-							curr.getRight().setHeight(curr.getRight().getHeight() - 2);
-							curr.getLeft().setHeight(curr.getLeft().getHeight() - 1);
-							fixParentPointer(curr, y.getKey());
-							((AVLNode) curr.getRight()).fixSize();
-							((AVLNode) curr.getLeft()).fixSize();
-							((AVLNode) curr).fixSize();
-							y=curr;
-							steps += 5;
-						}
-						// for 1-2 node we need to rotate right-left
-						else if (y_leftleft_rank_diff == 1 && y_leftright_rank_diff == 2) {
-
-							IAVLNode curr = rotate_right(y, y.getLeft());
-							curr.getRight().setHeight(curr.getRight().getHeight() - 2);
-							fixParentPointer(curr, y.getKey());
-							((AVLNode) curr.getRight()).fixSize();
-							((AVLNode) curr).fixSize();
-							y=curr;
-							steps += 2;
-						}
-					}
-				}
-
-			}
-			// if we are in the root, exit loop
-			if (y.getParent() == null) {
-				this.root = y;
-				break;
-			}
-			y = y.getParent();
-			y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());   // calc rank difference between node and left son
-			y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight()); // calc rank difference between node and right son
-		}
-		if(y == this.root) {  // we maintained size field all the way to the root and can finish
-			((AVLNode) y).fixSize();
-			return steps;
-		}
-		else{                 // we need to continue the path to the root in order to maintain size field
-			while(y != null){
-				((AVLNode) y).fixSize();
-				y = y.getParent();
-			}
-		}
-		return steps;
-	}
-
-	/**
-	 * public int delete(int k)
-	 * <p>
-	 * deletes an item with key k from the binary tree, if it is there;
-	 * the tree must remain valid (keep its invariants).
-	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
-	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
-	 * returns -1 if an item with key k was not found in the tree.
-	 */
-	public int delete(int k) {
-		if (search(k) == null) {
-			return -1;
-		}
-		IAVLNode y = TreePosition(root, k);      // node.key = k
-
-		if(y == this.root && y.getHeight()==0){  // there is only root in the tree and we delete it
-			this.root = AVLTree.extLeaf;
-			this.min_node = AVLTree.extLeaf;
-			this.max_node = AVLTree.extLeaf;
-			return 0;
-		}
-		int y_key = y.getKey();                  // saving y.key() for Min/Max tests later
-
-		if (y.getLeft().getHeight() != -1 && y.getRight().getHeight() != -1) {  // if the node has 2 sons
-
-			IAVLNode s = successor(y);                                          // find the successor and replace it with node
-			int s_key = s.getKey();
-			String s_info = s.getValue();
-			((AVLNode) s).setKey(y.getKey());
-			((AVLNode) s).setValue(y.getValue());
-			((AVLNode) y).setKey(s_key);
-			((AVLNode) y).setValue(s_info);
-			y=s;
-
-		}
-		if (y.getParent()==null && y.getHeight()==1) {                          // if node is root and have 1 child
-			if (y.getRight() == AVLTree.extLeaf) {
-				this.root = y.getLeft();
-				y.getLeft().setParent(null);
-				y.setLeft(AVLTree.extLeaf);
-				y.setRight(AVLTree.extLeaf);
-				y=this.root;
-			} else {
-				IAVLNode s = successor(y);
-				this.root = s;
-				s.setParent(null);
-				s.setLeft(AVLTree.extLeaf);
-				s.setRight(AVLTree.extLeaf);
-				y=this.root;
-			}
-			((AVLNode) this.root).fixSize();
-			return 0;
-		}
-		else if (y.getHeight() == 0) {                  //  if the node is a leaf and not root
-
-			if (isLeftSon(y)) {                         // check if node is left son
-				y.getParent().setLeft(AVLTree.extLeaf);
-			}                                           // if the node is a right son
-			else {
-				y.getParent().setRight(AVLTree.extLeaf);
-			}
-			y = y.getParent();
-
-			((AVLNode) y).fixSize();
-		}
-		else if (y.getLeft().getHeight() != -1 && y.getRight().getHeight() == -1) {  //  if node has only left son
-			y.getLeft().setParent(y.getParent());       // change node's left son parent to node's parent
-			if (isLeftSon(y)) {                         // if node is left son
-				y.getParent().setLeft(y.getLeft());     // change node's parent left son to node's left son
-			} else {                                    // if is right son
-				y.getParent().setRight(y.getLeft());    // change node's parent right son to node's left son
-			}
-			y = y.getParent();
-			((AVLNode) y).fixSize();
-		}
-		else if (y.getLeft().getHeight() == -1 && y.getRight().getHeight() != -1) {  //if node has only right son
-			y.getRight().setParent(y.getParent());      // change node's right son parent to node's parent
-			if (isLeftSon(y)) {                         // if node is left son
-				y.getParent().setLeft(y.getRight());    // change node's parent left son to node's right son
-
-			} else {                                    // if node is right son
-				y.getParent().setRight(y.getRight());   // change node's parent right son to node's right son
-			}
-			y = y.getParent();
-			((AVLNode) y).fixSize();
-		}
-
-		if(y_key == this.min_node.getKey()){            // if y_key is the current min we need to update the min
-			this.min_node = this.CalcMin(y);
-		}
-		if(y_key == this.max_node.getKey()){            // if y_key is the current max we need to update the max
-			this.max_node = this.CalcMax(y);
-		}
-
-		// Rebalancing Process
-		int steps = 0;
-
-		steps = DeleteBalance(y);
-
-		return steps;
-	}
-	/**
-	 * public String min()
-	 * <p>
-	 * Returns the info of the item with the smallest key in the tree,
-	 * or null if the tree is empty
-	 */
-	public String min() {
-		if(this.root == AVLTree.extLeaf){
-			return null;
-		}
-		return this.min_node.getValue();
-	}
-	/** function to calc the current max in the tree */
-	public IAVLNode CalcMin(IAVLNode node) {
-		while (node.getLeft() != AVLTree.extLeaf) { // go as much left as possible and return the min node
-			node = node.getLeft();
-		}
-		return node;
-	}
-	/**
-	 * public String max()
-	 * <p>
-	 * Returns the info of the item with the largest key in the tree,
-	 * or null if the tree is empty
-	 */
-	public String max() {
-		if(this.root == AVLTree.extLeaf){
-			return null;
-		}
-		return this.max_node.getValue();
-	}
-	/** function to calc the current max in the tree */
-	public IAVLNode CalcMax(IAVLNode node){
-		while (node.getRight() != AVLTree.extLeaf) { // go as much right as possible and return the min node
-			node = node.getRight();
-		}
-		return node;
-	}
-	/**
-	 * public int[] keysToArray()
-	 * <p>
-	 * Returns a sorted array which contains all keys in the tree,
-	 * or an empty array if the tree is empty.
-	 */
-
-	public int[] keysToArray() {
-		if (this.empty()) {            // return empty array if the tree is empty
-			return new int[0];
-		}
-		IAVLNode node = this.min_node;  // the node with minimum key value
-		int[] arr = new int[this.size()];
-		arr[0] = node.getKey();
-		for (int i = 1; i < arr.length; i++) {  // loop over all tree nodes
-			arr[i] = successor(node).getKey();
-			node = successor(node);
-		}
-		return arr;
-	}
-	/**
-	 * public String[] infoToArray()
-	 * <p>
-	 * Returns an array which contains all info in the tree,
-	 * sorted by their respective keys,
-	 * or an empty array if the tree is empty.
-	 */
-
-	public String[] infoToArray() {
-		if (this.empty()) {
-			return new String[0];
-		}   //return empty array if the tree is empty
-		IAVLNode node = this.min_node;
-		String[] arr = new String[size()];
-		arr[0] = node.getValue();
-		for (int i = 1; i < arr.length; i++) {
-			arr[i] = successor(node).getValue();
-			node = successor(node);
-		}
-		return arr;
-	}
-	/**
-	 * public int size()
-	 * <p>
-	 * Returns the number of nodes in the tree.
-	 * <p>
-	 * precondition: none
-	 * postcondition: none
-	 */
-	public int size() {
-		if(this.root.isRealNode()) {
-			return ((AVLNode) this.root).getSize();
-		}
-		else{ return 0;}
-	}
-	/**
-	 * public int getRoot()
-	 * <p>
-	 * Returns the root AVL node, or null if the tree is empty
-	 * <p>
-	 * precondition: none
-	 * postcondition: none
-	 */
-	public IAVLNode getRoot() {
-		if (this.empty()) {
-			return null;
-		}
-		return this.root;
-	}
-
-	/**
-	 * Function that change the root of the tree
-	 * The function also update the min_node and max_node field
-	 * Worst case efficiency is O(logn)
-	 * precondition: newRoot is a root of a valid AVL tree
-	 *
-	 */
-
-	public void setRootForTree(IAVLNode newRoot, AVLTree t){
-		if(newRoot == AVLTree.extLeaf){
-			t.root = AVLTree.extLeaf;
-			t.min_node = null;
-			t.max_node = null;
-		}
-		else {
-			t.root = newRoot;
-			t.min_node = t.CalcMin(t.root);
-			t.max_node = t.CalcMax(t.root);
-		}
-	}
-	/**
-	 * public string split(int x)
-	 * <p>
-	 * splits the tree into 2 trees according to the key x.
-	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
-	 * precondition: search(x) != null (i.e. you can also assume that the tree is not empty)
-	 * postcondition: none
-	 */
-	public AVLTree[] split(int x) {
-
-		IAVLNode nodex = this.TreePosition(this.root, x);              // the node of x
-		AVLTree t1 = new AVLTree();                                    // tree with keys() < x
-		AVLTree t2 = new AVLTree();                                    // tree with keys() > x
-		IAVLNode left_node = nodex.getLeft();
-		IAVLNode right_node = nodex.getRight();
-		// --- Insert the left subtree of nodex to t1 and the right subtree to t2
-		if(left_node.getHeight() != -1){
-			AVLTree tmp_tree = new AVLTree();
-			t1.join(left_node, tmp_tree);
-		}
-		if(right_node.getHeight() != -1){
-			AVLTree tmp_tree = new AVLTree();
-			t2.join(right_node, tmp_tree);
-		}
-		// --- now continue all the way to the root and merge t1/t2 with the relevant subtree
-		while(nodex != this.root) {
-
-			if(nodex == nodex.getParent().getRight()) {      // if nodex is right son
-				left_node = nodex.getParent().getLeft();
-				if (left_node.getHeight() > -1) {            // if left_node isn't a leaf we need to add it to t1
-					AVLTree tmp_tree = new AVLTree();
-					tmp_tree.root = left_node;
-					IAVLNode nodex_parent_tree = new AVLNode(nodex.getParent().getKey(), nodex.getParent().getValue());
-					tmp_tree.root.getParent().setRight(AVLTree.extLeaf);
-					tmp_tree.root.setParent(null);
-					t1.join(nodex_parent_tree, tmp_tree);
-				}
-				else{										 // if left_node is a leaf we add only nodex.parent to t1
-					AVLTree tmp_tree = new AVLTree();
-					IAVLNode nodex_parent_tree = new AVLNode(nodex.getParent().getKey(), nodex.getParent().getValue());
-					nodex_parent_tree.setLeft(AVLTree.extLeaf);
-					nodex_parent_tree.setRight(AVLTree.extLeaf);
-					t1.join(nodex_parent_tree, tmp_tree);
-				}
-			}
-			else {											 // if nodex is left son
-
-				right_node = nodex.getParent().getRight();
-				if (right_node.getHeight() > -1) {			// if right_node isn't a leaf we need to add it to t2
-					AVLTree tmp_tree = new AVLTree();
-					tmp_tree.root = right_node;
-					IAVLNode nodex_parent_tree = new AVLNode(nodex.getParent().getKey(), nodex.getParent().getValue());
-					tmp_tree.root.getParent().setLeft(AVLTree.extLeaf);
-					tmp_tree.root.setParent(null);
-					t2.join(nodex_parent_tree, tmp_tree);
-				}
-				else{										// if right_node is a leaf we add only nodex.parent to t2
-					AVLTree tmp_tree = new AVLTree();
-					IAVLNode nodex_parent_tree = new AVLNode(nodex.getParent().getKey(), nodex.getParent().getValue());
-					nodex_parent_tree.setLeft(AVLTree.extLeaf);
-					nodex_parent_tree.setRight(AVLTree.extLeaf);
-					t2.join(nodex_parent_tree, tmp_tree);
-				}
-			}
-			nodex = nodex.getParent();
-		}
-
-		return new AVLTree[] {t1, t2};
-	}
-
-	/**
-	 * public join(IAVLNode x, AVLTree t)
-	 * <p>
-	 * joins t and x with the tree.
-	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1).
-	 * precondition: keys(x,t) < keys() or keys(x,t) > keys(). t/tree might be empty (rank = -1).
-	 * postcondition: none
-	 */
-	public int join(IAVLNode x, AVLTree t) {
-
-		if ((this.empty()) && (t.empty())) {                    // if both trees are empty
-
-			this.setRootForTree(x, this);                    // set new root for the tree and calc Min/Max
-			((AVLNode) this.root).fixSize();                    // set size of root to 1
-			return 1;                                           // |0 - 0| + 1
-		}
-		if (this.empty()) {                                     // if this.tree is empty
-			this.setRootForTree(t.getRoot(), this);          // change root to t.root
-			this.insert(x.getKey(), x.getValue());              // insert x to the new tree
-			return t.getRoot().getHeight() + 1;                 // return |0 - t.root.rank| + 1
-		}
-		if (t.empty()) {                                        // if t is empty
-			this.insert(x.getKey(), x.getValue()); 				// insert x to the new tree
-			int tmp_height = this.root.getHeight();			    // save the curr height for return value
-			return tmp_height+1;                                // return |this.rank - 0| + 1
-		}
-
-		// --- CALC RETURN VALUE
-		int rank_diff_res;
-		if(this.root.getHeight()>=t.getRoot().getHeight()){
-			rank_diff_res = this.root.getHeight()-t.getRoot().getHeight()+1;
-		}
-		else{ rank_diff_res = t.getRoot().getHeight()-this.getRoot().getHeight()+1;}
- 		// ----
-
-		if (this.getRoot().getHeight() == t.getRoot().getHeight()){      // if trees have the same height
-
-			int old_height = this.getRoot().getHeight();
-			if(this.root.getKey() > t.getRoot().getKey()){               // if this.keys > t.keys()
-				this.root.setParent(x);
-				x.setLeft(t.getRoot());
-				t.getRoot().setParent(x);
-				x.setRight(this.root);
-			}
-			else{                                                        // if this.keys < t.keys()
-
-				x.setLeft(this.root);
-				this.root.setParent(x);
-				x.setRight(t.getRoot());
-				t.getRoot().setParent(x);
-			}
-			this.setRootForTree(x, this);                             // fix root and min/max references
-			((AVLNode) this.root).fixSize();                             // fix this.root
-			this.root.setHeight(old_height+1);
-			return rank_diff_res;
-		}
-
-		if (this.root.getKey() < t.getRoot().getKey()) {                 // if this.keys() < t.keys() & have different heights
-			if (this.root.getHeight() < t.getRoot().getHeight()) {       // if this.tree is smaller than t
-				IAVLNode b = t.getRoot();
-				while (b.getHeight() > this.getRoot().getHeight()        // loop until b.height == k/k-1 (k=this.root.height)
-						&& b.getLeft().getHeight() != -1) {
-
-					b = b.getLeft();
-				}
-				if(b == t.getRoot()){                                    // if b is t.root than b has no parent - special case
-					b.setParent(x);
-					x.setRight(b);
-					x.setLeft(this.root);
-					this.root.setParent(x);
-					x.setHeight(b.getHeight() + 1);            			// correct x's height
-					((AVLNode) x).fixSize();
-					this.setRootForTree(x, this);                    // fix root and min/max references
-					return rank_diff_res;
-				}
-				else {													// if b is not t.root
-					x.setParent(b.getParent());
-					b.getParent().setLeft(x);
-					b.setParent(x);
-					x.setRight(b);
-					x.setLeft(this.root);
-					this.root.setParent(x);
-					x.setHeight(b.getHeight() + 1);                     // correct x's height
-					this.root = t.getRoot();
-					((AVLNode) x).fixSize();
-				}
-			}
-			else {                                                      // if this.tree is higher than t
-				IAVLNode b = this.root;
-				while (b.getHeight() > t.getRoot().getHeight()          // loop until b.height == k/k-1 (k=t.root.height)
-						&& b.getRight().getHeight() != -1) {
-					b = b.getRight();
-				}
-				if(b == this.root){  									// if b is this.root than b has no parent - special case
-					x.setLeft(b);
-					b.setParent(x);
-					x.setRight(t.getRoot());
-					t.getRoot().setParent(x);
-					x.setHeight(b.getHeight() + 1);            			// correct x's height
-					((AVLNode) x).fixSize();
-					this.setRootForTree(x, this);                    // fix root and min/max references
-					return rank_diff_res;
-
-				}
-				else {													// if b is not this.root
-					x.setParent(b.getParent());
-					b.getParent().setRight(x);
-					b.setParent(x);
-					x.setLeft(b);
-					x.setRight(t.getRoot());
-					t.getRoot().setParent(x);
-					x.setHeight(b.getHeight() + 1);           			// correct x's height
-					((AVLNode) x).fixSize();
-				}
-			}
-		}
-		else if (this.root.getKey() > t.getRoot().getKey()) {        	// if this.keys() > t.keys() & have different heights
-
-			if (this.root.getHeight() < t.getRoot().getHeight()) {      // if this.tree is smaller that t
-
-				IAVLNode b = t.getRoot();
-				while (b.getHeight() > this.getRoot().getHeight()       // loop until b.height == k/k-1 (k=this.root.height)
-						&& b.getRight().getHeight() != -1) {
-					b = b.getRight();
-				}
-
-				if (b == t.getRoot()) {                                 // if b is t.root than b has no parent - special case
-					x.setLeft(b);
-					b.setParent(x);
-					x.setRight(this.root);
-					this.root.setParent(x);
-					x.setHeight(b.getHeight() + 1);                     // correct x's height
-					((AVLNode) x).fixSize();
-					this.setRootForTree(x, this);                             // fix root and min/max references
-					return rank_diff_res;
-				} else {                                                // if b is not t.root
-					x.setParent(b.getParent());
-					b.getParent().setRight(x);
-					b.setParent(x);
-					x.setLeft(b);
-					x.setRight(this.root);
-					this.root.setParent(x);
-					x.setHeight(b.getHeight() + 1);                     // correct x's height
-					((AVLNode) x).fixSize();
-					this.root = t.getRoot();
-				}
-			}
-			else {                                                      // if this.tree is higher than t
-				IAVLNode b = this.root;
-				while (b.getHeight() > t.getRoot().getHeight() 			// loop until b.height == k/k-1 (k=t.root.height)
-						&& b.getLeft().getHeight() != -1) {
-					b = b.getLeft();
-				}
-
-				if(b == this.root) {                                    // concat 2 root with x
-					x.setRight(b);
-					b.setParent(x);
-					x.setLeft(t.getRoot());
-					t.getRoot().setParent(x);
-					x.setHeight(b.getHeight() + 1);                    // correct x's height
-					((AVLNode) x).fixSize();
-					this.setRootForTree(x, this);                             // fix root and min/max references
-					return rank_diff_res;
-				}
-				else {												   // if b is not this.root
-					x.setParent(b.getParent());
-					b.getParent().setLeft(x);
-					x.setRight(b);
-					b.setParent(x);
-					x.setLeft(t.getRoot());
-					t.getRoot().setParent(x);
-					x.setHeight(b.getHeight() + 1);            			// correct x's height
-					((AVLNode) x).fixSize();
-				}
-			}
-		}
-
-		int rank_diff_c_left = ((AVLNode) x.getParent()).rank_difference(x.getParent().getLeft());
-		int rank_diff_c_right = ((AVLNode) x.getParent()).rank_difference(x.getParent().getRight());
-		int rank_diff_x_left = ((AVLNode) x).rank_difference(x.getLeft());
-		int rank_diff_x_right = ((AVLNode) x).rank_difference(x.getRight());
-		IAVLNode curr= AVLTree.extLeaf;
-
-		if(rank_diff_c_left == 0 && rank_diff_c_right == 2) {            // check if we are in special case of unbalancing
-			if (rank_diff_x_left == 1 && rank_diff_x_right == 1) {
-				curr = rotate_right(x.getParent(), x);
-				curr.setHeight(curr.getHeight()+1);
-				fixParentPointer(curr, x.getRight().getKey());
-				((AVLNode) curr.getRight()).fixSize();
-				((AVLNode) curr).fixSize();
-				if(curr.getParent() == null){							// if we are in root
-					this.setRootForTree(curr, this); 				// change this.root to new root and calc min/max references
-					return rank_diff_res;
-				}
-				InsertBalance(curr.getParent());
-			}
-		}
-		else if(rank_diff_c_left == 2 && rank_diff_c_right == 0) {       // check if we are in special case of unbalancing
-			if (rank_diff_x_left == 1 && rank_diff_x_right == 1) {
-				curr = rotate_left(x.getParent(), x);
-				curr.setHeight(curr.getHeight()+1);
-				fixParentPointer(curr, x.getLeft().getKey());
-				((AVLNode) curr.getLeft()).fixSize();
-				((AVLNode) curr).fixSize();
-				if(curr.getParent() == null){							// if we are in root
-					this.setRootForTree(curr, this); 				// change this.root to new root and calc min/max references
-					return rank_diff_res;
-				}
-				InsertBalance(curr.getParent());
-			}
-		}
-		else {
-			curr = x.getParent();
-			((AVLNode) curr).fixSize();
-			InsertBalance(curr);
-		}
-
-		this.min_node = this.CalcMin(this.root);
-		this.max_node = this.CalcMax(this.root);
-		return rank_diff_res;
-	}
-
-	public IAVLNode successor(IAVLNode x) { // return the successor of node x
-		if (x.getRight() != extLeaf) {      // if the successor is in the right subtree
-			return this.CalcMin(x.getRight());
-		}
-		IAVLNode y = x.getParent();         // if we need to go up to find the successor
-		while (y!=extLeaf && x == y.getRight()) {
-			x = y;
-			y = x.getParent();
-		}
-		return y;
-	}
-
-	/** return the position we need to insert the node in the tree
-	 * if the tree is empty() return null
-	*/
-	public IAVLNode TreePosition(IAVLNode x, int key) {
-
-		if (x==null) {      //if the tree is empty return null
-
-			return null;
-		}
-		IAVLNode y = null;
-		while (x!=AVLTree.extLeaf) {    // else search for node.key=key
-			y = x;
-			if (key == x.getKey()) {
-				return x;               // if you found, return node
-			} else if (key < x.getKey()) {
-				x = x.getLeft();
-			} else {
-				x = x.getRight();
-			}
-		}
-		return y; // return the place where node should be inserted
-	}
-
-	/** return true is the node is a left son */
-	public static boolean isLeftSon(IAVLNode node) {
-		return node.getParent().getLeft().getKey() == node.getKey();
-	}
-
-	/**
-	 * public interface IAVLNode
-	 * ! Do not delete or modify this - otherwise all tests will fail !
-	 */
-	public interface IAVLNode {
-		public int getKey(); //returns node's key (for virtuval node return -1)
-
-		public String getValue(); //returns node's value [info] (for virtuval node return null)
-
-		public void setLeft(IAVLNode node); //sets left child
-
-		public IAVLNode getLeft(); //returns left child (if there is no left child return null)
-
-		public void setRight(IAVLNode node); //sets right child
-
-		public IAVLNode getRight(); //returns right child (if there is no right child return null)
-
-		public void setParent(IAVLNode node); //sets parent
-
-		public IAVLNode getParent(); //returns the parent (if there is no parent return null)
-
-		public boolean isRealNode(); // Returns True if this is a non-virtual AVL node
-
-		public void setHeight(int height); // sets the height of the node
-
-		public int getHeight(); // Returns the height of the node (-1 for virtual nodes)
-
-	}
-	public static class ExtLeaf implements IAVLNode{
-		private int key;
-		private String info;
-		private int size = 0;
-		private final int height=-1;
-		private IAVLNode left = null;
-		private IAVLNode right = null;
-		private IAVLNode parent = null;
-
-		public int getKey(){return -1;}
-		public String getValue(){return null;}
-		public void setLeft(IAVLNode node){}
-
-		public IAVLNode getLeft(){return null;}
-		public void setRight(IAVLNode node){}
-		public IAVLNode getRight(){return null;}
-		public void setParent(IAVLNode node){}
-		public IAVLNode getParent(){return null;}
-		public boolean isRealNode(){return false;}
-		public void setHeight(int height){}
-		public int getHeight(){return this.height;}
-	}
-	/**
-	 * public class AVLNode
-	 * <p>
-	 * If you wish to implement classes other than AVLTree
-	 * (for example AVLNode), do it in this file, not in
-	 * another file.
-	 * This class can and must be modified.
-	 * (It must implement IAVLNode)
-	 */
-
-	public class AVLNode implements IAVLNode {
-
-		private int key;
-		private String info;
-		private int height;
-		private int size;
-		private IAVLNode left = null;
-		private IAVLNode right = null;
-		private IAVLNode parent = null;
-
-		public AVLNode(int key, String value) {
-			this.key = key;
-			this.info = value;
-		}
-
-		public int getKey() {
-			return key;
-		}
-
-		public void setKey(int key) {
-			this.key = key;
-		}
-
-		public String getValue() {
-			return info;
-		}
-
-		public void setValue(String value) {
-			this.info = value;
-		}
-
-		public void setLeft(IAVLNode node) {
-			this.left = node;
-		}
-
-		public IAVLNode getLeft() {
-			return left;
-		}
-
-		public void setRight(IAVLNode node) {
-			this.right = node;
-		}
-
-		public IAVLNode getRight() {
-			return right;
-		}
-
-		public void setParent(IAVLNode node) {
-			this.parent = node;
-		}
-
-		public IAVLNode getParent() {
-			return parent;
-		}
-
-		// Returns True if this is a non-virtual AVL node
-		public boolean isRealNode() {
-			return true;
-		}
-
-		public void setHeight(int height) {
-			this.height = height;
-		}
-
-		public int getHeight() {
-			return height;
-		}
-
-		/**
-		 * public int rank_difference(IAVLNode p, IAVLNode s)
-		 * <p>
-		 * return the rank difference between 2 nodes.
-		 */
-		public int rank_difference(IAVLNode son) {
-			return this.getHeight() - son.getHeight();
-		}
-		public int getSize(){return this.size;}
-		public void setSize(int size){this.size = size;}
-
-		public void fixSize() {
-			if (this.getLeft().getHeight() == -1 && this.getRight().getHeight() == -1) { // the node is a leaf size = 1
-				this.size = 1;
-			}
-			else {               // if the node isn't a leaf, we need to update his size based on his sons.
-				int left_size=0;
-				int right_size=0;
-				if (this.getLeft().isRealNode()) {
-					left_size = ((AVLNode) this.getLeft()).getSize();
-				}
-				if (this.getRight().isRealNode()) {
-					right_size = ((AVLNode) this.getRight()).getSize();
-				}
-
-				this.size = left_size + right_size + 1;
-			}
-		}
-	}
-}
-
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *
+ * AVLTree
+ *
+ * An implementation of a AVL Tree with
+ * distinct integer keys and info
+ *
+ */
+
+public class AVLTree {
+
+	private static final ExtLeaf extLeaf = new ExtLeaf();
+	private static final Augmentation<?>[] NO_AUGMENTATIONS = new Augmentation<?>[0];
+	private IAVLNode root;
+	private IAVLNode min_node;
+	private IAVLNode max_node;
+	private final Augmentation<?>[] augmentations;   // kept in every node besides the size, shared by the trees split from this one
+	private TreeMetrics metrics;                     // null unless enableMetrics() was called
+	private AVLNode free_nodes;                      // deleted nodes kept for reuse, chained by their parent field
+	private int free_count;
+	private int pool_capacity;                       // 0 unless enableNodePool() was called
+	// constructor
+	public AVLTree() {
+		this.root = AVLTree.extLeaf;
+		this.augmentations = NO_AUGMENTATIONS;
+	}
+
+	/**
+	 * public AVLTree(Augmentation&lt;?&gt;... augmentations)
+	 * <p>
+	 * An empty tree whose nodes also keep the value of every augmentation over their subtree
+	 * (SIZE is always kept, in the size field, and is skipped here).
+	 * Each value is recomputed where the size is (fixSize), so insert, delete, the rebalancing,
+	 * split and join keep them up to date at O(1) augmentation calls per node they touch.
+	 */
+	public AVLTree(Augmentation<?>... augmentations) {
+		this.root = AVLTree.extLeaf;
+		this.augmentations = Arrays.stream(augmentations)
+				.filter(a -> a != SIZE)
+				.toArray(Augmentation<?>[]::new);
+	}
+
+	/** an empty tree with the augmentations of template */
+	private AVLTree(AVLTree template) {
+		this.root = AVLTree.extLeaf;
+		this.augmentations = template.augmentations;
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int[] keys, String[] infos)
+	 * <p>
+	 * builds a perfectly balanced tree from keys sorted in increasing order,
+	 * where infos[i] is the info of keys[i]. Worst case efficiency is O(n),
+	 * no rebalancing is done.
+	 * precondition: keys are distinct and sorted, keys.length == infos.length
+	 */
+	public static AVLTree fromSorted(int[] keys, String[] infos) {
+		if (keys.length != infos.length) {
+			throw new IllegalArgumentException("got " + keys.length + " keys and " + infos.length + " infos");
+		}
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i]) {
+				throw new IllegalArgumentException("keys are not sorted and distinct at index " + i);
+			}
+		}
+		AVLTree t = new AVLTree();
+		t.setRootForTree(t.buildSorted(keys, infos, 0, keys.length - 1), t);
+		return t;
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int n, PrimitiveIterator.OfInt keys, Iterator&lt;String&gt; infos)
+	 * <p>
+	 * builds a perfectly balanced tree from the first n keys of a stream sorted in increasing order,
+	 * and the matching infos. The streams are consumed in order and are not buffered,
+	 * so this can be fed straight from a file (e.g. IntStream.iterator()).
+	 * Worst case efficiency is O(n).
+	 * precondition: both streams have at least n items, keys are distinct and sorted
+	 */
+	public static AVLTree fromSorted(int n, PrimitiveIterator.OfInt keys, Iterator<String> infos) {
+		AVLTree t = new AVLTree();
+		t.setRootForTree(t.buildSorted(n, keys, infos, new long[] {Long.MIN_VALUE}), t);
+		return t;
+	}
+
+	/** builds the subtree of keys[lo..hi], returns its root (extLeaf if the range is empty) */
+	private IAVLNode buildSorted(int[] keys, String[] infos, int lo, int hi) {
+		if (lo > hi) {
+			return AVLTree.extLeaf;
+		}
+		int mid = (lo + hi) >>> 1;                  // the middle key is the root, so both sides differ by at most one
+		AVLNode node = new AVLNode(keys[mid], infos[mid]);
+		linkSorted(node, buildSorted(keys, infos, lo, mid - 1), buildSorted(keys, infos, mid + 1, hi));
+		return node;
+	}
+
+	/** builds a subtree of the next n items of the streams, in order, returns its root (extLeaf if n == 0)
+	 *  last[0] holds the previous key (below every int before the first one), to check the order */
+	private IAVLNode buildSorted(int n, PrimitiveIterator.OfInt keys, Iterator<String> infos, long[] last) {
+		if (n == 0) {
+			return AVLTree.extLeaf;
+		}
+		int left_n = (n - 1) / 2;
+		IAVLNode left = buildSorted(left_n, keys, infos, last);     // the left subtree takes the smaller keys first
+		if (!keys.hasNext() || !infos.hasNext()) {
+			throw new IllegalArgumentException("the streams ended before n items");
+		}
+		int k = keys.nextInt();
+		if (k <= last[0]) {
+			throw new IllegalArgumentException("keys are not sorted and distinct at key " + k);
+		}
+		last[0] = k;
+		AVLNode node = new AVLNode(k, infos.next());
+		linkSorted(node, left, buildSorted(n - 1 - left_n, keys, infos, last));
+		return node;
+	}
+
+	/** function that makes left and right the sons of node, and sets its height and size */
+	private void linkSorted(AVLNode node, IAVLNode left, IAVLNode right) {
+		node.setLeft(left);
+		node.setRight(right);
+		left.setParent(node);                       // no-op for an external leaf
+		right.setParent(node);
+		node.setHeight(Math.max(left.getHeight(), right.getHeight()) + 1);
+		node.fixSize();
+	}
+
+	/**
+	 * public TreeMetrics enableMetrics()
+	 * <p>
+	 * starts counting the operations of the tree (see TreeMetrics) and returns the counters.
+	 * If metrics are already on, returns the current ones. The trees returned by split share them.
+	 * While metrics are off (the default) every counting point costs one null check.
+	 */
+	public TreeMetrics enableMetrics() {
+		if (this.metrics == null) {
+			this.metrics = new TreeMetrics();
+		}
+		return this.metrics;
+	}
+
+	/**
+	 * public TreeMetrics metrics()
+	 * <p>
+	 * returns the counters of the tree, or null if metrics are off
+	 */
+	public TreeMetrics metrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * public void disableMetrics()
+	 * <p>
+	 * stops counting. The counters keep their values and stay registered in JMX if they were.
+	 */
+	public void disableMetrics() {
+		this.metrics = null;
+	}
+
+	/**
+	 * public void enableNodePool(int capacity)
+	 * <p>
+	 * keeps up to capacity deleted nodes in a free list of the tree, and inserts reuse them
+	 * instead of allocating, so a tree of stable size under inserts and deletes stops producing garbage.
+	 * The pool belongs to this tree alone (the trees of split do not share it), and is not thread safe,
+	 * like the rest of the tree.
+	 * With the pool on, a node returned by the tree (select, Cursor, rangeIterator, ...) must not be used
+	 * after its key is deleted: it may come back holding another key.
+	 */
+	public void enableNodePool(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("negative pool capacity " + capacity);
+		}
+		this.pool_capacity = capacity;
+		while (this.free_count > capacity) {                // shrink to the new capacity
+			this.free_nodes = (AVLNode) this.free_nodes.getParent();
+			this.free_count--;
+		}
+	}
+
+	/**
+	 * public void disableNodePool()
+	 * <p>
+	 * stops reusing nodes and drops the free list
+	 */
+	public void disableNodePool() {
+		this.enableNodePool(0);
+	}
+
+	/**
+	 * public int pooledNodes()
+	 * <p>
+	 * returns the number of nodes in the free list
+	 */
+	public int pooledNodes() {
+		return this.free_count;
+	}
+
+	/** function that returns a node for key k and info i, from the free list if it has one */
+	private AVLNode newNode(int k, String i) {
+		AVLNode node = this.free_nodes;
+		if (node == null) {
+			return new AVLNode(k, i);
+		}
+		this.free_nodes = (AVLNode) node.getParent();
+		this.free_count--;
+		node.setKey(k);
+		node.setValue(i);
+		node.setParent(null);
+		return node;
+	}
+
+	/** function that puts a node that left the tree in the free list, if the pool has room */
+	private void releaseNode(IAVLNode node) {
+		if (this.free_count < this.pool_capacity) {
+			AVLNode n = (AVLNode) node;
+			n.setValue(null);                                   // do not keep the info alive
+			n.setLeft(AVLTree.extLeaf);
+			n.setRight(AVLTree.extLeaf);
+			n.setParent(this.free_nodes);
+			this.free_nodes = n;
+			this.free_count++;
+		}
+	}
+
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	//if the root is an external leaf it's an empty tree
+	public boolean empty() {
+		return root==extLeaf;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		if (this.empty()) {                   // return null in case the tree is empty
+			return null;
+		}
+		IAVLNode node = this.root;            // if the tree isn't empty we need to search k
+		int depth = 0;
+		while (node != AVLTree.extLeaf) {
+			depth++;
+			if (node.getKey() == k) {         // if root.key == k
+				if (metrics != null) {
+					metrics.recordSearch(depth);
+				}
+				return node.getValue();
+			}
+			else {                            // if root.key > k going left
+				if (node.getKey() > k) {
+					node = node.getLeft();
+				}
+				else {
+					node = node.getRight();   // if root.key < k going right
+				}
+			}
+		}
+		if (metrics != null) {
+			metrics.recordSearch(depth);
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		TreeEvents.InsertEvent event = new TreeEvents.InsertEvent();
+		event.begin();
+		int free = this.free_count;
+		int steps = InsertKey(k, i);
+		event.end();
+		if (event.shouldCommit()) {
+			event.commitWith(k, this.size(), this.root.getHeight(), steps, (steps == -1 || free > 0) ? 0 : 1);
+		}
+		return steps;
+	}
+	/** function that does the insert */
+	private int InsertKey(int k, String i) {
+		AVLNode y = (AVLNode) (this.TreePosition(root, k));
+		if (y != null && k == y.getKey()) {       // if the node already exists return -1
+			return -1;
+		}
+		return InsertNew(y, k, i);
+	}
+	/** function that inserts node as a son of y, the node TreePosition(root, node.key) returned (null if the tree is empty).
+	 *  only the key and info of node are used, its links are reset
+	 *  precondition: node.key is not in the tree */
+	private int InsertAt(AVLNode y, AVLNode node) {
+		if (y == null) {                          // if the tree is empty insert the node as the root and return 0
+			node.setHeight(0);
+			node.setLeft(AVLTree.extLeaf);
+			node.setRight(AVLTree.extLeaf);
+			node.setParent(null);
+			node.fixSize();
+			this.setRootForTree(node, this);
+			return 0;
+		}
+
+		node.setParent(y);                        // set node's parent to be y
+
+		if (node.getKey() < y.getKey()) {         // insert node as left son
+			y.setLeft(node);
+		} else {                                  // insert node a right son
+			y.setRight(node);
+		}
+		node.setRight(AVLTree.extLeaf);           // setting external leaves
+		node.setLeft(AVLTree.extLeaf);
+		node.setHeight(0);                        // setting node height to 0
+		node.fixSize();
+
+		if (node.getKey() < this.min_node.getKey()) {  // check if needed to update the min reference
+			this.min_node = node;
+		}
+		if (node.getKey() > this.max_node.getKey()) {  // check if needed to update the max reference
+			this.max_node = node;
+		}
+
+		y.fixSize();      // correct node.parent size (+1)
+
+		// Rebalancing Process
+		int steps = 0;                               // if y isn't a leaf the tree is balanced so return 0
+		if (y.getHeight() == 0) {                    // if y is a leaf we need to rebalance the tree
+			steps = InsertBalance(y);
+		}
+		else {                 // we need to continue the path to the root in order to maintain size field
+			int walk = 0;
+			while (y != null) {
+				y.fixSize();
+				y = (AVLNode)y.getParent();
+				walk++;
+			}
+			if (metrics != null) {
+				metrics.recordSizeWalk(walk);
+			}
+		}
+		return steps;
+	}
+	/** function that inserts a new node of key k and info i as a son of y (as InsertAt) and counts it in the metrics.
+	 *  the insert paths of the user use it, join inserts x with InsertAt directly so it is not counted as an insert */
+	private int InsertNew(AVLNode y, int k, String i) {
+		int steps = InsertAt(y, this.newNode(k, i));  // create new AVLNode for the key = k (or reuse a deleted one)
+		if (metrics != null) {
+			metrics.recordInsert();
+		}
+		return steps;
+	}
+	/** function for rebalance after insertion  */
+	public int InsertBalance(IAVLNode y){
+		int steps = 0;
+		int promoted = 0, single = 0, dbl = 0;                                    // for the metrics
+		int y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());       // calc rank difference between node and sons
+		int y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight());
+
+
+		// while node is not 1-1, 1-2 or 2-1
+		while (!((y_left_rank_diff == 1 && y_right_rank_diff == 1) || (y_left_rank_diff == 1 && y_right_rank_diff == 2)
+				|| (y_left_rank_diff == 2 && y_right_rank_diff == 1))) {
+			// for 0-1 or 1-0 node we need to promote y
+			if ((y_left_rank_diff == 1 && y_right_rank_diff == 0) || (y_left_rank_diff == 0 && y_right_rank_diff == 1)) {
+				y.setHeight(y.getHeight()+1);
+				steps++;
+				promoted++;
+				((AVLNode) y).fixSize();
+				// if we are in the root, exit loop
+				if(y.getParent() == null) {
+					this.root = y;
+					break;
+				}
+			}
+
+			// for 0-2 node
+			else {
+				if (y_left_rank_diff == 0 && y_right_rank_diff == 2) {
+					// calc rank differences for y left son and his sons to decided which rotate to do
+					// current node: y.getLeft()
+					int y_leftleft_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getLeft());
+					int y_leftright_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getRight());
+
+					// for 1-2 node we need to rotate right
+					if (y_leftleft_rank_diff == 1 && y_leftright_rank_diff == 2) {
+						IAVLNode curr = rotate_right(y, y.getLeft());
+
+						curr.getRight().setHeight(curr.getRight().getHeight()-1);
+						fixParentPointer(curr, y.getKey());
+						steps = steps+2;
+						single++;
+						((AVLNode) curr.getRight()).fixSize();
+						((AVLNode) curr).fixSize();
+						break;
+
+					}
+					// for 2-1 node we need double rotation: left-right rotation
+					if (y_leftleft_rank_diff == 2 && y_leftright_rank_diff == 1) {
+						IAVLNode curr = rotate_left_right(y, y.getLeft(), y.getLeft().getRight());
+
+						curr.setHeight(curr.getHeight()+1);
+						curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
+						curr.getRight().setHeight(curr.getRight().getHeight()-1);
+						fixParentPointer(curr, y.getKey());
+						steps= steps+5;
+						dbl++;
+						((AVLNode) curr.getLeft()).fixSize();
+						((AVLNode) curr.getRight()).fixSize();
+						((AVLNode) curr).fixSize();
+						break;
+					}
+				}
+				// for 2-0 nodes
+				else {
+					if (y_left_rank_diff == 2 && y_right_rank_diff == 0) {
+
+						// calc rank differences for y right son and his sons to decided which rotate to do
+						// current node: y.getLeft()
+						int y_rightleft_rank_diff =  ((AVLNode) y.getRight()).rank_difference(y.getRight().getLeft());
+						int y_rightright_rank_diff = ((AVLNode) y.getRight()).rank_difference(y.getRight().getRight());
+
+						// for 1-2 node we need double rotation: right-left rotation
+						if (y_rightleft_rank_diff == 1 && y_rightright_rank_diff == 2) {
+							IAVLNode curr = rotate_right_left(y, y.getRight(), y.getRight().getLeft());
+							curr.setHeight(curr.getHeight()+1);
+							curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
+							curr.getRight().setHeight(curr.getRight().getHeight()-1);
+							fixParentPointer(curr, y.getKey());
+							steps= steps+5;
+							dbl++;
+							((AVLNode) curr.getLeft()).fixSize();
+							((AVLNode) curr.getRight()).fixSize();
+							((AVLNode) curr).fixSize();
+							break;
+
+						}
+
+						// for 2-1 node we need one rotation: left rotation
+						if (y_rightleft_rank_diff == 2 && y_rightright_rank_diff == 1) {
+							IAVLNode curr = rotate_left(y, y.getRight());
+							curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
+							fixParentPointer(curr, y.getKey());
+							((AVLNode) curr.getLeft()).fixSize();
+							((AVLNode) curr).fixSize();
+							steps= steps+2;
+							single++;
+							break;
+						}
+					}
+				}
+			}
+			y = y.getParent();
+			y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());   // calc rank difference between node and left son
+			y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight()); // calc rank difference between node and right son
+
+		}
+
+		int walk = 0;
+		while(y != null) {  // we need to continue the path to the root in order to maintain size field
+			((AVLNode) y).fixSize();
+			y = y.getParent();
+			walk++;
+		}
+		if (metrics != null) {
+			metrics.recordRebalance(promoted, 0, single, dbl, walk);
+		}
+		return steps;
+	}
+
+	/** function that connect the current node's parent to the current node */
+	public void fixParentPointer(IAVLNode curr, int curr_key){
+		if(curr.getParent() != null) {           // if curr is not the root
+			IAVLNode parent = curr.getParent();  // connect curr.parent with curr
+			if (parent.getRight().isRealNode() && parent.getRight().getKey() == curr_key) {   // extLeaf has key -1 too
+				parent.setRight(curr);
+			} else {
+				parent.setLeft(curr);
+			}
+		}
+		else {
+			this.root = curr;                   // if curr is the root, change the root
+		}
+
+	}
+	/** function for left rotation */
+	public IAVLNode rotate_left(IAVLNode curr, IAVLNode right_son) {
+		IAVLNode tmp = right_son.getLeft();
+		right_son.setLeft(curr);
+		right_son.setParent(curr.getParent());
+		curr.setParent(right_son);
+		curr.setRight(tmp);
+		tmp.setParent(curr);
+		return right_son;
+
+	}
+	/** function for right rotation */
+	public IAVLNode rotate_right(IAVLNode curr, IAVLNode left_son) {
+		IAVLNode tmp = left_son.getRight();
+		left_son.setRight(curr);
+		left_son.setParent(curr.getParent());
+		curr.setParent(left_son);
+		curr.setLeft(tmp);
+		tmp.setParent(curr);
+		return left_son;
+	}
+	/** function for right-left rotation */
+	public IAVLNode rotate_right_left(IAVLNode curr, IAVLNode right_son, IAVLNode rightleft_son) {
+		IAVLNode tmp_left = rightleft_son.getLeft();
+		IAVLNode tmp_right = rightleft_son.getRight();
+
+		rightleft_son.setParent(curr.getParent());
+		curr.setParent(rightleft_son);
+		rightleft_son.setLeft(curr);
+		curr.setRight(tmp_left);
+		tmp_left.setParent(curr);
+
+		rightleft_son.setRight(right_son);
+		right_son.setParent(rightleft_son);
+		right_son.setLeft(tmp_right);
+		tmp_right.setParent(right_son);
+		return rightleft_son;
+
+	}
+	/** function for left-right rotation */
+	public IAVLNode rotate_left_right(IAVLNode curr, IAVLNode left_son, IAVLNode leftright_son) {
+		IAVLNode tmp_left = leftright_son.getLeft();
+		IAVLNode tmp_right = leftright_son.getRight();
+
+		leftright_son.setParent(curr.getParent());
+
+		leftright_son.setLeft(left_son);
+		left_son.setParent(leftright_son);
+		leftright_son.setRight(curr);
+		curr.setParent(leftright_son);
+
+		left_son.setRight(tmp_left);
+		tmp_left.setParent(left_son);
+		curr.setLeft(tmp_right);
+		tmp_right.setParent(curr);
+		return leftright_son;
+
+	}
+	/** function for rebalance after deletion  */
+	public int DeleteBalance(IAVLNode y){
+
+		int steps=0;
+		int demoted = 0, single = 0, dbl = 0;                                     // for the metrics
+		int y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());       // calc rank difference between node and sons
+		int y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight());
+
+		// while node is not 1-1, 1-2 or 2-1
+		while (!((y_left_rank_diff == 1 && y_right_rank_diff == 1) || (y_left_rank_diff == 1 && y_right_rank_diff == 2)
+				|| (y_left_rank_diff == 2 && y_right_rank_diff == 1))) {
+
+			// for 2-2 node
+			if (y_left_rank_diff == 2 && y_right_rank_diff == 2) {
+				y.setHeight(y.getHeight() - 1);
+				steps=steps+1;
+				demoted++;
+				((AVLNode) y).fixSize();      // y may be the last node we visit (the root), so fix its size now
+				if(y.getParent() == null) {
+					this.root = y;
+					break;
+				}
+			}
+			else {
+				// for 3-1 node
+				if (y_left_rank_diff == 3 && y_right_rank_diff == 1) {
+
+					// calc rank differences for y left son and his sons to decided which rotate to do
+					// current node: y.getLeft()
+					int y_rightleft_rank_diff =  ((AVLNode) y.getRight()).rank_difference(y.getRight().getLeft());
+					int y_rightright_rank_diff = ((AVLNode) y.getRight()).rank_difference(y.getRight().getRight());
+
+					// for 1-1 node we need to rotate left
+					if (y_rightleft_rank_diff == 1 && y_rightright_rank_diff == 1) {
+						IAVLNode curr = rotate_left(y, y.getRight());
+						curr.setHeight(curr.getHeight()+1);
+						curr.getLeft().setHeight(curr.getLeft().getHeight()-1);
+						fixParentPointer(curr, y.getKey());
+						((AVLNode) curr.getLeft()).fixSize();
+						((AVLNode) curr).fixSize();
+						steps= steps+3;
+						single++;
+						break;
+					}
+					// for 2-1 node we need to rotate left
+					if (y_rightleft_rank_diff == 2 && y_rightright_rank_diff == 1) {
+						IAVLNode curr = rotate_left(y, y.getRight());
+						curr.getLeft().setHeight(curr.getLeft().getHeight()-2);
+						fixParentPointer(curr, y.getKey());
+						((AVLNode) curr.getLeft()).fixSize();
+						((AVLNode) curr).fixSize();
+						y=curr;
+						steps+=2;
+						single++;
+					}
+					// for 1-2 node we need to rotate right-left
+					else if (y_rightleft_rank_diff == 1 && y_rightright_rank_diff == 2) {
+						IAVLNode curr = rotate_right_left(y, y.getRight(), y.getRight().getLeft());
+						curr.setHeight(curr.getHeight()+1);
+						curr.getLeft().setHeight(curr.getLeft().getHeight()-2);
+						curr.getRight().setHeight(curr.getRight().getHeight()-1);
+						fixParentPointer(curr, y.getKey());
+						((AVLNode) curr.getLeft()).fixSize();
+						((AVLNode) curr.getRight()).fixSize();
+						((AVLNode) curr).fixSize();
+						y=curr;
+						steps+=5;
+						dbl++;
+					}
+				}
+				else {
+					// for 1-3 node
+					if (y_left_rank_diff == 1 && y_right_rank_diff == 3) {
+
+						// calc rank differences for y left son and his sons to decided which rotate to do
+						// current node: y.getLeft()
+						int y_leftleft_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getLeft());
+						int y_leftright_rank_diff = ((AVLNode) y.getLeft()).rank_difference(y.getLeft().getRight());
+
+						// for 1-1 node we need to rotate left
+						if (y_leftleft_rank_diff == 1 && y_leftright_rank_diff == 1) {
+							IAVLNode curr = rotate_right(y, y.getLeft());
+							curr.setHeight(curr.getHeight()+1);
+							curr.getRight().setHeight(curr.getRight().getHeight() - 1);
+							fixParentPointer(curr, y.getKey());
+							((AVLNode) curr.getRight()).fixSize();
+							steps= steps + 3;
+							single++;
+							break;
+						}
+						// for 2-1 node we need to rotate left
+						if (y_leftleft_rank_diff == 2 && y_leftright_rank_diff == 1) {
+							IAVLNode curr = rotate_left_right(y, y.getLeft(), y.getLeft().getRight());
+							curr.setHeight(curr.getHeight() + 1);
+							curr.getRight().setHeight(curr.getRight().getHeight() - 2);
+							curr.getLeft().setHeight(curr.getLeft().getHeight() - 1);
+							fixParentPointer(curr, y.getKey());
+							((AVLNode) curr.getRight()).fixSize();
+							((AVLNode) curr.getLeft()).fixSize();
+							((AVLNode) curr).fixSize();
+							y=curr;
+							steps += 5;
+							dbl++;
+						}
+						// for 1-2 node we need to rotate right-left
+						else if (y_leftleft_rank_diff == 1 && y_leftright_rank_diff == 2) {
+
+							IAVLNode curr = rotate_right(y, y.getLeft());
+							curr.getRight().setHeight(curr.getRight().getHeight() - 2);
+							fixParentPointer(curr, y.getKey());
+							((AVLNode) curr.getRight()).fixSize();
+							((AVLNode) curr).fixSize();
+							y=curr;
+							steps += 2;
+							single++;
+						}
+					}
+				}
+
+			}
+			// if we are in the root, exit loop
+			if (y.getParent() == null) {
+				this.root = y;
+				break;
+			}
+			y = y.getParent();
+			y_left_rank_diff = ((AVLNode) y).rank_difference(y.getLeft());   // calc rank difference between node and left son
+			y_right_rank_diff = ((AVLNode) y).rank_difference(y.getRight()); // calc rank difference between node and right son
+		}
+		int walk = 0;
+		if(y == this.root) {  // we maintained size field all the way to the root and can finish
+			((AVLNode) y).fixSize();
+			walk++;
+		}
+		else{                 // we need to continue the path to the root in order to maintain size field
+			while(y != null){
+				((AVLNode) y).fixSize();
+				y = y.getParent();
+				walk++;
+			}
+		}
+		if (metrics != null) {
+			metrics.recordRebalance(0, demoted, single, dbl, walk);
+		}
+		return steps;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		TreeEvents.DeleteEvent event = new TreeEvents.DeleteEvent();
+		event.begin();
+		int steps = DeleteKey(k);
+		event.end();
+		if (event.shouldCommit()) {
+			event.commitWith(k, this.size(), this.root.getHeight(), steps, 0);
+		}
+		return steps;
+	}
+	/** function that does the delete */
+	private int DeleteKey(int k) {
+		IAVLNode y = TreePosition(root, k);
+		if (y == null || y.getKey() != k) {      // k is not in the tree
+			return -1;
+		}
+		return DeleteNode(y);
+	}
+	/** function that deletes the node y (of the tree) */
+	private int DeleteNode(IAVLNode y) {
+		if(y == this.root && y.getHeight()==0){  // there is only root in the tree and we delete it
+			this.root = AVLTree.extLeaf;
+			this.min_node = AVLTree.extLeaf;
+			this.max_node = AVLTree.extLeaf;
+			if (metrics != null) {
+				metrics.recordDelete();
+			}
+			this.releaseNode(y);
+			return 0;
+		}
+		int y_key = y.getKey();                  // saving y.key() for Min/Max tests later
+
+		if (y.getLeft().getHeight() != -1 && y.getRight().getHeight() != -1) {  // if the node has 2 sons
+
+			IAVLNode s = successor(y);                                          // find the successor and replace it with node
+			int s_key = s.getKey();
+			String s_info = s.getValue();
+			((AVLNode) s).setKey(y.getKey());
+			((AVLNode) s).setValue(y.getValue());
+			((AVLNode) y).setKey(s_key);
+			((AVLNode) y).setValue(s_info);
+			y=s;
+
+		}
+		IAVLNode removed = y;                    // the node that leaves the tree
+		if (y.getParent()==null && y.getHeight()==1) {                          // if node is root and have 1 child
+			if (y.getRight() == AVLTree.extLeaf) {
+				this.root = y.getLeft();
+				y.getLeft().setParent(null);
+				y.setLeft(AVLTree.extLeaf);
+				y.setRight(AVLTree.extLeaf);
+				y=this.root;
+			} else {
+				IAVLNode s = successor(y);
+				this.root = s;
+				s.setParent(null);
+				s.setLeft(AVLTree.extLeaf);
+				s.setRight(AVLTree.extLeaf);
+				y=this.root;
+			}
+			((AVLNode) this.root).fixSize();
+			this.min_node = this.root;                                          // one node is left, it is both min and max
+			this.max_node = this.root;
+			if (metrics != null) {
+				metrics.recordDelete();
+			}
+			this.releaseNode(removed);
+			return 0;
+		}
+		else if (y.getHeight() == 0) {                  //  if the node is a leaf and not root
+
+			if (isLeftSon(y)) {                         // check if node is left son
+				y.getParent().setLeft(AVLTree.extLeaf);
+			}                                           // if the node is a right son
+			else {
+				y.getParent().setRight(AVLTree.extLeaf);
+			}
+			y = y.getParent();
+
+			((AVLNode) y).fixSize();
+		}
+		else if (y.getLeft().getHeight() != -1 && y.getRight().getHeight() == -1) {  //  if node has only left son
+			y.getLeft().setParent(y.getParent());       // change node's left son parent to node's parent
+			if (isLeftSon(y)) {                         // if node is left son
+				y.getParent().setLeft(y.getLeft());     // change node's parent left son to node's left son
+			} else {                                    // if is right son
+				y.getParent().setRight(y.getLeft());    // change node's parent right son to node's left son
+			}
+			y = y.getParent();
+			((AVLNode) y).fixSize();
+		}
+		else if (y.getLeft().getHeight() == -1 && y.getRight().getHeight() != -1) {  //if node has only right son
+			y.getRight().setParent(y.getParent());      // change node's right son parent to node's parent
+			if (isLeftSon(y)) {                         // if node is left son
+				y.getParent().setLeft(y.getRight());    // change node's parent left son to node's right son
+
+			} else {                                    // if node is right son
+				y.getParent().setRight(y.getRight());   // change node's parent right son to node's right son
+			}
+			y = y.getParent();
+			((AVLNode) y).fixSize();
+		}
+
+		if(y_key == this.min_node.getKey()){            // if y_key is the current min we need to update the min
+			this.min_node = this.CalcMin(y);
+		}
+		if(y_key == this.max_node.getKey()){            // if y_key is the current max we need to update the max
+			this.max_node = this.CalcMax(y);
+		}
+
+		// Rebalancing Process
+		int steps = 0;
+
+		steps = DeleteBalance(y);
+		if (metrics != null) {
+			metrics.recordDelete();
+		}
+		this.releaseNode(removed);
+		return steps;
+	}
+
+	/**
+	 * public String put(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i, or replaces the info of k if it is already in the tree.
+	 * returns the previous info of k, or null if k was not in the tree.
+	 * one descent from the root, worst case efficiency O(logn).
+	 */
+	public String put(int k, String i) {
+		AVLNode y = (AVLNode) (this.TreePosition(root, k));
+		if (y != null && k == y.getKey()) {
+			String old = y.getValue();
+			replaceInfo(y, i);
+			return old;
+		}
+		InsertNew(y, k, i);
+		return null;
+	}
+
+	/**
+	 * public String putIfAbsent(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i if k is not in the tree.
+	 * returns the info of k if it was already in the tree (the tree is not changed), otherwise null.
+	 * one descent from the root, worst case efficiency O(logn).
+	 */
+	public String putIfAbsent(int k, String i) {
+		AVLNode y = (AVLNode) (this.TreePosition(root, k));
+		if (y != null && k == y.getKey()) {
+			return y.getValue();
+		}
+		InsertNew(y, k, i);
+		return null;
+	}
+
+	/**
+	 * public interface InfoFunction
+	 * <p>
+	 * Computes the new info of a key from its current one, for compute and computeIfPresent.
+	 * Returning null removes the key. The function must not change the tree.
+	 */
+	public interface InfoFunction {
+		public String apply(int key, String info);
+	}
+
+	/**
+	 * public String compute(int k, InfoFunction f)
+	 * <p>
+	 * sets the info of k to f(k, info of k), where the info is null if k is not in the tree.
+	 * if f returns null, k is removed (or stays absent). returns the new info.
+	 * one descent from the root, worst case efficiency O(logn) besides f.
+	 */
+	public String compute(int k, InfoFunction f) {
+		AVLNode y = (AVLNode) (this.TreePosition(root, k));
+		boolean found = y != null && k == y.getKey();
+		String info = f.apply(k, found ? y.getValue() : null);
+		if (info == null) {
+			if (found) {
+				DeleteNode(y);
+			}
+		}
+		else if (found) {
+			replaceInfo(y, info);
+		}
+		else {
+			InsertNew(y, k, info);
+		}
+		return info;
+	}
+
+	/**
+	 * public String computeIfPresent(int k, InfoFunction f)
+	 * <p>
+	 * if k is in the tree, sets its info to f(k, info of k), or removes k if f returns null.
+	 * returns the new info, or null if k was not in the tree.
+	 * one descent from the root, worst case efficiency O(logn) besides f.
+	 */
+	public String computeIfPresent(int k, InfoFunction f) {
+		AVLNode y = (AVLNode) (this.TreePosition(root, k));
+		if (y == null || k != y.getKey()) {
+			return null;
+		}
+		String info = f.apply(k, y.getValue());
+		if (info == null) {
+			DeleteNode(y);
+		}
+		else {
+			replaceInfo(y, info);
+		}
+		return info;
+	}
+
+	/**
+	 * public String remove(int k)
+	 * <p>
+	 * deletes the item with key k, if it is there, and returns its info.
+	 * returns null if k was not in the tree (or its info was null).
+	 * one descent from the root, worst case efficiency O(logn).
+	 */
+	public String remove(int k) {
+		IAVLNode y = TreePosition(root, k);
+		if (y == null || k != y.getKey()) {
+			return null;
+		}
+		String old = y.getValue();               // read it first, the delete may move another item into y
+		DeleteNode(y);
+		return old;
+	}
+
+	/** function that replaces the info of node, and the augmentations of the path to the root that depend on it */
+	private void replaceInfo(AVLNode node, String info) {
+		node.setValue(info);
+		if (this.augmentations.length != 0) {
+			for (IAVLNode y = node; y != null; y = y.getParent()) {
+				((AVLNode) y).fixSize();
+			}
+		}
+	}
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		if(this.root == AVLTree.extLeaf){
+			return null;
+		}
+		return this.min_node.getValue();
+	}
+	/** function to calc the current max in the tree */
+	public IAVLNode CalcMin(IAVLNode node) {
+		while (node.getLeft() != AVLTree.extLeaf) { // go as much left as possible and return the min node
+			node = node.getLeft();
+		}
+		return node;
+	}
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		if(this.root == AVLTree.extLeaf){
+			return null;
+		}
+		return this.max_node.getValue();
+	}
+	/** function to calc the current max in the tree */
+	public IAVLNode CalcMax(IAVLNode node){
+		while (node.getRight() != AVLTree.extLeaf) { // go as much right as possible and return the min node
+			node = node.getRight();
+		}
+		return node;
+	}
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+
+	public int[] keysToArray() {
+		int[] arr = new int[this.size()];       // empty array if the tree is empty
+		Cursor c = this.cursor().first();       // the node with minimum key value
+		for (int i = 0; i < arr.length; i++) {  // loop over all tree nodes, one successor step each
+			arr[i] = c.key();
+			c.next();
+		}
+		return arr;
+	}
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+
+	public String[] infoToArray() {
+		String[] arr = new String[this.size()];  // empty array if the tree is empty
+		Cursor c = this.cursor().first();
+		for (int i = 0; i < arr.length; i++) {
+			arr[i] = c.info();
+			c.next();
+		}
+		return arr;
+	}
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 * <p>
+	 * precondition: none
+	 * postcondition: none
+	 */
+	public int size() {
+		if(this.root.isRealNode()) {
+			return ((AVLNode) this.root).getSize();
+		}
+		else{ return 0;}
+	}
+	/** returns the size of the subtree of node (0 for an external leaf) */
+	private static int sizeOf(IAVLNode node) {
+		return node.isRealNode() ? ((AVLNode) node).getSize() : 0;
+	}
+	/**
+	 * public IAVLNode select(int i)
+	 * <p>
+	 * Returns the node with the i-th smallest key (starting from 0, the same order as keysToArray()),
+	 * or null if i is not in [0, size()).
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public IAVLNode select(int i) {
+		if (i < 0 || i >= this.size()) {
+			return null;
+		}
+		IAVLNode node = this.root;
+		while (true) {
+			int left_size = sizeOf(node.getLeft());
+			if (i == left_size) {                // exactly i keys are smaller than node
+				return node;
+			}
+			if (i < left_size) {                 // the node is in the left subtree
+				node = node.getLeft();
+			}
+			else {                               // skip the left subtree and node, go right
+				i -= left_size + 1;
+				node = node.getRight();
+			}
+		}
+	}
+	/**
+	 * public int rank(int k)
+	 * <p>
+	 * Returns the number of keys in the tree that are smaller than k (k does not have to be in the tree).
+	 * If k is in the tree, select(rank(k)) is its node.
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public int rank(int k) {
+		int rank = 0;
+		IAVLNode node = this.root;
+		while (node != AVLTree.extLeaf) {
+			if (k <= node.getKey()) {            // everything smaller than k is to the left
+				if (k == node.getKey()) {
+					return rank + sizeOf(node.getLeft());
+				}
+				node = node.getLeft();
+			}
+			else {                               // node and its left subtree are smaller than k
+				rank += sizeOf(node.getLeft()) + 1;
+				node = node.getRight();
+			}
+		}
+		return rank;
+	}
+	/**
+	 * public IAVLNode median()
+	 * <p>
+	 * Returns the node with the median key (the lower one for an even size), or null if the tree is empty.
+	 * Worst case efficiency is O(logn).
+	 */
+	public IAVLNode median() {
+		return this.select((this.size() - 1) / 2);
+	}
+	/**
+	 * public IAVLNode percentile(double p)
+	 * <p>
+	 * Returns the node at the p-th percentile of the keys (nearest rank: the smallest key
+	 * such that at least p percent of the keys are smaller or equal to it), or null if the tree is empty.
+	 * percentile(0) is the min and percentile(100) is the max.
+	 * Worst case efficiency is O(logn).
+	 * precondition: 0 <= p <= 100
+	 */
+	public IAVLNode percentile(double p) {
+		if (!(p >= 0 && p <= 100)) {
+			throw new IllegalArgumentException("percentile must be in [0, 100], got " + p);
+		}
+		int n = this.size();
+		int nearest_rank = (int) Math.ceil(p / 100 * n);   // 1-based
+		return this.select(Math.max(nearest_rank, 1) - 1);
+	}
+	/**
+	 * public int rangeCount(int lo, int hi)
+	 * <p>
+	 * Returns the number of keys k in the tree with lo &lt;= k &lt;= hi (0 if lo &gt; hi).
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public int rangeCount(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return this.countAtMost(hi) - this.rank(lo);
+	}
+	/** returns the number of keys in the tree that are smaller or equal to k */
+	private int countAtMost(int k) {
+		int count = 0;
+		IAVLNode node = this.root;
+		while (node != AVLTree.extLeaf) {
+			if (k < node.getKey()) {
+				node = node.getLeft();
+			}
+			else {                               // node and its left subtree are at most k
+				count += sizeOf(node.getLeft()) + 1;
+				node = node.getRight();
+			}
+		}
+		return count;
+	}
+	/** returns the node with the smallest key that is at least k, or null if there is none */
+	private IAVLNode ceilingNode(int k) {
+		IAVLNode best = null;
+		IAVLNode node = this.root;
+		while (node != AVLTree.extLeaf) {
+			if (node.getKey() >= k) {            // node is a candidate, a smaller one can only be to the left
+				best = node;
+				node = node.getLeft();
+			}
+			else {
+				node = node.getRight();
+			}
+		}
+		return best;
+	}
+	/**
+	 * public interface EntryVisitor
+	 * <p>
+	 * Receives the items of a range scan, in increasing key order.
+	 */
+	public interface EntryVisitor {
+		public void visit(int key, String info);
+	}
+	/**
+	 * public int rangeScan(int lo, int hi, EntryVisitor visitor)
+	 * <p>
+	 * Calls the visitor with every item whose key is in [lo, hi], in increasing key order,
+	 * and returns the number of items visited.
+	 * Descends once to lo and then walks in order: O(logn + k) for k items, nothing is allocated.
+	 * precondition: the tree is not modified by the visitor
+	 */
+	public int rangeScan(int lo, int hi, EntryVisitor visitor) {
+		int count = 0;
+		if (lo > hi) {
+			return 0;
+		}
+		IAVLNode node = this.ceilingNode(lo);
+		while (node != null && node.getKey() <= hi) {
+			visitor.visit(node.getKey(), node.getValue());
+			count++;
+			node = this.successor(node);
+		}
+		return count;
+	}
+	/**
+	 * public Iterator&lt;IAVLNode&gt; rangeIterator(int lo, int hi)
+	 * <p>
+	 * Returns an iterator over the nodes whose keys are in [lo, hi], in increasing key order.
+	 * Creating it costs O(logn), and each next() is amortized O(1).
+	 * precondition: the tree is not modified while iterating
+	 */
+	public Iterator<IAVLNode> rangeIterator(int lo, int hi) {
+		return new RangeIterator(lo > hi ? null : this.ceilingNode(lo), hi);
+	}
+	/** the iterator of rangeIterator, it follows successor() until a key passes hi */
+	private final class RangeIterator implements Iterator<IAVLNode> {
+		private IAVLNode next;
+		private final int hi;
+
+		RangeIterator(IAVLNode first, int hi) {
+			this.next = first;
+			this.hi = hi;
+		}
+
+		public boolean hasNext() {
+			return next != null && next.getKey() <= hi;
+		}
+
+		public IAVLNode next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			IAVLNode node = next;
+			next = successor(node);
+			return node;
+		}
+	}
+	/**
+	 * public IntStream keys()
+	 * <p>
+	 * Returns a stream of the keys in increasing order. keys().parallel() splits the tree at subtree roots
+	 * into parts of exact, known sizes (see keySpliterator).
+	 * precondition: the tree is not modified while the stream runs
+	 */
+	public IntStream keys() {
+		return StreamSupport.intStream(this.keySpliterator(), false);
+	}
+	/**
+	 * public Stream&lt;Map.Entry&lt;Integer, String&gt;&gt; entries()
+	 * <p>
+	 * Returns a stream of the items (key, info) in increasing key order, parallel() works as for keys().
+	 * precondition: the tree is not modified while the stream runs
+	 */
+	public Stream<Map.Entry<Integer, String>> entries() {
+		return StreamSupport.stream(this.entrySpliterator(), false);
+	}
+	/**
+	 * public Spliterator.OfInt keySpliterator()
+	 * <p>
+	 * Returns a SIZED, SUBSIZED, SORTED, DISTINCT, ORDERED and NONNULL spliterator over the keys.
+	 * A spliterator covers a range of ranks [lo, hi). trySplit() gives away [lo, r), where r is the rank of the
+	 * highest node whose rank is in (lo, hi), i.e. the root of the smallest subtree holding the rest of the range,
+	 * so both parts know their exact size. Splitting costs O(logn), each next item is amortized O(1).
+	 */
+	public Spliterator.OfInt keySpliterator() {
+		return new KeySpliterator(0, this.size(), null);
+	}
+	/**
+	 * public Spliterator&lt;Map.Entry&lt;Integer, String&gt;&gt; entrySpliterator()
+	 * <p>
+	 * Returns a spliterator over the items, with the characteristics and splitting of keySpliterator().
+	 * Entries are immutable and sorted by key.
+	 */
+	public Spliterator<Map.Entry<Integer, String>> entrySpliterator() {
+		return new EntrySpliterator(0, this.size(), null);
+	}
+	/** the part of a spliterator over the ranks [lo, hi) of the tree shared by keys and entries */
+	private abstract class RankSpliterator {
+		protected int lo;
+		protected final int hi;
+		protected IAVLNode node;              // the node of rank lo, null until it is needed
+
+		RankSpliterator(int lo, int hi, IAVLNode node) {
+			this.lo = lo;
+			this.hi = hi;
+			this.node = node;
+		}
+
+		/** function that moves this to [r, hi) and returns r, the split rank, or -1 if the range is too small to split */
+		protected int splitRank() {
+			if (hi - lo < 2) {
+				return -1;
+			}
+			IAVLNode x = root;
+			int base = 0;                     // the rank of the smallest key in the subtree of x
+			while (true) {
+				int r = base + sizeOf(x.getLeft());
+				if (r <= lo) {                // x and its left subtree are before the range (or x is lo)
+					base = r + 1;
+					x = x.getRight();
+				}
+				else if (r >= hi) {
+					x = x.getLeft();
+				}
+				else {
+					this.lo = r;
+					this.node = x;
+					return r;
+				}
+			}
+		}
+
+		/** function that returns the current node and moves to the next one, precondition: lo < hi */
+		protected IAVLNode advance() {
+			IAVLNode x = (node != null) ? node : select(lo);
+			lo++;
+			node = (lo < hi) ? successor(x) : null;
+			return x;
+		}
+
+		public long estimateSize() {
+			return hi - lo;
+		}
+
+		public int characteristics() {
+			return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED | Spliterator.DISTINCT
+					| Spliterator.ORDERED | Spliterator.NONNULL;
+		}
+	}
+	/** the spliterator of keySpliterator */
+	private final class KeySpliterator extends RankSpliterator implements Spliterator.OfInt {
+
+		KeySpliterator(int lo, int hi, IAVLNode node) {
+			super(lo, hi, node);
+		}
+
+		public OfInt trySplit() {
+			int old_lo = lo;
+			IAVLNode old_node = node;
+			int r = splitRank();
+			return (r < 0) ? null : new KeySpliterator(old_lo, r, old_node);
+		}
+
+		public boolean tryAdvance(IntConsumer action) {
+			if (lo >= hi) {
+				return false;
+			}
+			action.accept(advance().getKey());
+			return true;
+		}
+
+		public void forEachRemaining(IntConsumer action) {
+			while (lo < hi) {
+				action.accept(advance().getKey());
+			}
+		}
+
+		public Comparator<? super Integer> getComparator() {
+			return null;                      // natural order
+		}
+	}
+	/** the spliterator of entrySpliterator */
+	private final class EntrySpliterator extends RankSpliterator implements Spliterator<Map.Entry<Integer, String>> {
+
+		EntrySpliterator(int lo, int hi, IAVLNode node) {
+			super(lo, hi, node);
+		}
+
+		public Spliterator<Map.Entry<Integer, String>> trySplit() {
+			int old_lo = lo;
+			IAVLNode old_node = node;
+			int r = splitRank();
+			return (r < 0) ? null : new EntrySpliterator(old_lo, r, old_node);
+		}
+
+		public boolean tryAdvance(Consumer<? super Map.Entry<Integer, String>> action) {
+			if (lo >= hi) {
+				return false;
+			}
+			IAVLNode x = advance();
+			action.accept(new AbstractMap.SimpleImmutableEntry<>(x.getKey(), x.getValue()));
+			return true;
+		}
+
+		public void forEachRemaining(Consumer<? super Map.Entry<Integer, String>> action) {
+			while (lo < hi) {
+				IAVLNode x = advance();
+				action.accept(new AbstractMap.SimpleImmutableEntry<>(x.getKey(), x.getValue()));
+			}
+		}
+
+		public Comparator<? super Map.Entry<Integer, String>> getComparator() {
+			return Map.Entry.comparingByKey();
+		}
+	}
+	/**
+	 * public interface Augmentation&lt;A&gt;
+	 * <p>
+	 * A monoid over the items of a subtree, kept in every node next to the size:
+	 * the value of a node is combine(combine(value(left), leaf(key, info)), value(right)),
+	 * and identity() is the value of an external leaf. combine must be associative and
+	 * identity() neutral for it, because rotations regroup the items of a subtree.
+	 * E.g. the sum of a numeric payload: identity 0L, leaf Long.parseLong(info), combine Long::sum.
+	 */
+	public interface Augmentation<A> {
+		public A identity();
+
+		public A leaf(int key, String info);
+
+		public A combine(A left, A right);
+	}
+
+	/** the built-in augmentation: the number of items, kept in the size field of the nodes */
+	public static final Augmentation<Integer> SIZE = new Augmentation<Integer>() {
+		public Integer identity() {
+			return 0;
+		}
+
+		public Integer leaf(int key, String info) {
+			return 1;
+		}
+
+		public Integer combine(Integer left, Integer right) {
+			return left + right;
+		}
+	};
+
+	/**
+	 * public &lt;A&gt; A aggregate(Augmentation&lt;A&gt; augmentation)
+	 * <p>
+	 * Returns the value of the augmentation over all the items of the tree in O(1)
+	 * (its identity if the tree is empty).
+	 * precondition: augmentation is SIZE or was given to the constructor
+	 */
+	@SuppressWarnings("unchecked")
+	public <A> A aggregate(Augmentation<A> augmentation) {
+		if (augmentation == SIZE) {                // A is Integer
+			return (A) (Integer) this.size();
+		}
+		return valueOf(this.root, augmentationIndex(augmentation));
+	}
+
+	/**
+	 * public &lt;A&gt; A rangeAggregate(Augmentation&lt;A&gt; augmentation, int lo, int hi)
+	 * <p>
+	 * Returns the value of the augmentation over the items whose keys are in [lo, hi]
+	 * (its identity if there are none). Descends to the node where the paths to lo and hi part,
+	 * then down both boundaries, combining whole subtrees on the way: O(logn) combine calls.
+	 * precondition: augmentation is SIZE or was given to the constructor
+	 */
+	@SuppressWarnings("unchecked")
+	public <A> A rangeAggregate(Augmentation<A> augmentation, int lo, int hi) {
+		if (augmentation == SIZE) {                // A is Integer
+			return (A) (Integer) this.rangeCount(lo, hi);
+		}
+		int j = this.augmentationIndex(augmentation);
+		if (lo > hi) {
+			return augmentation.identity();
+		}
+		IAVLNode node = this.root;
+		while (node.isRealNode() && (node.getKey() < lo || node.getKey() > hi)) {   // find where the paths part
+			node = (node.getKey() < lo) ? node.getRight() : node.getLeft();
+		}
+		if (!node.isRealNode()) {
+			return augmentation.identity();
+		}
+		A suffix = augmentation.identity();       // the items >= lo in the left subtree, built from the right
+		for (IAVLNode n = node.getLeft(); n.isRealNode(); ) {
+			if (n.getKey() >= lo) {               // n and its right subtree are in the range
+				A part = augmentation.combine(augmentation.leaf(n.getKey(), n.getValue()), valueOf(n.getRight(), j));
+				suffix = augmentation.combine(part, suffix);
+				n = n.getLeft();
+			}
+			else {
+				n = n.getRight();
+			}
+		}
+		A prefix = augmentation.identity();       // the items <= hi in the right subtree, built from the left
+		for (IAVLNode n = node.getRight(); n.isRealNode(); ) {
+			if (n.getKey() <= hi) {               // n and its left subtree are in the range
+				A part = augmentation.combine(valueOf(n.getLeft(), j), augmentation.leaf(n.getKey(), n.getValue()));
+				prefix = augmentation.combine(prefix, part);
+				n = n.getRight();
+			}
+			else {
+				n = n.getLeft();
+			}
+		}
+		A middle = augmentation.combine(suffix, augmentation.leaf(node.getKey(), node.getValue()));
+		return augmentation.combine(middle, prefix);
+	}
+
+	/** the value of the j-th augmentation over the subtree of node */
+	@SuppressWarnings("unchecked")
+	private <A> A valueOf(IAVLNode node, int j) {
+		if (!node.isRealNode()) {
+			return ((Augmentation<A>) this.augmentations[j]).identity();
+		}
+		return (A) ((AVLNode) node).augmented[j];
+	}
+
+	/** the position of augmentation in this.augmentations */
+	private int augmentationIndex(Augmentation<?> augmentation) {
+		for (int j = 0; j < this.augmentations.length; j++) {
+			if (this.augmentations[j] == augmentation) {
+				return j;
+			}
+		}
+		throw new IllegalArgumentException("the tree does not keep this augmentation");
+	}
+
+	/** throws if t keeps other augmentations than this tree, so their nodes cannot be mixed */
+	private void checkSameAugmentations(AVLTree t) {
+		if (!Arrays.equals(this.augmentations, t.augmentations)) {
+			throw new IllegalArgumentException("the trees keep different augmentations");
+		}
+	}
+
+	/**
+	 * public int getRoot()
+	 * <p>
+	 * Returns the root AVL node, or null if the tree is empty
+	 * <p>
+	 * precondition: none
+	 * postcondition: none
+	 */
+	public IAVLNode getRoot() {
+		if (this.empty()) {
+			return null;
+		}
+		return this.root;
+	}
+
+	/**
+	 * Function that change the root of the tree
+	 * The function also update the min_node and max_node field
+	 * Worst case efficiency is O(logn)
+	 * precondition: newRoot is a root of a valid AVL tree
+	 *
+	 */
+
+	public void setRootForTree(IAVLNode newRoot, AVLTree t){
+		if(newRoot == AVLTree.extLeaf){
+			t.root = AVLTree.extLeaf;
+			t.min_node = null;
+			t.max_node = null;
+		}
+		else {
+			t.root = newRoot;
+			t.min_node = t.CalcMin(t.root);
+			t.max_node = t.CalcMax(t.root);
+		}
+	}
+	/**
+	 * public string split(int x)
+	 * <p>
+	 * splits the tree into 2 trees according to the key x.
+	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
+	 * The nodes of the tree are reused in place (the node of x is dropped), so no node is allocated,
+	 * and this tree is left empty.
+	 * If x is not in the tree, the trees hold the keys below and above it.
+	 * precondition: none
+	 * postcondition: this tree is empty
+	 */
+	public AVLTree[] split(int x) {
+		TreeEvents.SplitEvent event = new TreeEvents.SplitEvent();
+		event.begin();
+		int size = event.isEnabled() ? this.size() : 0;                // the tree is taken apart, read it first
+		int height = this.root.getHeight();
+		AVLTree[] res = new AVLTree[] {new AVLTree(this), new AVLTree(this)};
+		int cost = SplitTree(x, 0, res[0], res[1]);
+		event.end();
+		if (event.shouldCommit()) {
+			event.commitWith(x, size, height, cost, 0);
+		}
+		return res;
+	}
+	/** function that does the split into the empty trees t1 and t2, returns the sum of its join costs.
+	 *  the node of x is dropped (to the pool of this tree) if keep_x == 0, goes to t1 if keep_x < 0 and to t2 if keep_x > 0.
+	 *  goes up the search path of x: every node of it joins t1 with its left subtree if it is below x,
+	 *  or t2 with its right subtree if it is above x, and this tree (left empty) serves as the subtree to join */
+	private int SplitTree(int x, int keep_x, AVLTree t1, AVLTree t2) {
+		IAVLNode p = this.TreePosition(this.root, x);                 // the node of x, or the last node on its search path
+		int cost = 0;                                                  // sum of the join costs
+		this.setRootForTree(AVLTree.extLeaf, this);
+		if (p != null && p.getKey() == x) {
+			// --- the subtrees of x that are not joined with x go straight to t1/t2
+			IAVLNode parent = p.getParent();
+			if (keep_x <= 0) {
+				cost += splitJoin(t2, null, p.getRight());
+			}
+			if (keep_x >= 0) {
+				cost += splitJoin(t1, null, p.getLeft());
+			}
+			if (keep_x == 0) {
+				this.releaseNode(p);                                   // its sons are in t1/t2, its key leaves the trees
+				p = parent;
+			}
+		}
+		while (p != null) {
+			IAVLNode parent = p.getParent();                           // read before p is relinked
+			if (p.getKey() < x || (p.getKey() == x && keep_x < 0)) {
+				cost += splitJoin(t1, p, p.getLeft());
+			}
+			else {
+				cost += splitJoin(t2, p, p.getRight());
+			}
+			p = parent;
+		}
+		this.setRootForTree(AVLTree.extLeaf, this);
+		if (metrics != null) {                                         // set after the joins above, they are part of the split
+			t1.metrics = metrics;
+			t2.metrics = metrics;
+			metrics.recordSplit(cost);
+		}
+		return cost;
+	}
+	/** function that joins into t the node x (a node of this tree, null for none) with subtree, its cost.
+	 *  subtree and x are cut off from their parents, and this tree holds the subtree during the join */
+	private int splitJoin(AVLTree t, IAVLNode x, IAVLNode subtree) {
+		subtree.setParent(null);                                       // no-op for an external leaf
+		if (x == null) {
+			if (!subtree.isRealNode()) {
+				return 0;
+			}
+			t.setRootForTree(subtree, t);                              // t is empty here
+			return 1;
+		}
+		detach(x);
+		this.root = subtree;
+		int cost = t.JoinTrees(x, this);
+		this.root = AVLTree.extLeaf;
+		return cost;
+	}
+
+	/** function that makes node a lone leaf, to be linked again */
+	private static void detach(IAVLNode node) {
+		node.setParent(null);
+		node.setLeft(AVLTree.extLeaf);
+		node.setRight(AVLTree.extLeaf);
+		node.setHeight(0);
+	}
+
+	/**
+	 * public AVLTree extractRange(int lo, int hi)
+	 * <p>
+	 * removes the items with lo <= key <= hi from the tree and returns them as a tree.
+	 * two splits and a join on the existing nodes, worst case efficiency O(logn) however many items are removed.
+	 * precondition: none (an empty tree is returned if lo > hi)
+	 */
+	public AVLTree extractRange(int lo, int hi) {
+		AVLTree range = new AVLTree(this);
+		if (lo > hi || this.empty()) {
+			return range;
+		}
+		AVLTree below = new AVLTree(this);
+		AVLTree rest = new AVLTree(this);
+		AVLTree above = new AVLTree(this);
+		TreeMetrics m = this.metrics;
+		this.metrics = null;                                           // one extraction is not two splits
+		this.SplitTree(lo, 1, below, rest);                            // below < lo <= rest
+		rest.SplitTree(hi, -1, range, above);                          // range <= hi < above
+		this.metrics = m;
+		this.concat(below, above);
+		return range;
+	}
+
+	/**
+	 * public int deleteRange(int lo, int hi)
+	 * <p>
+	 * deletes the items with lo <= key <= hi from the tree, returns the number of items deleted.
+	 * worst case efficiency O(logn) however many items are deleted (see extractRange).
+	 */
+	public int deleteRange(int lo, int hi) {
+		return extractRange(lo, hi).size();
+	}
+
+	/** function that makes this tree (empty) the concatenation of t1 and t2, keys(t1) < keys(t2).
+	 *  the smallest node of t2 is taken out and reused as the middle node of a join.
+	 *  precondition: t2 has no node pool (DeleteNode would put x in it) */
+	private void concat(AVLTree t1, AVLTree t2) {
+		if (t2.empty()) {
+			this.setRootForTree(t1.root, this);
+			return;
+		}
+		IAVLNode x = t2.min_node;
+		t2.DeleteNode(x);                                              // the min has no left son, so x itself is unlinked
+		detach(x);
+		this.setRootForTree(t1.root, this);
+		this.JoinTrees(x, t2);
+	}
+
+	/**
+	 * public join(IAVLNode x, AVLTree t)
+	 * <p>
+	 * joins t and x with the tree.
+	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1).
+	 * x itself becomes a node of the tree, its links are reset.
+	 * precondition: keys(x,t) < keys() or keys(x,t) > keys(). t/tree might be empty (rank = -1).
+	 *               both trees have the same augmentations
+	 * postcondition: none
+	 */
+	public int join(IAVLNode x, AVLTree t) {
+		this.checkSameAugmentations(t);
+		TreeEvents.JoinEvent event = new TreeEvents.JoinEvent();
+		event.begin();
+		int cost = JoinTrees(x, t);
+		if (metrics != null) {
+			metrics.recordJoin(cost);
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.commitWith(x.getKey(), this.size(), this.root.getHeight(), cost, 0);
+		}
+		return cost;
+	}
+
+	/** function that does the join, returns its cost */
+	private int JoinTrees(IAVLNode x, AVLTree t) {
+		detach(x);                                              // x may be new (null links) or come from another tree
+		((AVLNode) x).fixSize();
+
+		if ((this.empty()) && (t.empty())) {                    // if both trees are empty
+
+			this.setRootForTree(x, this);                    // set new root for the tree and calc Min/Max
+			((AVLNode) this.root).fixSize();                    // set size of root to 1
+			return 1;                                           // |0 - 0| + 1
+		}
+		if (this.empty()) {                                     // if this.tree is empty
+			this.setRootForTree(t.getRoot(), this);          // change root to t.root
+			this.InsertAt((AVLNode) this.TreePosition(this.root, x.getKey()), (AVLNode) x);  // insert x to the new tree
+			return t.getRoot().getHeight() + 1;                 // return |0 - t.root.rank| + 1
+		}
+		if (t.empty()) {                                        // if t is empty
+			this.InsertAt((AVLNode) this.TreePosition(this.root, x.getKey()), (AVLNode) x);  // insert x to the new tree
+			int tmp_height = this.root.getHeight();			    // save the curr height for return value
+			return tmp_height+1;                                // return |this.rank - 0| + 1
+		}
+
+		// --- CALC RETURN VALUE
+		int rank_diff_res;
+		if(this.root.getHeight()>=t.getRoot().getHeight()){
+			rank_diff_res = this.root.getHeight()-t.getRoot().getHeight()+1;
+		}
+		else{ rank_diff_res = t.getRoot().getHeight()-this.getRoot().getHeight()+1;}
+ 		// ----
+
+		if (this.getRoot().getHeight() == t.getRoot().getHeight()){      // if trees have the same height
+
+			int old_height = this.getRoot().getHeight();
+			if(this.root.getKey() > t.getRoot().getKey()){               // if this.keys > t.keys()
+				this.root.setParent(x);
+				x.setLeft(t.getRoot());
+				t.getRoot().setParent(x);
+				x.setRight(this.root);
+			}
+			else{                                                        // if this.keys < t.keys()
+
+				x.setLeft(this.root);
+				this.root.setParent(x);
+				x.setRight(t.getRoot());
+				t.getRoot().setParent(x);
+			}
+			this.setRootForTree(x, this);                             // fix root and min/max references
+			((AVLNode) this.root).fixSize();                             // fix this.root
+			this.root.setHeight(old_height+1);
+			return rank_diff_res;
+		}
+
+		if (this.root.getKey() < t.getRoot().getKey()) {                 // if this.keys() < t.keys() & have different heights
+			if (this.root.getHeight() < t.getRoot().getHeight()) {       // if this.tree is smaller than t
+				IAVLNode b = t.getRoot();
+				while (b.getHeight() > this.getRoot().getHeight()        // loop until b.height == k/k-1 (k=this.root.height)
+						&& b.getLeft().getHeight() != -1) {
+
+					b = b.getLeft();
+				}
+				if(b == t.getRoot()){                                    // if b is t.root than b has no parent - special case
+					b.setParent(x);
+					x.setRight(b);
+					x.setLeft(this.root);
+					this.root.setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					((AVLNode) x).fixSize();
+					this.setRootForTree(x, this);                    // fix root and min/max references
+					return rank_diff_res;
+				}
+				else {													// if b is not t.root
+					x.setParent(b.getParent());
+					b.getParent().setLeft(x);
+					b.setParent(x);
+					x.setRight(b);
+					x.setLeft(this.root);
+					this.root.setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					this.root = t.getRoot();
+					((AVLNode) x).fixSize();
+				}
+			}
+			else {                                                      // if this.tree is higher than t
+				IAVLNode b = this.root;
+				while (b.getHeight() > t.getRoot().getHeight()          // loop until b.height == k/k-1 (k=t.root.height)
+						&& b.getRight().getHeight() != -1) {
+					b = b.getRight();
+				}
+				if(b == this.root){  									// if b is this.root than b has no parent - special case
+					x.setLeft(b);
+					b.setParent(x);
+					x.setRight(t.getRoot());
+					t.getRoot().setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					((AVLNode) x).fixSize();
+					this.setRootForTree(x, this);                    // fix root and min/max references
+					return rank_diff_res;
+
+				}
+				else {													// if b is not this.root
+					x.setParent(b.getParent());
+					b.getParent().setRight(x);
+					b.setParent(x);
+					x.setLeft(b);
+					x.setRight(t.getRoot());
+					t.getRoot().setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					((AVLNode) x).fixSize();
+				}
+			}
+		}
+		else if (this.root.getKey() > t.getRoot().getKey()) {        	// if this.keys() > t.keys() & have different heights
+
+			if (this.root.getHeight() < t.getRoot().getHeight()) {      // if this.tree is smaller that t
+
+				IAVLNode b = t.getRoot();
+				while (b.getHeight() > this.getRoot().getHeight()       // loop until b.height == k/k-1 (k=this.root.height)
+						&& b.getRight().getHeight() != -1) {
+					b = b.getRight();
+				}
+
+				if (b == t.getRoot()) {                                 // if b is t.root than b has no parent - special case
+					x.setLeft(b);
+					b.setParent(x);
+					x.setRight(this.root);
+					this.root.setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					((AVLNode) x).fixSize();
+					this.setRootForTree(x, this);                             // fix root and min/max references
+					return rank_diff_res;
+				} else {                                                // if b is not t.root
+					x.setParent(b.getParent());
+					b.getParent().setRight(x);
+					b.setParent(x);
+					x.setLeft(b);
+					x.setRight(this.root);
+					this.root.setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					((AVLNode) x).fixSize();
+					this.root = t.getRoot();
+				}
+			}
+			else {                                                      // if this.tree is higher than t
+				IAVLNode b = this.root;
+				while (b.getHeight() > t.getRoot().getHeight() 			// loop until b.height == k/k-1 (k=t.root.height)
+						&& b.getLeft().getHeight() != -1) {
+					b = b.getLeft();
+				}
+
+				if(b == this.root) {                                    // concat 2 root with x
+					x.setRight(b);
+					b.setParent(x);
+					x.setLeft(t.getRoot());
+					t.getRoot().setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					((AVLNode) x).fixSize();
+					this.setRootForTree(x, this);                             // fix root and min/max references
+					return rank_diff_res;
+				}
+				else {												   // if b is not this.root
+					x.setParent(b.getParent());
+					b.getParent().setLeft(x);
+					x.setRight(b);
+					b.setParent(x);
+					x.setLeft(t.getRoot());
+					t.getRoot().setParent(x);
+					x.setHeight(Math.max(x.getLeft().getHeight(), x.getRight().getHeight()) + 1);  // correct x's height (b may be one lower than the other tree)
+					((AVLNode) x).fixSize();
+				}
+			}
+		}
+
+		int rank_diff_c_left = ((AVLNode) x.getParent()).rank_difference(x.getParent().getLeft());
+		int rank_diff_c_right = ((AVLNode) x.getParent()).rank_difference(x.getParent().getRight());
+		int rank_diff_x_left = ((AVLNode) x).rank_difference(x.getLeft());
+		int rank_diff_x_right = ((AVLNode) x).rank_difference(x.getRight());
+		IAVLNode curr= AVLTree.extLeaf;
+
+		// check if we are in special case of unbalancing (c is 0-2 or 2-0 and x is 1-1), otherwise a regular insert rebalance
+		if(rank_diff_c_left == 0 && rank_diff_c_right == 2 && rank_diff_x_left == 1 && rank_diff_x_right == 1) {
+			curr = rotate_right(x.getParent(), x);
+			curr.setHeight(curr.getHeight()+1);
+			fixParentPointer(curr, x.getRight().getKey());
+			((AVLNode) curr.getRight()).fixSize();
+			((AVLNode) curr).fixSize();
+			if(curr.getParent() == null){							// if we are in root
+				this.setRootForTree(curr, this); 				// change this.root to new root and calc min/max references
+				return rank_diff_res;
+			}
+			InsertBalance(curr.getParent());
+		}
+		else if(rank_diff_c_left == 2 && rank_diff_c_right == 0 && rank_diff_x_left == 1 && rank_diff_x_right == 1) {
+			curr = rotate_left(x.getParent(), x);
+			curr.setHeight(curr.getHeight()+1);
+			fixParentPointer(curr, x.getLeft().getKey());
+			((AVLNode) curr.getLeft()).fixSize();
+			((AVLNode) curr).fixSize();
+			if(curr.getParent() == null){							// if we are in root
+				this.setRootForTree(curr, this); 				// change this.root to new root and calc min/max references
+				return rank_diff_res;
+			}
+			InsertBalance(curr.getParent());
+		}
+		else {
+			curr = x.getParent();
+			((AVLNode) curr).fixSize();
+			InsertBalance(curr);
+		}
+
+		this.min_node = this.CalcMin(this.root);
+		this.max_node = this.CalcMax(this.root);
+		return rank_diff_res;
+	}
+
+	/**
+	 * public AVLTree union(AVLTree t)
+	 * <p>
+	 * Returns a tree with the items of both trees. If a key is in both trees, the info of this tree is kept.
+	 * Join-based: split this tree by the root of t, recurse on both sides, and join.
+	 * O(m log(n/m + 1)) work for sizes m <= n, and the two sides run in parallel on the common ForkJoinPool.
+	 * postcondition: this tree and t must not be used anymore
+	 */
+	public AVLTree union(AVLTree t) {
+		return union(t, ForkJoinPool.commonPool());
+	}
+
+	/** union(t) running on the given pool */
+	public AVLTree union(AVLTree t, ForkJoinPool pool) {
+		this.checkSameAugmentations(t);
+		return pool.invoke(new SetOperation(SetOperation.UNION, this, t));
+	}
+
+	/**
+	 * public AVLTree intersection(AVLTree t)
+	 * <p>
+	 * Returns a tree with the items of this tree whose keys are also in t.
+	 * Same scheme and bounds as union.
+	 * postcondition: this tree and t must not be used anymore
+	 */
+	public AVLTree intersection(AVLTree t) {
+		return intersection(t, ForkJoinPool.commonPool());
+	}
+
+	/** intersection(t) running on the given pool */
+	public AVLTree intersection(AVLTree t, ForkJoinPool pool) {
+		this.checkSameAugmentations(t);
+		return pool.invoke(new SetOperation(SetOperation.INTERSECTION, this, t));
+	}
+
+	/**
+	 * public AVLTree difference(AVLTree t)
+	 * <p>
+	 * Returns a tree with the items of this tree whose keys are not in t.
+	 * Same scheme and bounds as union.
+	 * postcondition: this tree and t must not be used anymore
+	 */
+	public AVLTree difference(AVLTree t) {
+		return difference(t, ForkJoinPool.commonPool());
+	}
+
+	/** difference(t) running on the given pool */
+	public AVLTree difference(AVLTree t, ForkJoinPool pool) {
+		this.checkSameAugmentations(t);
+		return pool.invoke(new SetOperation(SetOperation.DIFFERENCE, this, t));
+	}
+
+	/**
+	 * One step of a join-based set operation between t1 and t2.
+	 * The root of t2 splits t1, then the two sides are solved (in parallel when they are big enough)
+	 * and joined back. Each task owns its two trees, so the tasks never share nodes.
+	 * The nodes dropped and made here (by split, delete and joinWith) go through the pools of their trees,
+	 * so a pool is touched only by the task that owns its tree. The trees made by split have no pool,
+	 * so below the top level the nodes are allocated as without one.
+	 */
+	private static final class SetOperation extends RecursiveTask<AVLTree> {
+		private static final long serialVersionUID = 1L;
+		static final int UNION = 0;
+		static final int INTERSECTION = 1;
+		static final int DIFFERENCE = 2;
+		private static final int SEQUENTIAL_SIZE = 2048;   // below this many items it is cheaper not to fork
+
+		private final int op;
+		private final AVLTree t1;
+		private final AVLTree t2;
+
+		SetOperation(int op, AVLTree t1, AVLTree t2) {
+			this.op = op;
+			this.t1 = t1;
+			this.t2 = t2;
+		}
+
+		@Override
+		protected AVLTree compute() {
+			if (t1.empty() || t2.empty()) {
+				if (op == UNION) {
+					return t1.empty() ? t2 : t1;
+				}
+				return (op == INTERSECTION) ? new AVLTree(t1) : t1;
+			}
+			int n = t1.size() + t2.size();
+			// --- expose the root of t2
+			IAVLNode r = t2.root;
+			int k = r.getKey();
+			AVLTree l2 = subtree(t2, r.getLeft());
+			AVLTree r2 = subtree(t2, r.getRight());
+
+			// --- split t1 by k (k itself, if it is in t1, is dropped)
+			IAVLNode pos = t1.TreePosition(t1.root, k);
+			boolean found = pos.getKey() == k;
+			String info = found ? pos.getValue() : r.getValue();
+			AVLTree[] parts = t1.split(k);
+
+			SetOperation left = new SetOperation(op, parts[0], l2);
+			SetOperation right = new SetOperation(op, parts[1], r2);
+			AVLTree tl;
+			AVLTree tr;
+			if (n >= SEQUENTIAL_SIZE) {
+				left.fork();
+				tr = right.compute();
+				tl = left.join();
+			} else {
+				tl = left.compute();
+				tr = right.compute();
+			}
+
+			if (op == UNION || (op == INTERSECTION && found)) {
+				return joinWith(tl, k, info, tr);
+			}
+			return joinWith(tl, tr);
+		}
+
+		/** the subtree of node (a node of tree) as a tree of its own */
+		private static AVLTree subtree(AVLTree tree, IAVLNode node) {
+			AVLTree t = new AVLTree(tree);
+			if (node.isRealNode()) {
+				node.setParent(null);
+				t.setRootForTree(node, t);
+			}
+			return t;
+		}
+
+		/** joins tl, (k, info) and tr, where keys(tl) < k < keys(tr). the node of k comes from the pool of tl */
+		private static AVLTree joinWith(AVLTree tl, int k, String info, AVLTree tr) {
+			tl.join(tl.newNode(k, info), tr);                  // join resets the links of the node
+			return tl;
+		}
+
+		/** joins tl and tr, where keys(tl) < keys(tr), by moving the max of tl between them */
+		private static AVLTree joinWith(AVLTree tl, AVLTree tr) {
+			if (tl.empty()) {
+				return tr;
+			}
+			if (tr.empty()) {
+				return tl;
+			}
+			int k = tl.max_node.getKey();
+			String info = tl.max_node.getValue();
+			tl.delete(k);
+			return joinWith(tl, k, info, tr);
+		}
+	}
+
+	public IAVLNode successor(IAVLNode x) { // return the successor of node x
+		if (x.getRight() != extLeaf) {      // if the successor is in the right subtree
+			return this.CalcMin(x.getRight());
+		}
+		IAVLNode y = x.getParent();         // if we need to go up to find the successor
+		while (y!=null && x == y.getRight()) {   // the root's parent is null, so the max has no successor (null)
+			x = y;
+			y = x.getParent();
+		}
+		return y;
+	}
+
+	public IAVLNode predecessor(IAVLNode x) { // return the predecessor of node x (null for the min)
+		if (x.getLeft() != extLeaf) {       // if the predecessor is in the left subtree
+			return this.CalcMax(x.getLeft());
+		}
+		IAVLNode y = x.getParent();         // if we need to go up to find the predecessor
+		while (y!=null && x == y.getLeft()) {
+			x = y;
+			y = x.getParent();
+		}
+		return y;
+	}
+
+	/**
+	 * public Cursor cursor()
+	 * <p>
+	 * Returns a cursor over this tree, not positioned yet (call first(), last() or seek()).
+	 * A cursor can be repositioned and reused, so a walk allocates nothing.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * public class Cursor
+	 * <p>
+	 * An in-order position in the tree. next() and prev() move to the successor/predecessor by
+	 * the parent pointers: a full walk climbs every edge twice, so each step is amortized O(1).
+	 * When it moves past either end the cursor becomes invalid.
+	 * precondition: the tree is not modified while the cursor is used (reposition it after a change)
+	 */
+	public final class Cursor {
+		private IAVLNode node;          // null when the cursor is not on a node
+
+		private Cursor() {
+		}
+
+		/** moves to the smallest key, returns this cursor */
+		public Cursor first() {
+			this.node = empty() ? null : min_node;
+			return this;
+		}
+
+		/** moves to the largest key, returns this cursor */
+		public Cursor last() {
+			this.node = empty() ? null : max_node;
+			return this;
+		}
+
+		/** moves to the smallest key that is at least k in O(logn), returns this cursor */
+		public Cursor seek(int k) {
+			this.node = ceilingNode(k);
+			return this;
+		}
+
+		/** returns true if the cursor is on a node */
+		public boolean valid() {
+			return this.node != null;
+		}
+
+		/** moves to the next key, returns true if there is one */
+		public boolean next() {
+			if (this.node != null) {
+				this.node = successor(this.node);
+			}
+			return this.node != null;
+		}
+
+		/** moves to the previous key, returns true if there is one */
+		public boolean prev() {
+			if (this.node != null) {
+				this.node = predecessor(this.node);
+			}
+			return this.node != null;
+		}
+
+		/** the key at the cursor. precondition: valid() */
+		public int key() {
+			return this.node.getKey();
+		}
+
+		/** the info at the cursor. precondition: valid() */
+		public String info() {
+			return this.node.getValue();
+		}
+
+		/** the node at the cursor, or null if it is not valid */
+		public IAVLNode node() {
+			return this.node;
+		}
+	}
+
+	/** return the position we need to insert the node in the tree
+	 * if the tree is empty() return null
+	*/
+	public IAVLNode TreePosition(IAVLNode x, int key) {
+
+		if (x==null) {      //if the tree is empty return null
+
+			return null;
+		}
+		IAVLNode y = null;
+		while (x!=AVLTree.extLeaf) {    // else search for node.key=key
+			y = x;
+			if (key == x.getKey()) {
+				return x;               // if you found, return node
+			} else if (key < x.getKey()) {
+				x = x.getLeft();
+			} else {
+				x = x.getRight();
+			}
+		}
+		return y; // return the place where node should be inserted
+	}
+
+	/** return true is the node is a left son (by identity: an external leaf has key -1, like a real node may) */
+	public static boolean isLeftSon(IAVLNode node) {
+		return node.getParent().getLeft() == node;
+	}
+
+	/**
+	 * public interface IAVLNode
+	 * ! Do not delete or modify this - otherwise all tests will fail !
+	 */
+	public interface IAVLNode {
+		public int getKey(); //returns node's key (for virtuval node return -1)
+
+		public String getValue(); //returns node's value [info] (for virtuval node return null)
+
+		public void setLeft(IAVLNode node); //sets left child
+
+		public IAVLNode getLeft(); //returns left child (if there is no left child return null)
+
+		public void setRight(IAVLNode node); //sets right child
+
+		public IAVLNode getRight(); //returns right child (if there is no right child return null)
+
+		public void setParent(IAVLNode node); //sets parent
+
+		public IAVLNode getParent(); //returns the parent (if there is no parent return null)
+
+		public boolean isRealNode(); // Returns True if this is a non-virtual AVL node
+
+		public void setHeight(int height); // sets the height of the node
+
+		public int getHeight(); // Returns the height of the node (-1 for virtual nodes)
+
+	}
+	public static class ExtLeaf implements IAVLNode{
+		private int key;
+		private String info;
+		private int size = 0;
+		private final int height=-1;
+		private IAVLNode left = null;
+		private IAVLNode right = null;
+		private IAVLNode parent = null;
+
+		public int getKey(){return -1;}
+		public String getValue(){return null;}
+		public void setLeft(IAVLNode node){}
+
+		public IAVLNode getLeft(){return null;}
+		public void setRight(IAVLNode node){}
+		public IAVLNode getRight(){return null;}
+		public void setParent(IAVLNode node){}
+		public IAVLNode getParent(){return null;}
+		public boolean isRealNode(){return false;}
+		public void setHeight(int height){}
+		public int getHeight(){return this.height;}
+	}
+	/**
+	 * public class AVLNode
+	 * <p>
+	 * If you wish to implement classes other than AVLTree
+	 * (for example AVLNode), do it in this file, not in
+	 * another file.
+	 * This class can and must be modified.
+	 * (It must implement IAVLNode)
+	 */
+
+	public class AVLNode implements IAVLNode {
+
+		private int key;
+		private String info;
+		private int height;
+		private int size;
+		private Object[] augmented;            // the values of the tree's augmentations, null if it has none
+		private IAVLNode left = null;
+		private IAVLNode right = null;
+		private IAVLNode parent = null;
+
+		public AVLNode(int key, String value) {
+			this.key = key;
+			this.info = value;
+		}
+
+		public int getKey() {
+			return key;
+		}
+
+		public void setKey(int key) {
+			this.key = key;
+		}
+
+		public String getValue() {
+			return info;
+		}
+
+		public void setValue(String value) {
+			this.info = value;
+		}
+
+		public void setLeft(IAVLNode node) {
+			this.left = node;
+		}
+
+		public IAVLNode getLeft() {
+			return left;
+		}
+
+		public void setRight(IAVLNode node) {
+			this.right = node;
+		}
+
+		public IAVLNode getRight() {
+			return right;
+		}
+
+		public void setParent(IAVLNode node) {
+			this.parent = node;
+		}
+
+		public IAVLNode getParent() {
+			return parent;
+		}
+
+		// Returns True if this is a non-virtual AVL node
+		public boolean isRealNode() {
+			return true;
+		}
+
+		public void setHeight(int height) {
+			this.height = height;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * public int rank_difference(IAVLNode p, IAVLNode s)
+		 * <p>
+		 * return the rank difference between 2 nodes.
+		 */
+		public int rank_difference(IAVLNode son) {
+			return this.getHeight() - son.getHeight();
+		}
+		public int getSize(){return this.size;}
+		public void setSize(int size){this.size = size;}
+
+		public void fixSize() {
+			if (this.getLeft().getHeight() == -1 && this.getRight().getHeight() == -1) { // the node is a leaf size = 1
+				this.size = 1;
+			}
+			else {               // if the node isn't a leaf, we need to update his size based on his sons.
+				int left_size=0;
+				int right_size=0;
+				if (this.getLeft().isRealNode()) {
+					left_size = ((AVLNode) this.getLeft()).getSize();
+				}
+				if (this.getRight().isRealNode()) {
+					right_size = ((AVLNode) this.getRight()).getSize();
+				}
+
+				this.size = left_size + right_size + 1;
+			}
+			Augmentation<?>[] augmentations = AVLTree.this.augmentations;
+			if (augmentations.length != 0) {
+				this.fixAugmented(augmentations);
+			}
+		}
+
+		/** recomputes the value of every augmentation from the sons, like the size */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private void fixAugmented(Augmentation<?>[] augmentations) {
+			if (this.augmented == null) {
+				this.augmented = new Object[augmentations.length];
+			}
+			for (int j = 0; j < augmentations.length; j++) {
+				Augmentation a = augmentations[j];
+				Object left_value = this.getLeft().isRealNode() ? ((AVLNode) this.getLeft()).augmented[j] : a.identity();
+				Object right_value = this.getRight().isRealNode() ? ((AVLNode) this.getRight()).augmented[j] : a.identity();
+				this.augmented[j] = a.combine(a.combine(left_value, a.leaf(this.key, this.info)), right_value);
+			}
+		}
+	}
+}
+
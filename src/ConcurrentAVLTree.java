@@ -0,0 +1,877 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * ConcurrentAVLTree
+ *
+ * A concurrent relaxed-balance AVL Tree with
+ * distinct integer keys and info, after Bronson, Casper, Chafi and Olukotun,
+ * "A Practical Concurrent Binary Search Tree" (PPoPP 2010).
+ *
+ * Reads never lock. Every node has a version number that changes when the node is
+ * rotated down or unlinked (its key range shrinks). A reader walks hand over hand:
+ * it reads a son, then checks that the version of the parent did not change,
+ * and retries from the parent if it did. A reader that meets a node in the middle of a
+ * rotation spins until the rotation ends, because the writer holds it only for a few stores.
+ *
+ * Writers lock only the nodes they change: the parent when a leaf is attached or a
+ * node is unlinked, and the 2-3 nodes of a rotation. Locks are always taken top-down.
+ * A deleted node with two sons stays in the tree as a routing node (info == null)
+ * until rebalancing can unlink it. Balance is relaxed: heights are repaired bottom-up
+ * after every update, and the tree may be briefly out of balance while other threads work.
+ * Unlike the paper, the repair walk also follows a son that a concurrent rotation moved
+ * and comes back to nodes a rotation left behind, so once all updates have returned
+ * the tree is a strict AVL tree again (routing nodes included).
+ *
+ * Heights here are 1 for a leaf and 0 for a missing son, as in the paper.
+ *
+ */
+
+public class ConcurrentAVLTree {
+
+	private static final long UNLINKED = 1L;          // version of a node that left the tree
+	private static final long SHRINKING = 2L;         // set while a node is rotated down
+	private static final long VERSION_INCR = 4L;      // added when a shrink ends
+
+	private static final int SPINS = 100;             // busy waits before a reader starts to yield
+
+	private static final int UNLINK_REQUIRED = -1;
+	private static final int REBALANCE_REQUIRED = -2;
+	private static final int NOTHING_REQUIRED = -3;
+
+	private static final String RETRY = new String("retry");   // compared by identity only
+
+	private final Node rootHolder = new Node(Integer.MIN_VALUE, null, null);   // the root is its right son
+	private final LongAdder count = new LongAdder();
+
+	// constructor
+	public ConcurrentAVLTree() {
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.size() == 0;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of items in the tree. Concurrent updates may or may not be counted.
+	 */
+	public int size() {
+		return (int) this.count.sum();
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null. Never locks.
+	 */
+	public String search(int k) {
+		while (true) {
+			String result = attemptGet(k, rootHolder, 1, rootHolder.version);
+			if (result != RETRY) {
+				return result;
+			}
+		}
+	}
+
+	/** hand-over-hand optimistic search under node, which had version node_v when we got to it */
+	private String attemptGet(int k, Node node, int dir, long node_v) {
+		while (true) {
+			Node child = node.child(dir);
+			if (node.version != node_v) {                // node shrank or left, the son may be wrong
+				return RETRY;
+			}
+			if (child == null) {
+				return null;
+			}
+			int next_dir = Integer.compare(k, child.key);
+			if (next_dir == 0) {
+				return child.info;
+			}
+			long child_v = child.version;
+			if ((child_v & SHRINKING) != 0) {
+				waitUntilNotChanging(child);
+			}
+			else if (child_v != UNLINKED && child == node.child(dir)) {
+				if (node.version != node_v) {
+					return RETRY;
+				}
+				String result = attemptGet(k, child, next_dir, child_v);
+				if (result != RETRY) {
+					return result;
+				}
+			}
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the tree.
+	 * returns 0, or -1 if an item with key k already exists in the tree.
+	 * Rebalancing is relaxed and may be finished by other threads, so no count is returned.
+	 * precondition: i != null (null marks a deleted node)
+	 */
+	public int insert(int k, String i) {
+		if (i == null) {
+			throw new IllegalArgumentException("info must not be null");
+		}
+		while (true) {
+			String result = attemptInsert(k, i, rootHolder, 1, rootHolder.version);
+			if (result != RETRY) {
+				return (result == null) ? 0 : -1;
+			}
+		}
+	}
+
+	/** returns null if (k, i) was inserted, the existing info if k is there, or RETRY */
+	private String attemptInsert(int k, String i, Node node, int dir, long node_v) {
+		String result = RETRY;
+		do {
+			Node child = node.child(dir);
+			if (node.version != node_v) {
+				return RETRY;
+			}
+			if (child == null) {
+				result = attemptAttach(k, i, node, dir, node_v);
+			}
+			else {
+				int next_dir = Integer.compare(k, child.key);
+				if (next_dir == 0) {
+					result = attemptRevive(child, i);
+				}
+				else {
+					long child_v = child.version;
+					if ((child_v & SHRINKING) != 0) {
+						waitUntilNotChanging(child);
+					}
+					else if (child_v != UNLINKED && child == node.child(dir)) {
+						if (node.version != node_v) {
+							return RETRY;
+						}
+						result = attemptInsert(k, i, child, next_dir, child_v);
+					}
+				}
+			}
+		} while (result == RETRY);
+		return result;
+	}
+
+	/** attaches a new leaf as the dir son of node */
+	private String attemptAttach(int k, String i, Node node, int dir, long node_v) {
+		synchronized (node) {
+			if (node.version != node_v || node.child(dir) != null) {
+				return RETRY;
+			}
+			node.setChild(dir, new Node(k, i, node));
+		}
+		count.increment();
+		fixHeightAndRebalance(node);
+		return null;
+	}
+
+	/** sets the info of a routing node, or returns the info that is already there */
+	private String attemptRevive(Node node, String i) {
+		synchronized (node) {
+			if (node.version == UNLINKED) {
+				return RETRY;
+			}
+			String prev = node.info;
+			if (prev == null) {
+				node.info = i;
+				count.increment();
+			}
+			return prev;
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns 0, or -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		while (true) {
+			String result = attemptRemove(k, rootHolder, 1, rootHolder.version);
+			if (result != RETRY) {
+				return (result == null) ? -1 : 0;
+			}
+		}
+	}
+
+	/** returns the removed info, null if k is not in the tree, or RETRY */
+	private String attemptRemove(int k, Node node, int dir, long node_v) {
+		String result = RETRY;
+		do {
+			Node child = node.child(dir);
+			if (node.version != node_v) {
+				return RETRY;
+			}
+			if (child == null) {
+				return null;
+			}
+			int next_dir = Integer.compare(k, child.key);
+			if (next_dir == 0) {
+				result = attemptRemoveNode(node, child);
+			}
+			else {
+				long child_v = child.version;
+				if ((child_v & SHRINKING) != 0) {
+					waitUntilNotChanging(child);
+				}
+				else if (child_v != UNLINKED && child == node.child(dir)) {
+					if (node.version != node_v) {
+						return RETRY;
+					}
+					result = attemptRemove(k, child, next_dir, child_v);
+				}
+			}
+		} while (result == RETRY);
+		return result;
+	}
+
+	/** removes the item of n (a son of parent): unlinks n if it has at most one son, else leaves it as a routing node */
+	private String attemptRemoveNode(Node parent, Node n) {
+		if (n.info == null) {                          // already deleted
+			return null;
+		}
+		String prev;
+		if (!canUnlink(n)) {
+			synchronized (n) {
+				if (n.version == UNLINKED || canUnlink(n)) {
+					return RETRY;
+				}
+				prev = n.info;
+				n.info = null;
+			}
+			if (prev != null) {
+				count.decrement();
+			}
+			return prev;
+		}
+		synchronized (parent) {
+			if (parent.version == UNLINKED || n.parent != parent || n.version == UNLINKED) {
+				return RETRY;
+			}
+			synchronized (n) {
+				prev = n.info;
+				if (prev == null) {
+					return null;
+				}
+				n.info = null;
+				if (canUnlink(n)) {                    // splice n out, its son (if any) takes its place
+					Node son = (n.left == null) ? n.right : n.left;
+					if (parent.left == n) {
+						parent.left = son;
+					} else {
+						parent.right = son;
+					}
+					if (son != null) {
+						son.parent = parent;
+					}
+					n.version = UNLINKED;
+				}
+			}
+		}
+		count.decrement();
+		fixHeightAndRebalance(parent);
+		return prev;
+	}
+
+	private static boolean canUnlink(Node n) {
+		return n.left == null || n.right == null;
+	}
+
+	/** waits for the rotation that is shrinking node to end. it is a handful of stores by a lock holder, so spin
+	 *  first, then yield in case that thread was descheduled (there may be fewer cores than threads) */
+	private static void waitUntilNotChanging(Node node) {
+		for (int spins = 0; (node.version & SHRINKING) != 0; spins++) {
+			if (spins < SPINS) {
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// relaxed rebalancing. every method ending in _nl expects the caller to hold the locks it needs
+
+	/** what node needs: UNLINK_REQUIRED, REBALANCE_REQUIRED, NOTHING_REQUIRED or its new height */
+	private static int nodeCondition(Node node) {
+		Node node_left = node.left;
+		Node node_right = node.right;
+		if ((node_left == null || node_right == null) && node.info == null) {
+			return UNLINK_REQUIRED;
+		}
+		int h = node.height;
+		int hl = height(node_left);
+		int hr = height(node_right);
+		int h_repl = 1 + Math.max(hl, hr);
+		int bal = hl - hr;
+		if (bal < -1 || bal > 1) {
+			return REBALANCE_REQUIRED;
+		}
+		return (h != h_repl) ? h_repl : NOTHING_REQUIRED;
+	}
+
+	/**
+	 * walks up from node fixing heights, unlinking routing nodes and rotating, until nothing is left to do.
+	 * from is the son of node whose height we just fixed. a rotation or an unlink that ran before we got the
+	 * lock of node may have moved from under a new parent, computing its height from the old height of from,
+	 * so every step checks, under the lock of node, that from is still its son, and follows from if it is not.
+	 * "nothing to do" is also only trusted under the lock, for the same reason.
+	 * A rotation that leaves work below a node whose son it changed pushes that node on pending,
+	 * and the walk goes on from there when the current path is done.
+	 */
+	private void fixHeightAndRebalance(Node node) {
+		Node from = null;
+		ArrayDeque<Node> pending = null;
+		while (true) {
+			if (node == null || node.parent == null) {
+				if (pending == null || pending.isEmpty()) {
+					return;
+				}
+				node = pending.pop();
+				from = null;
+				continue;
+			}
+			if (from != null && from.version == UNLINKED) {   // its unlinker took over, and from.parent is stale
+				from = null;
+			}
+			if (node.version == UNLINKED) {              // the unlinker fixes its parent, but from has moved
+				node = (from == null) ? null : from.parent;
+				continue;
+			}
+			int condition = nodeCondition(node);
+			if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+				Node next;
+				synchronized (node) {
+					if (from != null && from.parent != node) {
+						next = from.parent;
+					}
+					else if (node.version == UNLINKED) {
+						next = null;
+					}
+					else {
+						next = fixHeight_nl(node);
+						if (next != node) {
+							from = node;
+						}
+					}
+				}
+				node = next;
+			}
+			else {
+				if (pending == null) {
+					pending = new ArrayDeque<>();
+				}
+				Node parent = node.parent;
+				synchronized (parent) {
+					if (parent.version != UNLINKED && node.parent == parent) {
+						synchronized (node) {
+							if (from != null && from.parent != node) {
+								pending.push(from.parent);      // node needs work too, come back for from
+							}
+							node = rebalance_nl(parent, node, pending);
+							from = null;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/** returns n, the next node to look at, after noting that parent must be looked at too */
+	private static Node later(Node parent, Node n, ArrayDeque<Node> pending) {
+		pending.push(parent);
+		return n;
+	}
+
+	/** fixes the height of node, returns the next node to look at (null when done). holds node */
+	private static Node fixHeight_nl(Node node) {
+		int condition = nodeCondition(node);
+		switch (condition) {
+			case REBALANCE_REQUIRED:
+			case UNLINK_REQUIRED:
+				return node;
+			case NOTHING_REQUIRED:
+				return null;
+			default:
+				node.height = condition;
+				return node.parent;
+		}
+	}
+
+	/** holds parent and n */
+	private Node rebalance_nl(Node parent, Node n, ArrayDeque<Node> pending) {
+		Node nl = n.left;
+		Node nr = n.right;
+		if ((nl == null || nr == null) && n.info == null) {
+			if (attemptUnlink_nl(parent, n)) {
+				return parent;
+			}
+			return n;
+		}
+		int h = n.height;
+		int hl0 = height(nl);
+		int hr0 = height(nr);
+		int h_repl = 1 + Math.max(hl0, hr0);
+		int bal = hl0 - hr0;
+		if (bal > 1) {
+			return rebalanceToRight_nl(parent, n, nl, hr0, pending);
+		}
+		if (bal < -1) {
+			return rebalanceToLeft_nl(parent, n, nr, hl0, pending);
+		}
+		if (h_repl != h) {
+			n.height = h_repl;
+			return parent;
+		}
+		return null;
+	}
+
+	/** unlinks the routing node n if it has at most one son. holds parent and n */
+	private static boolean attemptUnlink_nl(Node parent, Node n) {
+		Node parent_left = parent.left;
+		Node parent_right = parent.right;
+		if (parent_left != n && parent_right != n) {
+			return false;
+		}
+		Node nl = n.left;
+		Node nr = n.right;
+		if ((nl != null && nr != null) || n.info != null) {
+			return false;
+		}
+		Node splice = (nl != null) ? nl : nr;
+		if (parent_left == n) {
+			parent.left = splice;
+		} else {
+			parent.right = splice;
+		}
+		if (splice != null) {
+			splice.parent = parent;
+		}
+		n.version = UNLINKED;
+		return true;
+	}
+
+	/** n is left heavy. holds parent and n */
+	private Node rebalanceToRight_nl(Node parent, Node n, Node nl, int hr0, ArrayDeque<Node> pending) {
+		synchronized (nl) {
+			int hl = nl.height;
+			if (hl - hr0 <= 1) {
+				return n;                                  // retry
+			}
+			Node nlr = nl.right;
+			int hll0 = height(nl.left);
+			int hlr0 = height(nlr);
+			if (hll0 >= hlr0) {
+				return rotateRight_nl(parent, n, nl, hr0, hll0, nlr, hlr0, pending);
+			}
+			synchronized (nlr) {
+				int hlr = nlr.height;
+				if (hll0 >= hlr) {
+					return rotateRight_nl(parent, n, nl, hr0, hll0, nlr, hlr, pending);
+				}
+				int hlrl = height(nlr.left);
+				int b = hll0 - hlrl;
+				if (b >= -1 && b <= 1) {
+					return rotateRightOverLeft_nl(parent, n, nl, hr0, hll0, nlr, hlrl, pending);
+				}
+			}
+			Node next = rebalanceToLeft_nl(n, nl, nlr, hll0, pending);   // first rotate the left son to the left
+			return (next == n || nl.parent == n) ? next : later(n, next, pending);   // come back to n if nl moved
+		}
+	}
+
+	/** n is right heavy. holds parent and n */
+	private Node rebalanceToLeft_nl(Node parent, Node n, Node nr, int hl0, ArrayDeque<Node> pending) {
+		synchronized (nr) {
+			int hr = nr.height;
+			if (hl0 - hr >= -1) {
+				return n;                                  // retry
+			}
+			Node nrl = nr.left;
+			int hrl0 = height(nrl);
+			int hrr0 = height(nr.right);
+			if (hrr0 >= hrl0) {
+				return rotateLeft_nl(parent, n, hl0, nr, nrl, hrl0, hrr0, pending);
+			}
+			synchronized (nrl) {
+				int hrl = nrl.height;
+				if (hrr0 >= hrl) {
+					return rotateLeft_nl(parent, n, hl0, nr, nrl, hrl, hrr0, pending);
+				}
+				int hrlr = height(nrl.right);
+				int b = hrr0 - hrlr;
+				if (b >= -1 && b <= 1) {
+					return rotateLeftOverRight_nl(parent, n, hl0, nr, nrl, hrr0, hrlr, pending);
+				}
+			}
+			Node next = rebalanceToRight_nl(n, nr, nrl, hrr0, pending);  // first rotate the right son to the right
+			return (next == n || nr.parent == n) ? next : later(n, next, pending);
+		}
+	}
+
+	/** function for right rotation: nl goes up, n goes down. holds parent, n and nl */
+	private Node rotateRight_nl(Node parent, Node n, Node nl, int hr, int hll, Node nlr, int hlr, ArrayDeque<Node> pending) {
+		long node_v = n.version;
+		Node parent_left = parent.left;
+		n.version = node_v | SHRINKING;
+
+		n.left = nlr;
+		if (nlr != null) {
+			nlr.parent = n;
+		}
+		nl.right = n;
+		n.parent = nl;
+		if (parent_left == n) {
+			parent.left = nl;
+		} else {
+			parent.right = nl;
+		}
+		nl.parent = parent;
+
+		int h_repl = 1 + Math.max(hlr, hr);
+		n.height = h_repl;
+		nl.height = 1 + Math.max(hll, h_repl);
+		n.version = node_v + VERSION_INCR;
+
+		// see what is left to do
+		int bal_n = hlr - hr;
+		if (bal_n < -1 || bal_n > 1) {
+			return later(parent, n, pending);
+		}
+		if ((nlr == null || hr == 0) && n.info == null) {
+			return later(parent, n, pending);
+		}
+		int bal_l = hll - h_repl;
+		if (bal_l < -1 || bal_l > 1) {
+			return later(parent, nl, pending);
+		}
+		if (hll == 0 && nl.info == null) {
+			return later(parent, nl, pending);
+		}
+		return parent;
+	}
+
+	/** function for left rotation: nr goes up, n goes down. holds parent, n and nr */
+	private Node rotateLeft_nl(Node parent, Node n, int hl, Node nr, Node nrl, int hrl, int hrr, ArrayDeque<Node> pending) {
+		long node_v = n.version;
+		Node parent_left = parent.left;
+		n.version = node_v | SHRINKING;
+
+		n.right = nrl;
+		if (nrl != null) {
+			nrl.parent = n;
+		}
+		nr.left = n;
+		n.parent = nr;
+		if (parent_left == n) {
+			parent.left = nr;
+		} else {
+			parent.right = nr;
+		}
+		nr.parent = parent;
+
+		int h_repl = 1 + Math.max(hl, hrl);
+		n.height = h_repl;
+		nr.height = 1 + Math.max(h_repl, hrr);
+		n.version = node_v + VERSION_INCR;
+
+		int bal_n = hrl - hl;
+		if (bal_n < -1 || bal_n > 1) {
+			return later(parent, n, pending);
+		}
+		if ((nrl == null || hl == 0) && n.info == null) {
+			return later(parent, n, pending);
+		}
+		int bal_r = hrr - h_repl;
+		if (bal_r < -1 || bal_r > 1) {
+			return later(parent, nr, pending);
+		}
+		if (hrr == 0 && nr.info == null) {
+			return later(parent, nr, pending);
+		}
+		return parent;
+	}
+
+	/** function for left-right rotation: nlr goes up over nl and n. holds parent, n, nl and nlr */
+	private Node rotateRightOverLeft_nl(Node parent, Node n, Node nl, int hr, int hll, Node nlr, int hlrl, ArrayDeque<Node> pending) {
+		long node_v = n.version;
+		long left_v = nl.version;
+		Node parent_left = parent.left;
+		Node nlrl = nlr.left;
+		Node nlrr = nlr.right;
+		int hlrr = height(nlrr);
+
+		n.version = node_v | SHRINKING;
+		nl.version = left_v | SHRINKING;
+
+		n.left = nlrr;
+		if (nlrr != null) {
+			nlrr.parent = n;
+		}
+		nl.right = nlrl;
+		if (nlrl != null) {
+			nlrl.parent = nl;
+		}
+		nlr.left = nl;
+		nl.parent = nlr;
+		nlr.right = n;
+		n.parent = nlr;
+		if (parent_left == n) {
+			parent.left = nlr;
+		} else {
+			parent.right = nlr;
+		}
+		nlr.parent = parent;
+
+		int h_repl = 1 + Math.max(hlrr, hr);
+		n.height = h_repl;
+		int hl_repl = 1 + Math.max(hll, hlrl);
+		nl.height = hl_repl;
+		nlr.height = 1 + Math.max(hl_repl, h_repl);
+		n.version = node_v + VERSION_INCR;
+		nl.version = left_v + VERSION_INCR;
+
+		if ((hll == 0 || hlrl == 0) && nl.info == null) {   // nl is a routing node with one son now
+			pending.push(nl);
+		}
+
+		int bal_n = hlrr - hr;
+		if (bal_n < -1 || bal_n > 1) {
+			return later(parent, n, pending);
+		}
+		if ((nlrr == null || hr == 0) && n.info == null) {
+			return later(parent, n, pending);
+		}
+		int bal_lr = hl_repl - h_repl;
+		if (bal_lr < -1 || bal_lr > 1) {
+			return later(parent, nlr, pending);
+		}
+		return parent;
+	}
+
+	/** function for right-left rotation: nrl goes up over nr and n. holds parent, n, nr and nrl */
+	private Node rotateLeftOverRight_nl(Node parent, Node n, int hl, Node nr, Node nrl, int hrr, int hrlr, ArrayDeque<Node> pending) {
+		long node_v = n.version;
+		long right_v = nr.version;
+		Node parent_left = parent.left;
+		Node nrll = nrl.left;
+		Node nrlr = nrl.right;
+		int hrll = height(nrll);
+
+		n.version = node_v | SHRINKING;
+		nr.version = right_v | SHRINKING;
+
+		n.right = nrll;
+		if (nrll != null) {
+			nrll.parent = n;
+		}
+		nr.left = nrlr;
+		if (nrlr != null) {
+			nrlr.parent = nr;
+		}
+		nrl.right = nr;
+		nr.parent = nrl;
+		nrl.left = n;
+		n.parent = nrl;
+		if (parent_left == n) {
+			parent.left = nrl;
+		} else {
+			parent.right = nrl;
+		}
+		nrl.parent = parent;
+
+		int h_repl = 1 + Math.max(hl, hrll);
+		n.height = h_repl;
+		int hr_repl = 1 + Math.max(hrlr, hrr);
+		nr.height = hr_repl;
+		nrl.height = 1 + Math.max(h_repl, hr_repl);
+		n.version = node_v + VERSION_INCR;
+		nr.version = right_v + VERSION_INCR;
+
+		if ((hrr == 0 || hrlr == 0) && nr.info == null) {
+			pending.push(nr);
+		}
+
+		int bal_n = hrll - hl;
+		if (bal_n < -1 || bal_n > 1) {
+			return later(parent, n, pending);
+		}
+		if ((nrll == null || hl == 0) && n.info == null) {
+			return later(parent, n, pending);
+		}
+		int bal_rl = hr_repl - h_repl;
+		if (bal_rl < -1 || bal_rl > 1) {
+			return later(parent, nrl, pending);
+		}
+		return parent;
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// whole-tree reads. they do not lock and are weakly consistent: an item inserted or deleted
+	// during the call may or may not be seen, but the results are always in increasing key order
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		return firstInfo(true);
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		return firstInfo(false);
+	}
+
+	/** the first info in key order (or in reverse order), skipping routing nodes */
+	private String firstInfo(boolean forward) {
+		Node[] stack = new Node[64];
+		int top = 0;
+		Node node = rootHolder.right;
+		while (node != null || top > 0) {
+			while (node != null) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				stack[top++] = node;
+				node = forward ? node.left : node.right;
+			}
+			node = stack[--top];
+			String info = node.info;
+			if (info != null) {
+				return info;
+			}
+			node = forward ? node.right : node.left;
+		}
+		return null;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[Math.max(this.size(), 16)];
+		int n = 0;
+		Node[] stack = new Node[64];
+		int top = 0;
+		Node node = rootHolder.right;
+		long last = Long.MIN_VALUE;                 // a rotation may show us a node twice, keep the order strict
+		while (node != null || top > 0) {
+			while (node != null) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			if (node.info != null && node.key > last) {
+				if (n == keys.length) {
+					keys = Arrays.copyOf(keys, n * 2);
+				}
+				keys[n++] = node.key;
+				last = node.key;
+			}
+			node = node.right;
+		}
+		return Arrays.copyOf(keys, n);
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] infos = new String[Math.max(this.size(), 16)];
+		int n = 0;
+		Node[] stack = new Node[64];
+		int top = 0;
+		Node node = rootHolder.right;
+		long last = Long.MIN_VALUE;
+		while (node != null || top > 0) {
+			while (node != null) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			String info = node.info;
+			if (info != null && node.key > last) {
+				if (n == infos.length) {
+					infos = Arrays.copyOf(infos, n * 2);
+				}
+				infos[n++] = info;
+				last = node.key;
+			}
+			node = node.right;
+		}
+		return Arrays.copyOf(infos, n);
+	}
+
+	private static int height(Node node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	/**
+	 * A tree node. The key is final, everything else is volatile and changes only under the node's lock
+	 * (a son's parent pointer is changed under the lock of the new parent).
+	 */
+	private static final class Node {
+		final int key;
+		volatile String info;          // null for a routing node
+		volatile int height;
+		volatile long version;
+		volatile Node parent;
+		volatile Node left;
+		volatile Node right;
+
+		Node(int key, String info, Node parent) {
+			this.key = key;
+			this.info = info;
+			this.parent = parent;
+			this.height = 1;
+		}
+
+		Node child(int dir) {
+			return (dir < 0) ? left : right;
+		}
+
+		void setChild(int dir, Node node) {
+			if (dir < 0) {
+				left = node;
+			} else {
+				right = node;
+			}
+		}
+	}
+}
@@ -0,0 +1,633 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ *
+ * DurableAVLTree
+ *
+ * A thread safe AVLTree whose inserts and deletes survive a crash. The tree lives in memory;
+ * every successful insert/delete is appended to a write-ahead log in a directory, and the tree
+ * is checkpointed there from time to time as a MappedAVLTree snapshot. open() loads the newest
+ * checkpoint and replays the log written after it.
+ *
+ * Files of the directory (g is the generation, it grows by one at every checkpoint):
+ *   checkpoint-g.avl   the tree with every update of the logs before generation g
+ *   wal-g.log          the updates after that checkpoint, records of
+ *                      crc (4), op (1), key (4), info length (4, -1 for null), UTF-8 info,
+ *                      where the CRC32C covers the fields after it
+ * A torn record at the end of the newest log (a crash in the middle of a write) is cut off on open.
+ *
+ * Group commit: updates are encoded into a log buffer under the tree lock. The log is written and
+ * fsynced by one thread at a time, and a single fsync covers every record appended before it,
+ * so the updates of all the threads that waited meanwhile become durable together.
+ * When an update returns depends on the Sync policy.
+ *
+ */
+
+public class DurableAVLTree implements AutoCloseable {
+
+	/**
+	 * When the log is forced to the disk.
+	 * ALWAYS: insert/delete return after their record is fsynced (group commit between threads).
+	 * BATCH:  a background thread writes and fsyncs the log every batchMillis, updates do not wait,
+	 *         so a crash loses at most the last batchMillis of updates.
+	 * OS:     the background thread only writes the log to the OS every batchMillis and never fsyncs,
+	 *         so the updates survive a crash of the process but not of the machine.
+	 */
+	public enum Sync { ALWAYS, BATCH, OS }
+
+	public static final long DEFAULT_BATCH_MILLIS = 5;
+	public static final long DEFAULT_CHECKPOINT_EVERY = 1 << 22;
+
+	static final byte INSERT = 1;
+	static final byte DELETE = 2;
+	static final int RECORD_HEADER = 13;            // crc, op, key, info length
+	static final int BUFFER_BYTES = 1 << 20;
+	static final int MAX_RECORD = Integer.MAX_VALUE - 8;   // the largest byte[] (and record) there can be
+
+	private final Path dir;
+	private final Sync sync;
+	private final long checkpointEvery;
+	private final AVLTree tree;
+	private final Object syncLock = new Object();   // held by the thread that writes and forces the log
+	private final CRC32C crc = new CRC32C();        // used under the tree lock
+	private final Thread flusher;                   // null for Sync.ALWAYS
+	private volatile boolean stopping = false;      // tells the flusher to exit
+
+	private FileChannel log;                        // null once the tree is closed
+	private long generation;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);   // records not written to the log yet
+	private long appended = 0;                      // the number of the last appended record
+	private volatile long written = 0;              // the number of the last record written to the OS
+	private volatile long synced = 0;               // the number of the last record forced to the disk
+	private long sinceCheckpoint = 0;               // updates appended since the last checkpoint, under the tree lock
+	private IOException failure;                    // the first log failure, the tree is read only after it
+
+	private DurableAVLTree(Path dir, Sync sync, long batchMillis, long checkpointEvery, AVLTree tree,
+			FileChannel log, long generation) {
+		this.dir = dir;
+		this.sync = sync;
+		this.checkpointEvery = checkpointEvery;
+		this.tree = tree;
+		this.log = log;
+		this.generation = generation;
+		if (sync == Sync.ALWAYS) {
+			this.flusher = null;
+		} else {
+			this.flusher = new Thread(() -> flushLoop(batchMillis), "DurableAVLTree-flusher " + dir);
+			this.flusher.setDaemon(true);
+			this.flusher.start();
+		}
+	}
+
+	/**
+	 * public static DurableAVLTree open(Path dir)
+	 * <p>
+	 * Opens (or creates) the tree of dir with Sync.BATCH every DEFAULT_BATCH_MILLIS and
+	 * a checkpoint every DEFAULT_CHECKPOINT_EVERY updates.
+	 */
+	public static DurableAVLTree open(Path dir) throws IOException {
+		return open(dir, Sync.BATCH, DEFAULT_BATCH_MILLIS, DEFAULT_CHECKPOINT_EVERY);
+	}
+
+	/**
+	 * public static DurableAVLTree open(Path dir, Sync sync, long batchMillis, long checkpointEvery)
+	 * <p>
+	 * Opens (or creates) the tree of dir: loads the newest checkpoint and replays the logs after it,
+	 * in O(n + updates in the logs). A checkpoint is taken after every checkpointEvery updates
+	 * (0 for checkpoints only by checkpoint()).
+	 * precondition: batchMillis >= 1 (ignored for Sync.ALWAYS), checkpointEvery >= 0,
+	 *               no other open tree uses dir
+	 */
+	public static DurableAVLTree open(Path dir, Sync sync, long batchMillis, long checkpointEvery) throws IOException {
+		if ((sync != Sync.ALWAYS && batchMillis < 1) || checkpointEvery < 0) {
+			throw new IllegalArgumentException("need batchMillis >= 1 and checkpointEvery >= 0, got "
+					+ batchMillis + ", " + checkpointEvery);
+		}
+		Files.createDirectories(dir);
+		ArrayList<Long> checkpoints = generations(dir, "checkpoint-", ".avl");
+		ArrayList<Long> logs = generations(dir, "wal-", ".log");
+		deleteTemporary(dir);
+
+		long generation = 0;
+		AVLTree tree = new AVLTree();
+		if (!checkpoints.isEmpty()) {
+			generation = checkpoints.get(checkpoints.size() - 1);
+			try (MappedAVLTree snapshot = MappedAVLTree.open(checkpointFile(dir, generation))) {
+				tree = snapshot.load();
+			}
+		}
+		for (int i = 0; i < logs.size(); i++) {
+			long g = logs.get(i);
+			if (g >= generation) {                       // older logs are already in the checkpoint
+				replay(logFile(dir, g), tree, i == logs.size() - 1);
+			}
+		}
+		if (!logs.isEmpty()) {
+			generation = Math.max(generation, logs.get(logs.size() - 1));
+		}
+		FileChannel log = FileChannel.open(logFile(dir, generation),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		return new DurableAVLTree(dir, sync, batchMillis, checkpointEvery, tree, log, generation);
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i, like AVLTree.insert, and logs it.
+	 * returns the number of rebalancing operations, or -1 if an item with key k already exists
+	 * (nothing is logged then).
+	 * Throws UncheckedIOException if the log cannot be written; the tree is read only after that.
+	 */
+	public int insert(int k, String i) {
+		long lsn;
+		int steps;
+		boolean checkpoint_due;
+		synchronized (this) {
+			checkWritable();
+			steps = this.tree.insert(k, i);
+			if (steps == -1) {
+				return -1;
+			}
+			lsn = append(INSERT, k, i);
+			checkpoint_due = checkpointDue();
+		}
+		afterUpdate(lsn, checkpoint_due);
+		return steps;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes the item with key k, like AVLTree.delete, and logs it.
+	 * returns the number of rebalancing operations, or -1 if there is no item with key k
+	 * (nothing is logged then).
+	 * Throws UncheckedIOException if the log cannot be written; the tree is read only after that.
+	 */
+	public int delete(int k) {
+		long lsn;
+		int steps;
+		boolean checkpoint_due;
+		synchronized (this) {
+			checkWritable();
+			steps = this.tree.delete(k);
+			if (steps == -1) {
+				return -1;
+			}
+			lsn = append(DELETE, k, null);
+			checkpoint_due = checkpointDue();
+		}
+		afterUpdate(lsn, checkpoint_due);
+		return steps;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public synchronized String search(int k) {
+		return this.tree.search(k);
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public synchronized boolean empty() {
+		return this.tree.empty();
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of items in the tree.
+	 */
+	public synchronized int size() {
+		return this.tree.size();
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public synchronized String min() {
+		return this.tree.min();
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public synchronized String max() {
+		return this.tree.max();
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public synchronized int[] keysToArray() {
+		return this.tree.keysToArray();
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public synchronized String[] infoToArray() {
+		return this.tree.infoToArray();
+	}
+
+	/**
+	 * public void flush()
+	 * <p>
+	 * Writes and fsyncs every update made so far (whatever the Sync policy).
+	 */
+	public void flush() throws IOException {
+		long lsn;
+		synchronized (this) {
+			lsn = this.appended;
+		}
+		force(lsn, true);
+	}
+
+	/**
+	 * public void checkpoint()
+	 * <p>
+	 * Writes the tree to a new checkpoint and starts a new log, then deletes the older
+	 * checkpoints and logs. Updates wait for it, it takes O(n).
+	 */
+	public void checkpoint() throws IOException {
+		synchronized (this.syncLock) {
+			synchronized (this) {
+				checkWritable();
+				Checkpoint();
+			}
+		}
+	}
+
+	/** takes the checkpoint that afterUpdate found due, unless a thread that crossed the threshold with it already did */
+	private void checkpointIfDue() throws IOException {
+		synchronized (this.syncLock) {
+			synchronized (this) {
+				if (this.log == null || !checkpointDue()) {
+					return;
+				}
+				checkWritable();
+				Checkpoint();
+			}
+		}
+	}
+
+	/** true if checkpointEvery updates were appended since the last checkpoint. Called under the tree lock */
+	private boolean checkpointDue() {
+		return this.checkpointEvery > 0 && this.sinceCheckpoint >= this.checkpointEvery;
+	}
+
+	/** writes the checkpoint and starts the next log. Called under the sync lock and the tree lock */
+	private void Checkpoint() throws IOException {
+		try {
+			long next = this.generation + 1;
+			writeBuffer();
+			this.log.force(true);
+			this.written = this.appended;
+			this.synced = this.appended;
+			// the new log comes first: a crash before the rename below replays it after the old checkpoint
+			FileChannel next_log = FileChannel.open(logFile(dir, next),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			this.log.close();
+			this.log = next_log;
+			this.generation = next;
+			this.sinceCheckpoint = 0;
+
+			Path tmp = dir.resolve("checkpoint-" + next + ".tmp");
+			MappedAVLTree.write(this.tree, tmp);           // forced to the disk by write
+			Files.move(tmp, checkpointFile(dir, next), StandardCopyOption.ATOMIC_MOVE);
+			forceDirectory(dir);
+			for (long g : generations(dir, "checkpoint-", ".avl")) {
+				if (g < next) {
+					Files.deleteIfExists(checkpointFile(dir, g));
+				}
+			}
+			for (long g : generations(dir, "wal-", ".log")) {
+				if (g < next) {
+					Files.deleteIfExists(logFile(dir, g));
+				}
+			}
+		} catch (IOException e) {
+			this.failure = e;
+			throw e;
+		}
+	}
+
+	/**
+	 * public void close()
+	 * <p>
+	 * Writes and fsyncs the log, and closes it. The tree must not be used anymore; closing it again does nothing.
+	 */
+	public void close() throws IOException {
+		if (this.flusher != null) {                  // not interrupt(): it would close the log under a running write
+			this.stopping = true;
+			LockSupport.unpark(this.flusher);
+			boolean interrupted = false;
+			while (this.flusher.isAlive()) {
+				try {
+					this.flusher.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (this.syncLock) {
+			synchronized (this) {
+				if (this.log == null) {
+					return;
+				}
+				try {
+					if (this.failure == null) {
+						writeBuffer();
+						this.log.force(true);
+					}
+				} finally {
+					this.log.close();
+					this.log = null;
+				}
+			}
+		}
+	}
+
+	/** encodes the record of an update into the buffer, returns its number. Called under the tree lock */
+	private long append(byte op, int k, String i) {
+		byte[] info = (i == null) ? null : i.getBytes(StandardCharsets.UTF_8);
+		int length = RECORD_HEADER + (info == null ? 0 : info.length);
+		try {
+			if (this.buffer.remaining() < length) {
+				writeBuffer();
+				if (this.buffer.capacity() < length) {       // a record larger than the buffer
+					this.buffer = ByteBuffer.allocate(length);
+				}
+			}
+		} catch (IOException e) {
+			this.failure = e;
+			throw new UncheckedIOException(e);
+		}
+		ByteBuffer b = this.buffer;
+		int start = b.position();
+		b.position(start + 4);
+		b.put(op).putInt(k).putInt(info == null ? -1 : info.length);
+		if (info != null) {
+			b.put(info);
+		}
+		crc.reset();
+		crc.update(b.array(), start + 4, length - 4);
+		b.putInt(start, (int) crc.getValue());
+		this.sinceCheckpoint++;
+		return ++this.appended;
+	}
+
+	/** waits for the record lsn as the policy says, and takes a checkpoint if the update found one due */
+	private void afterUpdate(long lsn, boolean checkpoint_due) {
+		try {
+			if (this.sync == Sync.ALWAYS) {
+				force(lsn, true);
+			}
+			if (checkpoint_due) {
+				checkpointIfDue();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * makes the records up to lsn durable (only written to the OS if !fsync).
+	 * One thread at a time writes the buffer and forces the log, and it takes every record
+	 * appended until then, so the threads waiting behind it usually find their record done.
+	 * A record written by a !fsync force is not synced: an fsync force compares with synced only.
+	 */
+	private void force(long lsn, boolean fsync) throws IOException {
+		if ((fsync ? this.synced : this.written) >= lsn) {
+			return;
+		}
+		synchronized (this.syncLock) {
+			if ((fsync ? this.synced : this.written) >= lsn) {   // a previous group covered it
+				return;
+			}
+			long upto;
+			FileChannel log;
+			synchronized (this) {
+				if (this.log == null) {
+					throw new IllegalStateException(dir + " is closed");
+				}
+				checkWritable();
+				try {
+					writeBuffer();
+				} catch (IOException e) {
+					this.failure = e;
+					throw e;
+				}
+				upto = this.appended;
+				log = this.log;
+			}
+			if (fsync) {
+				try {
+					log.force(false);                    // updates go on while the disk works
+				} catch (IOException e) {
+					synchronized (this) {
+						this.failure = e;
+					}
+					throw e;
+				}
+				this.synced = upto;
+			}
+			this.written = upto;
+		}
+	}
+
+	/** writes the buffer to the log. Called under the tree lock */
+	private void writeBuffer() throws IOException {
+		ByteBuffer b = this.buffer;
+		b.flip();
+		while (b.hasRemaining()) {
+			this.log.write(b);
+		}
+		b.clear();
+	}
+
+	/** the background thread of Sync.BATCH and Sync.OS */
+	private void flushLoop(long batchMillis) {
+		boolean fsync = (this.sync == Sync.BATCH);
+		long nanos = TimeUnit.MILLISECONDS.toNanos(batchMillis);
+		while (!this.stopping) {
+			LockSupport.parkNanos(this, nanos);
+			try {
+				long lsn;
+				synchronized (this) {
+					if (this.log == null || this.failure != null) {
+						return;
+					}
+					lsn = this.appended;
+				}
+				force(lsn, fsync);
+			} catch (IOException | RuntimeException e) {
+				return;                                  // the failure is kept, the next update reports it
+			}
+		}
+	}
+
+	/** throws if the tree was closed or the log failed. Called under the tree lock */
+	private void checkWritable() {
+		if (this.log == null) {
+			throw new IllegalStateException(dir + " is closed");
+		}
+		if (this.failure != null) {
+			throw new UncheckedIOException("the log of " + dir + " failed, the tree is read only", this.failure);
+		}
+	}
+
+	/**
+	 * applies the records of a log to tree. A torn record at the end is cut off if last,
+	 * otherwise (a log that a checkpoint followed) it means the log is corrupt.
+	 */
+	private static void replay(Path file, AVLTree tree, boolean last) throws IOException {
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long size = in.size();
+			ByteBuffer b = ByteBuffer.allocate(BUFFER_BYTES);
+			CRC32C crc = new CRC32C();
+			long pos = 0;                                // the file position of b's first byte
+			in.read(b, 0);
+			b.flip();
+			while (true) {
+				long length = recordLength(b);
+				if (length > size - (pos + b.position()) || length > MAX_RECORD) {
+					break;                               // a torn record, or a length field that is garbage
+				}
+				if (b.remaining() < length) {
+					pos += b.position();                 // move the rest to the front and read more
+					b.compact();
+					if (b.remaining() == 0) {            // a record larger than the buffer
+						ByteBuffer larger = ByteBuffer.allocate((int) Math.min(2L * b.capacity(), MAX_RECORD));
+						b.flip();
+						larger.put(b);
+						b = larger;
+					}
+					int read = in.read(b, pos + b.position());
+					b.flip();
+					if (read <= 0) {
+						break;
+					}
+					continue;
+				}
+				int start = b.position();
+				int stored = b.getInt(start);
+				crc.reset();
+				crc.update(b.array(), start + 4, (int) length - 4);
+				byte op = b.get(start + 4);
+				if ((int) crc.getValue() != stored || (op != INSERT && op != DELETE)) {
+					break;
+				}
+				int k = b.getInt(start + 5);
+				int info_length = b.getInt(start + 9);
+				if (op == INSERT) {
+					String info = info_length < 0 ? null
+							: new String(b.array(), start + RECORD_HEADER, info_length, StandardCharsets.UTF_8);
+					tree.insert(k, info);
+				} else {
+					tree.delete(k);
+				}
+				b.position(start + (int) length);
+			}
+			long end = pos + b.position();               // the end of the last good record
+			if (end < size) {
+				if (!last) {
+					throw new IOException(file + " is corrupt at byte " + end);
+				}
+				in.truncate(end);
+				in.force(true);
+			}
+		}
+	}
+
+	/**
+	 * the length of the record at the position of b (at least RECORD_HEADER, even for garbage).
+	 * It is a long: the info length of a torn record can be anything, up to Integer.MAX_VALUE
+	 */
+	private static long recordLength(ByteBuffer b) {
+		if (b.remaining() < RECORD_HEADER) {
+			return RECORD_HEADER;
+		}
+		int info_length = b.getInt(b.position() + 9);
+		return RECORD_HEADER + (long) Math.max(info_length, 0);
+	}
+
+	/** the generations of the files prefix + g + suffix in dir, increasing */
+	private static ArrayList<Long> generations(Path dir, String prefix, String suffix) throws IOException {
+		ArrayList<Long> res = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+			for (Path f : files) {
+				String name = f.getFileName().toString();
+				try {
+					res.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+				} catch (NumberFormatException e) {
+					// not one of ours
+				}
+			}
+		}
+		Collections.sort(res);
+		return res;
+	}
+
+	/** deletes checkpoints that a crash left half written */
+	private static void deleteTemporary(Path dir) throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "checkpoint-*.tmp")) {
+			for (Path f : files) {
+				Files.deleteIfExists(f);
+			}
+		}
+	}
+
+	private static Path checkpointFile(Path dir, long generation) {
+		return dir.resolve("checkpoint-" + generation + ".avl");
+	}
+
+	private static Path logFile(Path dir, long generation) {
+		return dir.resolve("wal-" + generation + ".log");
+	}
+
+	/** makes the renames and deletes in dir durable (not supported on every platform) */
+	private static void forceDirectory(Path dir) {
+		try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+			d.force(true);
+		} catch (IOException e) {
+			// e.g. Windows cannot open a directory; the rename is still atomic
+		}
+	}
+}
@@ -0,0 +1,1062 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *
+ * IntAVLTree
+ *
+ * An implementation of a AVL Tree with
+ * distinct integer keys and info, where the nodes are kept in
+ * parallel primitive arrays instead of AVLNode objects.
+ *
+ * A node is an int index into the arrays of a NodeStore. Index 0 (NIL) is the
+ * external leaf: its height is -1 and its size is 0, so it plays the part of ExtLeaf.
+ * Per node this costs key + info + left + right + parent + size (6 x 4 bytes) and
+ * a byte of height, 25 bytes, against the 48 bytes of an AVLNode object
+ * (with compressed oops, including the header and the outer-class pointer).
+ *
+ * The operations and their return values are the same as in AVLTree.
+ * Trees produced by split() share the NodeStore of the tree that was split,
+ * so split and join stay logarithmic and reuse the existing slots.
+ *
+ * With compact infos (new IntAVLTree(true)) a node holds an int offset into an InfoArena
+ * instead of a String: the infos are length-prefixed UTF-8 in one growable byte array,
+ * and a String is only built when search, min, max, getValue or infoToArray return it.
+ * A short ASCII info then costs 4 + 1 + length bytes instead of a String and its array
+ * (about 56 bytes for 10 characters). searchBytes returns the raw bytes.
+ *
+ */
+
+public class IntAVLTree {
+
+	public static final int NIL = 0;          // index of the external leaf
+	private NodeStore nodes;
+	private int root;
+	private int min_node;
+	private int max_node;
+
+	// constructor
+	public IntAVLTree() {
+		this(new NodeStore(16, false));
+	}
+
+	/**
+	 * public IntAVLTree(boolean compactInfos)
+	 * <p>
+	 * An empty tree, that keeps its infos as UTF-8 in an InfoArena if compactInfos.
+	 */
+	public IntAVLTree(boolean compactInfos) {
+		this(new NodeStore(16, compactInfos));
+	}
+
+	private IntAVLTree(NodeStore nodes) {
+		this.nodes = nodes;
+		this.root = NIL;
+		this.min_node = NIL;
+		this.max_node = NIL;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return root == NIL;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int[] key = nodes.key;
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int node = this.root;
+		while (node != NIL) {
+			int node_key = key[node];
+			if (node_key == k) {
+				return nodes.info(node);
+			}
+			node = (k < node_key) ? left[node] : right[node];
+		}
+		return null;
+	}
+
+	/**
+	 * public byte[] searchBytes(int k)
+	 * <p>
+	 * returns the info of an item with key k as UTF-8 bytes if it exists in the tree
+	 * (null if there is no such item or its info is null).
+	 * With compact infos no String is built.
+	 */
+	public byte[] searchBytes(int k) {
+		int node = TreePosition(k);
+		if (node == NIL || nodes.key[node] != k) {
+			return null;
+		}
+		return nodes.infoBytes(node);
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		int y = TreePosition(k);
+
+		if (y == NIL) {                            // if the tree is empty insert the node as the root and return 0
+			int node = nodes.allocate(k, i);
+			this.root = node;
+			this.min_node = node;
+			this.max_node = node;
+			return 0;
+		}
+		if (k == nodes.key[y]) {                   // if the key already exists return -1
+			return -1;
+		}
+		int node = nodes.allocate(k, i);
+		nodes.parent[node] = y;
+		if (k < nodes.key[y]) {                    // insert node as left son
+			nodes.left[y] = node;
+		} else {                                   // insert node as right son
+			nodes.right[y] = node;
+		}
+		if (k < nodes.key[this.min_node]) {        // check if needed to update the min reference
+			this.min_node = node;
+		}
+		if (k > nodes.key[this.max_node]) {        // check if needed to update the max reference
+			this.max_node = node;
+		}
+
+		if (nodes.height[y] == 0) {                // if y was a leaf we need to rebalance the tree
+			return InsertBalance(y);
+		}
+		fixSizesToRoot(y);                         // y is still balanced, only the sizes on the path change
+		return 0;
+	}
+
+	/** function for rebalance after insertion (and join), starting at y */
+	private int InsertBalance(int y) {
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		byte[] height = nodes.height;
+		int steps = 0;
+		while (true) {
+			int l = height[y] - height[left[y]];     // rank differences between y and its sons
+			int r = height[y] - height[right[y]];
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if ((l == 0 && r == 1) || (l == 1 && r == 0)) {   // 0-1 or 1-0: promote y and continue up
+				height[y]++;
+				steps++;
+				nodes.fixSize(y);
+			}
+			else if (l == 0) {                                  // 0-2 node
+				int c = left[y];
+				int cl = height[c] - height[left[c]];
+				int cr = height[c] - height[right[c]];
+				if (cl == 1 && cr == 2) {                       // single rotation right
+					rotate_right(y);
+					height[y]--;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // double rotation: left-right
+					int g = right[c];
+					rotate_left_right(y);
+					height[g]++;
+					height[c]--;
+					height[y]--;
+					nodes.fixSize(c);
+					nodes.fixSize(y);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+					break;
+				}
+				// 1-1 son, only after join: rotate right, the son is promoted and the problem may move up
+				rotate_right(y);
+				height[c]++;
+				nodes.fixSize(y);
+				nodes.fixSize(c);
+				steps += 2;
+				y = c;
+			}
+			else {                                              // 2-0 node
+				int c = right[y];
+				int cl = height[c] - height[left[c]];
+				int cr = height[c] - height[right[c]];
+				if (cl == 2 && cr == 1) {                       // single rotation left
+					rotate_left(y);
+					height[y]--;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // double rotation: right-left
+					int g = left[c];
+					rotate_right_left(y);
+					height[g]++;
+					height[c]--;
+					height[y]--;
+					nodes.fixSize(c);
+					nodes.fixSize(y);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+					break;
+				}
+				// 1-1 son, only after join: rotate left, the son is promoted and the problem may move up
+				rotate_left(y);
+				height[c]++;
+				nodes.fixSize(y);
+				nodes.fixSize(c);
+				steps += 2;
+				y = c;
+			}
+			if (nodes.parent[y] == NIL) {               // if we are in the root, exit loop
+				break;
+			}
+			y = nodes.parent[y];
+		}
+		fixSizesToRoot(y);
+		return steps;
+	}
+
+	/** function for rebalance after deletion, starting at y */
+	private int DeleteBalance(int y) {
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		byte[] height = nodes.height;
+		int steps = 0;
+		while (true) {
+			int l = height[y] - height[left[y]];     // rank differences between y and its sons
+			int r = height[y] - height[right[y]];
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if (l == 2 && r == 2) {                             // 2-2 node: demote y
+				height[y]--;
+				nodes.fixSize(y);
+				steps++;
+			}
+			else if (l == 3) {                                  // 3-1 node
+				int c = right[y];
+				int cl = height[c] - height[left[c]];
+				int cr = height[c] - height[right[c]];
+				if (cl == 1 && cr == 1) {                       // rotate left and stop
+					rotate_left(y);
+					height[c]++;
+					height[y]--;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 3;
+					y = c;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // rotate left, y demoted twice
+					rotate_left(y);
+					height[y] -= 2;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+				}
+				else {                                          // 1-2 son: double rotation right-left
+					int g = left[c];
+					rotate_right_left(y);
+					height[g]++;
+					height[y] -= 2;
+					height[c]--;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+				}
+			}
+			else {                                              // 1-3 node
+				int c = left[y];
+				int cl = height[c] - height[left[c]];
+				int cr = height[c] - height[right[c]];
+				if (cl == 1 && cr == 1) {                       // rotate right and stop
+					rotate_right(y);
+					height[c]++;
+					height[y]--;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 3;
+					y = c;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // rotate right, y demoted twice
+					rotate_right(y);
+					height[y] -= 2;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+				}
+				else {                                          // 2-1 son: double rotation left-right
+					int g = right[c];
+					rotate_left_right(y);
+					height[g]++;
+					height[y] -= 2;
+					height[c]--;
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+				}
+			}
+			if (nodes.parent[y] == NIL) {               // if we are in the root, exit loop
+				break;
+			}
+			y = nodes.parent[y];
+		}
+		fixSizesToRoot(y);
+		return steps;
+	}
+
+	/** function that fixes the size field of y and all its ancestors */
+	private void fixSizesToRoot(int y) {
+		while (y != NIL) {
+			nodes.fixSize(y);
+			y = nodes.parent[y];
+		}
+	}
+
+	/** function that connects new_son to p in place of old_son (or makes it the root if p is NIL) */
+	private void replaceSon(int p, int old_son, int new_son) {
+		if (p == NIL) {
+			this.root = new_son;
+		}
+		else if (nodes.left[p] == old_son) {
+			nodes.left[p] = new_son;
+		}
+		else {
+			nodes.right[p] = new_son;
+		}
+	}
+
+	/** function for left rotation around y, returns the new subtree root */
+	private int rotate_left(int y) {
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int[] parent = nodes.parent;
+		int c = right[y];
+		int tmp = left[c];
+		int p = parent[y];
+		right[y] = tmp;
+		if (tmp != NIL) {
+			parent[tmp] = y;
+		}
+		left[c] = y;
+		parent[y] = c;
+		parent[c] = p;
+		replaceSon(p, y, c);
+		return c;
+	}
+
+	/** function for right rotation around y, returns the new subtree root */
+	private int rotate_right(int y) {
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int[] parent = nodes.parent;
+		int c = left[y];
+		int tmp = right[c];
+		int p = parent[y];
+		left[y] = tmp;
+		if (tmp != NIL) {
+			parent[tmp] = y;
+		}
+		right[c] = y;
+		parent[y] = c;
+		parent[c] = p;
+		replaceSon(p, y, c);
+		return c;
+	}
+
+	/** function for right-left rotation around y, returns the new subtree root */
+	private int rotate_right_left(int y) {
+		rotate_right(nodes.right[y]);
+		return rotate_left(y);
+	}
+
+	/** function for left-right rotation around y, returns the new subtree root */
+	private int rotate_left_right(int y) {
+		rotate_left(nodes.left[y]);
+		return rotate_right(y);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		int y = TreePosition(k);
+		if (y == NIL || nodes.key[y] != k) {
+			return -1;
+		}
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int[] parent = nodes.parent;
+
+		if (y == this.root && nodes.height[y] == 0) {     // there is only root in the tree and we delete it
+			nodes.release(y);
+			this.root = NIL;
+			this.min_node = NIL;
+			this.max_node = NIL;
+			return 0;
+		}
+		if (left[y] != NIL && right[y] != NIL) {         // if the node has 2 sons, swap it with its successor
+			int s = CalcMin(right[y]);
+			nodes.swapItems(y, s);
+			y = s;
+		}
+		int son = (left[y] != NIL) ? left[y] : right[y];
+		int p = parent[y];
+		if (p == NIL) {                                   // node is root and has 1 son, the son is the new root
+			parent[son] = NIL;
+			nodes.release(y);
+			this.root = son;
+			this.min_node = son;
+			this.max_node = son;
+			return 0;
+		}
+		replaceSon(p, y, son);                            // bypass y
+		if (son != NIL) {
+			parent[son] = p;
+		}
+		nodes.fixSize(p);
+		if (y == this.min_node) {                         // if y was the min we need to update the min
+			this.min_node = CalcMin(p);
+		}
+		if (y == this.max_node) {                         // if y was the max we need to update the max
+			this.max_node = CalcMax(p);
+		}
+		nodes.release(y);
+
+		// Rebalancing Process
+		return DeleteBalance(p);
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		if (this.root == NIL) {
+			return null;
+		}
+		return nodes.info(this.min_node);
+	}
+
+	/** function to calc the min node in the subtree of node */
+	private int CalcMin(int node) {
+		int[] left = nodes.left;
+		while (left[node] != NIL) {      // go as much left as possible and return the min node
+			node = left[node];
+		}
+		return node;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		if (this.root == NIL) {
+			return null;
+		}
+		return nodes.info(this.max_node);
+	}
+
+	/** function to calc the max node in the subtree of node */
+	private int CalcMax(int node) {
+		int[] right = nodes.right;
+		while (right[node] != NIL) {     // go as much right as possible and return the max node
+			node = right[node];
+		}
+		return node;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] key = nodes.key;
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int[] arr = new int[this.size()];
+		int[] stack = new int[nodes.height[this.root] + 2];   // the path from the root to the current node
+		int top = 0;
+		int node = this.root;
+		int i = 0;
+		while (i < arr.length) {                  // in-order walk with an explicit stack, no parent pointers
+			while (node != NIL) {
+				stack[top++] = node;
+				node = left[node];
+			}
+			node = stack[--top];
+			arr[i++] = key[node];
+			node = right[node];
+		}
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		NodeStore nodes = this.nodes;
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		String[] arr = new String[this.size()];
+		int[] stack = new int[nodes.height[this.root] + 2];
+		int top = 0;
+		int node = this.root;
+		int i = 0;
+		while (i < arr.length) {                  // same walk as keysToArray
+			while (node != NIL) {
+				stack[top++] = node;
+				node = left[node];
+			}
+			node = stack[--top];
+			arr[i++] = nodes.info(node);
+			node = right[node];
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 * <p>
+	 * precondition: none
+	 * postcondition: none
+	 */
+	public int size() {
+		return nodes.size[this.root];           // the size of NIL is 0
+	}
+
+	/**
+	 * public int getRoot()
+	 * <p>
+	 * Returns the index of the root node, or NIL if the tree is empty.
+	 * Use getKey/getValue/getLeft/getRight/getParent/getHeight to read a node.
+	 */
+	public int getRoot() {
+		return this.root;
+	}
+
+	public int getKey(int node) {
+		return node == NIL ? -1 : nodes.key[node];
+	}
+
+	public String getValue(int node) {
+		return nodes.info(node);
+	}
+
+	public int getLeft(int node) {
+		return nodes.left[node];
+	}
+
+	public int getRight(int node) {
+		return nodes.right[node];
+	}
+
+	public int getParent(int node) {
+		return nodes.parent[node];
+	}
+
+	public int getHeight(int node) {
+		return nodes.height[node];
+	}
+
+	public boolean isRealNode(int node) {
+		return node != NIL;
+	}
+
+	/**
+	 * public IntAVLTree[] split(int x)
+	 * <p>
+	 * splits the tree into 2 trees according to the key x.
+	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
+	 * Both trees share the node store of this tree, every ancestor of x is reused in place.
+	 * precondition: search(x) != null (i.e. you can also assume that the tree is not empty)
+	 * postcondition: this tree must not be used anymore
+	 */
+	public IntAVLTree[] split(int x) {
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int[] parent = nodes.parent;
+
+		int node = TreePosition(x);
+		IntAVLTree t1 = new IntAVLTree(nodes);             // tree with keys() < x
+		IntAVLTree t2 = new IntAVLTree(nodes);             // tree with keys() > x
+		t1.root = detach(left[node]);
+		t2.root = detach(right[node]);
+
+		// --- now continue all the way to the root and join t1/t2 with the relevant subtree
+		int son = node;
+		int p = parent[node];
+		while (p != NIL) {
+			int next = parent[p];
+			if (right[p] == son) {                          // if son is right son, p and its left subtree go to t1
+				int sub = detach(left[p]);
+				nodes.reset(p);
+				t1.root = t1.joinNodes(sub, p, t1.root);
+			}
+			else {                                          // if son is left son, p and its right subtree go to t2
+				int sub = detach(right[p]);
+				nodes.reset(p);
+				t2.root = t2.joinNodes(t2.root, p, sub);
+			}
+			son = p;
+			p = next;
+		}
+		nodes.release(node);
+		this.root = NIL;
+		t1.fixMinMax();
+		t2.fixMinMax();
+		return new IntAVLTree[] {t1, t2};
+	}
+
+	/**
+	 * public join(int k, String i, IntAVLTree t)
+	 * <p>
+	 * joins t and the item (k, i) with the tree.
+	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1).
+	 * If t uses another node store its nodes are copied into this one first, in O(|t|).
+	 * precondition: keys(x,t) < keys() or keys(x,t) > keys(). t/tree might be empty (rank = -1).
+	 * postcondition: t must not be used anymore
+	 */
+	public int join(int k, String i, IntAVLTree t) {
+		int t_root = (t.nodes == this.nodes) ? t.root : copyFrom(t.nodes, t.root);
+		int this_height = nodes.height[this.root];
+		int t_height = nodes.height[t_root];
+		int rank_diff_res;
+		if (this.root == NIL && t_root == NIL) {
+			rank_diff_res = 1;
+		}
+		else if (this.root == NIL) {
+			rank_diff_res = t_height + 1;
+		}
+		else if (t_root == NIL) {
+			rank_diff_res = this_height + 1;
+		}
+		else {
+			rank_diff_res = Math.abs(this_height - t_height) + 1;
+		}
+
+		int x = nodes.allocate(k, i);
+		boolean this_smaller = (this.root != NIL) ? nodes.key[this.root] < k : (t_root == NIL || k < nodes.key[t_root]);
+		if (this_smaller) {                                 // keys() < k < keys(t)
+			this.root = joinNodes(this.root, x, t_root);
+		} else {                                            // keys(t) < k < keys()
+			this.root = joinNodes(t_root, x, this.root);
+		}
+		t.root = NIL;
+		fixMinMax();
+		return rank_diff_res;
+	}
+
+	/**
+	 * joins the subtrees a and b (roots without a parent, keys(a) < key(x) < keys(b))
+	 * with the single node x, and returns the root of the result.
+	 */
+	private int joinNodes(int a, int x, int b) {
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int[] parent = nodes.parent;
+		byte[] height = nodes.height;
+		int ha = height[a];
+		int hb = height[b];
+
+		if (Math.abs(ha - hb) <= 1) {                   // heights are close, x is the new root
+			link(x, a, b);
+			parent[x] = NIL;
+			this.root = x;
+			return x;
+		}
+		int c;
+		int p = NIL;                                    // c may end up NIL when the shorter side is empty, so keep its parent
+		if (ha > hb) {                                  // go down the right spine of a
+			c = a;
+			while (height[c] > hb + 1) {
+				p = c;
+				c = right[c];
+			}
+			link(x, c, b);
+			right[p] = x;
+			parent[x] = p;
+			this.root = a;
+		}
+		else {                                          // go down the left spine of b
+			c = b;
+			while (height[c] > ha + 1) {
+				p = c;
+				c = left[c];
+			}
+			link(x, a, c);
+			left[p] = x;
+			parent[x] = p;
+			this.root = b;
+		}
+		InsertBalance(parent[x]);
+		return this.root;
+	}
+
+	/** function that makes l and r the sons of x and fixes its height and size */
+	private void link(int x, int l, int r) {
+		nodes.left[x] = l;
+		nodes.right[x] = r;
+		if (l != NIL) {
+			nodes.parent[l] = x;
+		}
+		if (r != NIL) {
+			nodes.parent[r] = x;
+		}
+		nodes.height[x] = (byte) (Math.max(nodes.height[l], nodes.height[r]) + 1);
+		nodes.fixSize(x);
+	}
+
+	/** function that cuts node from its parent and returns it */
+	private int detach(int node) {
+		if (node != NIL) {
+			nodes.parent[node] = NIL;
+		}
+		return node;
+	}
+
+	/** function that recalculates the min and max references */
+	private void fixMinMax() {
+		if (this.root == NIL) {
+			this.min_node = NIL;
+			this.max_node = NIL;
+		} else {
+			this.min_node = CalcMin(this.root);
+			this.max_node = CalcMax(this.root);
+		}
+	}
+
+	/** function that copies the subtree of node (in the store other) into this store, returns the copy */
+	private int copyFrom(NodeStore other, int node) {
+		if (node == NIL) {
+			return NIL;
+		}
+		int copy = nodes.allocate(other.key[node], other.info(node));
+		int l = copyFrom(other, other.left[node]);
+		int r = copyFrom(other, other.right[node]);
+		link(copy, l, r);
+		return copy;
+	}
+
+	/** return the position we need to insert the node in the tree (the node itself if the key exists),
+	 * or NIL if the tree is empty
+	 */
+	private int TreePosition(int k) {
+		int[] key = nodes.key;
+		int[] left = nodes.left;
+		int[] right = nodes.right;
+		int x = this.root;
+		int y = NIL;
+		while (x != NIL) {
+			y = x;
+			int x_key = key[x];
+			if (k == x_key) {
+				return x;
+			}
+			x = (k < x_key) ? left[x] : right[x];
+		}
+		return y;
+	}
+
+	/**
+	 * NodeStore
+	 * <p>
+	 * The parallel arrays holding the nodes of one or more trees.
+	 * Slot 0 is NIL. Freed slots are chained through the left array and reused first.
+	 * The infos are either Strings (info) or offsets into an arena (info_ref), never both.
+	 */
+	static final class NodeStore {
+		int[] key;
+		String[] info;                 // null with compact infos
+		int[] info_ref;                // null without compact infos
+		final InfoArena arena;         // null without compact infos
+		int[] left;
+		int[] right;
+		int[] parent;
+		byte[] height;
+		int[] size;
+		private int next = 1;          // first slot that was never used
+		private int free = NIL;        // head of the list of freed slots
+
+		NodeStore(int capacity, boolean compactInfos) {
+			capacity = Math.max(capacity, 2);
+			key = new int[capacity];
+			if (compactInfos) {
+				arena = new InfoArena();
+				info_ref = new int[capacity];
+				info_ref[NIL] = InfoArena.NO_INFO;
+			} else {
+				arena = null;
+				info = new String[capacity];
+			}
+			left = new int[capacity];
+			right = new int[capacity];
+			parent = new int[capacity];
+			height = new byte[capacity];
+			size = new int[capacity];
+			height[NIL] = -1;
+		}
+
+		/** returns a new leaf with key k and info i */
+		int allocate(int k, String i) {
+			int node;
+			if (free != NIL) {
+				node = free;
+				free = left[node];
+			} else {
+				if (next == key.length) {
+					grow();
+				}
+				node = next++;
+			}
+			key[node] = k;
+			if (arena != null) {
+				info_ref[node] = arena.add(i);
+			} else {
+				info[node] = i;
+			}
+			reset(node);
+			return node;
+		}
+
+		String info(int node) {
+			return (arena != null) ? arena.get(info_ref[node]) : info[node];
+		}
+
+		byte[] infoBytes(int node) {
+			if (arena != null) {
+				return arena.getBytes(info_ref[node]);
+			}
+			String i = info[node];
+			return (i == null) ? null : i.getBytes(StandardCharsets.UTF_8);
+		}
+
+		/** turns node into a single leaf with no parent */
+		void reset(int node) {
+			left[node] = NIL;
+			right[node] = NIL;
+			parent[node] = NIL;
+			height[node] = 0;
+			size[node] = 1;
+		}
+
+		void release(int node) {
+			if (arena != null) {
+				arena.remove(info_ref[node]);
+				info_ref[node] = InfoArena.NO_INFO;
+			} else {
+				info[node] = null;     // let the info be collected
+			}
+			left[node] = free;
+			free = node;
+			if (arena != null && arena.mostlyGarbage()) {
+				arena.compact(info_ref, next);
+			}
+		}
+
+		void swapItems(int a, int b) {
+			int k = key[a];
+			key[a] = key[b];
+			key[b] = k;
+			if (arena != null) {
+				int r = info_ref[a];
+				info_ref[a] = info_ref[b];
+				info_ref[b] = r;
+			} else {
+				String i = info[a];
+				info[a] = info[b];
+				info[b] = i;
+			}
+		}
+
+		void fixSize(int node) {
+			size[node] = size[left[node]] + size[right[node]] + 1;
+		}
+
+		private void grow() {
+			int capacity = key.length + (key.length >> 1);     // grow by half
+			key = Arrays.copyOf(key, capacity);
+			if (arena != null) {
+				info_ref = Arrays.copyOf(info_ref, capacity);
+			} else {
+				info = Arrays.copyOf(info, capacity);
+			}
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			height = Arrays.copyOf(height, capacity);
+			size = Arrays.copyOf(size, capacity);
+		}
+	}
+
+	/**
+	 * InfoArena
+	 * <p>
+	 * The infos of a NodeStore as records of a varint length and the UTF-8 bytes, appended to one
+	 * growable byte array; a node keeps the offset of its record. Removed records stay in place as
+	 * garbage until the arena is mostly garbage, then the live records are moved to a new array.
+	 */
+	static final class InfoArena {
+		static final int NO_INFO = -1;          // the offset of a null info
+
+		private byte[] bytes = new byte[1024];
+		private int end = 0;                    // where the next record goes
+		private long garbage = 0;               // bytes of removed records
+
+		/** appends the record of i, returns its offset */
+		int add(String i) {
+			if (i == null) {
+				return NO_INFO;
+			}
+			byte[] utf8 = i.getBytes(StandardCharsets.UTF_8);
+			int offset = end;
+			ensure(5 + utf8.length);
+			end = putLength(offset, utf8.length);
+			System.arraycopy(utf8, 0, bytes, end, utf8.length);
+			end += utf8.length;
+			return offset;
+		}
+
+		String get(int offset) {
+			if (offset == NO_INFO) {
+				return null;
+			}
+			int length = length(offset);
+			return new String(bytes, offset + lengthBytes(length), length, StandardCharsets.UTF_8);
+		}
+
+		byte[] getBytes(int offset) {
+			if (offset == NO_INFO) {
+				return null;
+			}
+			int length = length(offset);
+			int start = offset + lengthBytes(length);
+			return Arrays.copyOfRange(bytes, start, start + length);
+		}
+
+		void remove(int offset) {
+			if (offset != NO_INFO) {
+				garbage += recordBytes(offset);
+			}
+		}
+
+		boolean mostlyGarbage() {
+			return garbage >= (1 << 16) && 2 * garbage > end;
+		}
+
+		/** moves the records of refs[1..used) to a new array and updates the offsets, in O(used + live bytes) */
+		void compact(int[] refs, int used) {
+			int live = (int) (end - garbage);
+			byte[] compacted = new byte[Math.max(1024, live + (live >> 1))];
+			int pos = 0;
+			for (int node = 1; node < used; node++) {
+				int offset = refs[node];
+				if (offset == NO_INFO) {        // a null info or a free slot
+					continue;
+				}
+				int length = recordBytes(offset);
+				System.arraycopy(bytes, offset, compacted, pos, length);
+				refs[node] = pos;
+				pos += length;
+			}
+			bytes = compacted;
+			end = pos;
+			garbage = 0;
+		}
+
+		/** the bytes of the record at offset, its length prefix included */
+		private int recordBytes(int offset) {
+			int length = length(offset);
+			return lengthBytes(length) + length;
+		}
+
+		private int length(int offset) {
+			int length = 0;
+			int shift = 0;
+			byte b;
+			do {                                // 7 bits per byte, the high bit says that more follow
+				b = bytes[offset++];
+				length |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return length;
+		}
+
+		private static int lengthBytes(int length) {
+			int n = 1;
+			while (length >= 0x80) {
+				length >>>= 7;
+				n++;
+			}
+			return n;
+		}
+
+		/** writes length as a varint at offset, returns the offset after it */
+		private int putLength(int offset, int length) {
+			while (length >= 0x80) {
+				bytes[offset++] = (byte) (length | 0x80);
+				length >>>= 7;
+			}
+			bytes[offset++] = (byte) length;
+			return offset;
+		}
+
+		private void ensure(int more) {
+			if (end + more > bytes.length) {
+				long capacity = Math.max((long) end + more, (long) bytes.length + (bytes.length >> 1));   // grow by half
+				if (capacity > Integer.MAX_VALUE - 8) {
+					throw new IllegalStateException("the info arena is full (2GB)");
+				}
+				bytes = Arrays.copyOf(bytes, (int) capacity);
+			}
+		}
+	}
+}
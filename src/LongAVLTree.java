@@ -0,0 +1,1012 @@
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ *
+ * LongAVLTree
+ *
+ * An implementation of a AVL Tree with
+ * distinct long keys and info, for more than 2^31 items.
+ *
+ * Keys, subtree sizes, ranks and counts are primitive longs, so 64-bit ids and nanosecond timestamps
+ * go in as they are and size(), rank() and select() are exact beyond Integer.MAX_VALUE items.
+ * Nothing on the way is boxed. The exports cannot return one array past the array limit, so
+ * besides keysToArray()/infoToArray() (for trees that fit) there are
+ *   keysToArray(from, dst) / infoToArray(from, dst)   chunks: fill dst with the items of ranks from, from+1, ...
+ *   keys() / keySpliterator()                         a LongStream, split by rank like AVLTree.keys()
+ *   rangeScan(lo, hi, visitor)                        every item with lo &lt;= key &lt;= hi, in order
+ *
+ * The layout and the algorithms are those of MonomorphicAVLTree (a final Node class read through its
+ * fields, a shared NIL sentinel with height -1 and size 0), and the operations and their return values
+ * are the same as in AVLTree. A node is 8 bytes larger than a MonomorphicAVLTree node (the long key and size).
+ *
+ */
+
+public class LongAVLTree {
+
+	/** the largest array length the JVMs accept for every element type */
+	public static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+	/** the external leaf of every tree, it is never written */
+	static final Node NIL = new Node();
+	private Node root = NIL;
+	private Node min_node;                     // null when the tree is empty
+	private Node max_node;
+
+	// constructor
+	public LongAVLTree() {
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == NIL;
+	}
+
+	/**
+	 * public String search(long k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(long k) {
+		Node node = this.root;
+		while (node != NIL) {
+			long node_key = node.key;
+			if (k == node_key) {
+				return node.info;
+			}
+			node = (k < node_key) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(long k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(long k, String i) {
+		Node y = this.root;
+		if (y == NIL) {                            // if the tree is empty insert the node as the root and return 0
+			Node node = new Node(k, i, null);
+			this.root = node;
+			this.min_node = node;
+			this.max_node = node;
+			return 0;
+		}
+		while (true) {                             // descend to the insertion point
+			if (k == y.key) {                      // if the key already exists return -1
+				return -1;
+			}
+			Node son = (k < y.key) ? y.left : y.right;
+			if (son == NIL) {
+				break;
+			}
+			y = son;
+		}
+		Node node = new Node(k, i, y);
+		if (k < y.key) {                           // insert node as left son
+			y.left = node;
+		} else {                                   // insert node as right son
+			y.right = node;
+		}
+		if (k < this.min_node.key) {               // check if needed to update the min reference
+			this.min_node = node;
+		}
+		if (k > this.max_node.key) {               // check if needed to update the max reference
+			this.max_node = node;
+		}
+
+		if (y.height == 0) {                       // if y was a leaf we need to rebalance the tree
+			return InsertBalance(y);
+		}
+		fixSizes(y);                               // y is still balanced, only the sizes up to the root change
+		return 0;
+	}
+
+	/** function for rebalance after insertion (and join), starting at y */
+	private int InsertBalance(Node y) {
+		int steps = 0;
+		Node z = y;                                         // the root of the subtree the loop is at
+		while (true) {
+			y = z;
+			int h = y.height;
+			int l = h - y.left.height;                      // rank differences between y and its sons
+			int r = h - y.right.height;
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if ((l == 0 && r == 1) || (l == 1 && r == 0)) {   // 0-1 or 1-0: promote y and continue up
+				y.height = h + 1;
+				steps++;
+				y.fixSize();
+			}
+			else if (l == 0) {                                  // 0-2 node
+				Node c = y.left;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 1 && cr == 2) {                       // single rotation right
+					z = rotate_right(y);
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // double rotation: left-right
+					Node g = c.right;
+					z = rotate_left_right(y);
+					g.height++;
+					c.height = ch - 1;
+					y.height = h - 1;
+					c.fixSize();
+					y.fixSize();
+					g.fixSize();
+					steps += 5;
+					break;
+				}
+				// 1-1 son, only after join: rotate right, the son is promoted and the problem may move up
+				z = rotate_right(y);
+				c.height = ch + 1;
+				y.fixSize();
+				c.fixSize();
+				steps += 2;
+			}
+			else {                                              // 2-0 node
+				Node c = y.right;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 2 && cr == 1) {                       // single rotation left
+					z = rotate_left(y);
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // double rotation: right-left
+					Node g = c.left;
+					z = rotate_right_left(y);
+					g.height++;
+					c.height = ch - 1;
+					y.height = h - 1;
+					c.fixSize();
+					y.fixSize();
+					g.fixSize();
+					steps += 5;
+					break;
+				}
+				// 1-1 son, only after join: rotate left, the son is promoted and the problem may move up
+				z = rotate_left(y);
+				c.height = ch + 1;
+				y.fixSize();
+				c.fixSize();
+				steps += 2;
+			}
+			if (z.parent == null) {                     // if we are in the root, exit loop
+				break;
+			}
+			z = z.parent;
+		}
+		fixSizes(z);
+		return steps;
+	}
+
+	/** function for rebalance after deletion, starting at y */
+	private int DeleteBalance(Node y) {
+		int steps = 0;
+		Node z = y;                                         // the root of the subtree the loop is at
+		while (true) {
+			y = z;
+			int h = y.height;
+			int l = h - y.left.height;                      // rank differences between y and its sons
+			int r = h - y.right.height;
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if (l == 2 && r == 2) {                             // 2-2 node: demote y
+				y.height = h - 1;
+				y.fixSize();
+				steps++;
+			}
+			else if (l == 3) {                                  // 3-1 node
+				Node c = y.right;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 1 && cr == 1) {                       // rotate left and stop
+					z = rotate_left(y);
+					c.height = ch + 1;
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 3;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // rotate left, y demoted twice
+					z = rotate_left(y);
+					y.height = h - 2;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+				}
+				else {                                          // 1-2 son: double rotation right-left
+					Node g = c.left;
+					z = rotate_right_left(y);
+					g.height++;
+					y.height = h - 2;
+					c.height = ch - 1;
+					y.fixSize();
+					c.fixSize();
+					g.fixSize();
+					steps += 5;
+				}
+			}
+			else {                                              // 1-3 node
+				Node c = y.left;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 1 && cr == 1) {                       // rotate right and stop
+					z = rotate_right(y);
+					c.height = ch + 1;
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 3;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // rotate right, y demoted twice
+					z = rotate_right(y);
+					y.height = h - 2;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+				}
+				else {                                          // 2-1 son: double rotation left-right
+					Node g = c.right;
+					z = rotate_left_right(y);
+					g.height++;
+					y.height = h - 2;
+					c.height = ch - 1;
+					y.fixSize();
+					c.fixSize();
+					g.fixSize();
+					steps += 5;
+				}
+			}
+			if (z.parent == null) {                     // if we are in the root, exit loop
+				break;
+			}
+			z = z.parent;
+		}
+		fixSizes(z);
+		return steps;
+	}
+
+	/** function that fixes the size field of node and all the nodes above it */
+	private static void fixSizes(Node node) {
+		for (; node != null; node = node.parent) {
+			node.fixSize();
+		}
+	}
+
+	/** function that puts new_son in place of old_son under parent (or as the root if parent is null) */
+	private void replace(Node parent, Node old_son, Node new_son) {
+		new_son.parent = parent;
+		if (parent == null) {
+			this.root = new_son;
+		}
+		else if (parent.left == old_son) {
+			parent.left = new_son;
+		}
+		else {
+			parent.right = new_son;
+		}
+	}
+
+	/** function for left rotation around y, returns the new subtree root */
+	private Node rotate_left(Node y) {
+		Node c = y.right;
+		Node m = c.left;
+		replace(y.parent, y, c);
+		y.right = m;
+		if (m != NIL) {
+			m.parent = y;
+		}
+		c.left = y;
+		y.parent = c;
+		return c;
+	}
+
+	/** function for right rotation around y, returns the new subtree root */
+	private Node rotate_right(Node y) {
+		Node c = y.left;
+		Node m = c.right;
+		replace(y.parent, y, c);
+		y.left = m;
+		if (m != NIL) {
+			m.parent = y;
+		}
+		c.right = y;
+		y.parent = c;
+		return c;
+	}
+
+	/** function for right-left rotation around y, returns the new subtree root */
+	private Node rotate_right_left(Node y) {
+		rotate_right(y.right);
+		return rotate_left(y);
+	}
+
+	/** function for left-right rotation around y, returns the new subtree root */
+	private Node rotate_left_right(Node y) {
+		rotate_left(y.left);
+		return rotate_right(y);
+	}
+
+	/**
+	 * public int delete(long k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(long k) {
+		Node y = this.root;
+		while (y != NIL && y.key != k) {              // descend to k
+			y = (k < y.key) ? y.left : y.right;
+		}
+		if (y == NIL) {
+			return -1;
+		}
+		if (y.left != NIL && y.right != NIL) {        // if the node has 2 sons, swap it with its successor
+			Node s = CalcMin(y.right);
+			s.swapItems(y);
+			y = s;
+		}
+		Node son = (y.left != NIL) ? y.left : y.right;
+		Node p = y.parent;
+		if (p == null) {                              // y is the root with at most 1 son, the son is the new root
+			this.root = son;
+			if (son == NIL) {
+				this.min_node = null;
+				this.max_node = null;
+			}
+			else {
+				son.parent = null;
+				this.min_node = son;
+				this.max_node = son;
+			}
+			return 0;
+		}
+		if (p.left == y) {                            // bypass y
+			p.left = son;
+		}
+		else {
+			p.right = son;
+		}
+		if (son != NIL) {
+			son.parent = p;
+		}
+		if (y == this.min_node) {                     // if y was the min we need to update the min
+			this.min_node = CalcMin(p);
+		}
+		if (y == this.max_node) {                     // if y was the max we need to update the max
+			this.max_node = CalcMax(p);
+		}
+
+		// Rebalancing Process
+		return DeleteBalance(p);
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		return (this.root == NIL) ? null : this.min_node.info;
+	}
+
+	/** function to calc the min node in the subtree of node */
+	private static Node CalcMin(Node node) {
+		while (node.left != NIL) {       // go as much left as possible and return the min node
+			node = node.left;
+		}
+		return node;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		return (this.root == NIL) ? null : this.max_node.info;
+	}
+
+	/** function to calc the max node in the subtree of node */
+	private static Node CalcMax(Node node) {
+		while (node.right != NIL) {      // go as much right as possible and return the max node
+			node = node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * public Node successor(Node x)
+	 * <p>
+	 * returns the node with the next key after the key of x, or null if x is the max
+	 */
+	public Node successor(Node x) {
+		if (x.right != NIL) {                 // if the successor is in the right subtree
+			return CalcMin(x.right);
+		}
+		Node y = x.parent;                    // if we need to go up to find the successor
+		while (y != null && x == y.right) {
+			x = y;
+			y = x.parent;
+		}
+		return y;
+	}
+
+	/**
+	 * public long[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 * For a tree of more than MAX_ARRAY_LENGTH items use keysToArray(from, dst) or keys().
+	 */
+	public long[] keysToArray() {
+		long[] arr = new long[arrayLength()];
+		keysToArray(0, arr);
+		return arr;
+	}
+
+	/**
+	 * public int keysToArray(long from, long[] dst)
+	 * <p>
+	 * Copies the keys of ranks from, from + 1, ... to dst, in increasing order, until dst is full
+	 * or the keys run out. Returns the number of keys copied (0 if from is not in [0, size())).
+	 * Reading a tree in chunks of n keys costs O(logn) per chunk for the select, and amortized O(1) per key.
+	 */
+	public int keysToArray(long from, long[] dst) {
+		Node node = select(from);
+		int i = 0;
+		for (; i < dst.length && node != null; i++) {   // one successor step each, amortized O(1)
+			dst[i] = node.key;
+			node = successor(node);
+		}
+		return i;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 * For a tree of more than MAX_ARRAY_LENGTH items use infoToArray(from, dst).
+	 */
+	public String[] infoToArray() {
+		String[] arr = new String[arrayLength()];
+		infoToArray(0, arr);
+		return arr;
+	}
+
+	/**
+	 * public int infoToArray(long from, String[] dst)
+	 * <p>
+	 * Copies the info of the items of ranks from, from + 1, ... to dst, sorted by their keys, until dst is full
+	 * or the items run out. Returns the number of infos copied (0 if from is not in [0, size())).
+	 */
+	public int infoToArray(long from, String[] dst) {
+		Node node = select(from);
+		int i = 0;
+		for (; i < dst.length && node != null; i++) {
+			dst[i] = node.info;
+			node = successor(node);
+		}
+		return i;
+	}
+
+	/** function that returns the size as an array length, or throws if the tree is too large for one array */
+	private int arrayLength() {
+		long n = this.size();
+		if (n > MAX_ARRAY_LENGTH) {
+			throw new IllegalStateException("the tree has " + n + " items, more than an array can hold; export it in chunks");
+		}
+		return (int) n;
+	}
+
+	/**
+	 * public interface EntryVisitor
+	 * <p>
+	 * Receives the items of a rangeScan.
+	 */
+	public interface EntryVisitor {
+		public void visit(long key, String info);
+	}
+
+	/**
+	 * public long rangeScan(long lo, long hi, EntryVisitor visitor)
+	 * <p>
+	 * Calls visitor for every item with lo &lt;= key &lt;= hi in increasing key order, and returns their number.
+	 * Worst case efficiency is O(logn + m) for m items in the range.
+	 */
+	public long rangeScan(long lo, long hi, EntryVisitor visitor) {
+		long n = 0;
+		for (Node node = ceilingNode(lo); node != null && node.key <= hi; node = successor(node)) {
+			visitor.visit(node.key, node.info);
+			n++;
+		}
+		return n;
+	}
+
+	/** returns the node with the smallest key that is at least k, or null if there is none */
+	private Node ceilingNode(long k) {
+		Node best = null;
+		Node node = this.root;
+		while (node != NIL) {
+			if (node.key >= k) {                 // node is a candidate, a smaller one can only be to the left
+				best = node;
+				node = node.left;
+			}
+			else {
+				node = node.right;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * public long rangeCount(long lo, long hi)
+	 * <p>
+	 * Returns the number of keys k in the tree with lo &lt;= k &lt;= hi (0 if lo &gt; hi).
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public long rangeCount(long lo, long hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return this.countAtMost(hi) - this.rank(lo);
+	}
+
+	/** returns the number of keys in the tree that are smaller or equal to k */
+	private long countAtMost(long k) {
+		long count = 0;
+		Node node = this.root;
+		while (node != NIL) {
+			if (k < node.key) {
+				node = node.left;
+			}
+			else {                               // node and its left subtree are at most k
+				count += node.left.size + 1;
+				node = node.right;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * public LongStream keys()
+	 * <p>
+	 * Returns a stream of the keys in increasing order. keys().parallel() splits the tree at subtree roots
+	 * into parts of exact, known sizes (see keySpliterator).
+	 * precondition: the tree is not modified while the stream runs
+	 */
+	public LongStream keys() {
+		return StreamSupport.longStream(this.keySpliterator(), false);
+	}
+
+	/**
+	 * public Spliterator.OfLong keySpliterator()
+	 * <p>
+	 * Returns a SIZED, SUBSIZED, SORTED, DISTINCT, ORDERED and NONNULL spliterator over the keys.
+	 * It covers a range of ranks [lo, hi) and splits it as AVLTree.keySpliterator() does, at the rank of the
+	 * highest node whose rank is in (lo, hi). Splitting costs O(logn), each next key is amortized O(1).
+	 */
+	public Spliterator.OfLong keySpliterator() {
+		return new KeySpliterator(0, this.size(), null);
+	}
+
+	/** the spliterator of keySpliterator, over the ranks [lo, hi) */
+	private final class KeySpliterator implements Spliterator.OfLong {
+		private long lo;
+		private final long hi;
+		private Node node;                    // the node of rank lo, null until it is needed
+
+		KeySpliterator(long lo, long hi, Node node) {
+			this.lo = lo;
+			this.hi = hi;
+			this.node = node;
+		}
+
+		public OfLong trySplit() {
+			if (hi - lo < 2) {
+				return null;
+			}
+			Node x = root;
+			long base = 0;                    // the rank of the smallest key in the subtree of x
+			while (true) {
+				long r = base + x.left.size;
+				if (r <= lo) {                // x and its left subtree are before the range (or x is lo)
+					base = r + 1;
+					x = x.right;
+				}
+				else if (r >= hi) {
+					x = x.left;
+				}
+				else {                        // give away [lo, r), keep [r, hi)
+					KeySpliterator prefix = new KeySpliterator(lo, r, node);
+					this.lo = r;
+					this.node = x;
+					return prefix;
+				}
+			}
+		}
+
+		/** function that returns the current node and moves to the next one, precondition: lo < hi */
+		private Node advance() {
+			Node x = (node != null) ? node : select(lo);
+			lo++;
+			node = (lo < hi) ? successor(x) : null;
+			return x;
+		}
+
+		public boolean tryAdvance(LongConsumer action) {
+			if (lo >= hi) {
+				return false;
+			}
+			action.accept(advance().key);
+			return true;
+		}
+
+		public void forEachRemaining(LongConsumer action) {
+			while (lo < hi) {
+				action.accept(advance().key);
+			}
+		}
+
+		public long estimateSize() {
+			return hi - lo;
+		}
+
+		public int characteristics() {
+			return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED | Spliterator.DISTINCT
+					| Spliterator.ORDERED | Spliterator.NONNULL;
+		}
+
+		public Comparator<? super Long> getComparator() {
+			return null;                      // natural order
+		}
+	}
+
+	/**
+	 * public long size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 * <p>
+	 * precondition: none
+	 * postcondition: none
+	 */
+	public long size() {
+		return this.root.size;
+	}
+
+	/**
+	 * public Node getRoot()
+	 * <p>
+	 * Returns the root node, or null if the tree is empty
+	 */
+	public Node getRoot() {
+		return (this.root == NIL) ? null : this.root;
+	}
+
+	/**
+	 * public Node select(long i)
+	 * <p>
+	 * Returns the node with the i-th smallest key (starting from 0), or null if i is not in [0, size()).
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public Node select(long i) {
+		if (i < 0 || i >= this.size()) {
+			return null;
+		}
+		Node node = this.root;
+		while (true) {
+			long left_size = node.left.size;
+			if (i == left_size) {                // exactly i keys are smaller than node
+				return node;
+			}
+			if (i < left_size) {
+				node = node.left;
+			}
+			else {                               // skip the left subtree and node, go right
+				i -= left_size + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * public long rank(long k)
+	 * <p>
+	 * Returns the number of keys in the tree that are smaller than k (k does not have to be in the tree).
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public long rank(long k) {
+		long rank = 0;
+		Node node = this.root;
+		while (node != NIL) {
+			if (k <= node.key) {
+				if (k == node.key) {
+					return rank + node.left.size;
+				}
+				node = node.left;
+			}
+			else {                               // node and its left subtree are smaller than k
+				rank += node.left.size + 1;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * public LongAVLTree[] split(long x)
+	 * <p>
+	 * splits the tree into 2 trees according to the key x.
+	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
+	 * Every node on the search path of x is reused in place (the node of x is dropped).
+	 * If x is not in the tree, the trees hold the keys below and above it.
+	 * postcondition: this tree is empty
+	 */
+	public LongAVLTree[] split(long x) {
+		LongAVLTree t1 = new LongAVLTree();   // tree with keys() < x
+		LongAVLTree t2 = new LongAVLTree();   // tree with keys() > x
+		Node p = this.root;
+		Node last = null;
+		while (p != NIL && p.key != x) {                    // descend to x
+			last = p;
+			p = (x < p.key) ? p.left : p.right;
+		}
+		if (p != NIL) {                                     // the sons of x start t1 and t2
+			t1.root = detach(p.left);
+			t2.root = detach(p.right);
+			p = p.parent;
+		}
+		else {
+			p = last;
+		}
+		// --- now continue all the way to the root and join t1/t2 with the relevant subtree
+		while (p != null) {
+			Node parent = p.parent;                         // read before p is relinked
+			if (p.key < x) {                                // p and its left subtree go to t1
+				Node sub = detach(p.left);
+				p.reset();
+				t1.joinNodes(sub, p, t1.root);
+			}
+			else {                                          // p and its right subtree go to t2
+				Node sub = detach(p.right);
+				p.reset();
+				t2.joinNodes(t2.root, p, sub);
+			}
+			p = parent;
+		}
+		this.root = NIL;
+		this.min_node = null;
+		this.max_node = null;
+		t1.fixMinMax();
+		t2.fixMinMax();
+		return new LongAVLTree[] {t1, t2};
+	}
+
+	/**
+	 * public join(long k, String i, LongAVLTree t)
+	 * <p>
+	 * joins t and the item (k, i) with the tree.
+	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1).
+	 * precondition: keys(x,t) < keys() or keys(x,t) > keys(). t/tree might be empty (rank = -1).
+	 * postcondition: t is empty
+	 */
+	public int join(long k, String i, LongAVLTree t) {
+		int rank_diff_res = Math.abs(this.root.height - t.root.height) + 1;   // NIL is -1 high, as in AVLTree
+
+		Node x = new Node(k, i, null);
+		boolean this_smaller = (this.root != NIL) ? this.root.key < k : (t.root == NIL || k < t.root.key);
+		if (this_smaller) {                                 // keys() < k < keys(t)
+			joinNodes(this.root, x, t.root);
+		} else {                                            // keys(t) < k < keys()
+			joinNodes(t.root, x, this.root);
+		}
+		t.root = NIL;
+		t.min_node = null;
+		t.max_node = null;
+		fixMinMax();
+		return rank_diff_res;
+	}
+
+	/**
+	 * joins the subtrees a and b (keys(a) < key(x) < keys(b), roots without parents) with the
+	 * single node x into the root of this tree: x goes down the spine of the higher one
+	 * and InsertBalance climbs back from its parent.
+	 */
+	private void joinNodes(Node a, Node x, Node b) {
+		int ha = a.height;
+		int hb = b.height;
+
+		if (Math.abs(ha - hb) <= 1) {                   // heights are close, x is the new root
+			link(x, a, b);
+			x.parent = null;
+			this.root = x;
+			return;
+		}
+		Node c;
+		Node p = null;                                  // the parent of c (c may be NIL)
+		if (ha > hb) {                                  // go down the right spine of a
+			c = a;
+			while (c.height > hb + 1) {
+				p = c;
+				c = c.right;
+			}
+			link(x, c, b);
+			p.right = x;
+			this.root = a;
+		}
+		else {                                          // go down the left spine of b
+			c = b;
+			while (c.height > ha + 1) {
+				p = c;
+				c = c.left;
+			}
+			link(x, a, c);
+			p.left = x;
+			this.root = b;
+		}
+		x.parent = p;
+		InsertBalance(p);
+	}
+
+	/** function that makes l and r the sons of x and fixes its height and size */
+	private static void link(Node x, Node l, Node r) {
+		x.left = l;
+		x.right = r;
+		if (l != NIL) {
+			l.parent = x;
+		}
+		if (r != NIL) {
+			r.parent = x;
+		}
+		x.height = Math.max(l.height, r.height) + 1;
+		x.fixSize();
+	}
+
+	/** function that cuts node off its parent and returns it (NIL stays as it is) */
+	private static Node detach(Node node) {
+		if (node != NIL) {
+			node.parent = null;
+		}
+		return node;
+	}
+
+	/** function that recalculates the min and max references */
+	private void fixMinMax() {
+		if (this.root == NIL) {
+			this.min_node = null;
+			this.max_node = null;
+		} else {
+			this.min_node = CalcMin(this.root);
+			this.max_node = CalcMax(this.root);
+		}
+	}
+
+	/**
+	 * public static final class Node
+	 * <p>
+	 * A node of a LongAVLTree: an item, its two sons (NIL for an external leaf), its parent
+	 * (null for the root), its height and the size of its subtree. It is read-only outside the tree.
+	 * Unlike MonomorphicAVLTree.Node it does not implement AVLTree.IAVLNode, whose keys are ints.
+	 */
+	public static final class Node {
+		private long key;
+		private String info;
+		private Node left;
+		private Node right;
+		private Node parent;
+		private int height;
+		private long size;
+
+		/** the NIL sentinel */
+		private Node() {
+			this.key = -1;
+			this.height = -1;
+			this.size = 0;
+			this.left = this;
+			this.right = this;
+		}
+
+		private Node(long key, String info, Node parent) {
+			this.key = key;
+			this.info = info;
+			this.left = NIL;
+			this.right = NIL;
+			this.parent = parent;
+			this.height = 0;
+			this.size = 1;
+		}
+
+		public long getKey() {
+			return this.key;
+		}
+
+		public String getValue() {
+			return this.info;
+		}
+
+		public Node getLeft() {
+			return this.left;
+		}
+
+		public Node getRight() {
+			return this.right;
+		}
+
+		public Node getParent() {
+			return this.parent;
+		}
+
+		public int getHeight() {
+			return this.height;
+		}
+
+		/** the number of nodes in the subtree of this node, 0 for NIL */
+		public long getSize() {
+			return this.size;
+		}
+
+		public boolean isRealNode() {
+			return this != NIL;
+		}
+
+		/** turns the node into a single leaf without a parent */
+		private void reset() {
+			this.left = NIL;
+			this.right = NIL;
+			this.parent = null;
+			this.height = 0;
+			this.size = 1;
+		}
+
+		private void fixSize() {
+			this.size = this.left.size + this.right.size + 1;
+		}
+
+		private void swapItems(Node other) {
+			long k = this.key;
+			this.key = other.key;
+			other.key = k;
+			String i = this.info;
+			this.info = other.info;
+			other.info = i;
+		}
+	}
+}
@@ -0,0 +1,470 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ *
+ * MappedAVLTree
+ *
+ * A read-only snapshot of an AVLTree in a binary file, opened with FileChannel.map.
+ * Nothing is read when the file is opened; search, min/max, rank, keyAt/infoAt and range scans
+ * run directly on the mapped bytes, and the OS pages in only the parts they touch.
+ *
+ * The file is the in-order layout of the tree, so the rank of a key is its index
+ * (all numbers are big-endian):
+ *
+ *   header   magic "AVLS", version, n (3 x 4 bytes), 4 bytes padding
+ *   keys     n x 4 bytes, sorted
+ *   refs     n x 8 bytes, the position of each info in the info area (-1 for a null info)
+ *   infos    UTF-8 records (4 bytes length + bytes)
+ *
+ * Files larger than 2GB are mapped in chunks of 1GB. Every section starts at a multiple of 8,
+ * so a key or a ref never crosses a chunk, only an info record may.
+ *
+ */
+
+public class MappedAVLTree implements AutoCloseable {
+
+	static final int MAGIC = 0x41564C53;        // "AVLS"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	static final long NO_INFO = -1;
+	static final int CHUNK_SHIFT = 30;           // 1GB chunks
+	static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final Path file;
+	private FileChannel channel;                 // null once the tree is closed
+	private final MappedByteBuffer[] chunks;
+	private final int n;
+	private final long keys_pos;
+	private final long refs_pos;
+	private final long infos_pos;
+
+	private MappedAVLTree(Path file, FileChannel channel, MappedByteBuffer[] chunks, int n) {
+		this.file = file;
+		this.channel = channel;
+		this.chunks = chunks;
+		this.n = n;
+		this.keys_pos = HEADER_BYTES;
+		this.refs_pos = align8(keys_pos + 4L * n);
+		this.infos_pos = refs_pos + 8L * n;
+	}
+
+	/**
+	 * public static void write(AVLTree tree, Path file)
+	 * <p>
+	 * Writes a snapshot of the tree to file (replacing it), in one in-order walk.
+	 * Worst case efficiency is O(n), the tree is not modified.
+	 */
+	public static void write(AVLTree tree, Path file) throws IOException {
+		int n = tree.size();
+		long refs_pos = align8(HEADER_BYTES + 4L * n);
+		long infos_pos = refs_pos + 8L * n;
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).flip();
+			writeFully(out, header, 0);
+
+			// the three sections are filled together, each through its own buffer
+			SectionWriter keys = new SectionWriter(out, HEADER_BYTES);
+			SectionWriter refs = new SectionWriter(out, refs_pos);
+			SectionWriter infos = new SectionWriter(out, infos_pos);
+			long info_offset = 0;                     // the position of the next record in the info area
+			for (AVLTree.Cursor c = tree.cursor().first(); c.valid(); c.next()) {
+				keys.putInt(c.key());
+				String info = c.info();
+				if (info == null) {
+					refs.putLong(NO_INFO);
+					continue;
+				}
+				byte[] bytes = info.getBytes(StandardCharsets.UTF_8);
+				refs.putLong(info_offset);
+				infos.putInt(bytes.length);
+				infos.put(bytes);
+				info_offset += 4 + bytes.length;
+			}
+			keys.flush();
+			refs.flush();
+			infos.flush();
+			out.force(true);
+		}
+	}
+
+	/**
+	 * public static MappedAVLTree open(Path file)
+	 * <p>
+	 * Maps a snapshot written by write(). Only the header is read, so this takes
+	 * about the same time for any file size.
+	 * Throws IOException if the file is not a snapshot.
+	 */
+	public static MappedAVLTree open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long length = channel.size();
+			if (length < HEADER_BYTES) {
+				throw new IOException(file + " is not an AVLTree snapshot (too short)");
+			}
+			MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+			for (int c = 0; c < chunks.length; c++) {
+				long start = (long) c << CHUNK_SHIFT;
+				chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, 1L << CHUNK_SHIFT));
+			}
+			ByteBuffer header = chunks[0];
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException(file + " is not an AVLTree snapshot (bad magic)");
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException(file + " has snapshot version " + header.getInt(4) + ", expected " + VERSION);
+			}
+			int n = header.getInt(8);
+			MappedAVLTree tree = new MappedAVLTree(file, channel, chunks, n);
+			if (n < 0 || length < tree.infos_pos) {
+				throw new IOException(file + " is truncated");
+			}
+			return tree;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * public void close()
+	 * <p>
+	 * Closes the file. The tree must not be used anymore; closing it again does nothing.
+	 * Java 17 cannot unmap a buffer safely, so the mapping itself goes away when the GC collects the tree.
+	 */
+	public void close() throws IOException {
+		if (this.channel != null) {
+			this.channel.close();
+			this.channel = null;
+		}
+	}
+
+	/**
+	 * public AVLTree load()
+	 * <p>
+	 * Builds an AVLTree with the items of the snapshot (AVLTree.fromSorted), in O(n).
+	 */
+	public AVLTree load() {
+		checkOpen();
+		PrimitiveIterator.OfInt keys = new PrimitiveIterator.OfInt() {
+			private int i = 0;
+
+			public boolean hasNext() {
+				return i < n;
+			}
+
+			public int nextInt() {
+				if (i >= n) {
+					throw new NoSuchElementException();
+				}
+				return keyAt(i++);
+			}
+		};
+		Iterator<String> infos = new Iterator<String>() {
+			private int i = 0;
+
+			public boolean hasNext() {
+				return i < n;
+			}
+
+			public String next() {
+				if (i >= n) {
+					throw new NoSuchElementException();
+				}
+				return infoAt(i++);
+			}
+		};
+		return AVLTree.fromSorted(n, keys, infos);
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.n == 0;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return this.n;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		checkOpen();
+		int i = rank(k);
+		if (i < n && keyAt(i) == k) {
+			return infoAt(i);
+		}
+		return null;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		checkOpen();
+		return n == 0 ? null : infoAt(0);
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		checkOpen();
+		return n == 0 ? null : infoAt(n - 1);
+	}
+
+	/**
+	 * public int rank(int k)
+	 * <p>
+	 * Returns the number of keys in the tree that are smaller than k (k does not have to be in the tree).
+	 * If k is in the tree, keyAt(rank(k)) == k.
+	 * Worst case efficiency is O(logn).
+	 */
+	public int rank(int k) {
+		checkOpen();
+		int lo = 0;
+		int hi = n;
+		while (lo < hi) {                        // the first index whose key is at least k
+			int mid = (lo + hi) >>> 1;
+			if (keyAt(mid) < k) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * public int keyAt(int i)
+	 * <p>
+	 * Returns the i-th smallest key (starting from 0, the same order as keysToArray()) in O(1).
+	 * precondition: 0 &lt;= i &lt; size()
+	 */
+	public int keyAt(int i) {
+		checkIndex(i);
+		long pos = keys_pos + 4L * i;
+		return chunks[(int) (pos >>> CHUNK_SHIFT)].getInt((int) (pos & CHUNK_MASK));
+	}
+
+	/**
+	 * public String infoAt(int i)
+	 * <p>
+	 * Returns the info of the i-th smallest key in O(1) (plus decoding the string).
+	 * precondition: 0 &lt;= i &lt; size()
+	 */
+	public String infoAt(int i) {
+		byte[] bytes = infoBytesAt(i);
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * public byte[] infoBytesAt(int i)
+	 * <p>
+	 * Returns the UTF-8 bytes of the info of the i-th smallest key, or null for a null info.
+	 * precondition: 0 &lt;= i &lt; size()
+	 */
+	public byte[] infoBytesAt(int i) {
+		checkIndex(i);
+		long ref_pos = refs_pos + 8L * i;
+		long ref = chunks[(int) (ref_pos >>> CHUNK_SHIFT)].getLong((int) (ref_pos & CHUNK_MASK));
+		if (ref == NO_INFO) {
+			return null;
+		}
+		long pos = infos_pos + ref;
+		byte[] length = new byte[4];
+		read(pos, length);
+		byte[] bytes = new byte[ByteBuffer.wrap(length).getInt()];
+		read(pos + 4, bytes);
+		return bytes;
+	}
+
+	/**
+	 * public int rangeCount(int lo, int hi)
+	 * <p>
+	 * Returns the number of keys k in the tree with lo &lt;= k &lt;= hi (0 if lo &gt; hi).
+	 * Worst case efficiency is O(logn).
+	 */
+	public int rangeCount(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return countAtMost(hi) - rank(lo);
+	}
+
+	/**
+	 * public int rangeScan(int lo, int hi, AVLTree.EntryVisitor visitor)
+	 * <p>
+	 * Calls the visitor with every item whose key is in [lo, hi], in increasing key order,
+	 * and returns the number of items visited. O(logn + k) for k items: one search for lo,
+	 * then a sequential read of the keys and refs.
+	 */
+	public int rangeScan(int lo, int hi, AVLTree.EntryVisitor visitor) {
+		if (lo > hi) {
+			return 0;
+		}
+		int count = 0;
+		for (int i = rank(lo); i < n; i++) {
+			int key = keyAt(i);
+			if (key > hi) {
+				break;
+			}
+			visitor.visit(key, infoAt(i));
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		checkOpen();
+		int[] arr = new int[n];
+		for (int i = 0; i < n; i++) {
+			arr[i] = keyAt(i);
+		}
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		checkOpen();
+		String[] arr = new String[n];
+		for (int i = 0; i < n; i++) {
+			arr[i] = infoAt(i);
+		}
+		return arr;
+	}
+
+	/** returns the number of keys in the tree that are smaller or equal to k */
+	private int countAtMost(int k) {
+		if (k == Integer.MAX_VALUE) {
+			checkOpen();
+			return n;
+		}
+		return rank(k + 1);
+	}
+
+	/** copies bytes.length bytes from the file position pos, the bytes may cross a chunk */
+	private void read(long pos, byte[] bytes) {
+		int done = 0;
+		while (done < bytes.length) {
+			ByteBuffer chunk = chunks[(int) (pos >>> CHUNK_SHIFT)];
+			int offset = (int) (pos & CHUNK_MASK);
+			int length = Math.min(bytes.length - done, chunk.capacity() - offset);
+			chunk.get(offset, bytes, done, length);
+			done += length;
+			pos += length;
+		}
+	}
+
+	private void checkIndex(int i) {
+		checkOpen();
+		if (i < 0 || i >= n) {
+			throw new IndexOutOfBoundsException("index " + i + " is not in [0, " + n + ")");
+		}
+	}
+
+	/** throws if the tree was closed */
+	private void checkOpen() {
+		if (this.channel == null) {
+			throw new IllegalStateException(file + " is closed");
+		}
+	}
+
+	private static long align8(long pos) {
+		return (pos + 7) & ~7L;
+	}
+
+	private static void writeFully(FileChannel out, ByteBuffer buffer, long pos) throws IOException {
+		while (buffer.hasRemaining()) {
+			pos += out.write(buffer, pos);
+		}
+	}
+
+	/** buffered writes to one section of the file, starting at a fixed position */
+	private static final class SectionWriter {
+		private final FileChannel out;
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		private long pos;
+
+		SectionWriter(FileChannel out, long pos) {
+			this.out = out;
+			this.pos = pos;
+		}
+
+		void putInt(int v) throws IOException {
+			ensure(4);
+			buffer.putInt(v);
+		}
+
+		void putLong(long v) throws IOException {
+			ensure(8);
+			buffer.putLong(v);
+		}
+
+		void put(byte[] bytes) throws IOException {
+			int done = 0;
+			while (done < bytes.length) {               // a record may be larger than the buffer
+				ensure(1);
+				int length = Math.min(bytes.length - done, buffer.remaining());
+				buffer.put(bytes, done, length);
+				done += length;
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			long length = buffer.remaining();
+			writeFully(out, buffer, pos);
+			pos += length;
+			buffer.clear();
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+	}
+}
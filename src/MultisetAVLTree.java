@@ -0,0 +1,823 @@
+import java.util.Arrays;
+
+/**
+ *
+ * MultisetAVLTree
+ *
+ * An implementation of a AVL Tree with
+ * integer keys that may repeat, and info.
+ *
+ * AVLTree rejects a second item with the same key (insert returns -1), so items that share a key
+ * (e.g. events with the same timestamp) need a side list per key. Here a key is stored once, in one
+ * node, with its multiplicity: insert of a key that is already in the tree only counts it (and
+ * keeps its info), and delete decrements the count and unlinks the node when the last one goes.
+ * The size field of a node is the sum of the multiplicities in its subtree, so size(), rank(),
+ * select(), rangeCount() and the exports count every occurrence, and stay O(logn).
+ *
+ * A tree made with keepInfos = true also keeps the info of every occurrence, in insertion order:
+ * the first one in the node and the others in a String[] that the node allocates on the second
+ * occurrence and grows by doubling, so a key that occurs once costs nothing more.
+ * Otherwise (the default) a node keeps the info of the first occurrence, and the
+ * others are counted only.
+ *
+ * The layout is the one of MonomorphicAVLTree: a final Node class read through its fields and
+ * a shared NIL sentinel (height -1, size 0) for the external leaves.
+ *
+ */
+
+public class MultisetAVLTree {
+
+	static final Node NIL = new Node();
+	private static final String[] NO_INFOS = new String[0];
+	private final boolean keep_infos;
+	private Node root = NIL;
+	private Node min_node;                     // null when the tree is empty
+	private Node max_node;
+
+	// constructor
+	public MultisetAVLTree() {
+		this(false);
+	}
+
+	/**
+	 * public MultisetAVLTree(boolean keepInfos)
+	 * <p>
+	 * creates an empty tree that keeps the info of every occurrence of a key if keepInfos is true,
+	 * or only the info of the first one otherwise.
+	 */
+	public MultisetAVLTree(boolean keepInfos) {
+		this.keep_infos = keepInfos;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == NIL;
+	}
+
+	/** function that returns the node of key k, or NIL */
+	private Node find(int k) {
+		Node node = this.root;
+		while (node != NIL) {
+			int node_key = node.key;
+			if (k == node_key) {
+				return node;
+			}
+			node = (k < node_key) ? node.left : node.right;
+		}
+		return NIL;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of the first occurrence of key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		return find(k).info;                   // null for NIL
+	}
+
+	/**
+	 * public int count(int k)
+	 * <p>
+	 * returns the multiplicity of key k, 0 if it is not in the tree
+	 */
+	public int count(int k) {
+		return find(k).count;
+	}
+
+	/**
+	 * public String[] infos(int k)
+	 * <p>
+	 * returns the infos of the occurrences of key k in insertion order (count(k) of them),
+	 * or an empty array if k is not in the tree.
+	 * In a tree that does not keep the infos every occurrence has the info of the first one.
+	 */
+	public String[] infos(int k) {
+		Node node = find(k);
+		if (node == NIL) {
+			return NO_INFOS;
+		}
+		String[] arr = new String[node.count];
+		node.copyInfos(arr, 0);
+		return arr;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an occurrence of key k with info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary
+	 * (always 0 when k is already in the tree: only its multiplicity grows).
+	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 */
+	public int insert(int k, String i) {
+		Node y = this.root;
+		if (y == NIL) {                            // if the tree is empty insert the node as the root and return 0
+			Node node = new Node(k, i, null);
+			this.root = node;
+			this.min_node = node;
+			this.max_node = node;
+			return 0;
+		}
+		while (true) {                             // descend to k or to the insertion point
+			if (k == y.key) {                      // the key already exists, count one more occurrence
+				y.addOccurrence(i, this.keep_infos);
+				fixSizes(y);
+				return 0;
+			}
+			Node son = (k < y.key) ? y.left : y.right;
+			if (son == NIL) {
+				break;
+			}
+			y = son;
+		}
+		Node node = new Node(k, i, y);
+		if (k < y.key) {                           // insert node as left son
+			y.left = node;
+		} else {                                   // insert node as right son
+			y.right = node;
+		}
+		if (k < this.min_node.key) {               // check if needed to update the min reference
+			this.min_node = node;
+		}
+		if (k > this.max_node.key) {               // check if needed to update the max reference
+			this.max_node = node;
+		}
+
+		if (y.height == 0) {                       // if y was a leaf we need to rebalance the tree
+			return InsertBalance(y);
+		}
+		fixSizes(y);                               // y is still balanced, only the sizes up to the root change
+		return 0;
+	}
+
+	/** function for rebalance after insertion of a new node, starting at its parent y */
+	private int InsertBalance(Node y) {
+		int steps = 0;
+		Node z = y;                                         // the root of the subtree the loop is at
+		while (true) {
+			y = z;
+			int h = y.height;
+			int l = h - y.left.height;                      // rank differences between y and its sons
+			int r = h - y.right.height;
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if ((l == 0 && r == 1) || (l == 1 && r == 0)) {   // 0-1 or 1-0: promote y and continue up
+				y.height = h + 1;
+				steps++;
+				y.fixSize();
+			}
+			else if (l == 0) {                                  // 0-2 node
+				Node c = y.left;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 1 && cr == 2) {                       // single rotation right
+					z = rotate_right(y);
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+					break;
+				}
+				else {                                          // 2-1 son: double rotation left-right
+					Node g = c.right;
+					z = rotate_left_right(y);
+					g.height++;
+					c.height = ch - 1;
+					y.height = h - 1;
+					c.fixSize();
+					y.fixSize();
+					g.fixSize();
+					steps += 5;
+					break;
+				}
+			}
+			else {                                              // 2-0 node
+				Node c = y.right;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 2 && cr == 1) {                       // single rotation left
+					z = rotate_left(y);
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+					break;
+				}
+				else {                                          // 1-2 son: double rotation right-left
+					Node g = c.left;
+					z = rotate_right_left(y);
+					g.height++;
+					c.height = ch - 1;
+					y.height = h - 1;
+					c.fixSize();
+					y.fixSize();
+					g.fixSize();
+					steps += 5;
+					break;
+				}
+			}
+			if (z.parent == null) {                     // if we are in the root, exit loop
+				break;
+			}
+			z = z.parent;
+		}
+		fixSizes(z);
+		return steps;
+	}
+
+	/** function for rebalance after deletion, starting at y */
+	private int DeleteBalance(Node y) {
+		int steps = 0;
+		Node z = y;                                         // the root of the subtree the loop is at
+		while (true) {
+			y = z;
+			int h = y.height;
+			int l = h - y.left.height;                      // rank differences between y and its sons
+			int r = h - y.right.height;
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if (l == 2 && r == 2) {                             // 2-2 node: demote y
+				y.height = h - 1;
+				y.fixSize();
+				steps++;
+			}
+			else if (l == 3) {                                  // 3-1 node
+				Node c = y.right;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 1 && cr == 1) {                       // rotate left and stop
+					z = rotate_left(y);
+					c.height = ch + 1;
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 3;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // rotate left, y demoted twice
+					z = rotate_left(y);
+					y.height = h - 2;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+				}
+				else {                                          // 1-2 son: double rotation right-left
+					Node g = c.left;
+					z = rotate_right_left(y);
+					g.height++;
+					y.height = h - 2;
+					c.height = ch - 1;
+					y.fixSize();
+					c.fixSize();
+					g.fixSize();
+					steps += 5;
+				}
+			}
+			else {                                              // 1-3 node
+				Node c = y.left;
+				int ch = c.height;
+				int cl = ch - c.left.height;
+				int cr = ch - c.right.height;
+				if (cl == 1 && cr == 1) {                       // rotate right and stop
+					z = rotate_right(y);
+					c.height = ch + 1;
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 3;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // rotate right, y demoted twice
+					z = rotate_right(y);
+					y.height = h - 2;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+				}
+				else {                                          // 2-1 son: double rotation left-right
+					Node g = c.right;
+					z = rotate_left_right(y);
+					g.height++;
+					y.height = h - 2;
+					c.height = ch - 1;
+					y.fixSize();
+					c.fixSize();
+					g.fixSize();
+					steps += 5;
+				}
+			}
+			if (z.parent == null) {                     // if we are in the root, exit loop
+				break;
+			}
+			z = z.parent;
+		}
+		fixSizes(z);
+		return steps;
+	}
+
+	/** function that fixes the size field of node and all the nodes above it */
+	private static void fixSizes(Node node) {
+		for (; node != null; node = node.parent) {
+			node.fixSize();
+		}
+	}
+
+	/** function that puts new_son in place of old_son under parent (or as the root if parent is null) */
+	private void replace(Node parent, Node old_son, Node new_son) {
+		new_son.parent = parent;
+		if (parent == null) {
+			this.root = new_son;
+		}
+		else if (parent.left == old_son) {
+			parent.left = new_son;
+		}
+		else {
+			parent.right = new_son;
+		}
+	}
+
+	/** function for left rotation around y, returns the new subtree root */
+	private Node rotate_left(Node y) {
+		Node c = y.right;
+		Node m = c.left;
+		replace(y.parent, y, c);
+		y.right = m;
+		if (m != NIL) {
+			m.parent = y;
+		}
+		c.left = y;
+		y.parent = c;
+		return c;
+	}
+
+	/** function for right rotation around y, returns the new subtree root */
+	private Node rotate_right(Node y) {
+		Node c = y.left;
+		Node m = c.right;
+		replace(y.parent, y, c);
+		y.left = m;
+		if (m != NIL) {
+			m.parent = y;
+		}
+		c.right = y;
+		y.parent = c;
+		return c;
+	}
+
+	/** function for right-left rotation around y, returns the new subtree root */
+	private Node rotate_right_left(Node y) {
+		rotate_right(y.right);
+		return rotate_left(y);
+	}
+
+	/** function for left-right rotation around y, returns the new subtree root */
+	private Node rotate_left_right(Node y) {
+		rotate_left(y.left);
+		return rotate_right(y);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes one occurrence of key k (the last inserted one) from the binary tree, if it is there;
+	 * the node of k is unlinked only when its last occurrence goes.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		Node y = find(k);
+		if (y == NIL) {
+			return -1;
+		}
+		if (y.count > 1) {                            // other occurrences remain, decrement
+			y.removeOccurrence();
+			fixSizes(y);
+			return 0;
+		}
+		return DeleteNode(y);
+	}
+
+	/**
+	 * public int deleteAll(int k)
+	 * <p>
+	 * deletes every occurrence of key k from the binary tree, if it is there.
+	 * returns the number of rebalancing operations as delete does, or -1 if k was not found in the tree.
+	 */
+	public int deleteAll(int k) {
+		Node y = find(k);
+		if (y == NIL) {
+			return -1;
+		}
+		return DeleteNode(y);
+	}
+
+	/** function that unlinks the node y and rebalances, returns the number of rebalancing operations */
+	private int DeleteNode(Node y) {
+		if (y.left != NIL && y.right != NIL) {        // if the node has 2 sons, swap it with its successor
+			Node s = CalcMin(y.right);
+			s.swapItems(y);
+			y = s;
+		}
+		Node son = (y.left != NIL) ? y.left : y.right;
+		Node p = y.parent;
+		if (p == null) {                              // y is the root with at most 1 son, the son is the new root
+			this.root = son;
+			if (son == NIL) {
+				this.min_node = null;
+				this.max_node = null;
+			}
+			else {
+				son.parent = null;
+				this.min_node = son;
+				this.max_node = son;
+			}
+			return 0;
+		}
+		if (p.left == y) {                            // bypass y
+			p.left = son;
+		}
+		else {
+			p.right = son;
+		}
+		if (son != NIL) {
+			son.parent = p;
+		}
+		if (y == this.min_node) {                     // if y was the min we need to update the min
+			this.min_node = CalcMin(p);
+		}
+		if (y == this.max_node) {                     // if y was the max we need to update the max
+			this.max_node = CalcMax(p);
+		}
+
+		// Rebalancing Process
+		return DeleteBalance(p);
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the first occurrence of the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		return (this.root == NIL) ? null : this.min_node.info;
+	}
+
+	/** function to calc the min node in the subtree of node */
+	private static Node CalcMin(Node node) {
+		while (node.left != NIL) {       // go as much left as possible and return the min node
+			node = node.left;
+		}
+		return node;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the first occurrence of the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		return (this.root == NIL) ? null : this.max_node.info;
+	}
+
+	/** function to calc the max node in the subtree of node */
+	private static Node CalcMax(Node node) {
+		while (node.right != NIL) {      // go as much right as possible and return the max node
+			node = node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * public Node successor(Node x)
+	 * <p>
+	 * returns the node with the next key after the key of x, or null if x is the max
+	 */
+	public Node successor(Node x) {
+		if (x.right != NIL) {                 // if the successor is in the right subtree
+			return CalcMin(x.right);
+		}
+		Node y = x.parent;                    // if we need to go up to find the successor
+		while (y != null && x == y.right) {
+			x = y;
+			y = x.parent;
+		}
+		return y;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, each as many times as it occurs,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[this.size()];
+		int i = 0;
+		for (Node node = this.min_node; node != null; node = successor(node)) {
+			for (int c = node.count; c > 0; c--) {
+				arr[i++] = node.key;
+			}
+		}
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains the info of every occurrence in the tree,
+	 * sorted by their respective keys (and in insertion order for the same key),
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] arr = new String[this.size()];
+		int i = 0;
+		for (Node node = this.min_node; node != null; node = successor(node)) {
+			i = node.copyInfos(arr, i);
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of occurrences in the tree (the sum of the multiplicities).
+	 * <p>
+	 * precondition: none
+	 * postcondition: none
+	 */
+	public int size() {
+		return this.root.size;
+	}
+
+	/**
+	 * public int distinctSize()
+	 * <p>
+	 * Returns the number of nodes in the tree (the number of distinct keys).
+	 * Worst case efficiency is O(n).
+	 */
+	public int distinctSize() {
+		int n = 0;
+		for (Node node = this.min_node; node != null; node = successor(node)) {
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * public Node getRoot()
+	 * <p>
+	 * Returns the root node, or null if the tree is empty
+	 */
+	public Node getRoot() {
+		return (this.root == NIL) ? null : this.root;
+	}
+
+	/**
+	 * public Node select(int i)
+	 * <p>
+	 * Returns the node of the i-th smallest occurrence (starting from 0, the same order as keysToArray()),
+	 * or null if i is not in [0, size()).
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public Node select(int i) {
+		if (i < 0 || i >= this.size()) {
+			return null;
+		}
+		Node node = this.root;
+		while (true) {
+			int left_size = node.left.size;
+			if (i < left_size) {                 // the occurrence is in the left subtree
+				node = node.left;
+			}
+			else if (i < left_size + node.count) {   // one of the occurrences of node
+				return node;
+			}
+			else {                               // skip the left subtree and node, go right
+				i -= left_size + node.count;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * public int rank(int k)
+	 * <p>
+	 * Returns the number of occurrences in the tree of keys smaller than k (k does not have to be in the tree).
+	 * If k is in the tree, select(rank(k)) to select(rank(k) + count(k) - 1) are its node.
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public int rank(int k) {
+		int rank = 0;
+		Node node = this.root;
+		while (node != NIL) {
+			if (k <= node.key) {                 // everything smaller than k is to the left
+				if (k == node.key) {
+					return rank + node.left.size;
+				}
+				node = node.left;
+			}
+			else {                               // node and its left subtree are smaller than k
+				rank += node.left.size + node.count;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * public int rangeCount(int lo, int hi)
+	 * <p>
+	 * Returns the number of occurrences of keys k in the tree with lo &lt;= k &lt;= hi (0 if lo &gt; hi).
+	 * Worst case efficiency is O(logn), using the size field.
+	 */
+	public int rangeCount(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return this.countAtMost(hi) - this.rank(lo);
+	}
+
+	/** returns the number of occurrences in the tree of keys smaller or equal to k */
+	private int countAtMost(int k) {
+		int count = 0;
+		Node node = this.root;
+		while (node != NIL) {
+			if (k < node.key) {
+				node = node.left;
+			}
+			else {                               // node and its left subtree are at most k
+				count += node.left.size + node.count;
+				node = node.right;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * public static final class Node
+	 * <p>
+	 * A node of a MultisetAVLTree: a key with its multiplicity and info(s), its two sons (NIL for an
+	 * external leaf), its parent (null for the root), its height and the number of occurrences in its subtree.
+	 * As in MonomorphicAVLTree the IAVLNode methods are the compatibility view for code written against
+	 * AVLTree, getValue() is the info of the first occurrence.
+	 */
+	public static final class Node implements AVLTree.IAVLNode {
+		private int key;
+		private String info;                   // of the first occurrence
+		private String[] more_infos;           // of the next ones when the tree keeps them, null until needed
+		private int count;
+		private Node left;
+		private Node right;
+		private Node parent;
+		private int height;
+		private int size;
+
+		/** the NIL sentinel */
+		private Node() {
+			this.key = -1;
+			this.height = -1;
+			this.count = 0;
+			this.size = 0;
+			this.left = this;
+			this.right = this;
+		}
+
+		private Node(int key, String info, Node parent) {
+			this.key = key;
+			this.info = info;
+			this.count = 1;
+			this.left = NIL;
+			this.right = NIL;
+			this.parent = parent;
+			this.height = 0;
+			this.size = 1;
+		}
+
+		public int getKey() {
+			return this.key;
+		}
+
+		public String getValue() {
+			return this.info;
+		}
+
+		/** the multiplicity of the key, 0 for NIL */
+		public int getCount() {
+			return this.count;
+		}
+
+		public Node getLeft() {
+			return this.left;
+		}
+
+		public Node getRight() {
+			return this.right;
+		}
+
+		public Node getParent() {
+			return this.parent;
+		}
+
+		public int getHeight() {
+			return this.height;
+		}
+
+		public boolean isRealNode() {
+			return this != NIL;
+		}
+
+		public void setLeft(AVLTree.IAVLNode node) {
+			if (this != NIL) {
+				this.left = (node == null) ? NIL : (Node) node;
+			}
+		}
+
+		public void setRight(AVLTree.IAVLNode node) {
+			if (this != NIL) {
+				this.right = (node == null) ? NIL : (Node) node;
+			}
+		}
+
+		public void setParent(AVLTree.IAVLNode node) {
+			if (this != NIL) {
+				this.parent = (Node) node;
+			}
+		}
+
+		public void setHeight(int height) {
+			if (this != NIL) {
+				this.height = height;
+			}
+		}
+
+		private void fixSize() {
+			this.size = this.left.size + this.right.size + this.count;
+		}
+
+		private void addOccurrence(String i, boolean keep_infos) {
+			if (keep_infos) {
+				int n = this.count - 1;                          // infos already in more_infos
+				if (this.more_infos == null) {
+					this.more_infos = new String[2];
+				}
+				else if (n == this.more_infos.length) {
+					this.more_infos = Arrays.copyOf(this.more_infos, 2 * n);
+				}
+				this.more_infos[n] = i;
+			}
+			this.count++;
+		}
+
+		private void removeOccurrence() {
+			this.count--;
+			if (this.more_infos != null) {
+				this.more_infos[this.count - 1] = null;          // the last inserted info
+			}
+		}
+
+		/** copies the infos of the occurrences to arr from index i, returns the index after them */
+		private int copyInfos(String[] arr, int i) {
+			arr[i++] = this.info;
+			int more = this.count - 1;
+			if (this.more_infos != null) {
+				System.arraycopy(this.more_infos, 0, arr, i, more);
+				return i + more;
+			}
+			for (; more > 0; more--) {                           // counted only, repeat the first info
+				arr[i++] = this.info;
+			}
+			return i;
+		}
+
+		private void swapItems(Node other) {
+			int k = this.key;
+			this.key = other.key;
+			other.key = k;
+			String i = this.info;
+			this.info = other.info;
+			other.info = i;
+			String[] m = this.more_infos;
+			this.more_infos = other.more_infos;
+			other.more_infos = m;
+			int c = this.count;
+			this.count = other.count;
+			other.count = c;
+		}
+	}
+}
@@ -0,0 +1,1188 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ * OffHeapAVLTree
+ *
+ * An implementation of a AVL Tree with
+ * distinct integer keys and info, where the nodes and the infos are kept outside
+ * the Java heap, so a tree of hundreds of millions of items adds nothing for the GC to trace.
+ *
+ * The algorithms are the ones of IntAVLTree: a node is an int index, index 0 (NIL) is the
+ * external leaf with height -1 and size 0. A node is a fixed 32 bytes record in a direct
+ * ByteBuffer slab: key, left, right, parent, size, height (6 x 4 bytes) and an 8 bytes
+ * reference to its info, which is stored as UTF-8 (length + bytes) in an info area of
+ * 1MB slabs. The info String is built again on every search/min/max.
+ *
+ * Trees produced by split() share the memory of the tree that was split, so split and join stay
+ * logarithmic. The memory is given back to the OS by close(): when the last tree that uses it is
+ * closed, all its slabs are freed at once; before that, close() only recycles the tree's nodes.
+ * Space of deleted infos is reclaimed by compacting the info area once it is mostly garbage.
+ *
+ * Not thread safe, like AVLTree.
+ *
+ */
+
+public class OffHeapAVLTree implements AutoCloseable {
+
+	public static final int NIL = 0;          // index of the external leaf
+	private NodeStore nodes;                  // null once the tree is closed
+	private int root;
+	private int min_node;
+	private int max_node;
+
+	// constructor
+	public OffHeapAVLTree() {
+		this(new NodeStore());
+	}
+
+	private OffHeapAVLTree(NodeStore nodes) {
+		this.nodes = nodes;
+		this.root = NIL;
+		this.min_node = NIL;
+		this.max_node = NIL;
+		nodes.trees.add(this);
+	}
+
+	/**
+	 * public void close()
+	 * <p>
+	 * Frees the memory of the tree. If other trees share it (see split), the nodes of this tree
+	 * are recycled for them in O(n), otherwise all the slabs are freed in O(1).
+	 * The tree must not be used anymore; closing it again does nothing.
+	 */
+	public void close() {
+		NodeStore store = this.nodes;
+		if (store == null) {
+			return;
+		}
+		store.trees.remove(this);
+		if (store.trees.isEmpty()) {
+			store.free();
+		} else {
+			releaseAll(this.root);
+			store.maybeCompact();
+		}
+		this.nodes = null;
+		this.root = NIL;
+	}
+
+	/**
+	 * public long offHeapBytes()
+	 * <p>
+	 * Returns the bytes of off-heap memory held by this tree's store (shared with the trees split from it).
+	 */
+	public long offHeapBytes() {
+		return open().bytes();
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		open();
+		return root == NIL;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		NodeStore nodes = open();
+		int node = this.root;
+		while (node != NIL) {
+			int node_key = nodes.key(node);
+			if (node_key == k) {
+				return nodes.info(node);
+			}
+			node = (k < node_key) ? nodes.left(node) : nodes.right(node);
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		NodeStore nodes = open();
+		int y = TreePosition(k);
+
+		if (y == NIL) {                            // if the tree is empty insert the node as the root and return 0
+			int node = nodes.allocate(k, i);
+			this.root = node;
+			this.min_node = node;
+			this.max_node = node;
+			return 0;
+		}
+		if (k == nodes.key(y)) {                   // if the key already exists return -1
+			return -1;
+		}
+		int node = nodes.allocate(k, i);
+		nodes.setParent(node, y);
+		if (k < nodes.key(y)) {                    // insert node as left son
+			nodes.setLeft(y, node);
+		} else {                                   // insert node as right son
+			nodes.setRight(y, node);
+		}
+		if (k < nodes.key(this.min_node)) {        // check if needed to update the min reference
+			this.min_node = node;
+		}
+		if (k > nodes.key(this.max_node)) {        // check if needed to update the max reference
+			this.max_node = node;
+		}
+
+		if (nodes.height(y) == 0) {                // if y was a leaf we need to rebalance the tree
+			return InsertBalance(y);
+		}
+		fixSizesToRoot(y);                         // y is still balanced, only the sizes on the path change
+		return 0;
+	}
+
+	/** function for rebalance after insertion (and join), starting at y */
+	private int InsertBalance(int y) {
+		NodeStore nodes = this.nodes;
+		int steps = 0;
+		while (true) {
+			int h = nodes.height(y);
+			int l = h - nodes.height(nodes.left(y));     // rank differences between y and its sons
+			int r = h - nodes.height(nodes.right(y));
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if ((l == 0 && r == 1) || (l == 1 && r == 0)) {   // 0-1 or 1-0: promote y and continue up
+				nodes.setHeight(y, h + 1);
+				steps++;
+				nodes.fixSize(y);
+			}
+			else if (l == 0) {                                  // 0-2 node
+				int c = nodes.left(y);
+				int ch = nodes.height(c);
+				int cl = ch - nodes.height(nodes.left(c));
+				int cr = ch - nodes.height(nodes.right(c));
+				if (cl == 1 && cr == 2) {                       // single rotation right
+					rotate_right(y);
+					nodes.setHeight(y, h - 1);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // double rotation: left-right
+					int g = nodes.right(c);
+					rotate_left_right(y);
+					nodes.setHeight(g, nodes.height(g) + 1);
+					nodes.setHeight(c, ch - 1);
+					nodes.setHeight(y, h - 1);
+					nodes.fixSize(c);
+					nodes.fixSize(y);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+					break;
+				}
+				// 1-1 son, only after join: rotate right, the son is promoted and the problem may move up
+				rotate_right(y);
+				nodes.setHeight(c, ch + 1);
+				nodes.fixSize(y);
+				nodes.fixSize(c);
+				steps += 2;
+				y = c;
+			}
+			else {                                              // 2-0 node
+				int c = nodes.right(y);
+				int ch = nodes.height(c);
+				int cl = ch - nodes.height(nodes.left(c));
+				int cr = ch - nodes.height(nodes.right(c));
+				if (cl == 2 && cr == 1) {                       // single rotation left
+					rotate_left(y);
+					nodes.setHeight(y, h - 1);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // double rotation: right-left
+					int g = nodes.left(c);
+					rotate_right_left(y);
+					nodes.setHeight(g, nodes.height(g) + 1);
+					nodes.setHeight(c, ch - 1);
+					nodes.setHeight(y, h - 1);
+					nodes.fixSize(c);
+					nodes.fixSize(y);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+					break;
+				}
+				// 1-1 son, only after join: rotate left, the son is promoted and the problem may move up
+				rotate_left(y);
+				nodes.setHeight(c, ch + 1);
+				nodes.fixSize(y);
+				nodes.fixSize(c);
+				steps += 2;
+				y = c;
+			}
+			if (nodes.parent(y) == NIL) {               // if we are in the root, exit loop
+				break;
+			}
+			y = nodes.parent(y);
+		}
+		fixSizesToRoot(y);
+		return steps;
+	}
+
+	/** function for rebalance after deletion, starting at y */
+	private int DeleteBalance(int y) {
+		NodeStore nodes = this.nodes;
+		int steps = 0;
+		while (true) {
+			int h = nodes.height(y);
+			int l = h - nodes.height(nodes.left(y));     // rank differences between y and its sons
+			int r = h - nodes.height(nodes.right(y));
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if (l == 2 && r == 2) {                             // 2-2 node: demote y
+				nodes.setHeight(y, h - 1);
+				nodes.fixSize(y);
+				steps++;
+			}
+			else if (l == 3) {                                  // 3-1 node
+				int c = nodes.right(y);
+				int ch = nodes.height(c);
+				int cl = ch - nodes.height(nodes.left(c));
+				int cr = ch - nodes.height(nodes.right(c));
+				if (cl == 1 && cr == 1) {                       // rotate left and stop
+					rotate_left(y);
+					nodes.setHeight(c, ch + 1);
+					nodes.setHeight(y, h - 1);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 3;
+					y = c;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // rotate left, y demoted twice
+					rotate_left(y);
+					nodes.setHeight(y, h - 2);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+				}
+				else {                                          // 1-2 son: double rotation right-left
+					int g = nodes.left(c);
+					rotate_right_left(y);
+					nodes.setHeight(g, nodes.height(g) + 1);
+					nodes.setHeight(y, h - 2);
+					nodes.setHeight(c, ch - 1);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+				}
+			}
+			else {                                              // 1-3 node
+				int c = nodes.left(y);
+				int ch = nodes.height(c);
+				int cl = ch - nodes.height(nodes.left(c));
+				int cr = ch - nodes.height(nodes.right(c));
+				if (cl == 1 && cr == 1) {                       // rotate right and stop
+					rotate_right(y);
+					nodes.setHeight(c, ch + 1);
+					nodes.setHeight(y, h - 1);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 3;
+					y = c;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // rotate right, y demoted twice
+					rotate_right(y);
+					nodes.setHeight(y, h - 2);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					steps += 2;
+					y = c;
+				}
+				else {                                          // 2-1 son: double rotation left-right
+					int g = nodes.right(c);
+					rotate_left_right(y);
+					nodes.setHeight(g, nodes.height(g) + 1);
+					nodes.setHeight(y, h - 2);
+					nodes.setHeight(c, ch - 1);
+					nodes.fixSize(y);
+					nodes.fixSize(c);
+					nodes.fixSize(g);
+					steps += 5;
+					y = g;
+				}
+			}
+			if (nodes.parent(y) == NIL) {               // if we are in the root, exit loop
+				break;
+			}
+			y = nodes.parent(y);
+		}
+		fixSizesToRoot(y);
+		return steps;
+	}
+
+	/** function that fixes the size field of y and all its ancestors */
+	private void fixSizesToRoot(int y) {
+		while (y != NIL) {
+			nodes.fixSize(y);
+			y = nodes.parent(y);
+		}
+	}
+
+	/** function that connects new_son to p in place of old_son (or makes it the root if p is NIL) */
+	private void replaceSon(int p, int old_son, int new_son) {
+		if (p == NIL) {
+			this.root = new_son;
+		}
+		else if (nodes.left(p) == old_son) {
+			nodes.setLeft(p, new_son);
+		}
+		else {
+			nodes.setRight(p, new_son);
+		}
+	}
+
+	/** function for left rotation around y, returns the new subtree root */
+	private int rotate_left(int y) {
+		NodeStore nodes = this.nodes;
+		int c = nodes.right(y);
+		int tmp = nodes.left(c);
+		int p = nodes.parent(y);
+		nodes.setRight(y, tmp);
+		if (tmp != NIL) {
+			nodes.setParent(tmp, y);
+		}
+		nodes.setLeft(c, y);
+		nodes.setParent(y, c);
+		nodes.setParent(c, p);
+		replaceSon(p, y, c);
+		return c;
+	}
+
+	/** function for right rotation around y, returns the new subtree root */
+	private int rotate_right(int y) {
+		NodeStore nodes = this.nodes;
+		int c = nodes.left(y);
+		int tmp = nodes.right(c);
+		int p = nodes.parent(y);
+		nodes.setLeft(y, tmp);
+		if (tmp != NIL) {
+			nodes.setParent(tmp, y);
+		}
+		nodes.setRight(c, y);
+		nodes.setParent(y, c);
+		nodes.setParent(c, p);
+		replaceSon(p, y, c);
+		return c;
+	}
+
+	/** function for right-left rotation around y, returns the new subtree root */
+	private int rotate_right_left(int y) {
+		rotate_right(nodes.right(y));
+		return rotate_left(y);
+	}
+
+	/** function for left-right rotation around y, returns the new subtree root */
+	private int rotate_left_right(int y) {
+		rotate_left(nodes.left(y));
+		return rotate_right(y);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		NodeStore nodes = open();
+		int y = TreePosition(k);
+		if (y == NIL || nodes.key(y) != k) {
+			return -1;
+		}
+
+		if (y == this.root && nodes.height(y) == 0) {     // there is only root in the tree and we delete it
+			nodes.release(y);
+			this.root = NIL;
+			this.min_node = NIL;
+			this.max_node = NIL;
+			nodes.maybeCompact();
+			return 0;
+		}
+		if (nodes.left(y) != NIL && nodes.right(y) != NIL) {   // if the node has 2 sons, swap it with its successor
+			int s = CalcMin(nodes.right(y));
+			nodes.swapItems(y, s);
+			y = s;
+		}
+		int son = (nodes.left(y) != NIL) ? nodes.left(y) : nodes.right(y);
+		int p = nodes.parent(y);
+		if (p == NIL) {                                   // node is root and has 1 son, the son is the new root
+			nodes.setParent(son, NIL);
+			nodes.release(y);
+			this.root = son;
+			this.min_node = son;
+			this.max_node = son;
+			nodes.maybeCompact();
+			return 0;
+		}
+		replaceSon(p, y, son);                            // bypass y
+		if (son != NIL) {
+			nodes.setParent(son, p);
+		}
+		nodes.fixSize(p);
+		if (y == this.min_node) {                         // if y was the min we need to update the min
+			this.min_node = CalcMin(p);
+		}
+		if (y == this.max_node) {                         // if y was the max we need to update the max
+			this.max_node = CalcMax(p);
+		}
+		nodes.release(y);
+
+		// Rebalancing Process
+		int steps = DeleteBalance(p);
+		nodes.maybeCompact();
+		return steps;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		NodeStore nodes = open();
+		if (this.root == NIL) {
+			return null;
+		}
+		return nodes.info(this.min_node);
+	}
+
+	/** function to calc the min node in the subtree of node */
+	private int CalcMin(int node) {
+		int left;
+		while ((left = nodes.left(node)) != NIL) {     // go as much left as possible and return the min node
+			node = left;
+		}
+		return node;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		NodeStore nodes = open();
+		if (this.root == NIL) {
+			return null;
+		}
+		return nodes.info(this.max_node);
+	}
+
+	/** function to calc the max node in the subtree of node */
+	private int CalcMax(int node) {
+		int right;
+		while ((right = nodes.right(node)) != NIL) {   // go as much right as possible and return the max node
+			node = right;
+		}
+		return node;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		NodeStore nodes = open();
+		int[] arr = new int[this.size()];
+		int[] stack = new int[nodes.height(this.root) + 2];   // the path from the root to the current node
+		int top = 0;
+		int node = this.root;
+		int i = 0;
+		while (i < arr.length) {                  // in-order walk with an explicit stack, no parent pointers
+			while (node != NIL) {
+				stack[top++] = node;
+				node = nodes.left(node);
+			}
+			node = stack[--top];
+			arr[i++] = nodes.key(node);
+			node = nodes.right(node);
+		}
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		NodeStore nodes = open();
+		String[] arr = new String[this.size()];
+		int[] stack = new int[nodes.height(this.root) + 2];
+		int top = 0;
+		int node = this.root;
+		int i = 0;
+		while (i < arr.length) {                  // same walk as keysToArray
+			while (node != NIL) {
+				stack[top++] = node;
+				node = nodes.left(node);
+			}
+			node = stack[--top];
+			arr[i++] = nodes.info(node);
+			node = nodes.right(node);
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 * <p>
+	 * precondition: none
+	 * postcondition: none
+	 */
+	public int size() {
+		return open().size(this.root);          // the size of NIL is 0
+	}
+
+	/**
+	 * public int getRoot()
+	 * <p>
+	 * Returns the index of the root node, or NIL if the tree is empty.
+	 * Use getKey/getValue/getLeft/getRight/getParent/getHeight to read a node.
+	 */
+	public int getRoot() {
+		return this.root;
+	}
+
+	public int getKey(int node) {
+		return node == NIL ? -1 : open().key(node);
+	}
+
+	public String getValue(int node) {
+		return open().info(node);
+	}
+
+	public int getLeft(int node) {
+		return open().left(node);
+	}
+
+	public int getRight(int node) {
+		return open().right(node);
+	}
+
+	public int getParent(int node) {
+		return open().parent(node);
+	}
+
+	public int getHeight(int node) {
+		return open().height(node);
+	}
+
+	public boolean isRealNode(int node) {
+		return node != NIL;
+	}
+
+	/**
+	 * public OffHeapAVLTree[] split(int x)
+	 * <p>
+	 * splits the tree into 2 trees according to the key x.
+	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
+	 * Both trees share the memory of this tree, every ancestor of x is reused in place.
+	 * Close both of them to free the memory.
+	 * precondition: search(x) != null (i.e. you can also assume that the tree is not empty)
+	 * postcondition: this tree is closed
+	 */
+	public OffHeapAVLTree[] split(int x) {
+		NodeStore nodes = open();
+		int node = TreePosition(x);
+		OffHeapAVLTree t1 = new OffHeapAVLTree(nodes);     // tree with keys() < x
+		OffHeapAVLTree t2 = new OffHeapAVLTree(nodes);     // tree with keys() > x
+		t1.root = detach(nodes.left(node));
+		t2.root = detach(nodes.right(node));
+
+		// --- now continue all the way to the root and join t1/t2 with the relevant subtree
+		int son = node;
+		int p = nodes.parent(node);
+		while (p != NIL) {
+			int next = nodes.parent(p);
+			if (nodes.right(p) == son) {                    // if son is right son, p and its left subtree go to t1
+				int sub = detach(nodes.left(p));
+				nodes.reset(p);
+				t1.root = t1.joinNodes(sub, p, t1.root);
+			}
+			else {                                          // if son is left son, p and its right subtree go to t2
+				int sub = detach(nodes.right(p));
+				nodes.reset(p);
+				t2.root = t2.joinNodes(t2.root, p, sub);
+			}
+			son = p;
+			p = next;
+		}
+		nodes.release(node);
+		this.root = NIL;
+		t1.fixMinMax();
+		t2.fixMinMax();
+		nodes.trees.remove(this);                           // t1 and t2 keep the store open
+		this.nodes = null;
+		return new OffHeapAVLTree[] {t1, t2};
+	}
+
+	/**
+	 * public join(int k, String i, OffHeapAVLTree t)
+	 * <p>
+	 * joins t and the item (k, i) with the tree.
+	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1).
+	 * If t uses other memory its nodes are copied into the memory of this tree first, in O(|t|).
+	 * precondition: keys(x,t) < keys() or keys(x,t) > keys(). t/tree might be empty (rank = -1).
+	 * postcondition: t is closed
+	 */
+	public int join(int k, String i, OffHeapAVLTree t) {
+		NodeStore nodes = open();
+		NodeStore t_nodes = t.open();
+		int t_root = (t_nodes == nodes) ? t.root : copyFrom(t_nodes, t.root);
+		int this_height = nodes.height(this.root);
+		int t_height = nodes.height(t_root);
+		int rank_diff_res;
+		if (this.root == NIL && t_root == NIL) {
+			rank_diff_res = 1;
+		}
+		else if (this.root == NIL) {
+			rank_diff_res = t_height + 1;
+		}
+		else if (t_root == NIL) {
+			rank_diff_res = this_height + 1;
+		}
+		else {
+			rank_diff_res = Math.abs(this_height - t_height) + 1;
+		}
+
+		int x = nodes.allocate(k, i);
+		boolean this_smaller = (this.root != NIL) ? nodes.key(this.root) < k : (t_root == NIL || k < nodes.key(t_root));
+		if (this_smaller) {                                 // keys() < k < keys(t)
+			this.root = joinNodes(this.root, x, t_root);
+		} else {                                            // keys(t) < k < keys()
+			this.root = joinNodes(t_root, x, this.root);
+		}
+		if (t_nodes == nodes) {                             // the nodes of t are ours now
+			t.root = NIL;
+		}
+		t.close();
+		fixMinMax();
+		return rank_diff_res;
+	}
+
+	/**
+	 * joins the subtrees a and b (roots without a parent, keys(a) < key(x) < keys(b))
+	 * with the single node x, and returns the root of the result.
+	 */
+	private int joinNodes(int a, int x, int b) {
+		NodeStore nodes = this.nodes;
+		int ha = nodes.height(a);
+		int hb = nodes.height(b);
+
+		if (Math.abs(ha - hb) <= 1) {                   // heights are close, x is the new root
+			link(x, a, b);
+			nodes.setParent(x, NIL);
+			this.root = x;
+			return x;
+		}
+		int c;
+		int p = NIL;                                    // c may end up NIL when the shorter side is empty, so keep its parent
+		if (ha > hb) {                                  // go down the right spine of a
+			c = a;
+			while (nodes.height(c) > hb + 1) {
+				p = c;
+				c = nodes.right(c);
+			}
+			link(x, c, b);
+			nodes.setRight(p, x);
+			nodes.setParent(x, p);
+			this.root = a;
+		}
+		else {                                          // go down the left spine of b
+			c = b;
+			while (nodes.height(c) > ha + 1) {
+				p = c;
+				c = nodes.left(c);
+			}
+			link(x, a, c);
+			nodes.setLeft(p, x);
+			nodes.setParent(x, p);
+			this.root = b;
+		}
+		InsertBalance(nodes.parent(x));
+		return this.root;
+	}
+
+	/** function that makes l and r the sons of x and fixes its height and size */
+	private void link(int x, int l, int r) {
+		nodes.setLeft(x, l);
+		nodes.setRight(x, r);
+		if (l != NIL) {
+			nodes.setParent(l, x);
+		}
+		if (r != NIL) {
+			nodes.setParent(r, x);
+		}
+		nodes.setHeight(x, Math.max(nodes.height(l), nodes.height(r)) + 1);
+		nodes.fixSize(x);
+	}
+
+	/** function that cuts node from its parent and returns it */
+	private int detach(int node) {
+		if (node != NIL) {
+			nodes.setParent(node, NIL);
+		}
+		return node;
+	}
+
+	/** function that recalculates the min and max references */
+	private void fixMinMax() {
+		if (this.root == NIL) {
+			this.min_node = NIL;
+			this.max_node = NIL;
+		} else {
+			this.min_node = CalcMin(this.root);
+			this.max_node = CalcMax(this.root);
+		}
+	}
+
+	/** function that copies the subtree of node (in the store other) into this store, returns the copy */
+	private int copyFrom(NodeStore other, int node) {
+		if (node == NIL) {
+			return NIL;
+		}
+		int copy = nodes.allocate(other.key(node), other.info(node));
+		int l = copyFrom(other, other.left(node));
+		int r = copyFrom(other, other.right(node));
+		link(copy, l, r);
+		return copy;
+	}
+
+	/** function that gives every node in the subtree of node back to the store */
+	private void releaseAll(int node) {
+		if (node == NIL) {
+			return;
+		}
+		int[] stack = new int[nodes.height(node) + 2];
+		int top = 0;
+		stack[top++] = node;
+		while (top > 0) {                         // pre-order: the sons are read before the node is released
+			node = stack[--top];
+			int l = nodes.left(node);
+			int r = nodes.right(node);
+			if (r != NIL) {
+				stack[top++] = r;
+			}
+			if (l != NIL) {
+				stack[top++] = l;
+			}
+			nodes.release(node);
+		}
+	}
+
+	/** return the position we need to insert the node in the tree (the node itself if the key exists),
+	 * or NIL if the tree is empty
+	 */
+	private int TreePosition(int k) {
+		NodeStore nodes = this.nodes;
+		int x = this.root;
+		int y = NIL;
+		while (x != NIL) {
+			y = x;
+			int x_key = nodes.key(x);
+			if (k == x_key) {
+				return x;
+			}
+			x = (k < x_key) ? nodes.left(x) : nodes.right(x);
+		}
+		return y;
+	}
+
+	/** returns the store of the tree, or throws if the tree was closed */
+	private NodeStore open() {
+		NodeStore nodes = this.nodes;
+		if (nodes == null) {
+			throw new IllegalStateException("the tree is closed");
+		}
+		return nodes;
+	}
+
+	/**
+	 * NodeStore
+	 * <p>
+	 * The off-heap nodes of one or more trees, in slabs of 2^16 nodes of 32 bytes.
+	 * Slot 0 is NIL. Freed slots are chained through the left field and reused first.
+	 */
+	static final class NodeStore {
+		static final int SLAB_SHIFT = 16;
+		static final int SLAB_MASK = (1 << SLAB_SHIFT) - 1;
+		static final int NODE_SHIFT = 5;       // 32 bytes per node
+		static final int KEY = 0;
+		static final int LEFT = 4;
+		static final int RIGHT = 8;
+		static final int PARENT = 12;
+		static final int SIZE = 16;
+		static final int HEIGHT = 20;
+		static final int INFO = 24;            // a reference into the InfoArea (8 bytes)
+
+		final ArrayList<OffHeapAVLTree> trees = new ArrayList<>();   // the open trees using this store
+		private ByteBuffer[] slabs = new ByteBuffer[4];
+		private InfoArea infos = new InfoArea();
+		private int next = 1;                  // first slot that was never used
+		private int free = NIL;                // head of the list of freed slots
+
+		NodeStore() {
+			slabs[0] = allocateDirect(1 << (SLAB_SHIFT + NODE_SHIFT));
+			setHeight(NIL, -1);                // all the other fields of NIL are 0
+			setInfoRef(NIL, InfoArea.NO_INFO);
+		}
+
+		int key(int node) {
+			return slabs[node >>> SLAB_SHIFT].getInt(((node & SLAB_MASK) << NODE_SHIFT) + KEY);
+		}
+
+		int left(int node) {
+			return slabs[node >>> SLAB_SHIFT].getInt(((node & SLAB_MASK) << NODE_SHIFT) + LEFT);
+		}
+
+		int right(int node) {
+			return slabs[node >>> SLAB_SHIFT].getInt(((node & SLAB_MASK) << NODE_SHIFT) + RIGHT);
+		}
+
+		int parent(int node) {
+			return slabs[node >>> SLAB_SHIFT].getInt(((node & SLAB_MASK) << NODE_SHIFT) + PARENT);
+		}
+
+		int size(int node) {
+			return slabs[node >>> SLAB_SHIFT].getInt(((node & SLAB_MASK) << NODE_SHIFT) + SIZE);
+		}
+
+		int height(int node) {
+			return slabs[node >>> SLAB_SHIFT].getInt(((node & SLAB_MASK) << NODE_SHIFT) + HEIGHT);
+		}
+
+		String info(int node) {
+			return infos.get(infoRef(node));
+		}
+
+		private long infoRef(int node) {
+			return slabs[node >>> SLAB_SHIFT].getLong(((node & SLAB_MASK) << NODE_SHIFT) + INFO);
+		}
+
+		void setKey(int node, int k) {
+			slabs[node >>> SLAB_SHIFT].putInt(((node & SLAB_MASK) << NODE_SHIFT) + KEY, k);
+		}
+
+		void setLeft(int node, int son) {
+			slabs[node >>> SLAB_SHIFT].putInt(((node & SLAB_MASK) << NODE_SHIFT) + LEFT, son);
+		}
+
+		void setRight(int node, int son) {
+			slabs[node >>> SLAB_SHIFT].putInt(((node & SLAB_MASK) << NODE_SHIFT) + RIGHT, son);
+		}
+
+		void setParent(int node, int p) {
+			slabs[node >>> SLAB_SHIFT].putInt(((node & SLAB_MASK) << NODE_SHIFT) + PARENT, p);
+		}
+
+		void setSize(int node, int s) {
+			slabs[node >>> SLAB_SHIFT].putInt(((node & SLAB_MASK) << NODE_SHIFT) + SIZE, s);
+		}
+
+		void setHeight(int node, int h) {
+			slabs[node >>> SLAB_SHIFT].putInt(((node & SLAB_MASK) << NODE_SHIFT) + HEIGHT, h);
+		}
+
+		private void setInfoRef(int node, long ref) {
+			slabs[node >>> SLAB_SHIFT].putLong(((node & SLAB_MASK) << NODE_SHIFT) + INFO, ref);
+		}
+
+		/** returns a new leaf with key k and info i */
+		int allocate(int k, String i) {
+			int node;
+			if (free != NIL) {
+				node = free;
+				free = left(node);
+			} else {
+				int s = next >>> SLAB_SHIFT;
+				if (s == slabs.length) {
+					slabs = Arrays.copyOf(slabs, s * 2);
+				}
+				if (slabs[s] == null) {                  // first node of a new slab
+					slabs[s] = allocateDirect(1 << (SLAB_SHIFT + NODE_SHIFT));
+				}
+				node = next++;
+			}
+			setKey(node, k);
+			setInfoRef(node, infos.add(i));
+			reset(node);
+			return node;
+		}
+
+		/** turns node into a single leaf with no parent */
+		void reset(int node) {
+			setLeft(node, NIL);
+			setRight(node, NIL);
+			setParent(node, NIL);
+			setHeight(node, 0);
+			setSize(node, 1);
+		}
+
+		void release(int node) {
+			infos.remove(infoRef(node));
+			setInfoRef(node, InfoArea.NO_INFO);
+			setLeft(node, free);
+			free = node;
+		}
+
+		void swapItems(int a, int b) {
+			int k = key(a);
+			setKey(a, key(b));
+			setKey(b, k);
+			long i = infoRef(a);
+			setInfoRef(a, infoRef(b));
+			setInfoRef(b, i);
+		}
+
+		void fixSize(int node) {
+			setSize(node, size(left(node)) + size(right(node)) + 1);
+		}
+
+		long bytes() {
+			long n = 0;
+			for (ByteBuffer slab : slabs) {
+				if (slab != null) {
+					n += slab.capacity();
+				}
+			}
+			return n + infos.bytes();
+		}
+
+		/** moves the infos of all the open trees to a new area if most of the old one is garbage */
+		void maybeCompact() {
+			if (!infos.mostlyGarbage()) {
+				return;
+			}
+			InfoArea old = infos;
+			InfoArea compact = new InfoArea();
+			for (OffHeapAVLTree tree : trees) {
+				int root = tree.root;
+				if (root == NIL) {
+					continue;
+				}
+				int[] stack = new int[height(root) + 2];
+				int top = 0;
+				stack[top++] = root;
+				while (top > 0) {
+					int node = stack[--top];
+					setInfoRef(node, compact.copy(old, infoRef(node)));
+					if (left(node) != NIL) {
+						stack[top++] = left(node);
+					}
+					if (right(node) != NIL) {
+						stack[top++] = right(node);
+					}
+				}
+			}
+			infos = compact;
+			old.free();
+		}
+
+		/** frees all the memory, the store must not be used anymore */
+		void free() {
+			for (int s = 0; s < slabs.length; s++) {
+				if (slabs[s] != null) {
+					freeDirect(slabs[s]);
+					slabs[s] = null;
+				}
+			}
+			infos.free();
+		}
+	}
+
+	/**
+	 * InfoArea
+	 * <p>
+	 * The infos as UTF-8 records (4 bytes length + bytes), appended to 1MB slabs.
+	 * A reference is slab << 32 | position. Removed records stay in place as garbage
+	 * until the store compacts the area.
+	 */
+	static final class InfoArea {
+		static final long NO_INFO = -1;        // the reference of a null info
+		static final int SLAB_BYTES = 1 << 20;
+
+		private ByteBuffer[] slabs = new ByteBuffer[4];
+		private int count = 0;                 // slabs in use
+		private int current = -1;              // the slab new records are appended to
+		private int pos = SLAB_BYTES;          // where the next record goes in the current slab
+		private long live = 0;                 // bytes of the records in use
+		private long garbage = 0;              // bytes of removed records
+
+		long add(String i) {
+			if (i == null) {
+				return NO_INFO;
+			}
+			byte[] bytes = i.getBytes(StandardCharsets.UTF_8);
+			long ref = reserve(4 + bytes.length);
+			ByteBuffer slab = slabs[(int) (ref >>> 32)];
+			slab.putInt((int) ref, bytes.length);
+			slab.put((int) ref + 4, bytes);
+			return ref;
+		}
+
+		/** copies the record ref of the area from into this area, returns the new reference */
+		long copy(InfoArea from, long ref) {
+			if (ref == NO_INFO) {
+				return NO_INFO;
+			}
+			ByteBuffer src = from.slabs[(int) (ref >>> 32)];
+			int src_pos = (int) ref;
+			int length = 4 + src.getInt(src_pos);
+			long copy = reserve(length);
+			slabs[(int) (copy >>> 32)].put((int) copy, src, src_pos, length);
+			return copy;
+		}
+
+		String get(long ref) {
+			if (ref == NO_INFO) {
+				return null;
+			}
+			ByteBuffer slab = slabs[(int) (ref >>> 32)];
+			int p = (int) ref;
+			byte[] bytes = new byte[slab.getInt(p)];
+			slab.get(p + 4, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		void remove(long ref) {
+			if (ref == NO_INFO) {
+				return;
+			}
+			int length = 4 + slabs[(int) (ref >>> 32)].getInt((int) ref);
+			live -= length;
+			garbage += length;
+		}
+
+		boolean mostlyGarbage() {
+			return garbage >= SLAB_BYTES && garbage > live;
+		}
+
+		long bytes() {
+			long n = 0;
+			for (int s = 0; s < count; s++) {
+				n += slabs[s].capacity();
+			}
+			return n;
+		}
+
+		/** returns the reference of length new bytes, at the end of the current slab or in a new one */
+		private long reserve(int length) {
+			live += length;
+			if (length > SLAB_BYTES) {             // a slab of its own, the current slab stays the same
+				return (long) addSlab(length) << 32;
+			}
+			if (this.pos + length > SLAB_BYTES) {
+				this.current = addSlab(SLAB_BYTES);
+				this.pos = 0;
+			}
+			long ref = ((long) this.current << 32) | this.pos;
+			this.pos += length;
+			return ref;
+		}
+
+		private int addSlab(int bytes) {
+			if (count == slabs.length) {
+				slabs = Arrays.copyOf(slabs, count * 2);
+			}
+			slabs[count] = allocateDirect(bytes);
+			return count++;
+		}
+
+		void free() {
+			for (int s = 0; s < count; s++) {
+				freeDirect(slabs[s]);
+				slabs[s] = null;
+			}
+			count = 0;
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// direct buffers. Java 17 has no final Foreign Memory API (Arena/MemorySegment), so the slabs are
+	// direct ByteBuffers, and close() frees them at once with sun.misc.Unsafe.invokeCleaner when it is
+	// available; otherwise their memory goes back when the GC collects them.
+
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invoke_cleaner = null;
+		try {
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafe = f.get(null);
+			invoke_cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			unsafe = null;
+			invoke_cleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invoke_cleaner;
+	}
+
+	private static ByteBuffer allocateDirect(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	private static void freeDirect(ByteBuffer buffer) {
+		if (INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException e) {
+			// leave it to the GC
+		}
+	}
+}
@@ -0,0 +1,716 @@
+/**
+ *
+ * PathAVLTree
+ *
+ * An implementation of a AVL Tree with
+ * distinct integer keys and info, whose nodes have no parent pointer.
+ *
+ * Every update records its root-to-leaf descent in a stack of nodes that the tree keeps and reuses,
+ * and rebalances bottom-up by popping it: the parent of path[i] is path[i - 1], and a rotation
+ * reconnects the new subtree root to it by comparing references (no isLeftSon key comparisons).
+ * So a rotation writes 3 son references instead of up to 6 son and parent references, and
+ * a node is key, info, left, right, height, size: 40 bytes against the 48 bytes of an AVLNode
+ * (with compressed oops, no parent and no outer-class pointer).
+ *
+ * The operations and their return values are the same as in AVLTree. The exports walk the tree
+ * with the same stack, so they allocate only the result.
+ *
+ */
+
+public class PathAVLTree {
+
+	static final int MAX_HEIGHT = 64;          // an AVL tree of 2^31 nodes is less than 45 high
+	private Node root;                         // null when the tree is empty
+	private Node min_node;
+	private Node max_node;
+	private final Node[] path = new Node[MAX_HEIGHT];   // the descent of the current operation
+
+	// constructor
+	public PathAVLTree() {
+		this.root = null;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		Node node = this.root;
+		while (node != null) {
+			if (node.key == k) {
+				return node.info;
+			}
+			node = (k < node.key) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		if (this.root == null) {                   // if the tree is empty insert the node as the root and return 0
+			Node node = new Node(k, i);
+			this.root = node;
+			this.min_node = node;
+			this.max_node = node;
+			return 0;
+		}
+		Node[] path = this.path;
+		int top = 0;
+		Node x = this.root;
+		while (x != null) {                        // record the descent down to the insertion point
+			if (k == x.key) {                      // if the key already exists return -1
+				return -1;
+			}
+			path[top++] = x;
+			x = (k < x.key) ? x.left : x.right;
+		}
+		Node y = path[top - 1];
+		Node node = new Node(k, i);
+		if (k < y.key) {                           // insert node as left son
+			y.left = node;
+		} else {                                   // insert node as right son
+			y.right = node;
+		}
+		if (k < this.min_node.key) {               // check if needed to update the min reference
+			this.min_node = node;
+		}
+		if (k > this.max_node.key) {               // check if needed to update the max reference
+			this.max_node = node;
+		}
+
+		if (y.height == 0) {                       // if y was a leaf we need to rebalance the tree
+			return InsertBalance(top - 1);
+		}
+		fixSizes(top - 1);                         // y is still balanced, only the sizes on the path change
+		return 0;
+	}
+
+	/** function for rebalance after insertion (and join), starting at path[i] */
+	private int InsertBalance(int i) {
+		Node[] path = this.path;
+		int steps = 0;
+		while (true) {
+			Node y = path[i];
+			int h = y.height;
+			int l = h - height(y.left);                 // rank differences between y and its sons
+			int r = h - height(y.right);
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if ((l == 0 && r == 1) || (l == 1 && r == 0)) {   // 0-1 or 1-0: promote y and continue up
+				y.height = h + 1;
+				steps++;
+				y.fixSize();
+			}
+			else if (l == 0) {                                  // 0-2 node
+				Node c = y.left;
+				int ch = c.height;
+				int cl = ch - height(c.left);
+				int cr = ch - height(c.right);
+				if (cl == 1 && cr == 2) {                       // single rotation right
+					replace(i, y, rotate_right(y));
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // double rotation: left-right
+					Node g = c.right;
+					replace(i, y, rotate_left_right(y));
+					g.height++;
+					c.height = ch - 1;
+					y.height = h - 1;
+					c.fixSize();
+					y.fixSize();
+					g.fixSize();
+					steps += 5;
+					break;
+				}
+				// 1-1 son, only after join: rotate right, the son is promoted and the problem may move up
+				replace(i, y, rotate_right(y));
+				c.height = ch + 1;
+				y.fixSize();
+				c.fixSize();
+				steps += 2;
+			}
+			else {                                              // 2-0 node
+				Node c = y.right;
+				int ch = c.height;
+				int cl = ch - height(c.left);
+				int cr = ch - height(c.right);
+				if (cl == 2 && cr == 1) {                       // single rotation left
+					replace(i, y, rotate_left(y));
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // double rotation: right-left
+					Node g = c.left;
+					replace(i, y, rotate_right_left(y));
+					g.height++;
+					c.height = ch - 1;
+					y.height = h - 1;
+					c.fixSize();
+					y.fixSize();
+					g.fixSize();
+					steps += 5;
+					break;
+				}
+				// 1-1 son, only after join: rotate left, the son is promoted and the problem may move up
+				replace(i, y, rotate_left(y));
+				c.height = ch + 1;
+				y.fixSize();
+				c.fixSize();
+				steps += 2;
+			}
+			if (i == 0) {                               // if we are in the root, exit loop
+				break;
+			}
+			i--;
+		}
+		fixSizes(i);
+		return steps;
+	}
+
+	/** function for rebalance after deletion, starting at path[i] */
+	private int DeleteBalance(int i) {
+		Node[] path = this.path;
+		int steps = 0;
+		while (true) {
+			Node y = path[i];
+			int h = y.height;
+			int l = h - height(y.left);                 // rank differences between y and its sons
+			int r = h - height(y.right);
+			if ((l == 1 && r == 1) || (l == 1 && r == 2) || (l == 2 && r == 1)) {
+				break;
+			}
+			if (l == 2 && r == 2) {                             // 2-2 node: demote y
+				y.height = h - 1;
+				y.fixSize();
+				steps++;
+			}
+			else if (l == 3) {                                  // 3-1 node
+				Node c = y.right;
+				int ch = c.height;
+				int cl = ch - height(c.left);
+				int cr = ch - height(c.right);
+				if (cl == 1 && cr == 1) {                       // rotate left and stop
+					replace(i, y, rotate_left(y));
+					c.height = ch + 1;
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 3;
+					break;
+				}
+				if (cl == 2 && cr == 1) {                       // rotate left, y demoted twice
+					replace(i, y, rotate_left(y));
+					y.height = h - 2;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+				}
+				else {                                          // 1-2 son: double rotation right-left
+					Node g = c.left;
+					replace(i, y, rotate_right_left(y));
+					g.height++;
+					y.height = h - 2;
+					c.height = ch - 1;
+					y.fixSize();
+					c.fixSize();
+					g.fixSize();
+					steps += 5;
+				}
+			}
+			else {                                              // 1-3 node
+				Node c = y.left;
+				int ch = c.height;
+				int cl = ch - height(c.left);
+				int cr = ch - height(c.right);
+				if (cl == 1 && cr == 1) {                       // rotate right and stop
+					replace(i, y, rotate_right(y));
+					c.height = ch + 1;
+					y.height = h - 1;
+					y.fixSize();
+					c.fixSize();
+					steps += 3;
+					break;
+				}
+				if (cl == 1 && cr == 2) {                       // rotate right, y demoted twice
+					replace(i, y, rotate_right(y));
+					y.height = h - 2;
+					y.fixSize();
+					c.fixSize();
+					steps += 2;
+				}
+				else {                                          // 2-1 son: double rotation left-right
+					Node g = c.right;
+					replace(i, y, rotate_left_right(y));
+					g.height++;
+					y.height = h - 2;
+					c.height = ch - 1;
+					y.fixSize();
+					c.fixSize();
+					g.fixSize();
+					steps += 5;
+				}
+			}
+			if (i == 0) {                               // if we are in the root, exit loop
+				break;
+			}
+			i--;
+		}
+		fixSizes(i);
+		return steps;
+	}
+
+	/** function that fixes the size field of path[i] and all the nodes above it on the path */
+	private void fixSizes(int i) {
+		Node[] path = this.path;
+		for (; i >= 0; i--) {
+			path[i].fixSize();
+		}
+	}
+
+	/** function that puts new_son in place of path[i] == old_son, under path[i - 1] (or as the root) */
+	private void replace(int i, Node old_son, Node new_son) {
+		if (i == 0) {
+			this.root = new_son;
+		}
+		else {
+			Node p = this.path[i - 1];
+			if (p.left == old_son) {
+				p.left = new_son;
+			}
+			else {
+				p.right = new_son;
+			}
+		}
+		this.path[i] = new_son;
+	}
+
+	/** function for left rotation around y, returns the new subtree root */
+	private static Node rotate_left(Node y) {
+		Node c = y.right;
+		y.right = c.left;
+		c.left = y;
+		return c;
+	}
+
+	/** function for right rotation around y, returns the new subtree root */
+	private static Node rotate_right(Node y) {
+		Node c = y.left;
+		y.left = c.right;
+		c.right = y;
+		return c;
+	}
+
+	/** function for right-left rotation around y, returns the new subtree root */
+	private static Node rotate_right_left(Node y) {
+		y.right = rotate_right(y.right);
+		return rotate_left(y);
+	}
+
+	/** function for left-right rotation around y, returns the new subtree root */
+	private static Node rotate_left_right(Node y) {
+		y.left = rotate_left(y.left);
+		return rotate_right(y);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		Node[] path = this.path;
+		int top = 0;
+		Node y = this.root;
+		while (y != null && y.key != k) {             // record the descent down to k
+			path[top++] = y;
+			y = (k < y.key) ? y.left : y.right;
+		}
+		if (y == null) {
+			return -1;
+		}
+		if (y.left != null && y.right != null) {      // if the node has 2 sons, swap it with its successor
+			path[top++] = y;
+			Node s = y.right;
+			while (s.left != null) {
+				path[top++] = s;
+				s = s.left;
+			}
+			s.swapItems(y);
+			y = s;
+		}
+		Node son = (y.left != null) ? y.left : y.right;
+		if (top == 0) {                               // y is the root with at most 1 son, the son is the new root
+			this.root = son;
+			this.min_node = son;
+			this.max_node = son;
+			return 0;
+		}
+		Node p = path[top - 1];
+		if (p.left == y) {                            // bypass y
+			p.left = son;
+		}
+		else {
+			p.right = son;
+		}
+		p.fixSize();
+		if (y == this.min_node) {                     // if y was the min we need to update the min
+			this.min_node = CalcMin(p);
+		}
+		if (y == this.max_node) {                     // if y was the max we need to update the max
+			this.max_node = CalcMax(p);
+		}
+
+		// Rebalancing Process
+		return DeleteBalance(top - 1);
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		return (this.root == null) ? null : this.min_node.info;
+	}
+
+	/** function to calc the min node in the subtree of node */
+	private static Node CalcMin(Node node) {
+		while (node.left != null) {      // go as much left as possible and return the min node
+			node = node.left;
+		}
+		return node;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		return (this.root == null) ? null : this.max_node.info;
+	}
+
+	/** function to calc the max node in the subtree of node */
+	private static Node CalcMax(Node node) {
+		while (node.right != null) {     // go as much right as possible and return the max node
+			node = node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		Node[] stack = this.path;
+		int[] arr = new int[this.size()];
+		int top = 0;
+		Node node = this.root;
+		int i = 0;
+		while (i < arr.length) {                  // in-order walk on the path stack
+			while (node != null) {
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			arr[i++] = node.key;
+			node = node.right;
+		}
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		Node[] stack = this.path;
+		String[] arr = new String[this.size()];
+		int top = 0;
+		Node node = this.root;
+		int i = 0;
+		while (i < arr.length) {                  // same walk as keysToArray
+			while (node != null) {
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			arr[i++] = node.info;
+			node = node.right;
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 * <p>
+	 * precondition: none
+	 * postcondition: none
+	 */
+	public int size() {
+		return size(this.root);
+	}
+
+	/**
+	 * public Node getRoot()
+	 * <p>
+	 * Returns the root node, or null if the tree is empty
+	 */
+	public Node getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * public PathAVLTree[] split(int x)
+	 * <p>
+	 * splits the tree into 2 trees according to the key x.
+	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
+	 * Every ancestor of x is reused in place.
+	 * precondition: search(x) != null (i.e. you can also assume that the tree is not empty)
+	 * postcondition: this tree must not be used anymore
+	 */
+	public PathAVLTree[] split(int x) {
+		Node[] path = this.path;
+		int top = 0;
+		Node node = this.root;
+		while (node.key != x) {                             // record the ancestors of x
+			path[top++] = node;
+			node = (x < node.key) ? node.left : node.right;
+		}
+		PathAVLTree t1 = new PathAVLTree();                 // tree with keys() < x
+		PathAVLTree t2 = new PathAVLTree();                 // tree with keys() > x
+		t1.root = node.left;
+		t2.root = node.right;
+
+		// --- now continue all the way to the root and join t1/t2 with the relevant subtree
+		Node son = node;
+		for (int i = top - 1; i >= 0; i--) {
+			Node p = path[i];
+			if (p.right == son) {                           // if son is right son, p and its left subtree go to t1
+				Node sub = p.left;
+				p.reset();
+				t1.joinNodes(sub, p, t1.root);
+			}
+			else {                                          // if son is left son, p and its right subtree go to t2
+				Node sub = p.right;
+				p.reset();
+				t2.joinNodes(t2.root, p, sub);
+			}
+			son = p;
+		}
+		this.root = null;
+		t1.fixMinMax();
+		t2.fixMinMax();
+		return new PathAVLTree[] {t1, t2};
+	}
+
+	/**
+	 * public join(int k, String i, PathAVLTree t)
+	 * <p>
+	 * joins t and the item (k, i) with the tree.
+	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1).
+	 * precondition: keys(x,t) < keys() or keys(x,t) > keys(). t/tree might be empty (rank = -1).
+	 * postcondition: t must not be used anymore
+	 */
+	public int join(int k, String i, PathAVLTree t) {
+		int this_height = height(this.root);
+		int t_height = height(t.root);
+		int rank_diff_res;
+		if (this.root == null && t.root == null) {
+			rank_diff_res = 1;
+		}
+		else if (this.root == null) {
+			rank_diff_res = t_height + 1;
+		}
+		else if (t.root == null) {
+			rank_diff_res = this_height + 1;
+		}
+		else {
+			rank_diff_res = Math.abs(this_height - t_height) + 1;
+		}
+
+		Node x = new Node(k, i);
+		boolean this_smaller = (this.root != null) ? this.root.key < k : (t.root == null || k < t.root.key);
+		if (this_smaller) {                                 // keys() < k < keys(t)
+			joinNodes(this.root, x, t.root);
+		} else {                                            // keys(t) < k < keys()
+			joinNodes(t.root, x, this.root);
+		}
+		t.root = null;
+		fixMinMax();
+		return rank_diff_res;
+	}
+
+	/**
+	 * joins the subtrees a and b (keys(a) < key(x) < keys(b)) with the single node x
+	 * into the root of this tree. The spine walk goes on the path stack, so InsertBalance
+	 * can climb it.
+	 */
+	private void joinNodes(Node a, Node x, Node b) {
+		int ha = height(a);
+		int hb = height(b);
+
+		if (Math.abs(ha - hb) <= 1) {                   // heights are close, x is the new root
+			link(x, a, b);
+			this.root = x;
+			return;
+		}
+		Node[] path = this.path;
+		int top = 0;
+		Node c;
+		if (ha > hb) {                                  // go down the right spine of a
+			c = a;
+			while (height(c) > hb + 1) {
+				path[top++] = c;
+				c = c.right;
+			}
+			link(x, c, b);
+			path[top - 1].right = x;
+			this.root = a;
+		}
+		else {                                          // go down the left spine of b
+			c = b;
+			while (height(c) > ha + 1) {
+				path[top++] = c;
+				c = c.left;
+			}
+			link(x, a, c);
+			path[top - 1].left = x;
+			this.root = b;
+		}
+		InsertBalance(top - 1);
+	}
+
+	/** function that makes l and r the sons of x and fixes its height and size */
+	private static void link(Node x, Node l, Node r) {
+		x.left = l;
+		x.right = r;
+		x.height = Math.max(height(l), height(r)) + 1;
+		x.fixSize();
+	}
+
+	/** function that recalculates the min and max references */
+	private void fixMinMax() {
+		if (this.root == null) {
+			this.min_node = null;
+			this.max_node = null;
+		} else {
+			this.min_node = CalcMin(this.root);
+			this.max_node = CalcMax(this.root);
+		}
+	}
+
+	/** the height of node, -1 for an external leaf */
+	private static int height(Node node) {
+		return (node == null) ? -1 : node.height;
+	}
+
+	/** the size of the subtree of node, 0 for an external leaf */
+	private static int size(Node node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * public static final class Node
+	 * <p>
+	 * A node of a PathAVLTree: an item, its two sons (null for an external leaf),
+	 * its height and the size of its subtree. There is no parent reference.
+	 */
+	public static final class Node {
+		private int key;
+		private String info;
+		private Node left;
+		private Node right;
+		private int height;
+		private int size;
+
+		private Node(int key, String info) {
+			this.key = key;
+			this.info = info;
+			this.height = 0;
+			this.size = 1;
+		}
+
+		public int getKey() {
+			return this.key;
+		}
+
+		public String getValue() {
+			return this.info;
+		}
+
+		public Node getLeft() {
+			return this.left;
+		}
+
+		public Node getRight() {
+			return this.right;
+		}
+
+		public int getHeight() {
+			return this.height;
+		}
+
+		/** turns the node into a single leaf */
+		private void reset() {
+			this.left = null;
+			this.right = null;
+			this.height = 0;
+			this.size = 1;
+		}
+
+		private void fixSize() {
+			this.size = PathAVLTree.size(this.left) + PathAVLTree.size(this.right) + 1;
+		}
+
+		private void swapItems(Node other) {
+			int k = this.key;
+			this.key = other.key;
+			other.key = k;
+			String i = this.info;
+			this.info = other.info;
+			other.info = i;
+		}
+	}
+}
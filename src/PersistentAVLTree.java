@@ -0,0 +1,361 @@
+/**
+ *
+ * PersistentAVLTree
+ *
+ * An implementation of a persistent AVL Tree with
+ * distinct integer keys and info.
+ *
+ * Nodes are immutable. insert and delete copy only the O(logn) nodes on the
+ * path they change (rotations included) and share every other subtree with
+ * the previous version, so snapshot() is O(1): it only copies the root reference.
+ *
+ * Nodes have no parent pointers (a shared node can have many parents), so every
+ * update is a recursive descent that rebuilds the path on the way back up.
+ *
+ * Threads: updates are synchronized, so there is one writer at a time. Reads never lock:
+ * the root is volatile and the nodes only have final fields, so any thread can read this
+ * tree or any of its snapshots while a writer keeps changing it.
+ *
+ */
+
+public class PersistentAVLTree {
+
+	private volatile Node root;           // null when the tree is empty
+	private int steps;                    // rebalancing operations of the running update (writer only)
+
+	// constructor
+	public PersistentAVLTree() {
+		this.root = null;
+	}
+
+	private PersistentAVLTree(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * public PersistentAVLTree snapshot()
+	 * <p>
+	 * Returns the current version of the tree in O(1). Later updates of this tree do not
+	 * change the snapshot, and updates of the snapshot do not change this tree.
+	 */
+	public PersistentAVLTree snapshot() {
+		return new PersistentAVLTree(this.root);
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		Node node = this.root;
+		while (node != null) {
+			if (node.key == k) {
+				return node.info;
+			}
+			node = (k < node.key) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * promotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public synchronized int insert(int k, String i) {
+		Node old_root = this.root;
+		this.steps = 0;
+		Node new_root = insert(old_root, k, i);
+		if (new_root == old_root) {           // nothing was copied, the key already exists
+			return -1;
+		}
+		this.root = new_root;                 // publish the new version
+		return this.steps;
+	}
+
+	/** returns the new version of the subtree of node with (k, i) in it, or node itself if k is already there */
+	private Node insert(Node node, int k, String i) {
+		if (node == null) {
+			return new Node(k, i, null, null);
+		}
+		if (k == node.key) {
+			return node;
+		}
+		if (k < node.key) {
+			Node left = insert(node.left, k, i);
+			return (left == node.left) ? node : balanceInsert(node, left, node.right);
+		}
+		Node right = insert(node.right, k, i);
+		return (right == node.right) ? node : balanceInsert(node, node.left, right);
+	}
+
+	/** builds a copy of node with the new sons left and right, one of which grew by an insertion */
+	private Node balanceInsert(Node node, Node left, Node right) {
+		int diff = height(left) - height(right);
+		if (diff == 2) {                                   // left side is too high
+			if (height(left.left) >= height(left.right)) {   // rotate right
+				this.steps += 2;
+				return new Node(left.key, left.info, left.left, new Node(node.key, node.info, left.right, right));
+			}
+			this.steps += 5;                               // double rotation: left-right
+			Node g = left.right;
+			return new Node(g.key, g.info,
+					new Node(left.key, left.info, left.left, g.left),
+					new Node(node.key, node.info, g.right, right));
+		}
+		if (diff == -2) {                                  // right side is too high
+			if (height(right.right) >= height(right.left)) { // rotate left
+				this.steps += 2;
+				return new Node(right.key, right.info, new Node(node.key, node.info, left, right.left), right.right);
+			}
+			this.steps += 5;                               // double rotation: right-left
+			Node g = right.left;
+			return new Node(g.key, g.info,
+					new Node(node.key, node.info, left, g.left),
+					new Node(right.key, right.info, g.right, right.right));
+		}
+		Node copy = new Node(node.key, node.info, left, right);
+		if (copy.height > node.height) {                   // promotion
+			this.steps++;
+		}
+		return copy;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * demotion/rotation - counted as one rebalnce operation, double-rotation is counted as 2.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public synchronized int delete(int k) {
+		Node old_root = this.root;
+		this.steps = 0;
+		Node new_root = delete(old_root, k);
+		if (new_root == old_root) {           // nothing was copied, the key is not in the tree
+			return -1;
+		}
+		this.root = new_root;                 // publish the new version
+		return this.steps;
+	}
+
+	/** returns the new version of the subtree of node without k, or node itself if k is not there */
+	private Node delete(Node node, int k) {
+		if (node == null) {
+			return null;
+		}
+		if (k < node.key) {
+			Node left = delete(node.left, k);
+			return (left == node.left) ? node : balanceDelete(node, node.key, node.info, left, node.right);
+		}
+		if (k > node.key) {
+			Node right = delete(node.right, k);
+			return (right == node.right) ? node : balanceDelete(node, node.key, node.info, node.left, right);
+		}
+		if (node.left == null) {              // node has at most one son, the son takes its place
+			return node.right;
+		}
+		if (node.right == null) {
+			return node.left;
+		}
+		Node s = node.right;                  // 2 sons: the successor takes the place of node
+		while (s.left != null) {
+			s = s.left;
+		}
+		return balanceDelete(node, s.key, s.info, node.left, deleteMin(node.right));
+	}
+
+	/** returns the new version of the subtree of node without its min */
+	private Node deleteMin(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		return balanceDelete(node, node.key, node.info, deleteMin(node.left), node.right);
+	}
+
+	/** builds the item (key, info) with the sons left and right, one of which got lower by a deletion.
+	 *  node is the old version, used to detect a demotion */
+	private Node balanceDelete(Node node, int key, String info, Node left, Node right) {
+		int diff = height(left) - height(right);
+		if (diff == -2) {                                  // 3-1 node: the right side is too high
+			int rl = height(right.left);
+			int rr = height(right.right);
+			if (rl <= rr) {                                // rotate left
+				this.steps += (rl == rr) ? 3 : 2;
+				return new Node(right.key, right.info, new Node(key, info, left, right.left), right.right);
+			}
+			this.steps += 5;                               // double rotation: right-left
+			Node g = right.left;
+			return new Node(g.key, g.info,
+					new Node(key, info, left, g.left),
+					new Node(right.key, right.info, g.right, right.right));
+		}
+		if (diff == 2) {                                   // 1-3 node: the left side is too high
+			int ll = height(left.left);
+			int lr = height(left.right);
+			if (lr <= ll) {                                // rotate right
+				this.steps += (ll == lr) ? 3 : 2;
+				return new Node(left.key, left.info, left.left, new Node(key, info, left.right, right));
+			}
+			this.steps += 5;                               // double rotation: left-right
+			Node g = left.right;
+			return new Node(g.key, g.info,
+					new Node(left.key, left.info, left.left, g.left),
+					new Node(key, info, g.right, right));
+		}
+		Node copy = new Node(key, info, left, right);
+		if (copy.height < node.height) {                   // demotion
+			this.steps++;
+		}
+		return copy;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty. O(logn), the version has no min reference.
+	 */
+	public String min() {
+		Node node = this.root;
+		if (node == null) {
+			return null;
+		}
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node.info;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty. O(logn), the version has no max reference.
+	 */
+	public String max() {
+		Node node = this.root;
+		if (node == null) {
+			return null;
+		}
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node.info;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		Node r = this.root;                    // read the version once
+		int[] arr = new int[size(r)];
+		Node[] stack = new Node[height(r) + 2];
+		int top = 0;
+		Node node = r;
+		int i = 0;
+		while (i < arr.length) {               // in-order walk with an explicit stack
+			while (node != null) {
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			arr[i++] = node.key;
+			node = node.right;
+		}
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		Node r = this.root;
+		String[] arr = new String[size(r)];
+		Node[] stack = new Node[height(r) + 2];
+		int top = 0;
+		Node node = r;
+		int i = 0;
+		while (i < arr.length) {               // same walk as keysToArray
+			while (node != null) {
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			arr[i++] = node.info;
+			node = node.right;
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return size(this.root);
+	}
+
+	/**
+	 * public int getHeight()
+	 * <p>
+	 * Returns the height of the tree (-1 if it is empty).
+	 */
+	public int getHeight() {
+		return height(this.root);
+	}
+
+	private static int height(Node node) {
+		return (node == null) ? -1 : node.height;
+	}
+
+	private static int size(Node node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * An immutable node. Its height and size are computed from its sons when it is built.
+	 */
+	private static final class Node {
+		final int key;
+		final String info;
+		final Node left;
+		final Node right;
+		final int height;
+		final int size;
+
+		Node(int key, String info, Node left, Node right) {
+			this.key = key;
+			this.info = info;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(PersistentAVLTree.height(left), PersistentAVLTree.height(right)) + 1;
+			this.size = PersistentAVLTree.size(left) + PersistentAVLTree.size(right) + 1;
+		}
+	}
+}
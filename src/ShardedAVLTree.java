@@ -0,0 +1,578 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ *
+ * ShardedAVLTree
+ *
+ * A thread safe map with distinct integer keys and info, range-partitioned
+ * over AVLTree shards. Every shard owns the keys in [lo, next shard's lo) and has its own
+ * read/write lock, so writers to different ranges do not wait for each other.
+ *
+ * The shards follow the load online:
+ * - a shard larger than maxShardSize is split at its median key;
+ * - a hot shard (one that takes more than twice its fair share, or half, of the writes) is split at the
+ *   median of its recent write keys, so a small hot range ends up in a shard of its own;
+ * - a shard smaller than maxShardSize/16 is merged with its smaller neighbour, and when the
+ *   shard count is at its limit the two coldest neighbours are merged to make room for a split.
+ * Splits and merges use AVLTree.split and AVLTree.join, which are O(logn), so resharding
+ * holds the locks of the shards involved only briefly.
+ *
+ * Threads: an operation locks one shard. Resharding is done by one thread at a time (the one that
+ * gets resizeLock), which also locks the shards it replaces; then it retires them and publishes a
+ * new directory, and operations that were waiting on a retired shard look their key up again.
+ *
+ */
+
+public class ShardedAVLTree {
+
+	public static final int DEFAULT_SHARDS = 16;
+	public static final int DEFAULT_MAX_SHARD_SIZE = 1 << 20;
+
+	private static final int SAMPLE = 64;               // recent write keys kept per shard, to split a hot one
+	private static final int HOT_CHECK = 1 << 12;       // writes to a shard between checks whether it is hot
+	private static final int MIN_HOT_SPLIT = 2 * SAMPLE; // smaller shards are not split for being hot
+
+	private final int maxShardSize;
+	private final int minShardSize;
+	private final int maxShards;
+
+	private volatile Directory dir;
+	private final ReentrantLock resizeLock = new ReentrantLock();
+	private final LongAdder count = new LongAdder();
+	private final LongAdder writes = new LongAdder();    // all writes ever, the clock of the hot check
+
+	// constructor
+	public ShardedAVLTree() {
+		this(DEFAULT_SHARDS, DEFAULT_MAX_SHARD_SIZE);
+	}
+
+	/**
+	 * public ShardedAVLTree(int shards, int maxShardSize)
+	 * <p>
+	 * An empty tree that starts with shards equal ranges of the int keys, and never has more than
+	 * 4 * shards shards (at least 64).
+	 * precondition: shards >= 1, maxShardSize >= 16
+	 */
+	public ShardedAVLTree(int shards, int maxShardSize) {
+		if (shards < 1 || maxShardSize < 16) {
+			throw new IllegalArgumentException("need shards >= 1 and maxShardSize >= 16, got " + shards + ", " + maxShardSize);
+		}
+		this.maxShardSize = maxShardSize;
+		this.minShardSize = maxShardSize / 16;
+		this.maxShards = Math.max(4 * shards, 64);
+		int[] lows = new int[shards];
+		Shard[] s = new Shard[shards];
+		for (int i = 0; i < shards; i++) {
+			lows[i] = (int) (Integer.MIN_VALUE + ((1L << 32) * i) / shards);
+			s[i] = new Shard(lows[i], new AVLTree(), 0);
+		}
+		this.dir = new Directory(lows, s);
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.size() == 0;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of items in the tree. Concurrent updates may or may not be counted.
+	 */
+	public int size() {
+		return (int) this.count.sum();
+	}
+
+	/**
+	 * public int shardCount()
+	 * <p>
+	 * Returns the current number of shards.
+	 */
+	public int shardCount() {
+		return this.dir.shards.length;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		while (true) {
+			Shard s = this.dir.find(k);
+			s.lock.readLock().lock();
+			try {
+				if (!s.retired) {
+					return s.tree.search(k);
+				}
+			} finally {
+				s.lock.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * inserts an item with key k and info i to the tree.
+	 * returns the number of rebalancing operations of the shard's AVLTree.insert,
+	 * or -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		while (true) {
+			Shard s = this.dir.find(k);
+			int result;
+			boolean check;
+			s.lock.writeLock().lock();
+			try {
+				if (s.retired) {
+					continue;
+				}
+				result = s.tree.insert(k, i);
+				if (result == -1) {
+					return -1;
+				}
+				s.size++;
+				check = s.wrote(k) || s.tree.size() > maxShardSize;
+			} finally {
+				s.lock.writeLock().unlock();
+			}
+			count.increment();
+			writes.increment();
+			if (check) {
+				reshard(s);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns the number of rebalancing operations of the shard's AVLTree.delete,
+	 * or -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		while (true) {
+			Shard s = this.dir.find(k);
+			int result;
+			boolean check;
+			s.lock.writeLock().lock();
+			try {
+				if (s.retired) {
+					continue;
+				}
+				result = s.tree.delete(k);
+				if (result == -1) {
+					return -1;
+				}
+				s.size--;
+				check = s.wrote(k) || (s.tree.size() < minShardSize && s.next == 0);   // small: check every SAMPLE writes
+			} finally {
+				s.lock.writeLock().unlock();
+			}
+			count.decrement();
+			writes.increment();
+			if (check) {
+				reshard(s);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty.
+	 * Walks the shards up from the first, read-locking one at a time like search():
+	 * it starts over from the new directory if it meets a retired shard.
+	 */
+	public String min() {
+		walk:
+		while (true) {
+			for (Shard s : this.dir.shards) {
+				s.lock.readLock().lock();
+				try {
+					if (s.retired) {           // its items moved to shards of a newer directory
+						continue walk;
+					}
+					if (!s.tree.empty()) {
+						return s.tree.min();
+					}
+				} finally {
+					s.lock.readLock().unlock();
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty.
+	 * Walks the shards down from the last, as min() does.
+	 */
+	public String max() {
+		walk:
+		while (true) {
+			Shard[] shards = this.dir.shards;
+			for (int j = shards.length - 1; j >= 0; j--) {
+				Shard s = shards[j];
+				s.lock.readLock().lock();
+				try {
+					if (s.retired) {
+						continue walk;
+					}
+					if (!s.tree.empty()) {
+						return s.tree.max();
+					}
+				} finally {
+					s.lock.readLock().unlock();
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 * The array is a consistent snapshot: all shards are read-locked while it is built.
+	 */
+	public int[] keysToArray() {
+		resizeLock.lock();
+		Shard[] shards = this.dir.shards;
+		lockAllForRead(shards);
+		try {
+			int n = 0;
+			for (Shard s : shards) {
+				n += s.tree.size();
+			}
+			int[] arr = new int[n];
+			int pos = 0;
+			for (Shard s : shards) {
+				int[] part = s.tree.keysToArray();
+				System.arraycopy(part, 0, arr, pos, part.length);
+				pos += part.length;
+			}
+			return arr;
+		} finally {
+			unlockAllForRead(shards);
+			resizeLock.unlock();
+		}
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 * The array is a consistent snapshot, like keysToArray().
+	 */
+	public String[] infoToArray() {
+		resizeLock.lock();
+		Shard[] shards = this.dir.shards;
+		lockAllForRead(shards);
+		try {
+			int n = 0;
+			for (Shard s : shards) {
+				n += s.tree.size();
+			}
+			String[] arr = new String[n];
+			int pos = 0;
+			for (Shard s : shards) {
+				String[] part = s.tree.infoToArray();
+				System.arraycopy(part, 0, arr, pos, part.length);
+				pos += part.length;
+			}
+			return arr;
+		} finally {
+			unlockAllForRead(shards);
+			resizeLock.unlock();
+		}
+	}
+
+	private static void lockAllForRead(Shard[] shards) {
+		for (Shard s : shards) {
+			s.lock.readLock().lock();
+		}
+	}
+
+	private static void unlockAllForRead(Shard[] shards) {
+		for (Shard s : shards) {
+			s.lock.readLock().unlock();
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// resharding. only the holder of resizeLock changes the directory, so it is also the only thread
+	// that holds more than one shard lock at a time, and the order it takes them in cannot deadlock
+
+	/** splits or merges s if it is (still) too large, hot or too small. gives up if another thread is resharding */
+	private void reshard(Shard s) {
+		if (!resizeLock.tryLock()) {
+			return;                            // the next check of s will come soon enough
+		}
+		try {
+			Directory d = this.dir;
+			int idx = d.indexOf(s);
+			if (idx < 0) {
+				return;                        // retired by an earlier resize
+			}
+			int size;
+			boolean hot;
+			boolean cold;
+			s.lock.readLock().lock();
+			try {
+				size = s.tree.size();
+				hot = s.writes >= HOT_CHECK && isHot(s, d.shards.length);
+				cold = isCold(s, d.shards.length);
+			} finally {
+				s.lock.readLock().unlock();
+			}
+			if (size > maxShardSize) {
+				if (d.shards.length >= maxShards && !mergeColdest(idx)) {
+					return;
+				}
+				split(s, false);
+			}
+			else if (hot && size >= MIN_HOT_SPLIT) {
+				if (d.shards.length >= maxShards && !mergeColdest(idx)) {
+					restartWindow(s);
+					return;
+				}
+				split(s, true);
+			}
+			else if (size < minShardSize && cold && d.shards.length > 1) {   // a small busy range keeps its shard
+				mergeWithNeighbour(idx);
+			}
+			else if (s.writes >= HOT_CHECK) {
+				restartWindow(s);              // not hot: start counting again
+			}
+		} finally {
+			resizeLock.unlock();
+		}
+	}
+
+	/** true if s took more than twice its fair share (or more than half) of the writes since its window started */
+	private boolean isHot(Shard s, int shards) {
+		long total = writes.sum() - s.epoch;
+		return total > 0 && (long) s.writes * Math.max(shards, 4) > 2 * total;
+	}
+
+	/** true if s took at most its fair share of the writes since its window started */
+	private boolean isCold(Shard s, int shards) {
+		long total = writes.sum() - s.epoch;
+		return (long) s.writes * shards <= total;
+	}
+
+	private void restartWindow(Shard s) {
+		s.lock.writeLock().lock();
+		try {
+			s.writes = 0;
+			s.sampled = 0;
+			s.next = 0;
+			s.epoch = writes.sum();
+		} finally {
+			s.lock.writeLock().unlock();
+		}
+	}
+
+	/** replaces s with two shards: at the median of its recent write keys if by_writes, else at its median key */
+	private void split(Shard s, boolean by_writes) {
+		s.lock.writeLock().lock();
+		try {
+			if (s.retired || s.tree.size() < 2) {
+				return;
+			}
+			AVLTree tree = s.tree;
+			int n = tree.size();
+			int idx = n / 2;
+			if (by_writes && s.sampled > 0) {
+				int[] keys = Arrays.copyOf(s.sample, s.sampled);
+				Arrays.sort(keys);
+				idx = Math.min(Math.max(tree.rank(keys[keys.length / 2]), 1), n - 1);   // both sides non-empty
+			}
+			AVLTree.IAVLNode x = tree.select(idx);
+			int k = x.getKey();
+			String info = x.getValue();
+			AVLTree[] parts = tree.split(k);            // keys < k, keys > k
+			parts[1].insert(k, info);
+			long now = writes.sum();
+			Shard left = new Shard(s.lo, parts[0], now);
+			Shard right = new Shard(k, parts[1], now);
+			Directory d = this.dir;
+			int at = d.indexOf(s);
+			this.dir = d.replace(at, 1, left, right);
+			s.retired = true;                           // after the new directory is visible
+		} finally {
+			s.lock.writeLock().unlock();
+		}
+	}
+
+	/** merges the shard at idx with its smaller cold neighbour, if the two together are small enough */
+	private void mergeWithNeighbour(int idx) {
+		Shard[] shards = this.dir.shards;
+		int other = -1;
+		for (int j = idx - 1; j <= idx + 1; j += 2) {   // unlocked reads of the volatile counters, merge() checks again
+			if (j < 0 || j >= shards.length || !isCold(shards[j], shards.length)) {
+				continue;
+			}
+			if (other < 0 || shards[j].size < shards[other].size) {
+				other = j;
+			}
+		}
+		if (other >= 0) {
+			merge(Math.min(idx, other));
+		}
+	}
+
+	/** merges the two adjacent shards (not including keep) with the fewest writes per key of the window, to make room */
+	private boolean mergeColdest(int keep) {
+		Shard[] shards = this.dir.shards;
+		int best = -1;
+		long best_writes = Long.MAX_VALUE;
+		for (int j = 0; j + 1 < shards.length; j++) {
+			if (j == keep || j + 1 == keep) {
+				continue;
+			}
+			long w = (long) shards[j].writes + shards[j + 1].writes;   // unlocked reads of the volatile counters, a heuristic
+			if (w < best_writes && shards[j].size + shards[j + 1].size <= maxShardSize / 2) {
+				best = j;
+				best_writes = w;
+			}
+		}
+		return best >= 0 && merge(best);
+	}
+
+	/** replaces the shards at j and j + 1 with one shard, using join */
+	private boolean merge(int j) {
+		Directory d = this.dir;
+		Shard a = d.shards[j];
+		Shard b = d.shards[j + 1];
+		a.lock.writeLock().lock();
+		b.lock.writeLock().lock();
+		try {
+			if (a.tree.size() + b.tree.size() > maxShardSize / 2) {
+				return false;                           // would soon be split again
+			}
+			Shard m = new Shard(a.lo, concat(a.tree, b.tree), writes.sum());
+			this.dir = d.replace(j, 2, m);
+			a.retired = true;
+			b.retired = true;
+			return true;
+		} finally {
+			b.lock.writeLock().unlock();
+			a.lock.writeLock().unlock();
+		}
+	}
+
+	/** joins l and r (keys(l) < keys(r)) into one tree, through the min of r. destroys both */
+	private static AVLTree concat(AVLTree l, AVLTree r) {
+		if (r.empty()) {
+			return l;
+		}
+		if (l.empty()) {
+			return r;
+		}
+		AVLTree.IAVLNode first = r.select(0);
+		int k = first.getKey();
+		String info = first.getValue();
+		r.delete(k);
+		if (r.empty()) {
+			l.insert(k, info);
+		} else {
+			l.join(l.new AVLNode(k, info), r);
+		}
+		return l;
+	}
+
+	/**
+	 * One range of keys. tree, the counters and the sample are guarded by lock. size, writes and epoch
+	 * are only written under the write lock, and are volatile so that resharding can read them
+	 * for the shards it has not locked (the tree itself must not be read then: a concurrent update
+	 * may be halfway through it).
+	 */
+	private static final class Shard {
+		final int lo;                          // smallest key of the range
+		final AVLTree tree;
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		volatile boolean retired;              // replaced in the directory, look the key up again
+		volatile int size;                     // tree.size()
+		volatile int writes;                   // writes in the current window
+		volatile long epoch;                   // value of the tree's write clock when the window started
+		final int[] sample = new int[SAMPLE];  // recent write keys (a ring)
+		int sampled;                           // keys in sample, at most SAMPLE
+		int next;                              // where the next key goes in sample
+
+		Shard(int lo, AVLTree tree, long epoch) {
+			this.lo = lo;
+			this.tree = tree;
+			this.size = tree.size();
+			this.epoch = epoch;
+		}
+
+		/** records a write of k, returns true when it is time to check whether the shard is hot */
+		boolean wrote(int k) {
+			sample[next] = k;
+			next = (next + 1) & (SAMPLE - 1);
+			if (sampled < SAMPLE) {
+				sampled++;
+			}
+			return ++writes % HOT_CHECK == 0;
+		}
+	}
+
+	/**
+	 * An immutable list of the shards in key order, replaced as a whole on every split or merge.
+	 */
+	private static final class Directory {
+		final int[] lows;                      // lows[j] == shards[j].lo, lows[0] == Integer.MIN_VALUE
+		final Shard[] shards;
+
+		Directory(int[] lows, Shard[] shards) {
+			this.lows = lows;
+			this.shards = shards;
+		}
+
+		/** the shard whose range holds k */
+		Shard find(int k) {
+			int j = Arrays.binarySearch(lows, k);
+			return shards[(j >= 0) ? j : -j - 2];
+		}
+
+		int indexOf(Shard s) {
+			int j = Arrays.binarySearch(lows, s.lo);
+			return (j >= 0 && shards[j] == s) ? j : -1;
+		}
+
+		/** a new directory with the count shards at j replaced by with */
+		Directory replace(int j, int count, Shard... with) {
+			int n = shards.length - count + with.length;
+			Shard[] s = new Shard[n];
+			System.arraycopy(shards, 0, s, 0, j);
+			System.arraycopy(with, 0, s, j, with.length);
+			System.arraycopy(shards, j + count, s, j + with.length, shards.length - j - count);
+			int[] l = new int[n];
+			for (int i = 0; i < n; i++) {
+				l[i] = s[i].lo;
+			}
+			return new Directory(l, s);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ *
+ * TreeEvents
+ *
+ * Java Flight Recorder events of the slow AVLTree operations. AVLTree emits an event for every
+ * insert, delete, split and join that takes longer than the threshold of its event type,
+ * 1 ms unless the recording sets another, e.g. with a .jfc file or
+ *   -XX:StartFlightRecording:avltree.Insert#threshold=100us     (JDK 17+)
+ *   recording.enable("avltree.Split").withThreshold(Duration.ofMillis(5))
+ * The fields are read after the operation, and only if the event is going to be committed,
+ * so while no recording has the event enabled an operation pays for an inlined check.
+ *
+ */
+
+public final class TreeEvents {
+
+	private TreeEvents() {
+	}
+
+	@Category("AVL Tree")
+	@StackTrace(false)
+	abstract static class TreeOperationEvent extends Event {
+
+		@Label("Key")
+		@Description("The key of the operation (the key of the middle node for join)")
+		int key;
+
+		@Label("Tree Size")
+		@Description("Number of keys in the tree after the operation (before it for split)")
+		int size;
+
+		@Label("Tree Height")
+		@Description("Height of the tree after the operation (before it for split), -1 when empty")
+		int height;
+
+		@Label("Rebalance Steps")
+		@Description("The value returned by insert/delete, the join cost for join and the sum of the join costs for split")
+		int steps;
+
+		@Label("Allocated Nodes")
+		@Description("AVLNodes allocated by the operation")
+		int allocatedNodes;
+
+		/** fills the fields and commits, call after end() when shouldCommit() (not commit(), which leaves them empty) */
+		final void commitWith(int key, int size, int height, int steps, int allocated_nodes) {
+			this.key = key;
+			this.size = size;
+			this.height = height;
+			this.steps = steps;
+			this.allocatedNodes = allocated_nodes;
+			commit();
+		}
+	}
+
+	@Name("avltree.Insert")
+	@Label("AVL Tree Insert")
+	@Threshold("1 ms")
+	static final class InsertEvent extends TreeOperationEvent {
+	}
+
+	@Name("avltree.Delete")
+	@Label("AVL Tree Delete")
+	@Threshold("1 ms")
+	static final class DeleteEvent extends TreeOperationEvent {
+	}
+
+	@Name("avltree.Split")
+	@Label("AVL Tree Split")
+	@Threshold("1 ms")
+	static final class SplitEvent extends TreeOperationEvent {
+	}
+
+	@Name("avltree.Join")
+	@Label("AVL Tree Join")
+	@Threshold("1 ms")
+	static final class JoinEvent extends TreeOperationEvent {
+	}
+}
@@ -0,0 +1,356 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * TreeMetrics
+ *
+ * Operation counters of one AVLTree, collected only after AVLTree.enableMetrics().
+ * The tree records
+ *   inserts / deletes               successful ones of insert/put/compute and delete/remove
+ *                                   (join and split relink existing nodes, they are not counted here)
+ *   promotions / demotions          rank changes of InsertBalance / DeleteBalance
+ *   single / double rotations       of both rebalances (join rebalances with InsertBalance, so they count too)
+ *   search depths                   nodes visited by search(k), a histogram by depth
+ *   size walks                      the fixSize walks from the end of a rebalance up to the root,
+ *                                   their number, total length and longest length in nodes
+ *   split / join costs              join returns its cost (|rank difference| + 1),
+ *                                   the cost of a split is the sum of the joins it does
+ * Counters are LongAdders, so reading them (e.g. through JMX) while the tree is updated does not
+ * contend with the thread that updates it.
+ *
+ */
+
+public class TreeMetrics implements TreeMetricsMXBean {
+
+	static final int DEPTH_BUCKETS = 64;       // the height of an AVL tree of 2^31 keys is below 45
+
+	private final LongAdder inserts = new LongAdder();
+	private final LongAdder deletes = new LongAdder();
+	private final LongAdder promotions = new LongAdder();
+	private final LongAdder demotions = new LongAdder();
+	private final LongAdder single_rotations = new LongAdder();
+	private final LongAdder double_rotations = new LongAdder();
+	private final LongAdder[] search_depths = new LongAdder[DEPTH_BUCKETS];
+	private final LongAdder size_walks = new LongAdder();
+	private final LongAdder size_walk_nodes = new LongAdder();
+	private final LongAccumulator size_walk_max = new LongAccumulator(Math::max, 0);
+	private final LongAdder splits = new LongAdder();
+	private final LongAdder split_cost = new LongAdder();
+	private final LongAccumulator split_cost_max = new LongAccumulator(Math::max, 0);
+	private final LongAdder joins = new LongAdder();
+	private final LongAdder join_cost = new LongAdder();
+	private final LongAccumulator join_cost_max = new LongAccumulator(Math::max, 0);
+	private ObjectName registered_name;
+
+	public TreeMetrics() {
+		for (int i = 0; i < DEPTH_BUCKETS; i++) {
+			search_depths[i] = new LongAdder();
+		}
+	}
+
+	// --- recording, called by AVLTree
+
+	void recordInsert() {
+		inserts.increment();
+	}
+
+	void recordDelete() {
+		deletes.increment();
+	}
+
+	void recordSearch(int depth) {
+		search_depths[Math.min(depth, DEPTH_BUCKETS - 1)].increment();
+	}
+
+	/** one rebalance: its rank changes and rotations, then the size walk it ended with */
+	void recordRebalance(int promoted, int demoted, int single, int dbl, int walk) {
+		if (promoted != 0) {
+			promotions.add(promoted);
+		}
+		if (demoted != 0) {
+			demotions.add(demoted);
+		}
+		if (single != 0) {
+			single_rotations.add(single);
+		}
+		if (dbl != 0) {
+			double_rotations.add(dbl);
+		}
+		recordSizeWalk(walk);
+	}
+
+	void recordSizeWalk(int walk) {
+		size_walks.increment();
+		size_walk_nodes.add(walk);
+		size_walk_max.accumulate(walk);
+	}
+
+	void recordSplit(int cost) {
+		splits.increment();
+		split_cost.add(cost);
+		split_cost_max.accumulate(cost);
+	}
+
+	void recordJoin(int cost) {
+		joins.increment();
+		join_cost.add(cost);
+		join_cost_max.accumulate(cost);
+	}
+
+	// --- reading
+
+	@Override
+	public long getInserts() {
+		return inserts.sum();
+	}
+
+	@Override
+	public long getDeletes() {
+		return deletes.sum();
+	}
+
+	@Override
+	public long getSearches() {
+		long n = 0;
+		for (LongAdder a : search_depths) {
+			n += a.sum();
+		}
+		return n;
+	}
+
+	@Override
+	public long getPromotions() {
+		return promotions.sum();
+	}
+
+	@Override
+	public long getDemotions() {
+		return demotions.sum();
+	}
+
+	@Override
+	public long getSingleRotations() {
+		return single_rotations.sum();
+	}
+
+	@Override
+	public long getDoubleRotations() {
+		return double_rotations.sum();
+	}
+
+	@Override
+	public long[] getSearchDepthHistogram() {
+		long[] h = new long[DEPTH_BUCKETS];
+		for (int i = 0; i < DEPTH_BUCKETS; i++) {
+			h[i] = search_depths[i].sum();
+		}
+		return h;
+	}
+
+	@Override
+	public double getMeanSearchDepth() {
+		long n = 0;
+		long total = 0;
+		for (int i = 0; i < DEPTH_BUCKETS; i++) {
+			long c = search_depths[i].sum();
+			n += c;
+			total += c * i;
+		}
+		return mean(total, n);
+	}
+
+	@Override
+	public long getSizeWalks() {
+		return size_walks.sum();
+	}
+
+	@Override
+	public double getMeanSizeWalkLength() {
+		return mean(size_walk_nodes.sum(), size_walks.sum());
+	}
+
+	@Override
+	public long getMaxSizeWalkLength() {
+		return size_walk_max.get();
+	}
+
+	@Override
+	public long getSplits() {
+		return splits.sum();
+	}
+
+	@Override
+	public double getMeanSplitCost() {
+		return mean(split_cost.sum(), splits.sum());
+	}
+
+	@Override
+	public long getMaxSplitCost() {
+		return split_cost_max.get();
+	}
+
+	@Override
+	public long getJoins() {
+		return joins.sum();
+	}
+
+	@Override
+	public double getMeanJoinCost() {
+		return mean(join_cost.sum(), joins.sum());
+	}
+
+	@Override
+	public long getMaxJoinCost() {
+		return join_cost_max.get();
+	}
+
+	private static double mean(long total, long n) {
+		return n == 0 ? 0 : (double) total / n;
+	}
+
+	/**
+	 * public void reset()
+	 * <p>
+	 * sets every counter back to 0. Operations running meanwhile may be half counted.
+	 */
+	@Override
+	public void reset() {
+		for (LongAdder a : new LongAdder[] {inserts, deletes, promotions, demotions, single_rotations,
+				double_rotations, size_walks, size_walk_nodes, splits, split_cost, joins, join_cost}) {
+			a.reset();
+		}
+		for (LongAdder a : search_depths) {
+			a.reset();
+		}
+		size_walk_max.reset();
+		split_cost_max.reset();
+		join_cost_max.reset();
+	}
+
+	/**
+	 * public Snapshot snapshot()
+	 * <p>
+	 * returns the current value of every counter. Each counter is read once, so under concurrent updates
+	 * the values are not taken at a single instant, but each of them is exact for some instant.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * public ObjectName register(String name)
+	 * <p>
+	 * registers the metrics on the platform MBean server as avltree:type=TreeMetrics,name=&lt;name&gt;
+	 * and returns that name. A metrics object is registered under at most one name.
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		if (registered_name != null) {
+			throw new IllegalStateException("already registered as " + registered_name);
+		}
+		ObjectName object_name = new ObjectName("avltree:type=TreeMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, object_name);
+		registered_name = object_name;
+		return object_name;
+	}
+
+	/**
+	 * public void unregister()
+	 * <p>
+	 * removes the metrics from the platform MBean server, if register() put them there
+	 */
+	public synchronized void unregister() throws JMException {
+		if (registered_name != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(registered_name)) {
+				server.unregisterMBean(registered_name);
+			}
+			registered_name = null;
+		}
+	}
+
+	/**
+	 *
+	 * Snapshot
+	 *
+	 * The counters of a TreeMetrics at one point, immutable.
+	 *
+	 */
+	public static final class Snapshot {
+		public final long inserts;
+		public final long deletes;
+		public final long searches;
+		public final long promotions;
+		public final long demotions;
+		public final long single_rotations;
+		public final long double_rotations;
+		public final double mean_search_depth;
+		public final long size_walks;
+		public final double mean_size_walk_length;
+		public final long max_size_walk_length;
+		public final long splits;
+		public final double mean_split_cost;
+		public final long max_split_cost;
+		public final long joins;
+		public final double mean_join_cost;
+		public final long max_join_cost;
+		private final long[] search_depth_histogram;
+
+		private Snapshot(TreeMetrics m) {
+			search_depth_histogram = m.getSearchDepthHistogram();
+			long n = 0;
+			long total = 0;
+			for (int i = 0; i < search_depth_histogram.length; i++) {   // searches and the mean from the same reads
+				n += search_depth_histogram[i];
+				total += search_depth_histogram[i] * i;
+			}
+			searches = n;
+			mean_search_depth = mean(total, n);
+			inserts = m.getInserts();
+			deletes = m.getDeletes();
+			promotions = m.getPromotions();
+			demotions = m.getDemotions();
+			single_rotations = m.getSingleRotations();
+			double_rotations = m.getDoubleRotations();
+			size_walks = m.getSizeWalks();
+			mean_size_walk_length = m.getMeanSizeWalkLength();
+			max_size_walk_length = m.getMaxSizeWalkLength();
+			splits = m.getSplits();
+			mean_split_cost = m.getMeanSplitCost();
+			max_split_cost = m.getMaxSplitCost();
+			joins = m.getJoins();
+			mean_join_cost = m.getMeanJoinCost();
+			max_join_cost = m.getMaxJoinCost();
+		}
+
+		/** number of searches that visited depth nodes (the last bucket also counts the deeper ones) */
+		public long searchesAtDepth(int depth) {
+			return search_depth_histogram[Math.min(depth, DEPTH_BUCKETS - 1)];
+		}
+
+		/** the histogram without its trailing empty buckets */
+		public long[] searchDepthHistogram() {
+			int n = search_depth_histogram.length;
+			while (n > 0 && search_depth_histogram[n - 1] == 0) {
+				n--;
+			}
+			return Arrays.copyOf(search_depth_histogram, n);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("inserts=%d deletes=%d searches=%d (mean depth %.2f) promotions=%d demotions=%d"
+					+ " rotations=%d single/%d double size-walks=%d (mean %.2f, max %d)"
+					+ " splits=%d (mean cost %.2f, max %d) joins=%d (mean cost %.2f, max %d)",
+					inserts, deletes, searches, mean_search_depth, promotions, demotions,
+					single_rotations, double_rotations, size_walks, mean_size_walk_length, max_size_walk_length,
+					splits, mean_split_cost, max_split_cost, joins, mean_join_cost, max_join_cost);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ *
+ * TreeMetricsMXBean
+ *
+ * The JMX view of a TreeMetrics (see TreeMetrics.register).
+ * Every attribute is a running total since the metrics were enabled or last reset.
+ *
+ */
+
+public interface TreeMetricsMXBean {
+
+	long getInserts();
+
+	long getDeletes();
+
+	long getSearches();
+
+	long getPromotions();
+
+	long getDemotions();
+
+	long getSingleRotations();
+
+	long getDoubleRotations();
+
+	/** number of searches that visited i nodes, the last bucket also counts the deeper ones */
+	long[] getSearchDepthHistogram();
+
+	double getMeanSearchDepth();
+
+	long getSizeWalks();
+
+	double getMeanSizeWalkLength();
+
+	long getMaxSizeWalkLength();
+
+	long getSplits();
+
+	double getMeanSplitCost();
+
+	long getMaxSplitCost();
+
+	long getJoins();
+
+	double getMeanJoinCost();
+
+	long getMaxJoinCost();
+
+	void reset();
+}
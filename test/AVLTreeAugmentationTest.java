@@ -0,0 +1,191 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeAugmentationTest
+ *
+ * aggregate and rangeAggregate of AVLTree against a brute-force fold over a TreeMap, on random ranges,
+ * after inserts, deletes, splits and joins. One augmentation is a sum, the other a polynomial hash,
+ * which depends on the order of the items, so a subtree combined on the wrong side is caught.
+ * join and the set operations reject trees that keep different augmentations.
+ *
+ */
+
+class AVLTreeAugmentationTest {
+
+	static final AVLTree.Augmentation<Long> SUM = new AVLTree.Augmentation<Long>() {
+		public Long identity() {
+			return 0L;
+		}
+
+		public Long leaf(int key, String info) {
+			return (long) key;
+		}
+
+		public Long combine(Long left, Long right) {
+			return left + right;
+		}
+	};
+
+	/** {hash, 31^n} of the keys in order: combine(l, r) = {l.hash * r.pow + r.hash, l.pow * r.pow} */
+	static final AVLTree.Augmentation<long[]> HASH = new AVLTree.Augmentation<long[]>() {
+		public long[] identity() {
+			return new long[] {0, 1};
+		}
+
+		public long[] leaf(int key, String info) {
+			return new long[] {key, 31};
+		}
+
+		public long[] combine(long[] left, long[] right) {
+			return new long[] {left[0] * right[1] + right[0], left[1] * right[1]};
+		}
+	};
+
+	@Test
+	void rangeAggregateMatchesBruteForce() {
+		Random rnd = new Random(16);
+		for (int round = 0; round < 100; round++) {
+			AVLTree t = new AVLTree(SUM, HASH);
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(round < 20 ? 10 : 2000);
+			for (int op = 0; op < 1000; op++) {
+				int k = rnd.nextInt(range) - range / 2;
+				if (rnd.nextInt(3) < 2) {
+					t.insert(k, "v" + k);
+					m.putIfAbsent(k, "v" + k);
+				}
+				else {
+					t.delete(k);
+					m.remove(k);
+				}
+				if (op % 100 == 0) {
+					assertRanges(t, m, rnd, range);
+				}
+			}
+			assertRanges(t, m, rnd, range);
+
+			int x = rnd.nextInt(range) - range / 2;          // in the tree or not
+			AVLTree[] parts = t.split(x);
+			TreeMap<Integer, String> below = new TreeMap<>(m.headMap(x, false));
+			TreeMap<Integer, String> above = new TreeMap<>(m.tailMap(x, false));
+			assertRanges(parts[0], below, rnd, range);
+			assertRanges(parts[1], above, rnd, range);
+
+			parts[0].join(parts[0].new AVLNode(x, "x"), parts[1]);
+			below.putAll(above);
+			below.put(x, "x");
+			assertRanges(parts[0], below, rnd, range);
+		}
+	}
+
+	@Test
+	void edgeRanges() {
+		AVLTree t = new AVLTree(SUM, HASH);
+		TreeMap<Integer, String> m = new TreeMap<>();
+		assertRange(t, m, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		for (int k = 10; k <= 100; k += 10) {
+			t.insert(k, "v" + k);
+			m.put(k, "v" + k);
+		}
+		int[][] ranges = {{5, 4}, {40, 10}, {11, 19}, {Integer.MIN_VALUE, 9}, {101, Integer.MAX_VALUE},
+				{10, 10}, {100, 100}, {Integer.MIN_VALUE, Integer.MAX_VALUE}, {10, 100}, {11, 99}, {55, 56}};
+		for (int[] r : ranges) {
+			assertRange(t, m, r[0], r[1]);
+		}
+		assertEquals(4, (int) t.rangeAggregate(AVLTree.SIZE, 30, 60));
+		assertEquals(0, (int) t.rangeAggregate(AVLTree.SIZE, 60, 30));
+		AVLTree.Augmentation<Long> other = new AVLTree.Augmentation<Long>() {   // equal to SUM, but not given to the tree
+			public Long identity() {
+				return SUM.identity();
+			}
+
+			public Long leaf(int key, String info) {
+				return SUM.leaf(key, info);
+			}
+
+			public Long combine(Long left, Long right) {
+				return SUM.combine(left, right);
+			}
+		};
+		assertThrows(IllegalArgumentException.class, () -> t.rangeAggregate(other, 0, 100));
+		assertThrows(IllegalArgumentException.class, () -> t.aggregate(other));
+	}
+
+	@Test
+	void differentAugmentationsAreRejected() {
+		AVLTree[] kinds = {new AVLTree(), new AVLTree(SUM), new AVLTree(HASH), new AVLTree(SUM, HASH), new AVLTree(HASH, SUM)};
+		for (AVLTree a : kinds) {
+			a.insert(1, "a");
+		}
+		for (int i = 0; i < kinds.length; i++) {
+			for (int j = 0; j < kinds.length; j++) {
+				if (i == j) {
+					continue;
+				}
+				AVLTree a = kinds[i];
+				AVLTree b = kinds[j];
+				b.insert(5, "b");
+				assertThrows(IllegalArgumentException.class, () -> a.join(a.new AVLNode(3, "x"), b), "join " + i + " " + j);
+				assertThrows(IllegalArgumentException.class, () -> a.union(b), "union " + i + " " + j);
+				assertThrows(IllegalArgumentException.class, () -> a.intersection(b), "intersection " + i + " " + j);
+				assertThrows(IllegalArgumentException.class, () -> a.difference(b), "difference " + i + " " + j);
+				assertEquals(1, a.size());                   // nothing was moved before the check
+				b.delete(5);
+				assertEquals(1, b.size());
+			}
+		}
+		AVLTree a = new AVLTree(SUM, HASH);                  // the same augmentations in two trees are fine
+		AVLTree b = new AVLTree(SUM, HASH);
+		a.insert(1, "a");
+		b.insert(5, "b");
+		a.join(a.new AVLNode(3, "x"), b);
+		assertEquals(9L, (long) a.aggregate(SUM));
+		AVLTree c = new AVLTree(SUM, HASH);
+		c.insert(7, "c");
+		assertEquals(16L, (long) a.union(c).aggregate(SUM));
+	}
+
+	private static void assertRanges(AVLTree t, TreeMap<Integer, String> m, Random rnd, int range) {
+		assertEquals(sum(m), (long) t.aggregate(SUM));
+		assertArrayEquals(hash(m), t.aggregate(HASH));
+		for (int q = 0; q < 30; q++) {
+			int lo = rnd.nextInt(range + 4) - range / 2 - 2;
+			int hi = rnd.nextInt(range + 4) - range / 2 - 2;
+			assertRange(t, m, lo, hi);
+		}
+	}
+
+	private static void assertRange(AVLTree t, TreeMap<Integer, String> m, int lo, int hi) {
+		NavigableMap<Integer, String> range = (lo <= hi) ? m.subMap(lo, true, hi, true) : new TreeMap<>();
+		String where = "[" + lo + ", " + hi + "]";
+		assertEquals(sum(range), (long) t.rangeAggregate(SUM, lo, hi), "sum " + where);
+		assertArrayEquals(hash(range), t.rangeAggregate(HASH, lo, hi), "hash " + where);
+		assertEquals(range.size(), (int) t.rangeAggregate(AVLTree.SIZE, lo, hi), "size " + where);
+	}
+
+	private static long sum(NavigableMap<Integer, String> m) {
+		long sum = 0;
+		for (int k : m.keySet()) {
+			sum += k;
+		}
+		return sum;
+	}
+
+	private static long[] hash(NavigableMap<Integer, String> m) {
+		long[] h = HASH.identity();
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			h = HASH.combine(h, HASH.leaf(e.getKey(), e.getValue()));
+		}
+		return h;
+	}
+}
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeCursorTest
+ *
+ * the Cursor of AVLTree against a TreeMap: first/last, seek to keys in the tree, between keys and
+ * past either end, walks in both directions, and falling off either end (after which the cursor
+ * stays invalid until it is repositioned).
+ *
+ */
+
+class AVLTreeCursorTest {
+
+	@Test
+	void cursorOnAnEmptyTree() {
+		AVLTree t = new AVLTree();
+		AVLTree.Cursor c = t.cursor();
+		assertFalse(c.valid());                          // not positioned yet
+		assertNull(c.node());
+		assertFalse(c.next());
+		assertFalse(c.prev());
+		assertFalse(c.first().valid());
+		assertFalse(c.last().valid());
+		assertFalse(c.seek(0).valid());
+		assertFalse(c.seek(Integer.MIN_VALUE).valid());
+	}
+
+	@Test
+	void walksInBothDirections() {
+		Random rnd = new Random(7);
+		for (int round = 0; round < 100; round++) {
+			AVLTree t = new AVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			for (int i = 1 + rnd.nextInt(round < 20 ? 5 : 1000); i > 0; i--) {
+				int k = rnd.nextInt(4000);
+				t.insert(k, "v" + k);
+				m.put(k, "v" + k);
+			}
+			AVLTree.Cursor c = t.cursor();
+			List<Integer> forward = new ArrayList<>();
+			for (boolean more = c.first().valid(); more; more = c.next()) {
+				assertEquals(m.get(c.key()), c.info());
+				assertSame(c.node(), t.select(forward.size()));
+				forward.add(c.key());
+			}
+			assertFalse(c.valid());                      // fell off the max
+			assertEquals(new ArrayList<>(m.keySet()), forward);
+
+			List<Integer> backward = new ArrayList<>();
+			for (boolean more = c.last().valid(); more; more = c.prev()) {
+				backward.add(c.key());
+			}
+			assertFalse(c.valid());                      // fell off the min
+			assertEquals(new ArrayList<>(m.descendingKeySet()), backward);
+
+			for (int q = 0; q < 50; q++) {               // seek, then one step each way
+				int k = rnd.nextInt(4002) - 1;
+				Map.Entry<Integer, String> ceiling = m.ceilingEntry(k);
+				c.seek(k);
+				if (ceiling == null) {
+					assertFalse(c.valid(), "seek past the max " + k);
+					continue;
+				}
+				assertEquals((int) ceiling.getKey(), c.key());
+				assertEquals(ceiling.getValue(), c.info());
+				Integer lower = m.lowerKey(ceiling.getKey());
+				assertEquals(lower != null, c.prev());
+				if (lower != null) {
+					assertEquals((int) lower, c.key());
+					assertTrue(c.next());
+					assertEquals((int) ceiling.getKey(), c.key());
+				}
+				else {
+					assertFalse(c.valid());
+				}
+			}
+		}
+	}
+
+	@Test
+	void fallingOffEitherEnd() {
+		AVLTree t = new AVLTree();
+		for (int k = 10; k <= 50; k += 10) {
+			t.insert(k, "v" + k);
+		}
+		AVLTree.Cursor c = t.cursor();
+
+		assertEquals(50, c.last().key());
+		assertFalse(c.next());                           // past the max
+		assertFalse(c.valid());
+		assertNull(c.node());
+		assertFalse(c.prev());                           // an invalid cursor does not come back by itself
+		assertFalse(c.next());
+		assertEquals(50, c.last().key());                // but it can be repositioned
+
+		assertEquals(10, c.first().key());
+		assertFalse(c.prev());                           // past the min
+		assertFalse(c.valid());
+		assertFalse(c.next());
+		assertFalse(c.prev());
+
+		assertEquals(10, c.seek(Integer.MIN_VALUE).key());
+		assertFalse(c.prev());
+		assertEquals(10, c.seek(10).key());
+		assertEquals(20, c.seek(11).key());
+		assertEquals(50, c.seek(50).key());
+		assertFalse(c.next());
+		assertFalse(c.seek(51).valid());                 // seek past the max
+		assertFalse(c.seek(Integer.MAX_VALUE).valid());
+		assertFalse(c.prev());
+
+		assertEquals(30, c.seek(25).key());              // walk to either end from the middle
+		assertTrue(c.prev());
+		assertTrue(c.prev());
+		assertEquals(10, c.key());
+		assertFalse(c.prev());
+		assertEquals(30, c.seek(30).key());
+		assertTrue(c.next());
+		assertTrue(c.next());
+		assertEquals(50, c.key());
+		assertFalse(c.next());
+	}
+}
@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeFromSortedTest
+ *
+ * both fromSorted overloads of AVLTree: the trees they build have a valid AVL shape (sizes, heights
+ * and min/max included) and keep working under insert and delete; bad input is rejected:
+ * unsorted or duplicate keys, arrays of different lengths, and streams that end before n items.
+ *
+ */
+
+class AVLTreeFromSortedTest {
+
+	@Test
+	void arraysBuildValidTrees() {
+		Random rnd = new Random(3);
+		for (int n = 0; n <= 300; n++) {
+			TreeMap<Integer, String> m = items(rnd, n);
+			int[] keys = m.keySet().stream().mapToInt(Integer::intValue).toArray();
+			AVLTree t = AVLTree.fromSorted(keys, m.values().toArray(new String[0]));
+			AVLTreeInvariants.assertContents(t, m);
+			if (n > 0) {
+				assertEquals(32 - Integer.numberOfLeadingZeros(n) - 1, t.getRoot().getHeight(), "perfectly balanced " + n);
+			}
+			keepsWorking(t, m, rnd);
+		}
+	}
+
+	@Test
+	void streamsBuildValidTrees() {
+		Random rnd = new Random(33);
+		for (int n = 0; n <= 300; n++) {
+			TreeMap<Integer, String> m = items(rnd, n);
+			AVLTree t = AVLTree.fromSorted(n, keys(m), m.values().iterator());
+			AVLTreeInvariants.assertContents(t, m);
+			keepsWorking(t, m, rnd);
+		}
+		PrimitiveIterator.OfInt keys = IntStream.range(0, 1000).iterator();
+		Iterator<String> infos = IntStream.range(0, 1000).mapToObj(k -> "v" + k).iterator();
+		AVLTree t = AVLTree.fromSorted(600, keys, infos);   // only the first n items are consumed
+		assertEquals(600, t.size());
+		assertEquals(600, keys.nextInt());
+		assertEquals("v600", infos.next());
+	}
+
+	@Test
+	void badArraysAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[] {1, 2, 3}, new String[] {"a", "b"}));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[] {1}, new String[] {"a", "b"}));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[] {3, 2}, new String[] {"a", "b"}));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[] {1, 2, 5, 4, 6}, new String[5]));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[] {1, 2, 2, 3}, new String[4]));
+		assertThrows(IllegalArgumentException.class,
+				() -> AVLTree.fromSorted(new int[] {Integer.MAX_VALUE, Integer.MIN_VALUE}, new String[2]));
+		AVLTree edges = AVLTree.fromSorted(new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE}, new String[] {"lo", "hi"});
+		assertEquals("lo", edges.min());
+		assertEquals("hi", edges.max());
+	}
+
+	@Test
+	void badStreamsAreRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> AVLTree.fromSorted(4, IntStream.of(1, 2, 3).iterator(), Arrays.asList("a", "b", "c", "d").iterator()));
+		assertThrows(IllegalArgumentException.class,
+				() -> AVLTree.fromSorted(4, IntStream.of(1, 2, 3, 4).iterator(), Arrays.asList("a", "b", "c").iterator()));
+		assertThrows(IllegalArgumentException.class,
+				() -> AVLTree.fromSorted(1, IntStream.empty().iterator(), Arrays.asList("a").iterator()));
+		assertThrows(IllegalArgumentException.class,
+				() -> AVLTree.fromSorted(3, IntStream.of(1, 3, 2).iterator(), Arrays.asList("a", "b", "c").iterator()));
+		assertThrows(IllegalArgumentException.class,
+				() -> AVLTree.fromSorted(3, IntStream.of(1, 1, 2).iterator(), Arrays.asList("a", "b", "c").iterator()));
+		AVLTree t = AVLTree.fromSorted(2, IntStream.of(Integer.MIN_VALUE, 0).iterator(), Arrays.asList("a", "b").iterator());
+		assertEquals("a", t.search(Integer.MIN_VALUE));      // the smallest int is a valid first key
+	}
+
+	/** insert and delete on a built tree, checked against m */
+	private static void keepsWorking(AVLTree t, TreeMap<Integer, String> m, Random rnd) {
+		for (int op = 0; op < 200; op++) {
+			int k = rnd.nextInt(2000) - 1000;
+			if (rnd.nextBoolean()) {
+				assertEquals(m.containsKey(k), t.insert(k, "n" + k) == -1, "insert " + k);
+				if (!m.containsKey(k)) {
+					m.put(k, "n" + k);
+				}
+			}
+			else {
+				assertEquals(!m.containsKey(k), t.delete(k) == -1, "delete " + k);
+				m.remove(k);
+			}
+		}
+		AVLTreeInvariants.assertContents(t, m);
+	}
+
+	/** n random items with keys in [-1000, 1000) */
+	private static TreeMap<Integer, String> items(Random rnd, int n) {
+		TreeMap<Integer, String> m = new TreeMap<>();
+		while (m.size() < n) {
+			int k = rnd.nextInt(2000) - 1000;
+			m.put(k, rnd.nextInt(8) == 0 ? null : "v" + k);
+		}
+		return m;
+	}
+
+	private static PrimitiveIterator.OfInt keys(TreeMap<Integer, String> m) {
+		return m.keySet().stream().mapToInt(Integer::intValue).iterator();
+	}
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ *
+ * AVLTreeInvariants
+ *
+ * Checks shared by the tests: the structure of an AVLTree (parent links, heights, balance, sizes,
+ * key order) and its contents against a NavigableMap holding the same items.
+ *
+ */
+
+final class AVLTreeInvariants {
+
+	private AVLTreeInvariants() {
+	}
+
+	/** asserts that t is a valid AVL tree holding exactly the items of expected */
+	static void assertContents(AVLTree t, NavigableMap<Integer, String> expected) {
+		assertValid(t);
+		assertEquals(expected.size(), t.size(), "size");
+		assertEquals(expected.isEmpty(), t.empty(), "empty");
+		int[] keys = new int[expected.size()];
+		String[] infos = new String[expected.size()];
+		int j = 0;
+		for (Map.Entry<Integer, String> e : expected.entrySet()) {
+			keys[j] = e.getKey();
+			infos[j] = e.getValue();
+			j++;
+		}
+		assertArrayEquals(keys, t.keysToArray(), "keysToArray");
+		assertArrayEquals(infos, t.infoToArray(), "infoToArray");
+		if (expected.isEmpty()) {
+			assertNull(t.min(), "min");
+			assertNull(t.max(), "max");
+		} else {
+			assertEquals(expected.firstEntry().getValue(), t.min(), "min");
+			assertEquals(expected.lastEntry().getValue(), t.max(), "max");
+		}
+	}
+
+	/** asserts the AVL invariants of t: parent links, heights, balance, sizes and key order */
+	static void assertValid(AVLTree t) {
+		AVLTree.IAVLNode root = t.getRoot();
+		if (t.empty()) {
+			return;
+		}
+		assertNull(root.getParent(), "parent of the root");
+		check(root, null, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/** checks the subtree of n and returns its size */
+	private static int check(AVLTree.IAVLNode n, AVLTree.IAVLNode parent, long lo, long hi) {
+		if (!n.isRealNode()) {
+			assertEquals(-1, n.getHeight(), "height of an external leaf");
+			return 0;
+		}
+		int key = n.getKey();
+		if (parent != null) {
+			assertSame(parent, n.getParent(), "parent of " + key);
+		}
+		assertTrue(lo < key && key < hi, "order at " + key);
+		int left = check(n.getLeft(), n, lo, key);
+		int right = check(n.getRight(), n, key, hi);
+		int lh = n.getLeft().getHeight();
+		int rh = n.getRight().getHeight();
+		assertEquals(Math.max(lh, rh) + 1, n.getHeight(), "height of " + key);
+		assertTrue(Math.abs(lh - rh) <= 1, "balance at " + key);
+		int size = left + right + 1;
+		assertEquals(size, ((AVLTree.AVLNode) n).getSize(), "size of " + key);
+		return size;
+	}
+}
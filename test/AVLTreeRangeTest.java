@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeRangeTest
+ *
+ * rangeCount, rangeScan and rangeIterator of AVLTree against the subMap of a TreeMap: random ranges,
+ * lo &gt; hi, empty ranges between keys, ranges past either end, and the end of the iterator.
+ *
+ */
+
+class AVLTreeRangeTest {
+
+	@Test
+	void randomRangesMatchTreeMap() {
+		Random rnd = new Random(6);
+		for (int round = 0; round < 100; round++) {
+			AVLTree t = new AVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(round < 20 ? 10 : 2000);
+			for (int i = rnd.nextInt(2 * range); i > 0; i--) {
+				int k = rnd.nextInt(range);
+				t.insert(k, "v" + k);
+				m.put(k, "v" + k);
+			}
+			for (int q = 0; q < 100; q++) {
+				int lo = rnd.nextInt(range + 4) - 2;
+				int hi = rnd.nextInt(range + 4) - 2;
+				assertRange(t, m, lo, hi);
+			}
+		}
+	}
+
+	@Test
+	void edgeRanges() {
+		AVLTree t = new AVLTree();
+		TreeMap<Integer, String> m = new TreeMap<>();
+		int[][] ranges = {{5, 4}, {40, 10}, {Integer.MAX_VALUE, Integer.MIN_VALUE},                  // lo > hi
+				{11, 19}, {12, 12}, {Integer.MIN_VALUE, 9}, {101, Integer.MAX_VALUE},                // empty
+				{10, 10}, {100, 100}, {Integer.MIN_VALUE, 10}, {100, Integer.MAX_VALUE},              // single keys
+				{Integer.MIN_VALUE, 55}, {55, Integer.MAX_VALUE}, {Integer.MIN_VALUE, Integer.MAX_VALUE},
+				{-50, 500}, {10, 100}, {9, 101}, {11, 99}};
+		for (int[] r : ranges) {                          // on the empty tree first
+			assertRange(t, m, r[0], r[1]);
+		}
+		for (int k = 10; k <= 100; k += 10) {
+			t.insert(k, "v" + k);
+			m.put(k, "v" + k);
+		}
+		for (int[] r : ranges) {
+			assertRange(t, m, r[0], r[1]);
+		}
+		assertEquals(0, t.rangeCount(11, 19));
+		assertEquals(10, t.rangeCount(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertEquals(0, t.rangeCount(40, 10));
+	}
+
+	@Test
+	void iteratorThrowsAtItsEnd() {
+		AVLTree t = new AVLTree();
+		assertNoMore(t.rangeIterator(0, 100));
+		for (int k = 10; k <= 100; k += 10) {
+			t.insert(k, "v" + k);
+		}
+		assertNoMore(t.rangeIterator(40, 10));
+		assertNoMore(t.rangeIterator(11, 19));
+		assertNoMore(t.rangeIterator(101, Integer.MAX_VALUE));
+		Iterator<AVLTree.IAVLNode> it = t.rangeIterator(95, Integer.MAX_VALUE);
+		assertEquals(100, it.next().getKey());
+		assertNoMore(it);
+		it = t.rangeIterator(30, 50);
+		assertEquals(30, it.next().getKey());
+		assertEquals(40, it.next().getKey());
+		assertEquals(50, it.next().getKey());             // the key after hi is in the tree, but not in the range
+		assertNoMore(it);
+	}
+
+	private static void assertNoMore(Iterator<AVLTree.IAVLNode> it) {
+		assertFalse(it.hasNext());
+		assertThrows(NoSuchElementException.class, it::next);
+		assertFalse(it.hasNext());                        // and it stays at its end
+		assertThrows(NoSuchElementException.class, it::next);
+	}
+
+	private static void assertRange(AVLTree t, TreeMap<Integer, String> m, int lo, int hi) {
+		NavigableMap<Integer, String> range = (lo <= hi) ? m.subMap(lo, true, hi, true) : new TreeMap<>();
+		String where = "[" + lo + ", " + hi + "]";
+		assertEquals(range.size(), t.rangeCount(lo, hi), "rangeCount " + where);
+
+		List<Integer> keys = new ArrayList<>();
+		List<String> infos = new ArrayList<>();
+		int visited = t.rangeScan(lo, hi, (k, info) -> {
+			keys.add(k);
+			infos.add(info);
+		});
+		assertEquals(range.size(), visited, "rangeScan " + where);
+		assertEquals(new ArrayList<>(range.keySet()), keys, "rangeScan " + where);
+		assertEquals(new ArrayList<>(range.values()), infos, "rangeScan " + where);
+
+		List<Integer> iterated = new ArrayList<>();
+		Iterator<AVLTree.IAVLNode> it = t.rangeIterator(lo, hi);
+		while (it.hasNext()) {
+			AVLTree.IAVLNode node = it.next();
+			assertEquals(m.get(node.getKey()), node.getValue());
+			iterated.add(node.getKey());
+		}
+		assertEquals(new ArrayList<>(range.keySet()), iterated, "rangeIterator " + where);
+		assertThrows(NoSuchElementException.class, it::next);
+	}
+}
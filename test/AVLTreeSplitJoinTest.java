@@ -0,0 +1,221 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeSplitJoinTest
+ *
+ * split (with x in the tree or not), join, extractRange and deleteRange of AVLTree against a TreeMap,
+ * on trees with a sum augmentation so the in-place relinking is checked down to the augmented values,
+ * and the node pool paths of split and of the set operations.
+ *
+ */
+
+class AVLTreeSplitJoinTest {
+
+	static final AVLTree.Augmentation<Long> SUM = new AVLTree.Augmentation<Long>() {
+		public Long identity() {
+			return 0L;
+		}
+
+		public Long leaf(int key, String info) {
+			return (long) key;
+		}
+
+		public Long combine(Long left, Long right) {
+			return left + right;
+		}
+	};
+
+	@Test
+	void splitAtPresentAndAbsentKeys() {
+		Random rnd = new Random(20);
+		for (int round = 0; round < 600; round++) {
+			int n = rnd.nextInt(round < 100 ? 8 : 1000);
+			TreeMap<Integer, String> m = new TreeMap<>();
+			AVLTree t = randomTree(rnd, n, m);
+			int x = rnd.nextInt(4 * n + 3) - 1;
+			AVLTree[] parts = t.split(x);
+			assertContents(parts[0], m.headMap(x, false));
+			assertContents(parts[1], m.tailMap(x, false));
+			assertTrue(t.empty(), "split empties the source tree");
+			parts[0].insert(x, "x");                          // the parts are ordinary trees
+			AVLTreeInvariants.assertValid(parts[0]);
+		}
+	}
+
+	@Test
+	void splitThenJoinRestoresTheTree() {
+		Random rnd = new Random(21);
+		for (int round = 0; round < 500; round++) {
+			int n = 1 + rnd.nextInt(1000);
+			TreeMap<Integer, String> m = new TreeMap<>();
+			AVLTree t = randomTree(rnd, n, m);
+			int x = m.keySet().toArray(new Integer[0])[rnd.nextInt(m.size())];
+			AVLTree[] parts = t.split(x);
+			AVLTree into = rnd.nextBoolean() ? parts[0] : parts[1];
+			AVLTree other = (into == parts[0]) ? parts[1] : parts[0];
+			boolean one_empty = parts[0].empty() || parts[1].empty();
+			int expected_cost = Math.abs(height(parts[0]) - height(parts[1])) + 1;
+			int cost = into.join(into.new AVLNode(x, m.get(x)), other);
+			if (!one_empty) {                                 // with an empty side the cost is measured after x goes in
+				assertEquals(expected_cost, cost);
+			}
+			assertContents(into, m);
+		}
+	}
+
+	@Test
+	void joinResetsTheLinksOfX() {
+		AVLTree a = new AVLTree(SUM);
+		AVLTree b = new AVLTree(SUM);
+		assertEquals(1, a.join(a.new AVLNode(5, "five"), b));   // both empty, x has null links
+		assertContents(a, new TreeMap<>(java.util.Map.of(5, "five")));
+
+		AVLTree source = new AVLTree(SUM);
+		TreeMap<Integer, String> m = new TreeMap<>();
+		for (int k = 0; k < 50; k++) {
+			source.insert(k, "s" + k);
+		}
+		AVLTree.IAVLNode stale = source.getRoot();             // still linked into source
+		AVLTree left = new AVLTree(SUM);
+		AVLTree right = new AVLTree(SUM);
+		for (int k = 100; k < 130; k++) {
+			left.insert(k, "l" + k);
+			m.put(k, "l" + k);
+		}
+		for (int k = 200; k < 203; k++) {
+			right.insert(k, "r" + k);
+			m.put(k, "r" + k);
+		}
+		AVLTree.AVLNode x = left.new AVLNode(150, "x");
+		x.setLeft(stale);
+		x.setRight(stale.getRight());
+		x.setParent(stale);
+		x.setHeight(7);
+		left.join(x, right);
+		m.put(150, "x");
+		assertContents(left, m);
+	}
+
+	@Test
+	void extractAndDeleteRanges() {
+		Random rnd = new Random(22);
+		for (int round = 0; round < 600; round++) {
+			int n = rnd.nextInt(round < 100 ? 8 : 1000);
+			TreeMap<Integer, String> m = new TreeMap<>();
+			AVLTree t = randomTree(rnd, n, m);
+			int lo = rnd.nextInt(4 * n + 3) - 1;
+			int hi = lo + rnd.nextInt(n + 2) - 1;
+			NavigableMap<Integer, String> range = (lo > hi) ? new TreeMap<>() : new TreeMap<>(m.subMap(lo, true, hi, true));
+			AVLTree extracted = t.extractRange(lo, hi);
+			assertContents(extracted, range);
+			m.keySet().removeAll(range.keySet());
+			assertContents(t, m);
+			for (int i = 0; i < 20; i++) {                   // the rest is still an ordinary tree
+				int k = rnd.nextInt(4 * n + 1);
+				t.insert(k, "v" + k);
+				m.putIfAbsent(k, "v" + k);
+				int d = rnd.nextInt(4 * n + 1);
+				t.delete(d);
+				m.remove(d);
+			}
+			int expected = (lo > hi) ? 0 : m.subMap(lo, true, hi, true).size();
+			assertEquals(expected, t.deleteRange(lo, hi));
+			if (lo <= hi) {
+				m.subMap(lo, true, hi, true).clear();
+			}
+			assertContents(t, m);
+		}
+	}
+
+	@Test
+	void splitPoolsTheDroppedNode() {
+		AVLTree t = new AVLTree(SUM);
+		t.enableNodePool(8);
+		TreeMap<Integer, String> m = new TreeMap<>();
+		for (int k = 0; k < 100; k += 2) {
+			t.insert(k, "v" + k);
+			m.put(k, "v" + k);
+		}
+		AVLTree.IAVLNode dropped = t.getRoot();
+		int x = dropped.getKey();
+		AVLTree[] parts = t.split(x);
+		assertEquals(1, t.pooledNodes());
+		assertEquals(0, parts[0].pooledNodes());
+		assertEquals(0, parts[1].pooledNodes());
+		assertContents(parts[0], m.headMap(x, false));
+		assertContents(parts[1], m.tailMap(x, false));
+
+		t.insert(7, "seven");                             // the emptied tree reuses the node of x
+		assertEquals(0, t.pooledNodes());
+		assertTrue(t.getRoot() == dropped);
+		assertContents(t, new TreeMap<>(Map.of(7, "seven")));
+
+		AVLTree u = new AVLTree(SUM);
+		u.enableNodePool(8);
+		u.insert(1, "one");
+		u.split(2);                                       // an absent key drops nothing
+		assertEquals(0, u.pooledNodes());
+	}
+
+	@Test
+	void setOperationsOnPooledTrees() {
+		Random rnd = new Random(22);
+		for (int round = 0; round < 200; round++) {
+			TreeMap<Integer, String> m1 = new TreeMap<>();
+			TreeMap<Integer, String> m2 = new TreeMap<>();
+			AVLTree t1 = randomTree(rnd, rnd.nextInt(300), m1);
+			AVLTree t2 = randomTree(rnd, rnd.nextInt(300), m2);
+			t1.enableNodePool(16);
+			t2.enableNodePool(16);
+			TreeMap<Integer, String> expected = new TreeMap<>(m1);
+			AVLTree res;
+			switch (round % 3) {
+			case 0:
+				m2.forEach(expected::putIfAbsent);
+				res = t1.union(t2);
+				break;
+			case 1:
+				expected.keySet().retainAll(m2.keySet());
+				res = t1.intersection(t2);
+				break;
+			default:
+				expected.keySet().removeAll(m2.keySet());
+				res = t1.difference(t2);
+				break;
+			}
+			assertContents(res, expected);
+		}
+	}
+
+	private static AVLTree randomTree(Random rnd, int n, TreeMap<Integer, String> m) {
+		AVLTree t = new AVLTree(SUM);
+		for (int i = 0; i < n; i++) {
+			int k = rnd.nextInt(4 * n + 1);
+			t.insert(k, "v" + k);
+			m.putIfAbsent(k, "v" + k);
+		}
+		return t;
+	}
+
+	private static int height(AVLTree t) {
+		return t.empty() ? -1 : t.getRoot().getHeight();
+	}
+
+	private static void assertContents(AVLTree t, NavigableMap<Integer, String> m) {
+		AVLTreeInvariants.assertContents(t, m);
+		long sum = 0;
+		for (int k : m.keySet()) {
+			sum += k;
+		}
+		assertEquals(sum, (long) t.aggregate(SUM), "sum augmentation");
+	}
+}
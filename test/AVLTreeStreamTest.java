@@ -0,0 +1,155 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeStreamTest
+ *
+ * keySpliterator and entrySpliterator of AVLTree: their characteristics, exact sizes after every
+ * trySplit (also after some items were taken), and keys()/entries() in parallel against keysToArray()
+ * and infoToArray(), in the same order.
+ *
+ */
+
+class AVLTreeStreamTest {
+
+	static final int WANTED = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED | Spliterator.DISTINCT
+			| Spliterator.ORDERED | Spliterator.NONNULL;
+
+	static final int[] SIZES = {0, 1, 2, 3, 7, 100, 20000};
+
+	@Test
+	void characteristics() {
+		AVLTree t = tree(new Random(21), 10);
+		Spliterator.OfInt keys = t.keySpliterator();
+		assertEquals(WANTED, keys.characteristics());
+		assertNull(keys.getComparator());                // natural order
+		Spliterator<Map.Entry<Integer, String>> entries = t.entrySpliterator();
+		assertEquals(WANTED, entries.characteristics());
+		assertTrue(entries.getComparator().compare(Map.entry(1, "z"), Map.entry(2, "a")) < 0);
+		Spliterator.OfInt prefix = keys.trySplit();      // the parts keep them
+		assertEquals(WANTED, prefix.characteristics());
+		assertEquals(WANTED, keys.characteristics());
+		assertEquals(WANTED, entries.trySplit().characteristics());
+	}
+
+	@Test
+	void splitsHaveExactSizes() {
+		Random rnd = new Random(210);
+		for (int n : SIZES) {
+			AVLTree t = tree(rnd, n);
+			int[] keys = t.keysToArray();
+
+			Spliterator.OfInt s = t.keySpliterator();
+			assertEquals(n, s.getExactSizeIfKnown());
+			List<int[]> parts = new ArrayList<>();
+			splitAll(s, parts);
+			assertArrayEquals(keys, parts.stream().flatMapToInt(Arrays::stream).toArray(), "keys of " + n);
+
+			List<Map.Entry<Integer, String>> entries = new ArrayList<>();
+			splitAll(t.entrySpliterator(), entries);
+			assertEquals(entriesOf(t), entries, "entries of " + n);
+
+			if (n >= 3) {                                // take some items, then split what is left
+				Spliterator.OfInt taken = t.keySpliterator();
+				List<Integer> got = new ArrayList<>();
+				for (int i = 0; i < n / 3; i++) {
+					assertTrue(taken.tryAdvance((int k) -> got.add(k)));
+				}
+				assertEquals(n - n / 3, taken.getExactSizeIfKnown());
+				List<int[]> rest = new ArrayList<>();
+				splitAll(taken, rest);
+				rest.stream().flatMapToInt(Arrays::stream).forEach(got::add);
+				assertEquals(Arrays.stream(keys).boxed().collect(Collectors.toList()), got);
+				assertFalse(taken.tryAdvance((int k) -> got.add(k)));
+			}
+		}
+	}
+
+	@Test
+	void parallelStreamsMatchTheArrays() {
+		Random rnd = new Random(2100);
+		for (int n : SIZES) {
+			AVLTree t = tree(rnd, n);
+			int[] keys = t.keysToArray();
+			assertArrayEquals(keys, t.keys().toArray());
+			assertArrayEquals(keys, t.keys().parallel().toArray());
+			assertEquals(n, t.keys().parallel().count());
+			assertEquals(Arrays.stream(keys).asLongStream().sum(), t.keys().parallel().asLongStream().sum());
+			assertArrayEquals(keys, t.entries().parallel().mapToInt(Map.Entry::getKey).toArray());
+			assertArrayEquals(t.infoToArray(), t.entries().parallel().map(Map.Entry::getValue).toArray(String[]::new));
+			assertEquals(entriesOf(t), t.entries().parallel().collect(Collectors.toList()));
+		}
+	}
+
+	/** splits s down to parts that cannot be split, collecting their keys in order */
+	private static void splitAll(Spliterator.OfInt s, List<int[]> parts) {
+		long size = s.estimateSize();
+		assertEquals(size, s.getExactSizeIfKnown());
+		Spliterator.OfInt prefix = s.trySplit();
+		if (prefix == null) {
+			int[] keys = new int[(int) size];
+			int[] i = {0};
+			s.forEachRemaining((int k) -> keys[i[0]++] = k);
+			assertEquals(size, i[0], "exact size of a part");
+			assertEquals(0, s.estimateSize());
+			parts.add(keys);
+			return;
+		}
+		assertEquals(size, prefix.estimateSize() + s.estimateSize(), "the sizes of a split add up");
+		assertTrue(prefix.estimateSize() > 0 && s.estimateSize() > 0);
+		splitAll(prefix, parts);
+		splitAll(s, parts);
+	}
+
+	private static void splitAll(Spliterator<Map.Entry<Integer, String>> s, List<Map.Entry<Integer, String>> entries) {
+		long size = s.estimateSize();
+		Spliterator<Map.Entry<Integer, String>> prefix = s.trySplit();
+		if (prefix == null) {
+			int before = entries.size();
+			s.forEachRemaining(entries::add);
+			assertEquals(size, entries.size() - before, "exact size of a part");
+			return;
+		}
+		assertEquals(size, prefix.estimateSize() + s.estimateSize(), "the sizes of a split add up");
+		splitAll(prefix, entries);
+		splitAll(s, entries);
+	}
+
+	private static List<Map.Entry<Integer, String>> entriesOf(AVLTree t) {
+		int[] keys = t.keysToArray();
+		String[] infos = t.infoToArray();
+		List<Map.Entry<Integer, String>> entries = new ArrayList<>();
+		for (int i = 0; i < keys.length; i++) {
+			entries.add(new AbstractMap.SimpleImmutableEntry<>(keys[i], infos[i]));
+		}
+		return entries;
+	}
+
+	/** a tree of n random keys */
+	private static AVLTree tree(Random rnd, int n) {
+		AVLTree t = new AVLTree();
+		TreeMap<Integer, String> m = new TreeMap<>();
+		while (m.size() < n) {
+			int k = rnd.nextInt();
+			t.insert(k, "v" + k);
+			m.put(k, "v" + k);
+		}
+		return t;
+	}
+}
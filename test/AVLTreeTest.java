@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeTest
+ *
+ * insert, delete and search of AVLTree against a TreeMap on random workloads,
+ * with the AVL invariants checked along the way, and the order statistics at their edges.
+ *
+ */
+
+class AVLTreeTest {
+
+	@Test
+	void emptyTree() {
+		AVLTree t = new AVLTree();
+		assertNull(t.getRoot());
+		assertNull(t.search(1));
+		assertEquals(-1, t.delete(1));
+		AVLTreeInvariants.assertContents(t, new TreeMap<>());
+	}
+
+	@Test
+	void randomInsertDeleteMatchesTreeMap() {
+		Random rnd = new Random(1);
+		for (int round = 0; round < 200; round++) {
+			AVLTree t = new AVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(500);
+			for (int op = 0; op < 400; op++) {
+				int k = rnd.nextInt(range);
+				if (rnd.nextBoolean()) {
+					int steps = t.insert(k, "v" + k);
+					assertEquals(m.containsKey(k), steps == -1, "insert " + k);
+					m.putIfAbsent(k, "v" + k);
+				} else {
+					int steps = t.delete(k);
+					assertEquals(!m.containsKey(k), steps == -1, "delete " + k);
+					m.remove(k);
+				}
+				assertEquals(m.get(k), t.search(k), "search " + k);
+				if (op % 40 == 0) {
+					AVLTreeInvariants.assertContents(t, m);
+				}
+			}
+			AVLTreeInvariants.assertContents(t, m);
+		}
+	}
+
+	@Test
+	void sequentialKeysStayBalanced() {
+		AVLTree t = new AVLTree();
+		TreeMap<Integer, String> m = new TreeMap<>();
+		for (int k = 0; k < 4096; k++) {
+			t.insert(k, "v" + k);
+			m.put(k, "v" + k);
+		}
+		AVLTreeInvariants.assertContents(t, m);
+		assertEquals(12, t.getRoot().getHeight());
+		for (int k = 0; k < 4096; k += 2) {
+			t.delete(k);
+			m.remove(k);
+		}
+		AVLTreeInvariants.assertContents(t, m);
+	}
+
+	@Test
+	void keyMinusOneIsAnOrdinaryKey() {
+		TreeMap<Integer, String> m = new TreeMap<>();       // the external leaves have key -1 too
+		for (int[] keys : new int[][] {{-2, -1}, {0, -1}, {-2, -3, -1}, {0, 1, -1}, {-3, -2, 0, -1}}) {
+			AVLTree t = new AVLTree();
+			m.clear();
+			for (int k : keys) {
+				t.insert(k, "v" + k);
+				m.put(k, "v" + k);
+			}
+			AVLTreeInvariants.assertContents(t, m);
+			assertTrue(t.delete(-1) >= 0, "delete -1 of " + m.keySet());
+			m.remove(-1);
+			assertNull(t.search(-1));
+			AVLTreeInvariants.assertContents(t, m);
+		}
+	}
+
+	@Test
+	void orderStatisticsOfAnEmptyTree() {
+		AVLTree t = new AVLTree();
+		assertNull(t.select(-1));
+		assertNull(t.select(0));
+		assertEquals(0, t.rank(5));
+		assertNull(t.median());
+		assertNull(t.percentile(0));
+		assertNull(t.percentile(100));
+	}
+
+	@Test
+	void orderStatisticsAtTheEdges() {
+		for (int n = 1; n <= 10; n++) {                      // odd and even sizes
+			AVLTree t = new AVLTree();
+			for (int i = 1; i <= n; i++) {
+				t.insert(10 * i, "v" + i);                   // keys 10, 20, .., 10n: key of rank r is 10(r + 1)
+			}
+			assertNull(t.select(-1));
+			assertEquals(10, t.select(0).getKey());
+			assertEquals(10 * n, t.select(n - 1).getKey());
+			assertNull(t.select(n));
+			assertNull(t.select(Integer.MAX_VALUE));
+
+			assertEquals(0, t.rank(Integer.MIN_VALUE));      // below the min
+			assertEquals(0, t.rank(9));
+			assertEquals(0, t.rank(10));
+			assertEquals(1, t.rank(15));                     // absent keys between two keys
+			assertEquals(n - 1, t.rank(10 * n - 1));
+			assertEquals(n - 1, t.rank(10 * n));
+			assertEquals(n, t.rank(10 * n + 1));             // beyond the max
+			assertEquals(n, t.rank(Integer.MAX_VALUE));
+
+			int median_rank = (n % 2 == 1) ? n / 2 : n / 2 - 1;  // the lower middle for an even size
+			assertEquals(10 * (median_rank + 1), t.median().getKey(), "median of " + n);
+			assertEquals(10, t.percentile(0).getKey());
+			assertEquals(10 * n, t.percentile(100).getKey());
+			assertEquals(t.median().getKey(), t.percentile(50).getKey());
+			for (double p : new double[] {-0.001, 100.001, -1, 1000, Double.NaN, Double.NEGATIVE_INFINITY}) {
+				assertThrows(IllegalArgumentException.class, () -> t.percentile(p), "percentile " + p);
+			}
+		}
+	}
+}
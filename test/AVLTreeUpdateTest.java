@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * AVLTreeUpdateTest
+ *
+ * put, putIfAbsent, compute, computeIfPresent and remove of AVLTree against a TreeMap, mixed with
+ * insert and delete, on trees with an augmentation over the infos so replacing an info in place
+ * is checked up to the root. Null infos are items like the others: they can be looked up and deleted.
+ *
+ */
+
+class AVLTreeUpdateTest {
+
+	static final AVLTree.Augmentation<Long> INFO_LENGTH = new AVLTree.Augmentation<Long>() {
+		public Long identity() {
+			return 0L;
+		}
+
+		public Long leaf(int key, String info) {
+			return (info == null) ? 0L : (long) info.length();
+		}
+
+		public Long combine(Long left, Long right) {
+			return left + right;
+		}
+	};
+
+	@Test
+	void randomUpdatesMatchTreeMap() {
+		Random rnd = new Random(19);
+		for (int round = 0; round < 200; round++) {
+			AVLTree t = new AVLTree(INFO_LENGTH);
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(400);
+			for (int op = 0; op < 600; op++) {
+				int k = rnd.nextInt(range);
+				String info = info(rnd, k);
+				boolean present = m.containsKey(k);
+				String old = m.get(k);
+				switch (rnd.nextInt(7)) {
+				case 0:
+					assertEquals(old, t.put(k, info), "put " + k);
+					m.put(k, info);
+					break;
+				case 1:
+					assertEquals(old, t.putIfAbsent(k, info), "putIfAbsent " + k);
+					if (!present) {
+						m.put(k, info);
+					}
+					break;
+				case 2: {
+					String next = (info == null) ? null : info + "+";
+					String got = t.compute(k, (key, i) -> {
+						assertEquals(k, key);
+						assertEquals(old, i, "compute sees the current info");
+						return next;
+					});
+					assertEquals(next, got, "compute " + k);
+					if (next == null) {
+						m.remove(k);
+					}
+					else {
+						m.put(k, next);
+					}
+					break;
+				}
+				case 3: {
+					String next = (info == null) ? null : info + "*";
+					String got = t.computeIfPresent(k, (key, i) -> {
+						assertTrue(present, "computeIfPresent calls f only for a present key");
+						assertEquals(old, i);
+						return next;
+					});
+					if (present) {
+						assertEquals(next, got, "computeIfPresent " + k);
+						if (next == null) {
+							m.remove(k);
+						}
+						else {
+							m.put(k, next);
+						}
+					}
+					else {
+						assertNull(got);
+					}
+					break;
+				}
+				case 4:
+					assertEquals(old, t.remove(k), "remove " + k);
+					m.remove(k);
+					break;
+				case 5:
+					assertEquals(present, t.insert(k, info) == -1, "insert " + k);
+					if (!present) {                          // not m.putIfAbsent, which replaces a null info
+						m.put(k, info);
+					}
+					break;
+				default:
+					assertEquals(!present, t.delete(k) == -1, "delete " + k);
+					m.remove(k);
+					break;
+				}
+				if (op % 50 == 0) {
+					assertContents(t, m);
+				}
+			}
+			assertContents(t, m);
+		}
+	}
+
+	@Test
+	void nullInfosAreItems() {
+		AVLTree t = new AVLTree(INFO_LENGTH);
+		for (int k = 0; k < 64; k++) {
+			t.put(k, (k % 2 == 0) ? null : "v" + k);
+		}
+		TreeMap<Integer, String> m = new TreeMap<>();
+		for (int k = 0; k < 64; k++) {
+			m.put(k, (k % 2 == 0) ? null : "v" + k);
+		}
+		assertContents(t, m);
+		assertNull(t.putIfAbsent(10, "ten"));              // 10 is there with a null info, nothing changes
+		assertContents(t, m);
+		assertEquals("ten", t.compute(10, (k, i) -> (i == null) ? "ten" : "not null"));
+		m.put(10, "ten");
+		assertNull(t.put(12, "twelve"));                   // the old info was null
+		m.put(12, "twelve");
+		assertNull(t.remove(20));                          // removed, its info was null
+		m.remove(20);
+		assertTrue(t.delete(22) >= 0);                    // delete finds a null info item too
+		m.remove(22);
+		assertContents(t, m);
+		for (int k = 0; k < 64; k++) {                     // everything goes, whatever the info
+			t.remove(k);
+			m.remove(k);
+		}
+		assertContents(t, m);
+	}
+
+	private static String info(Random rnd, int k) {
+		return (rnd.nextInt(6) == 0) ? null : "v" + k + "_" + rnd.nextInt(100);
+	}
+
+	private static void assertContents(AVLTree t, NavigableMap<Integer, String> m) {
+		AVLTreeInvariants.assertContents(t, m);
+		long length = 0;
+		for (String info : m.values()) {
+			length += (info == null) ? 0 : info.length();
+		}
+		assertEquals(length, (long) t.aggregate(INFO_LENGTH), "info length augmentation");
+	}
+}
@@ -0,0 +1,220 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * ConcurrentAVLTreeTest
+ *
+ * writers on disjoint key sets, each checked against its own TreeMap while lock-free readers
+ * take min/max and sorted snapshots. Once every update has returned, the nodes are walked from
+ * rootHolder (by reflection, the nodes are not part of the API): the tree must be a strict AVL
+ * tree again, with no routing node left that could be unlinked and no node caught mid-rotation.
+ *
+ */
+
+class ConcurrentAVLTreeTest {
+
+	static final int LOW = -1;                           // sentinels kept for the whole run, so min/max are known
+	static final int HIGH = 1 << 30;
+
+	@Test
+	void singleThreadMatchesTreeMap() throws ReflectiveOperationException {
+		ConcurrentAVLTree t = new ConcurrentAVLTree();
+		assertNull(t.min());
+		assertNull(t.max());
+		TreeMap<Integer, String> m = new TreeMap<>();
+		Random rnd = new Random(9);
+		for (int op = 0; op < 50000; op++) {
+			int k = rnd.nextInt(3000);
+			if (rnd.nextInt(5) < 3) {
+				assertEquals(m.containsKey(k), t.insert(k, "v" + k) == -1, "insert " + k);
+				m.putIfAbsent(k, "v" + k);
+			} else {
+				assertEquals(!m.containsKey(k), t.delete(k) == -1, "delete " + k);
+				m.remove(k);
+			}
+			assertEquals(m.get(k), t.search(k));
+			if (op % 5000 == 0) {
+				assertContents(t, m);
+			}
+		}
+		assertContents(t, m);
+		for (int k : m.keySet()) {
+			assertEquals(0, t.delete(k));
+		}
+		assertContents(t, new TreeMap<>());
+	}
+
+	@Test
+	void concurrentWritersOnDisjointKeys() throws InterruptedException, ReflectiveOperationException {
+		int threads = 4;
+		ConcurrentAVLTree t = new ConcurrentAVLTree();
+		t.insert(LOW, "low");
+		t.insert(HIGH, "high");
+		List<TreeMap<Integer, String>> expected = new ArrayList<>();
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		List<Thread> writers = new ArrayList<>();
+		for (int w = 0; w < threads; w++) {
+			int id = w;
+			TreeMap<Integer, String> m = new TreeMap<>();
+			expected.add(m);
+			writers.add(new Thread(() -> {
+				try {
+					Random rnd = new Random(id);
+					for (int op = 0; op < 60000; op++) {
+						int k = rnd.nextInt(2000) * threads + id;      // the key sets interleave, the subtrees are shared
+						if (rnd.nextInt(op < 30000 ? 3 : 2) > 0) {
+							String info = "v" + k + "_" + op;
+							assertEquals(m.containsKey(k), t.insert(k, info) == -1, "insert " + k);
+							m.putIfAbsent(k, info);
+						} else {
+							assertEquals(!m.containsKey(k), t.delete(k) == -1, "delete " + k);
+							m.remove(k);
+						}
+						assertEquals(m.get(k), t.search(k), "search " + k);
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		List<Thread> readers = new ArrayList<>();
+		for (int r = 0; r < 2; r++) {
+			readers.add(new Thread(() -> {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						int[] keys = t.keysToArray();
+						for (int i = 1; i < keys.length; i++) {
+							assertTrue(keys[i - 1] < keys[i], "strict key order");
+						}
+						assertEquals(LOW, keys[0]);
+						assertEquals(HIGH, keys[keys.length - 1]);
+						assertEquals("low", t.min());
+						assertEquals("high", t.max());
+						assertEquals("low", t.search(LOW));
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		writers.forEach(Thread::start);
+		readers.forEach(Thread::start);
+		for (Thread w : writers) {
+			w.join();
+		}
+		for (Thread r : readers) {
+			r.interrupt();
+			r.join();
+		}
+		assertTrue(failures.isEmpty(), () -> "failures: " + failures);
+
+		TreeMap<Integer, String> all = new TreeMap<>();
+		expected.forEach(all::putAll);
+		all.put(LOW, "low");
+		all.put(HIGH, "high");
+		assertContents(t, all);
+	}
+
+	private static void assertContents(ConcurrentAVLTree t, TreeMap<Integer, String> m) throws ReflectiveOperationException {
+		int[] keys = new int[m.size()];
+		String[] infos = new String[m.size()];
+		int j = 0;
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			keys[j] = e.getKey();
+			infos[j++] = e.getValue();
+		}
+		assertEquals(m.size(), t.size());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(keys, t.keysToArray());
+		assertArrayEquals(infos, t.infoToArray());
+		assertEquals(m.isEmpty() ? null : m.firstEntry().getValue(), t.min());
+		assertEquals(m.isEmpty() ? null : m.lastEntry().getValue(), t.max());
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			assertEquals(e.getValue(), t.search(e.getKey()));
+		}
+		assertEquals(m.size(), new Shape(t).live, "live nodes");
+	}
+
+	/** the walk of a quiescent tree from rootHolder, through the private fields of its nodes */
+	private static final class Shape {
+		static final long UNLINKED = 1L;
+		static final long SHRINKING = 2L;
+
+		final Field key;
+		final Field info;
+		final Field height;
+		final Field version;
+		final Field parent;
+		final Field left;
+		final Field right;
+		int live;
+
+		Shape(ConcurrentAVLTree t) throws ReflectiveOperationException {
+			Class<?> node = Class.forName("ConcurrentAVLTree$Node");
+			key = field(node, "key");
+			info = field(node, "info");
+			height = field(node, "height");
+			version = field(node, "version");
+			parent = field(node, "parent");
+			left = field(node, "left");
+			right = field(node, "right");
+			Object holder = field(ConcurrentAVLTree.class, "rootHolder").get(t);
+			assertNull(left.get(holder), "rootHolder has only a right son");
+			Object root = right.get(holder);
+			if (root != null) {
+				assertSame(holder, parent.get(root), "parent of the root");
+			}
+			check(root, Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+
+		/** checks the subtree of node, whose keys are in (lo, hi), returns its height (0 for none) */
+		private int check(Object node, long lo, long hi) throws IllegalAccessException {
+			if (node == null) {
+				return 0;
+			}
+			int k = key.getInt(node);
+			assertTrue(lo < k && k < hi, "BST order at " + k);
+			long v = version.getLong(node);
+			assertEquals(0, v & (UNLINKED | SHRINKING), "version of " + k);
+			Object l = left.get(node);
+			Object r = right.get(node);
+			if (l != null) {
+				assertSame(node, parent.get(l), "parent of the left son of " + k);
+			}
+			if (r != null) {
+				assertSame(node, parent.get(r), "parent of the right son of " + k);
+			}
+			if (info.get(node) == null) {
+				assertTrue(l != null && r != null, "routing node " + k + " with fewer than two sons");
+			}
+			else {
+				live++;
+			}
+			int hl = check(l, lo, k);
+			int hr = check(r, k, hi);
+			assertTrue(Math.abs(hl - hr) <= 1, "AVL balance at " + k + ": " + hl + " / " + hr);
+			assertEquals(Math.max(hl, hr) + 1, height.getInt(node), "height of " + k);
+			return Math.max(hl, hr) + 1;
+		}
+
+		private static Field field(Class<?> c, String name) throws NoSuchFieldException {
+			Field f = c.getDeclaredField(name);
+			f.setAccessible(true);
+			return f;
+		}
+	}
+}
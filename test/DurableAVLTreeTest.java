@@ -0,0 +1,163 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * DurableAVLTreeTest
+ *
+ * Recovery of DurableAVLTree: replay of the log and of checkpoints against a TreeMap, torn and garbage
+ * log tails, flush() after Sync.OS writes, and the checkpoint trigger under concurrent writers.
+ *
+ */
+
+class DurableAVLTreeTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void reopenReplaysLogAndCheckpoints() throws IOException {
+		Random rnd = new Random(13);
+		TreeMap<Integer, String> m = new TreeMap<>();
+		for (int session = 0; session < 6; session++) {
+			try (DurableAVLTree t = DurableAVLTree.open(dir, DurableAVLTree.Sync.ALWAYS, 1, 150)) {
+				assertContents(t, m);
+				for (int op = 0; op < 400; op++) {
+					int k = rnd.nextInt(300);
+					if (rnd.nextInt(3) > 0) {
+						String info = rnd.nextInt(10) == 0 ? null : "v" + k + "-" + session;
+						assertEquals(m.containsKey(k), t.insert(k, info) == -1);
+						if (!m.containsKey(k)) {
+							m.put(k, info);
+						}
+					} else {
+						assertEquals(!m.containsKey(k), t.delete(k) == -1);
+						m.remove(k);
+					}
+				}
+				if (session % 2 == 0) {
+					t.checkpoint();
+				}
+			}
+		}
+		try (DurableAVLTree t = DurableAVLTree.open(dir)) {
+			assertContents(t, m);
+		}
+	}
+
+	@Test
+	void tornRecordIsCutOff() throws IOException {
+		try (DurableAVLTree t = DurableAVLTree.open(dir, DurableAVLTree.Sync.ALWAYS, 1, 0)) {
+			t.insert(1, "one");
+			t.insert(2, "two");
+		}
+		Path log = dir.resolve("wal-0.log");
+		long good = Files.size(log);
+		byte[] record = Files.readAllBytes(log);
+		try (FileChannel ch = FileChannel.open(log, StandardOpenOption.APPEND)) {
+			int second = DurableAVLTree.RECORD_HEADER + 3;                   // the record of (2, "two") starts here
+			ch.write(ByteBuffer.wrap(record, second, DurableAVLTree.RECORD_HEADER + 1));   // its header and 1 byte of info
+		}
+		try (DurableAVLTree t = DurableAVLTree.open(dir)) {
+			assertArrayEquals(new int[] {1, 2}, t.keysToArray());
+		}
+		assertEquals(good, Files.size(log));
+	}
+
+	@Test
+	void garbageInfoLengthIsEndOfLog() throws IOException {
+		try (DurableAVLTree t = DurableAVLTree.open(dir, DurableAVLTree.Sync.ALWAYS, 1, 0)) {
+			t.insert(7, "seven");
+		}
+		Path log = dir.resolve("wal-0.log");
+		long good = Files.size(log);
+		ByteBuffer tail = ByteBuffer.allocate(DurableAVLTree.RECORD_HEADER);
+		tail.putInt(0).put(DurableAVLTree.INSERT).putInt(8).putInt(Integer.MAX_VALUE).flip();
+		try (FileChannel ch = FileChannel.open(log, StandardOpenOption.APPEND)) {
+			ch.write(tail);
+		}
+		try (DurableAVLTree t = DurableAVLTree.open(dir)) {
+			assertArrayEquals(new int[] {7}, t.keysToArray());
+			assertEquals("seven", t.search(7));
+		}
+		assertEquals(good, Files.size(log));
+	}
+
+	@Test
+	void flushForcesWhatSyncOsOnlyWrote() throws Exception {
+		try (DurableAVLTree t = DurableAVLTree.open(dir, DurableAVLTree.Sync.OS, 1, 0)) {
+			t.insert(1, "one");
+			long deadline = System.nanoTime() + 5_000_000_000L;
+			while (longField(t, "written") < 1 && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			assertEquals(1, longField(t, "written"), "the flusher wrote the record");
+			assertEquals(0, longField(t, "synced"), "Sync.OS does not fsync");
+			t.flush();
+			assertEquals(1, longField(t, "synced"), "flush() fsyncs it");
+		}
+	}
+
+	@Test
+	void concurrentWritersTakeOneCheckpointPerThreshold() throws Exception {
+		int threads = 4;
+		int per_thread = 2000;
+		int every = 100;
+		try (DurableAVLTree t = DurableAVLTree.open(dir, DurableAVLTree.Sync.BATCH, 1, every)) {
+			ArrayList<Thread> writers = new ArrayList<>();
+			for (int w = 0; w < threads; w++) {
+				int base = w * per_thread;
+				writers.add(new Thread(() -> {
+					for (int k = base; k < base + per_thread; k++) {
+						t.insert(k, "v");
+					}
+				}));
+			}
+			writers.forEach(Thread::start);
+			for (Thread w : writers) {
+				w.join();
+			}
+			long generation = longField(t, "generation");
+			assertTrue(generation <= threads * per_thread / every, "checkpoints: " + generation);
+			assertEquals(threads * per_thread, t.size());
+		}
+		try (DurableAVLTree t = DurableAVLTree.open(dir)) {
+			assertEquals(threads * per_thread, t.size());
+		}
+	}
+
+	private static void assertContents(DurableAVLTree t, TreeMap<Integer, String> m) {
+		int[] keys = new int[m.size()];
+		String[] infos = new String[m.size()];
+		int j = 0;
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			keys[j] = e.getKey();
+			infos[j++] = e.getValue();
+		}
+		assertArrayEquals(keys, t.keysToArray());
+		assertArrayEquals(infos, t.infoToArray());
+	}
+
+	/** reads a private long field of the tree, the log positions are not part of its API */
+	private static long longField(DurableAVLTree t, String name) throws ReflectiveOperationException {
+		Field f = DurableAVLTree.class.getDeclaredField(name);
+		f.setAccessible(true);
+		return f.getLong(t);
+	}
+}
@@ -0,0 +1,268 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * IntAVLTreeTest
+ *
+ * IntAVLTree against AVLTree (the rebalancing counts insert and delete return) and a TreeMap
+ * (the contents), with String and with compact infos: random updates, split within a node store,
+ * and join within a store and across stores, where the nodes of the other tree are copied in.
+ * With compact infos, churn on one of two trees that share a store must survive the compactions
+ * of their InfoArena.
+ *
+ */
+
+class IntAVLTreeTest {
+
+	@Test
+	void updatesMatchAVLTree() {
+		updatesMatchAVLTree(false, 2);
+		updatesMatchAVLTree(true, 22);
+	}
+
+	@Test
+	void splitAndJoinMatchTreeMap() {
+		splitAndJoinMatchTreeMap(false, 3);
+		splitAndJoinMatchTreeMap(true, 33);
+	}
+
+	private static void updatesMatchAVLTree(boolean compact, long seed) {
+		Random rnd = new Random(seed);
+		for (int round = 0; round < 100; round++) {
+			IntAVLTree t = new IntAVLTree(compact);
+			AVLTree reference = new AVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(round < 20 ? 10 : 1000);
+			for (int op = 0; op < 2000; op++) {
+				int k = rnd.nextInt(range);
+				if (rnd.nextInt(5) < 3) {
+					String info = info(rnd, k);
+					assertEquals(reference.insert(k, info), t.insert(k, info), "insert " + k);
+					if (!m.containsKey(k)) {                     // not putIfAbsent, which replaces a null info
+						m.put(k, info);
+					}
+				} else {
+					assertEquals(reference.delete(k), t.delete(k), "delete " + k);
+					m.remove(k);
+				}
+				assertEquals(m.get(k), t.search(k));
+			}
+			assertContents(t, m);
+		}
+	}
+
+	private static void splitAndJoinMatchTreeMap(boolean compact, long seed) {
+		Random rnd = new Random(seed);
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> m = new TreeMap<>();
+			IntAVLTree t = new IntAVLTree(compact);
+			int n = 1 + rnd.nextInt(round < 50 ? 8 : 800);
+			while (m.size() < n) {
+				int k = rnd.nextInt(4 * n);
+				String info = info(rnd, k);
+				if (t.insert(k, info) >= 0) {
+					m.put(k, info);
+				}
+			}
+			Integer[] keys = m.keySet().toArray(new Integer[0]);
+			int x = keys[rnd.nextInt(keys.length)];             // split needs x in the tree
+			String info = m.get(x);
+			IntAVLTree[] parts = t.split(x);
+			NavigableMap<Integer, String> below = m.headMap(x, false);
+			NavigableMap<Integer, String> above = m.tailMap(x, false);
+			assertContents(parts[0], below);
+			assertContents(parts[1], above);
+
+			int h0 = parts[0].empty() ? -1 : parts[0].getHeight(parts[0].getRoot());
+			int h1 = parts[1].empty() ? -1 : parts[1].getHeight(parts[1].getRoot());
+			IntAVLTree into;
+			if (rnd.nextBoolean()) {                             // join within the store
+				into = parts[0];
+				assertEquals(expectedJoinCost(h0, h1), into.join(x, info, parts[1]));
+			}
+			else {                                               // join with a tree of another store, copied in
+				IntAVLTree other = new IntAVLTree(compact);
+				for (int k : above.keySet()) {
+					other.insert(k, above.get(k));
+				}
+				int ho = other.empty() ? -1 : other.getHeight(other.getRoot());
+				into = rnd.nextBoolean() ? parts[0] : other;
+				IntAVLTree from = (into == other) ? parts[0] : other;
+				assertEquals(expectedJoinCost(into == other ? ho : h0, into == other ? h0 : ho), into.join(x, info, from));
+			}
+			assertContents(into, m);
+			into.insert(-1, "after");                            // the joined tree keeps working
+			into.delete(x);
+			TreeMap<Integer, String> after = new TreeMap<>(m);
+			after.put(-1, "after");
+			after.remove(x);
+			assertContents(into, after);
+		}
+	}
+
+	@Test
+	void compactInfosSurviveArenaCompaction() throws ReflectiveOperationException {
+		Random rnd = new Random(14);
+		IntAVLTree t = new IntAVLTree(true);
+		TreeMap<Integer, String> m = new TreeMap<>();
+		for (int k = 0; k < 4000; k++) {
+			String info = longInfo(rnd, k);
+			t.insert(k, info);
+			m.put(k, info);
+		}
+		IntAVLTree[] parts = t.split(2000);                  // both parts share the node store and its arena
+		TreeMap<Integer, String> below = new TreeMap<>(m.headMap(2000, false));
+		TreeMap<Integer, String> above = new TreeMap<>(m.tailMap(2000, false));
+		IntAVLTree.InfoArena arena = arena(parts[0]);
+		assertTrue(arena == arena(parts[1]));
+
+		int compactions = 0;
+		int last_end = arenaEnd(arena);
+		for (int op = 0; op < 40000; op++) {                // churn one part only: delete and insert again
+			int k = rnd.nextInt(2000);
+			if (below.containsKey(k)) {
+				assertTrue(parts[0].delete(k) >= 0);
+				below.remove(k);
+			} else {
+				String info = longInfo(rnd, k);
+				assertTrue(parts[0].insert(k, info) >= 0);
+				below.put(k, info);
+			}
+			int end = arenaEnd(arena);
+			if (end < last_end) {                            // the records were moved to a new array
+				compactions++;
+				assertSearches(parts[0], below);
+				assertSearches(parts[1], above);             // its offsets were rewritten too
+			}
+			last_end = end;
+		}
+		assertTrue(compactions >= 3, "the arena was compacted " + compactions + " times");
+		assertContents(parts[0], below);
+		assertSearches(parts[0], below);
+		assertContents(parts[1], above);
+		assertSearches(parts[1], above);
+
+		for (int k = 2001; k < 4000; k += 2) {               // and the other part still updates after that
+			parts[1].delete(k);
+			above.remove(k);
+		}
+		parts[1].insert(5000, "последний");
+		above.put(5000, "последний");
+		assertContents(parts[1], above);
+		assertSearches(parts[1], above);
+		assertSearches(parts[0], below);
+	}
+
+	/** checks search and searchBytes of every key, and of a key that is not there */
+	private static void assertSearches(IntAVLTree t, NavigableMap<Integer, String> m) {
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			String info = e.getValue();
+			assertEquals(info, t.search(e.getKey()));
+			byte[] expected = (info == null) ? null : info.getBytes(StandardCharsets.UTF_8);
+			assertArrayEquals(expected, t.searchBytes(e.getKey()), "searchBytes " + e.getKey());
+		}
+		assertNull(t.searchBytes(-5));
+		assertArrayEquals(m.values().toArray(new String[0]), t.infoToArray());
+	}
+
+	/** an info of 20 to 120 bytes (so the garbage reaches the compaction threshold), or null */
+	private static String longInfo(Random rnd, int k) {
+		if (rnd.nextInt(8) == 0) {
+			return null;
+		}
+		StringBuilder b = new StringBuilder().append(k).append(rnd.nextBoolean() ? " ünïcødé " : " ascii ");
+		for (int i = rnd.nextInt(40); i > 0; i--) {
+			b.append((char) ('a' + rnd.nextInt(26)));
+		}
+		return b.toString();
+	}
+
+	/** the arena of the node store of t, which is not part of the API */
+	private static IntAVLTree.InfoArena arena(IntAVLTree t) throws ReflectiveOperationException {
+		Field nodes = IntAVLTree.class.getDeclaredField("nodes");
+		nodes.setAccessible(true);
+		return ((IntAVLTree.NodeStore) nodes.get(t)).arena;
+	}
+
+	private static int arenaEnd(IntAVLTree.InfoArena arena) throws ReflectiveOperationException {
+		Field end = IntAVLTree.InfoArena.class.getDeclaredField("end");
+		end.setAccessible(true);
+		return end.getInt(arena);
+	}
+
+	/** join returns |rank difference| + 1, and the height of the other side + 1 if one side is empty */
+	private static int expectedJoinCost(int h_this, int h_t) {
+		if (h_this < 0 && h_t < 0) {
+			return 1;
+		}
+		if (h_this < 0 || h_t < 0) {
+			return Math.max(h_this, h_t) + 1;
+		}
+		return Math.abs(h_this - h_t) + 1;
+	}
+
+	private static String info(Random rnd, int k) {
+		switch (rnd.nextInt(5)) {
+		case 0:
+			return null;
+		case 1:
+			return "ψ " + k + " 値";
+		default:
+			return "v" + k;
+		}
+	}
+
+	private static void assertContents(IntAVLTree t, NavigableMap<Integer, String> m) {
+		assertEquals(m.size(), t.size());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(m.keySet().stream().mapToInt(Integer::intValue).toArray(), t.keysToArray());
+		assertArrayEquals(m.values().toArray(new String[0]), t.infoToArray());
+		if (m.isEmpty()) {
+			assertNull(t.min());
+			assertNull(t.max());
+			return;
+		}
+		assertEquals(m.firstEntry().getValue(), t.min());
+		assertEquals(m.lastEntry().getValue(), t.max());
+		for (int k : m.keySet()) {
+			assertEquals(m.get(k), t.search(k));
+		}
+		assertEquals(IntAVLTree.NIL, t.getParent(t.getRoot()));
+		check(t, t.getRoot(), Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/** checks order, parents, heights and balance below node, returns its height */
+	private static int check(IntAVLTree t, int node, long lo, long hi) {
+		if (!t.isRealNode(node)) {
+			assertEquals(-1, t.getHeight(node));
+			return -1;
+		}
+		int key = t.getKey(node);
+		assertTrue(lo < key && key < hi, "order");
+		int left = t.getLeft(node);
+		int right = t.getRight(node);
+		if (t.isRealNode(left)) {
+			assertEquals(node, t.getParent(left), "parent");
+		}
+		if (t.isRealNode(right)) {
+			assertEquals(node, t.getParent(right), "parent");
+		}
+		int hl = check(t, left, lo, key);
+		int hr = check(t, right, key, hi);
+		assertTrue(Math.abs(hl - hr) <= 1, "balance");
+		assertEquals(Math.max(hl, hr) + 1, t.getHeight(node), "height");
+		return t.getHeight(node);
+	}
+}
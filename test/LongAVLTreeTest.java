@@ -0,0 +1,247 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * LongAVLTreeTest
+ *
+ * LongAVLTree against a TreeMap, with keys over the whole long range (the int boundaries and the
+ * ends of the long range included): updates, order statistics, range scans, the exports in chunks
+ * and as a (parallel) LongStream, and split/join.
+ *
+ */
+
+class LongAVLTreeTest {
+
+	static final long[] EDGES = {Long.MIN_VALUE, Long.MIN_VALUE + 1, Integer.MIN_VALUE - 1L, Integer.MIN_VALUE,
+			-1, 0, Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, 1L << 40, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+
+	@Test
+	void randomUpdatesMatchTreeMap() {
+		Random rnd = new Random(25);
+		for (int round = 0; round < 40; round++) {
+			LongAVLTree t = new LongAVLTree();
+			TreeMap<Long, String> m = new TreeMap<>();
+			long[] pool = keyPool(rnd, 1 + rnd.nextInt(round < 10 ? 10 : 1500));
+			for (int op = 0; op < 4000; op++) {
+				long k = pool[rnd.nextInt(pool.length)];
+				if (rnd.nextInt(5) < 3) {
+					assertEquals(m.containsKey(k), t.insert(k, "v" + k) == -1, "insert " + k);
+					m.putIfAbsent(k, "v" + k);
+				} else {
+					assertEquals(!m.containsKey(k), t.delete(k) == -1, "delete " + k);
+					m.remove(k);
+				}
+				assertEquals(m.get(k), t.search(k));
+			}
+			assertContents(t, m);
+			assertQueries(t, m, rnd, pool);
+		}
+	}
+
+	@Test
+	void chunkedExportsResumeAcrossChunks() {
+		Random rnd = new Random(250);
+		LongAVLTree t = new LongAVLTree();
+		TreeMap<Long, String> m = new TreeMap<>();
+		for (long k : keyPool(rnd, 3000)) {
+			t.insert(k, "v" + k);
+			m.put(k, "v" + k);
+		}
+		long[] all_keys = t.keysToArray();
+		String[] all_infos = t.infoToArray();
+		for (int chunk : new int[] {1, 7, 100, 4096}) {
+			long[] keys = new long[chunk];
+			String[] infos = new String[chunk];
+			List<Long> got_keys = new ArrayList<>();
+			List<String> got_infos = new ArrayList<>();
+			for (long from = 0; ; ) {
+				int n = t.keysToArray(from, keys);
+				assertEquals(n, t.infoToArray(from, infos));
+				assertEquals(Math.min(chunk, t.size() - from), n, "chunk at " + from);
+				for (int i = 0; i < n; i++) {
+					got_keys.add(keys[i]);
+					got_infos.add(infos[i]);
+				}
+				if (n < chunk) {
+					break;
+				}
+				from += n;
+			}
+			assertArrayEquals(all_keys, got_keys.stream().mapToLong(Long::longValue).toArray());
+			assertArrayEquals(all_infos, got_infos.toArray(new String[0]));
+		}
+		assertEquals(0, t.keysToArray(-1, new long[4]));
+		assertEquals(0, t.keysToArray(t.size(), new long[4]));
+		assertEquals(0, t.infoToArray(t.size(), new String[4]));
+		assertEquals(0, t.keysToArray(0, new long[0]));
+	}
+
+	@Test
+	void keyStreamsAndSpliterators() {
+		Random rnd = new Random(2500);
+		for (int n : new int[] {0, 1, 2, 3, 100, 20000}) {
+			LongAVLTree t = new LongAVLTree();
+			TreeMap<Long, String> m = new TreeMap<>();
+			while (m.size() < n) {
+				long k = rnd.nextLong();
+				t.insert(k, "v");
+				m.put(k, "v");
+			}
+			long[] keys = m.keySet().stream().mapToLong(Long::longValue).toArray();
+			assertArrayEquals(keys, t.keys().toArray());
+			assertArrayEquals(keys, t.keys().parallel().toArray());
+			assertEquals(n, t.keys().parallel().count());
+			assertEquals(Arrays.stream(keys).sum(), t.keys().parallel().sum());
+
+			Spliterator.OfLong s = t.keySpliterator();
+			int wanted = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED | Spliterator.DISTINCT
+					| Spliterator.ORDERED | Spliterator.NONNULL;
+			assertEquals(wanted, s.characteristics());
+			assertNull(s.getComparator());
+			assertEquals(n, s.getExactSizeIfKnown());
+			List<long[]> parts = new ArrayList<>();
+			splitAll(s, parts);                              // in order, with exact sizes
+			long[] joined = parts.stream().flatMapToLong(Arrays::stream).toArray();
+			assertArrayEquals(keys, joined);
+		}
+	}
+
+	@Test
+	void splitAndJoinMatchTreeMap() {
+		Random rnd = new Random(25000);
+		for (int round = 0; round < 300; round++) {
+			LongAVLTree t = new LongAVLTree();
+			TreeMap<Long, String> m = new TreeMap<>();
+			long[] pool = keyPool(rnd, 1 + rnd.nextInt(round < 50 ? 8 : 800));
+			for (long k : pool) {
+				if (rnd.nextBoolean()) {
+					t.insert(k, "v" + k);
+					m.put(k, "v" + k);
+				}
+			}
+			long x = pool[rnd.nextInt(pool.length)];          // in the tree or not
+			LongAVLTree[] parts = t.split(x);
+			assertTrue(t.empty());
+			assertContents(parts[0], m.headMap(x, false));
+			assertContents(parts[1], m.tailMap(x, false));
+
+			int h0 = height(parts[0]);
+			int h1 = height(parts[1]);
+			int cost = parts[0].join(x, "x", parts[1]);
+			if (h0 >= 0 && h1 >= 0) {
+				assertEquals(Math.abs(h0 - h1) + 1, cost, "join cost");
+			}
+			m.put(x, "x");
+			assertContents(parts[0], m);
+			assertTrue(parts[1].empty());
+		}
+	}
+
+	private static void splitAll(Spliterator.OfLong s, List<long[]> parts) {
+		long size = s.estimateSize();
+		Spliterator.OfLong prefix = s.trySplit();
+		if (prefix == null) {
+			long[] keys = new long[(int) size];
+			int[] i = {0};
+			s.forEachRemaining((long k) -> keys[i[0]++] = k);
+			assertEquals(size, i[0], "exact size of a part");
+			parts.add(keys);
+			return;
+		}
+		assertEquals(size, prefix.estimateSize() + s.estimateSize(), "the sizes of a split add up");
+		assertTrue(prefix.estimateSize() > 0 && s.estimateSize() > 0);
+		splitAll(prefix, parts);
+		splitAll(s, parts);
+	}
+
+	/** n random keys, spread over the long range, plus the edge values */
+	private static long[] keyPool(Random rnd, int n) {
+		long[] pool = Arrays.copyOf(EDGES, EDGES.length + n);
+		for (int i = EDGES.length; i < pool.length; i++) {
+			pool[i] = rnd.nextBoolean() ? rnd.nextLong() : Integer.MAX_VALUE + (long) rnd.nextInt(1 << 20) - (1 << 19);
+		}
+		return pool;
+	}
+
+	private static int height(LongAVLTree t) {
+		return t.empty() ? -1 : t.getRoot().getHeight();
+	}
+
+	private static void assertQueries(LongAVLTree t, TreeMap<Long, String> m, Random rnd, long[] pool) {
+		List<Long> keys = new ArrayList<>(m.keySet());
+		assertNull(t.select(-1));
+		assertNull(t.select(m.size()));
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals((long) keys.get(i), t.select(i).getKey());
+		}
+		for (int q = 0; q < 200; q++) {
+			long lo = pool[rnd.nextInt(pool.length)] + rnd.nextInt(3) - 1;
+			long hi = pool[rnd.nextInt(pool.length)] + rnd.nextInt(3) - 1;
+			assertEquals(m.headMap(lo, false).size(), t.rank(lo), "rank " + lo);
+			NavigableMap<Long, String> range = (lo <= hi) ? m.subMap(lo, true, hi, true) : new TreeMap<>();
+			assertEquals(range.size(), t.rangeCount(lo, hi), "rangeCount " + lo + " " + hi);
+			List<Long> seen = new ArrayList<>();
+			List<String> infos = new ArrayList<>();
+			long visited = t.rangeScan(lo, hi, (k, info) -> {
+				seen.add(k);
+				infos.add(info);
+			});
+			assertEquals(range.size(), visited);
+			assertEquals(new ArrayList<>(range.keySet()), seen);
+			assertEquals(new ArrayList<>(range.values()), infos);
+		}
+	}
+
+	private static void assertContents(LongAVLTree t, NavigableMap<Long, String> m) {
+		assertEquals(m.size(), t.size());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(m.keySet().stream().mapToLong(Long::longValue).toArray(), t.keysToArray());
+		assertArrayEquals(m.values().toArray(new String[0]), t.infoToArray());
+		assertEquals(m.isEmpty() ? null : m.firstEntry().getValue(), t.min());
+		assertEquals(m.isEmpty() ? null : m.lastEntry().getValue(), t.max());
+		LongAVLTree.Node root = t.getRoot();
+		if (root == null) {
+			return;
+		}
+		assertNull(root.getParent());
+		check(root, null, null);
+	}
+
+	/** checks order, parents, heights, balance and sizes below node (lo/hi null for no bound) */
+	private static void check(LongAVLTree.Node node, Long lo, Long hi) {
+		long k = node.getKey();
+		assertTrue((lo == null || lo < k) && (hi == null || k < hi), "order");
+		int hl = -1;
+		int hr = -1;
+		long size = 1;
+		if (node.getLeft().isRealNode()) {
+			assertSame(node, node.getLeft().getParent());
+			check(node.getLeft(), lo, k);
+			hl = node.getLeft().getHeight();
+			size += node.getLeft().getSize();
+		}
+		if (node.getRight().isRealNode()) {
+			assertSame(node, node.getRight().getParent());
+			check(node.getRight(), k, hi);
+			hr = node.getRight().getHeight();
+			size += node.getRight().getSize();
+		}
+		assertTrue(Math.abs(hl - hr) <= 1, "balance");
+		assertEquals(Math.max(hl, hr) + 1, node.getHeight(), "height");
+		assertEquals(size, node.getSize(), "size");
+	}
+}
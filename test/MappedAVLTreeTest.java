@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * MappedAVLTreeTest
+ *
+ * snapshots of random AVLTrees (negative keys, null and non-ASCII infos) written and mapped again:
+ * every query of MappedAVLTree and load() against a TreeMap, and the files open() must refuse.
+ *
+ */
+
+class MappedAVLTreeTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void mappedQueriesMatchTreeMap() throws IOException {
+		Random rnd = new Random(12);
+		for (int round = 0; round < 40; round++) {
+			int n = (round == 0) ? 0 : rnd.nextInt(round < 10 ? 10 : 5000);
+			AVLTree t = new AVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			for (int i = 0; i < n; i++) {
+				int k = rnd.nextInt(8 * n + 1) - 4 * n;
+				String info = (rnd.nextInt(5) == 0) ? null : (rnd.nextBoolean() ? "v" + k : "ключ " + k + " ✓");
+				if (t.insert(k, info) >= 0) {
+					m.put(k, info);
+				}
+			}
+			Path file = dir.resolve("snapshot" + round);
+			MappedAVLTree.write(t, file);
+			try (MappedAVLTree mt = MappedAVLTree.open(file)) {
+				assertQueries(mt, m, rnd, n);
+				AVLTreeInvariants.assertContents(mt.load(), m);
+			}
+			AVLTreeInvariants.assertContents(t, m);      // writing does not change the tree
+		}
+	}
+
+	@Test
+	void openRefusesWhatIsNotASnapshot() throws IOException {
+		Path empty = Files.write(dir.resolve("empty"), new byte[0]);
+		assertThrows(IOException.class, () -> MappedAVLTree.open(empty));
+
+		Path text = Files.write(dir.resolve("text"), "not a snapshot at all".getBytes());
+		assertThrows(IOException.class, () -> MappedAVLTree.open(text));
+
+		AVLTree t = new AVLTree();
+		for (int k = 0; k < 100; k++) {
+			t.insert(k, "v" + k);
+		}
+		Path file = dir.resolve("snapshot");
+		MappedAVLTree.write(t, file);
+		byte[] bytes = Files.readAllBytes(file);
+
+		byte[] version = bytes.clone();
+		ByteBuffer.wrap(version).putInt(4, MappedAVLTree.VERSION + 1);
+		Path other_version = Files.write(dir.resolve("version"), version);
+		assertThrows(IOException.class, () -> MappedAVLTree.open(other_version));
+
+		Path truncated = Files.write(dir.resolve("truncated"), Arrays.copyOf(bytes, MappedAVLTree.HEADER_BYTES + 40));
+		assertThrows(IOException.class, () -> MappedAVLTree.open(truncated));
+
+		MappedAVLTree mt = MappedAVLTree.open(file);
+		assertEquals("v42", mt.search(42));
+		mt.close();
+		mt.close();                                      // closing again does nothing
+		assertThrows(IllegalStateException.class, () -> mt.search(42));
+	}
+
+	private static void assertQueries(MappedAVLTree mt, NavigableMap<Integer, String> m, Random rnd, int n) {
+		assertEquals(m.size(), mt.size());
+		assertEquals(m.isEmpty(), mt.empty());
+		assertArrayEquals(m.keySet().stream().mapToInt(Integer::intValue).toArray(), mt.keysToArray());
+		assertArrayEquals(m.values().toArray(new String[0]), mt.infoToArray());
+		if (m.isEmpty()) {
+			assertNull(mt.min());
+			assertNull(mt.max());
+		}
+		else {
+			assertEquals(m.firstEntry().getValue(), mt.min());
+			assertEquals(m.lastEntry().getValue(), mt.max());
+		}
+		int i = 0;
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			assertEquals((int) e.getKey(), mt.keyAt(i));
+			assertEquals(e.getValue(), mt.infoAt(i));
+			i++;
+		}
+		for (int q = 0; q < 200; q++) {
+			int k = rnd.nextInt(10 * n + 3) - 5 * n - 1;   // present and absent keys, and beyond both ends
+			assertEquals(m.get(k), mt.search(k));
+			assertEquals(m.headMap(k, false).size(), mt.rank(k));
+			int hi = k + rnd.nextInt(2 * n + 2) - 1;        // sometimes hi < lo
+			NavigableMap<Integer, String> range = (k <= hi) ? m.subMap(k, true, hi, true) : new TreeMap<>();
+			assertEquals(range.size(), mt.rangeCount(k, hi));
+			List<Integer> keys = new ArrayList<>();
+			List<String> infos = new ArrayList<>();
+			int visited = mt.rangeScan(k, hi, (key, info) -> {
+				keys.add(key);
+				infos.add(info);
+			});
+			assertEquals(range.size(), visited);
+			assertEquals(new ArrayList<>(range.keySet()), keys);
+			assertEquals(new ArrayList<>(range.values()), infos);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * MonomorphicAVLTreeTest
+ *
+ * MonomorphicAVLTree against AVLTree: insert and delete must return the same rebalancing counts,
+ * and the contents must match a TreeMap with a valid AVL shape, sizes included. split (at keys in
+ * the tree and not), join, select and rank are checked against the TreeMap too.
+ *
+ */
+
+class MonomorphicAVLTreeTest {
+
+	@Test
+	void updatesMatchAVLTree() {
+		Random rnd = new Random(23);
+		for (int round = 0; round < 200; round++) {
+			MonomorphicAVLTree t = new MonomorphicAVLTree();
+			AVLTree reference = new AVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(round < 40 ? 10 : 1000);
+			for (int op = 0; op < 2000; op++) {
+				int k = rnd.nextInt(range);
+				if (rnd.nextInt(5) < 3) {
+					assertEquals(reference.insert(k, "v" + k), t.insert(k, "v" + k), "insert " + k);
+					m.putIfAbsent(k, "v" + k);
+				} else {
+					assertEquals(reference.delete(k), t.delete(k), "delete " + k);
+					m.remove(k);
+				}
+				assertEquals(m.get(k), t.search(k));
+				if (op % 200 == 0) {
+					assertContents(t, m);
+				}
+			}
+			assertContents(t, m);
+		}
+	}
+
+	@Test
+	void sequentialKeysMatchAVLTree() {
+		MonomorphicAVLTree t = new MonomorphicAVLTree();
+		AVLTree reference = new AVLTree();
+		for (int k = 0; k < 4096; k++) {
+			assertEquals(reference.insert(k, "v" + k), t.insert(k, "v" + k));
+		}
+		for (int k = 4095; k >= 0; k -= 3) {
+			assertEquals(reference.delete(k), t.delete(k));
+		}
+		assertEquals(reference.getRoot().getHeight(), t.getRoot().getHeight());
+		assertArrayEquals(reference.keysToArray(), t.keysToArray());
+	}
+
+	@Test
+	void splitAndJoinMatchTreeMap() {
+		Random rnd = new Random(230);
+		for (int round = 0; round < 300; round++) {
+			MonomorphicAVLTree t = new MonomorphicAVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int n = 1 + rnd.nextInt(round < 50 ? 8 : 800);
+			for (int i = 0; i < n; i++) {
+				int k = rnd.nextInt(4 * n);
+				t.insert(k, "v" + k);
+				m.put(k, "v" + k);
+			}
+			int x = rnd.nextInt(4 * n + 2) - 1;             // in the tree or not, beyond the ends too
+			MonomorphicAVLTree[] parts = t.split(x);
+			assertTrue(t.empty());
+			assertContents(parts[0], m.headMap(x, false));
+			assertContents(parts[1], m.tailMap(x, false));
+
+			int h0 = (parts[0].getRoot() == null) ? -1 : parts[0].getRoot().getHeight();
+			int h1 = (parts[1].getRoot() == null) ? -1 : parts[1].getRoot().getHeight();
+			MonomorphicAVLTree into = rnd.nextBoolean() ? parts[0] : parts[1];
+			MonomorphicAVLTree other = (into == parts[0]) ? parts[1] : parts[0];
+			int cost = into.join(x, "x", other);
+			if (h0 >= 0 && h1 >= 0) {
+				assertEquals(Math.abs(h0 - h1) + 1, cost, "join cost");
+			}
+			assertTrue(other.empty());
+			m.put(x, "x");
+			assertContents(into, m);
+		}
+	}
+
+	private static void assertContents(MonomorphicAVLTree t, NavigableMap<Integer, String> m) {
+		assertEquals(m.size(), t.size());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(m.keySet().stream().mapToInt(Integer::intValue).toArray(), t.keysToArray());
+		assertArrayEquals(m.values().toArray(new String[0]), t.infoToArray());
+		assertNull(t.select(-1));
+		assertNull(t.select(m.size()));
+		if (m.isEmpty()) {
+			assertNull(t.getRoot());
+			assertNull(t.min());
+			assertNull(t.max());
+			return;
+		}
+		assertEquals(m.firstEntry().getValue(), t.min());
+		assertEquals(m.lastEntry().getValue(), t.max());
+		int i = 0;
+		for (int k : m.keySet()) {
+			assertEquals(k, t.select(i).getKey(), "select " + i);
+			assertEquals(i, t.rank(k), "rank " + k);
+			assertEquals(i + 1, t.rank(k + 1), "rank after " + k);
+			i++;
+		}
+		MonomorphicAVLTree.Node root = t.getRoot();
+		assertNull(root.getParent());
+		assertEquals(m.size(), check(root, Long.MIN_VALUE, Long.MAX_VALUE), "nodes in the walk");
+	}
+
+	/** checks order, parents, heights and balance below node, returns its number of nodes */
+	private static int check(MonomorphicAVLTree.Node node, long lo, long hi) {
+		if (!node.isRealNode()) {
+			assertEquals(-1, node.getHeight());
+			return 0;
+		}
+		int k = node.getKey();
+		assertTrue(lo < k && k < hi, "order");
+		if (node.getLeft().isRealNode()) {
+			assertSame(node, node.getLeft().getParent(), "parent");
+		}
+		if (node.getRight().isRealNode()) {
+			assertSame(node, node.getRight().getParent(), "parent");
+		}
+		int hl = node.getLeft().getHeight();
+		int hr = node.getRight().getHeight();
+		assertTrue(Math.abs(hl - hr) <= 1, "balance at " + k);
+		assertEquals(Math.max(hl, hr) + 1, node.getHeight(), "height of " + k);
+		return check(node.getLeft(), lo, k) + check(node.getRight(), k, hi) + 1;
+	}
+}
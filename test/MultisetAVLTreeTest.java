@@ -0,0 +1,199 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * MultisetAVLTreeTest
+ *
+ * MultisetAVLTree against a TreeMap of the infos of every key, in insertion order, in both modes
+ * (keeping every info or only the first one): multiplicities, order statistics weighted by them,
+ * delete of one occurrence or of all of them, and the exports, with the AVL shape checked along the way.
+ *
+ */
+
+class MultisetAVLTreeTest {
+
+	@Test
+	void keepingEveryInfo() {
+		randomOperations(true, 24);
+	}
+
+	@Test
+	void keepingTheFirstInfo() {
+		randomOperations(false, 240);
+	}
+
+	@Test
+	void deleteDecrementsBeforeUnlinking() {
+		MultisetAVLTree t = new MultisetAVLTree(true);
+		assertEquals(0, t.insert(5, "a"));
+		assertEquals(0, t.insert(5, "b"));                 // counted, the tree does not change
+		assertEquals(0, t.insert(5, "c"));
+		assertEquals(1, t.insert(3, "x"));                 // a new node under the leaf 5 promotes it
+		assertEquals(3, t.count(5));
+		assertEquals(4, t.size());
+		assertEquals(2, t.distinctSize());
+		assertArrayEquals(new String[] {"a", "b", "c"}, t.infos(5));
+		assertArrayEquals(new int[] {3, 5, 5, 5}, t.keysToArray());
+
+		assertEquals(0, t.delete(5));                      // the last inserted goes first
+		assertArrayEquals(new String[] {"a", "b"}, t.infos(5));
+		assertEquals("a", t.search(5));
+		assertEquals(0, t.delete(5));
+		assertEquals(1, t.count(5));
+		assertEquals(2, t.distinctSize());
+		assertTrue(t.delete(5) >= 0);                      // the last one unlinks the node
+		assertEquals(0, t.count(5));
+		assertNull(t.search(5));
+		assertEquals(0, t.infos(5).length);
+		assertEquals(-1, t.delete(5));
+		assertEquals(1, t.distinctSize());
+
+		t.insert(7, "p");
+		t.insert(7, "q");
+		assertTrue(t.deleteAll(7) >= 0);
+		assertEquals(0, t.count(7));
+		assertEquals(-1, t.deleteAll(7));
+		assertEquals(1, t.size());
+
+		MultisetAVLTree first = new MultisetAVLTree();      // not keeping the infos repeats the first one
+		first.insert(1, "one");
+		first.insert(1, "uno");
+		assertArrayEquals(new String[] {"one", "one"}, first.infos(1));
+		assertArrayEquals(new String[] {"one", "one"}, first.infoToArray());
+		assertArrayEquals(new int[] {1, 1}, first.keysToArray());
+	}
+
+	private static void randomOperations(boolean keep_infos, long seed) {
+		Random rnd = new Random(seed);
+		for (int round = 0; round < 60; round++) {
+			MultisetAVLTree t = new MultisetAVLTree(keep_infos);
+			TreeMap<Integer, List<String>> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(round < 10 ? 8 : 400);
+			for (int op = 0; op < 3000; op++) {
+				int k = rnd.nextInt(range);
+				int choice = rnd.nextInt(10);
+				List<String> infos = m.get(k);
+				if (choice < 6) {
+					String info = "v" + k + "_" + op;
+					int steps = t.insert(k, info);
+					if (infos != null) {
+						assertEquals(0, steps, "a repeated key only counts");
+					}
+					m.computeIfAbsent(k, key -> new ArrayList<>()).add(info);
+				}
+				else if (choice < 9) {
+					int steps = t.delete(k);
+					if (infos == null) {
+						assertEquals(-1, steps);
+					}
+					else if (infos.size() > 1) {
+						assertEquals(0, steps, "other occurrences remain");
+						infos.remove(infos.size() - 1);
+					}
+					else {
+						assertTrue(steps >= 0);
+						m.remove(k);
+					}
+				}
+				else {
+					assertEquals(infos == null, t.deleteAll(k) == -1);
+					m.remove(k);
+				}
+				if (op % 300 == 0) {
+					assertContents(t, m, keep_infos, rnd);
+				}
+			}
+			assertContents(t, m, keep_infos, rnd);
+		}
+	}
+
+	private static void assertContents(MultisetAVLTree t, TreeMap<Integer, List<String>> m, boolean keep_infos, Random rnd) {
+		List<Integer> keys = new ArrayList<>();
+		List<String> infos = new ArrayList<>();
+		for (Map.Entry<Integer, List<String>> e : m.entrySet()) {
+			List<String> expected = expectedInfos(e.getValue(), keep_infos);
+			keys.addAll(Collections.nCopies(expected.size(), e.getKey()));
+			infos.addAll(expected);
+			assertEquals(expected.size(), t.count(e.getKey()));
+			assertArrayEquals(expected.toArray(new String[0]), t.infos(e.getKey()), "infos of " + e.getKey());
+			assertEquals(e.getValue().get(0), t.search(e.getKey()));
+		}
+		int n = keys.size();
+		assertEquals(n, t.size());
+		assertEquals(m.size(), t.distinctSize());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(keys.stream().mapToInt(Integer::intValue).toArray(), t.keysToArray());
+		assertArrayEquals(infos.toArray(new String[0]), t.infoToArray());
+		assertEquals(m.isEmpty() ? null : m.firstEntry().getValue().get(0), t.min());
+		assertEquals(m.isEmpty() ? null : m.lastEntry().getValue().get(0), t.max());
+
+		assertNull(t.select(-1));
+		assertNull(t.select(n));
+		for (int i = 0; i < n; i++) {                      // every occurrence of a key selects its node
+			assertEquals((int) keys.get(i), t.select(i).getKey(), "select " + i);
+		}
+		for (int q = 0; q < 50; q++) {
+			int k = rnd.nextInt(m.isEmpty() ? 10 : m.lastKey() + 3) - 1;
+			int rank = 0;
+			for (List<String> l : m.headMap(k, false).values()) {
+				rank += l.size();
+			}
+			assertEquals(rank, t.rank(k), "rank " + k);
+			int hi = k + rnd.nextInt(40) - 5;
+			int count = 0;
+			if (k <= hi) {
+				for (List<String> l : m.subMap(k, true, hi, true).values()) {
+					count += l.size();
+				}
+			}
+			assertEquals(count, t.rangeCount(k, hi), "rangeCount " + k + " " + hi);
+		}
+
+		MultisetAVLTree.Node root = t.getRoot();
+		if (root != null) {
+			assertNull(root.getParent());
+			assertEquals(n, check(root, Long.MIN_VALUE, Long.MAX_VALUE), "occurrences in the walk");
+		}
+	}
+
+	/** the infos the tree reports for a key whose insertions were list */
+	private static List<String> expectedInfos(List<String> list, boolean keep_infos) {
+		return keep_infos ? list : Collections.nCopies(list.size(), list.get(0));
+	}
+
+	/** checks order, parents, heights and balance below node, returns its number of occurrences */
+	private static int check(MultisetAVLTree.Node node, long lo, long hi) {
+		int k = node.getKey();
+		assertTrue(lo < k && k < hi, "order");
+		assertTrue(node.getCount() > 0);
+		int occurrences = node.getCount();
+		int hl = -1;
+		int hr = -1;
+		if (node.getLeft().isRealNode()) {
+			assertSame(node, node.getLeft().getParent());
+			occurrences += check(node.getLeft(), lo, k);
+			hl = node.getLeft().getHeight();
+		}
+		if (node.getRight().isRealNode()) {
+			assertSame(node, node.getRight().getParent());
+			occurrences += check(node.getRight(), k, hi);
+			hr = node.getRight().getHeight();
+		}
+		assertTrue(Math.abs(hl - hr) <= 1, "balance");
+		assertEquals(Math.max(hl, hr) + 1, node.getHeight(), "height");
+		return occurrences;
+	}
+}
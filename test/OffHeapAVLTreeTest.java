@@ -0,0 +1,174 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * OffHeapAVLTreeTest
+ *
+ * OffHeapAVLTree against a TreeMap: insert/delete (with null and non-ASCII infos, and enough
+ * deletes to compact the info area), split and join within one store and across stores, and close.
+ *
+ */
+
+class OffHeapAVLTreeTest {
+
+	@Test
+	void randomInsertDeleteMatchesTreeMap() {
+		Random rnd = new Random(11);
+		TreeMap<Integer, String> m = new TreeMap<>();
+		try (OffHeapAVLTree t = new OffHeapAVLTree()) {
+			for (int op = 0; op < 60000; op++) {
+				int k = rnd.nextInt(5000);
+				if (rnd.nextInt(3) > 0) {
+					String info = info(rnd, k);
+					boolean absent = !m.containsKey(k);
+					assertEquals(absent, t.insert(k, info) >= 0);
+					if (absent) {
+						m.put(k, info);
+					}
+				}
+				else {
+					assertEquals(m.containsKey(k), t.delete(k) >= 0);
+					m.remove(k);
+				}
+				if (op % 5000 == 0) {
+					assertContents(t, m);
+				}
+			}
+			assertContents(t, m);
+			for (int k : m.keySet().toArray(new Integer[0])) {  // delete everything, the info area compacts on the way
+				assertEquals(m.get(k), t.search(k));
+				t.delete(k);
+				m.remove(k);
+			}
+			assertContents(t, m);
+			assertTrue(t.empty());
+		}
+	}
+
+	@Test
+	void splitAndJoinMatchTreeMap() {
+		Random rnd = new Random(111);
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> m = new TreeMap<>();
+			OffHeapAVLTree t = randomTree(rnd, 1 + rnd.nextInt(round < 50 ? 8 : 800), m);
+			int x = randomKey(rnd, m);
+			String info = m.get(x);
+			OffHeapAVLTree[] parts = t.split(x);
+			assertThrows(IllegalStateException.class, t::size);
+			assertContents(parts[0], m.headMap(x, false));
+			assertContents(parts[1], m.tailMap(x, false));
+
+			if (rnd.nextBoolean()) {                     // join within the store
+				parts[0].join(x, info, parts[1]);
+			}
+			else {                                       // or with a tree of another store, copied in
+				TreeMap<Integer, String> above = new TreeMap<>(m.tailMap(x, false));
+				OffHeapAVLTree other = new OffHeapAVLTree();
+				for (int k : above.keySet()) {
+					other.insert(k, above.get(k));
+				}
+				parts[1].close();
+				parts[0].join(x, info, other);
+				assertThrows(IllegalStateException.class, other::size);
+			}
+			assertContents(parts[0], m);
+			parts[0].close();
+		}
+	}
+
+	@Test
+	void closeFreesTheTree() {
+		OffHeapAVLTree t = new OffHeapAVLTree();
+		for (int k = 0; k < 1000; k++) {
+			t.insert(k, "v" + k);
+		}
+		assertTrue(t.offHeapBytes() > 0);
+		OffHeapAVLTree[] parts = t.split(500);
+		parts[0].close();                                // the store stays open for parts[1]
+		assertEquals("v501", parts[1].min());
+		assertEquals(499, parts[1].size());
+		parts[1].close();
+		parts[1].close();                                // closing again does nothing
+		assertThrows(IllegalStateException.class, () -> parts[1].search(501));
+	}
+
+	private static String info(Random rnd, int k) {
+		switch (rnd.nextInt(4)) {
+		case 0:
+			return null;
+		case 1:
+			return "été 木 " + k;
+		default:
+			return "v" + k;
+		}
+	}
+
+	private static OffHeapAVLTree randomTree(Random rnd, int n, TreeMap<Integer, String> m) {
+		OffHeapAVLTree t = new OffHeapAVLTree();
+		for (int i = 0; i < n; i++) {
+			int k = rnd.nextInt(4 * n + 1);
+			String info = info(rnd, k);
+			if (t.insert(k, info) >= 0) {
+				m.put(k, info);
+			}
+		}
+		return t;
+	}
+
+	private static int randomKey(Random rnd, TreeMap<Integer, String> m) {
+		Integer[] keys = m.keySet().toArray(new Integer[0]);
+		return keys[rnd.nextInt(keys.length)];
+	}
+
+	private static void assertContents(OffHeapAVLTree t, NavigableMap<Integer, String> m) {
+		assertEquals(m.size(), t.size());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(m.keySet().stream().mapToInt(Integer::intValue).toArray(), t.keysToArray());
+		assertArrayEquals(m.values().toArray(new String[0]), t.infoToArray());
+		if (m.isEmpty()) {
+			assertNull(t.min());
+			assertNull(t.max());
+			return;
+		}
+		assertEquals(m.firstEntry().getValue(), t.min());
+		assertEquals(m.lastEntry().getValue(), t.max());
+		for (int k : m.keySet()) {
+			assertEquals(m.get(k), t.search(k));
+		}
+		assertEquals(OffHeapAVLTree.NIL, t.getParent(t.getRoot()));
+		check(t, t.getRoot(), Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/** checks order, parents, heights and balance below node, returns its height */
+	private static int check(OffHeapAVLTree t, int node, long lo, long hi) {
+		if (!t.isRealNode(node)) {
+			assertEquals(-1, t.getHeight(node));
+			return -1;
+		}
+		int key = t.getKey(node);
+		assertTrue(lo < key && key < hi, "order");
+		int left = t.getLeft(node);
+		int right = t.getRight(node);
+		if (t.isRealNode(left)) {
+			assertEquals(node, t.getParent(left), "parent");
+		}
+		if (t.isRealNode(right)) {
+			assertEquals(node, t.getParent(right), "parent");
+		}
+		int hl = check(t, left, lo, key);
+		int hr = check(t, right, key, hi);
+		assertTrue(Math.abs(hl - hr) <= 1, "balance");
+		assertEquals(Math.max(hl, hr) + 1, t.getHeight(node), "height");
+		return t.getHeight(node);
+	}
+}
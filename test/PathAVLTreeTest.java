@@ -0,0 +1,121 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * PathAVLTreeTest
+ *
+ * PathAVLTree against AVLTree: insert and delete must return the same rebalancing counts, and the
+ * contents must match a TreeMap with a valid AVL shape (checked from the sons, there are no parents).
+ * split and join are checked against the TreeMap too.
+ *
+ */
+
+class PathAVLTreeTest {
+
+	@Test
+	void updatesMatchAVLTree() {
+		Random rnd = new Random(15);
+		for (int round = 0; round < 200; round++) {
+			PathAVLTree t = new PathAVLTree();
+			AVLTree reference = new AVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int range = 1 + rnd.nextInt(round < 40 ? 10 : 1000);
+			for (int op = 0; op < 2000; op++) {
+				int k = rnd.nextInt(range);
+				if (rnd.nextInt(5) < 3) {
+					assertEquals(reference.insert(k, "v" + k), t.insert(k, "v" + k), "insert " + k);
+					m.putIfAbsent(k, "v" + k);
+				} else {
+					assertEquals(reference.delete(k), t.delete(k), "delete " + k);
+					m.remove(k);
+				}
+				assertEquals(m.get(k), t.search(k));
+				if (op % 200 == 0) {
+					assertContents(t, m);
+				}
+			}
+			assertContents(t, m);
+		}
+	}
+
+	@Test
+	void sequentialKeysMatchAVLTree() {
+		PathAVLTree t = new PathAVLTree();
+		AVLTree reference = new AVLTree();
+		for (int k = 0; k < 4096; k++) {                 // every insert rebalances at the right spine
+			assertEquals(reference.insert(k, "v" + k), t.insert(k, "v" + k));
+		}
+		for (int k = 4095; k >= 0; k -= 3) {
+			assertEquals(reference.delete(k), t.delete(k));
+		}
+		assertEquals(reference.getRoot().getHeight(), t.getRoot().getHeight());
+		assertArrayEquals(reference.keysToArray(), t.keysToArray());
+	}
+
+	@Test
+	void splitAndJoinMatchTreeMap() {
+		Random rnd = new Random(150);
+		for (int round = 0; round < 300; round++) {
+			PathAVLTree t = new PathAVLTree();
+			TreeMap<Integer, String> m = new TreeMap<>();
+			int n = 1 + rnd.nextInt(round < 50 ? 8 : 800);
+			while (m.size() < n) {
+				int k = rnd.nextInt(4 * n);
+				t.insert(k, "v" + k);
+				m.put(k, "v" + k);
+			}
+			Integer[] keys = m.keySet().toArray(new Integer[0]);
+			int x = keys[rnd.nextInt(keys.length)];         // split needs x in the tree
+			PathAVLTree[] parts = t.split(x);
+			assertContents(parts[0], m.headMap(x, false));
+			assertContents(parts[1], m.tailMap(x, false));
+			int h0 = (parts[0].getRoot() == null) ? -1 : parts[0].getRoot().getHeight();
+			int h1 = (parts[1].getRoot() == null) ? -1 : parts[1].getRoot().getHeight();
+			int cost = parts[0].join(x, "x", parts[1]);
+			if (h0 >= 0 && h1 >= 0) {
+				assertEquals(Math.abs(h0 - h1) + 1, cost, "join cost");
+			}
+			m.put(x, "x");
+			assertContents(parts[0], m);
+		}
+	}
+
+	private static void assertContents(PathAVLTree t, NavigableMap<Integer, String> m) {
+		assertEquals(m.size(), t.size());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(m.keySet().stream().mapToInt(Integer::intValue).toArray(), t.keysToArray());
+		assertArrayEquals(m.values().toArray(new String[0]), t.infoToArray());
+		if (m.isEmpty()) {
+			assertNull(t.getRoot());
+			assertNull(t.min());
+			assertNull(t.max());
+			return;
+		}
+		assertEquals(m.firstEntry().getValue(), t.min());
+		assertEquals(m.lastEntry().getValue(), t.max());
+		assertEquals(m.size(), check(t.getRoot(), Long.MIN_VALUE, Long.MAX_VALUE), "nodes in the walk");
+	}
+
+	/** checks order, heights and balance below node (null for an external leaf), returns its number of nodes */
+	private static int check(PathAVLTree.Node node, long lo, long hi) {
+		if (node == null) {
+			return 0;
+		}
+		int k = node.getKey();
+		assertTrue(lo < k && k < hi, "order");
+		int hl = (node.getLeft() == null) ? -1 : node.getLeft().getHeight();
+		int hr = (node.getRight() == null) ? -1 : node.getRight().getHeight();
+		assertTrue(Math.abs(hl - hr) <= 1, "balance at " + k);
+		assertEquals(Math.max(hl, hr) + 1, node.getHeight(), "height of " + k);
+		return check(node.getLeft(), lo, k) + check(node.getRight(), k, hi) + 1;
+	}
+}
@@ -0,0 +1,175 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * PersistentAVLTreeTest
+ *
+ * snapshots of a PersistentAVLTree taken between random inserts and deletes must keep their
+ * contents while the tree (and the other snapshots) change, and the tree itself must match a
+ * TreeMap with a valid AVL shape (walked through the private nodes by reflection).
+ *
+ */
+
+class PersistentAVLTreeTest {
+
+	@Test
+	void snapshotsKeepTheirContents() throws ReflectiveOperationException {
+		Random rnd = new Random(8);
+		PersistentAVLTree t = new PersistentAVLTree();
+		TreeMap<Integer, String> m = new TreeMap<>();
+		List<PersistentAVLTree> snapshots = new ArrayList<>();
+		List<TreeMap<Integer, String>> contents = new ArrayList<>();
+		for (int op = 0; op < 40000; op++) {
+			if (op % 400 == 0) {
+				snapshots.add(t.snapshot());
+				contents.add(new TreeMap<>(m));
+			}
+			int k = rnd.nextInt(2000);
+			if (rnd.nextInt(5) < 3) {
+				assertEquals(m.containsKey(k), t.insert(k, "v" + k + "_" + op) == -1, "insert " + k);
+				m.putIfAbsent(k, "v" + k + "_" + op);
+			} else {
+				assertEquals(!m.containsKey(k), t.delete(k) == -1, "delete " + k);
+				m.remove(k);
+			}
+			if (op % 4000 == 0) {
+				assertContents(t, m, rnd);
+				for (int s = 0; s < snapshots.size(); s++) {
+					assertContents(snapshots.get(s), contents.get(s), rnd);
+				}
+			}
+		}
+		assertContents(t, m, rnd);
+		for (int s = 0; s < snapshots.size(); s++) {
+			assertContents(snapshots.get(s), contents.get(s), rnd);
+		}
+
+		PersistentAVLTree branch = snapshots.get(50);          // updating a snapshot changes neither the tree nor its siblings
+		TreeMap<Integer, String> branch_m = contents.get(50);
+		for (int op = 0; op < 2000; op++) {
+			int k = rnd.nextInt(2000);
+			if (rnd.nextBoolean()) {
+				branch.insert(k, "b" + k);
+				branch_m.putIfAbsent(k, "b" + k);
+			} else {
+				branch.delete(k);
+				branch_m.remove(k);
+			}
+		}
+		assertContents(branch, branch_m, rnd);
+		assertContents(t, m, rnd);
+		assertContents(snapshots.get(49), contents.get(49), rnd);
+		assertContents(snapshots.get(51), contents.get(51), rnd);
+	}
+
+	@Test
+	void readersOfASnapshotDoNotSeeTheWriter() throws InterruptedException {
+		PersistentAVLTree t = new PersistentAVLTree();
+		for (int k = 0; k < 5000; k++) {
+			t.insert(k, "v" + k);
+		}
+		PersistentAVLTree snapshot = t.snapshot();
+		int[] keys = snapshot.keysToArray();
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		Thread reader = new Thread(() -> {
+			try {
+				Random rnd = new Random(88);
+				while (!Thread.currentThread().isInterrupted()) {
+					assertEquals(5000, snapshot.size());
+					int k = rnd.nextInt(5000);
+					assertEquals("v" + k, snapshot.search(k));
+					assertArrayEquals(keys, snapshot.keysToArray());
+				}
+			} catch (Throwable e) {
+				failures.add(e);
+			}
+		});
+		reader.start();
+		Random rnd = new Random(8);
+		for (int op = 0; op < 100000; op++) {                  // one writer, as updates are synchronized
+			int k = rnd.nextInt(10000);
+			if (rnd.nextBoolean()) {
+				t.insert(k, "w" + k);
+			} else {
+				t.delete(k);
+			}
+		}
+		reader.interrupt();
+		reader.join();
+		assertTrue(failures.isEmpty(), () -> "failures: " + failures);
+	}
+
+	private static void assertContents(PersistentAVLTree t, TreeMap<Integer, String> m, Random rnd)
+			throws ReflectiveOperationException {
+		int[] keys = new int[m.size()];
+		String[] infos = new String[m.size()];
+		int j = 0;
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			keys[j] = e.getKey();
+			infos[j++] = e.getValue();
+		}
+		assertEquals(m.size(), t.size());
+		assertEquals(m.isEmpty(), t.empty());
+		assertArrayEquals(keys, t.keysToArray());
+		assertArrayEquals(infos, t.infoToArray());
+		assertEquals(m.isEmpty() ? null : m.firstEntry().getValue(), t.min());
+		assertEquals(m.isEmpty() ? null : m.lastEntry().getValue(), t.max());
+		for (int q = 0; q < 100; q++) {
+			int k = rnd.nextInt(2200) - 100;
+			assertEquals(m.get(k), t.search(k), "search " + k);
+		}
+		assertEquals(m.size(), new Shape(t).size, "size of the walk");
+	}
+
+	/** the walk of a tree through the private fields of its nodes, checking order and AVL balance */
+	private static final class Shape {
+		final Field key;
+		final Field left;
+		final Field right;
+		final Field height;
+		int size;
+
+		Shape(PersistentAVLTree t) throws ReflectiveOperationException {
+			Class<?> node = Class.forName("PersistentAVLTree$Node");
+			key = field(node, "key");
+			left = field(node, "left");
+			right = field(node, "right");
+			height = field(node, "height");
+			int h = check(field(PersistentAVLTree.class, "root").get(t), Long.MIN_VALUE, Long.MAX_VALUE);
+			assertEquals(h, t.getHeight());
+		}
+
+		/** checks the subtree of node, whose keys are in (lo, hi), returns its height (-1 for none) */
+		private int check(Object node, long lo, long hi) throws IllegalAccessException {
+			if (node == null) {
+				return -1;
+			}
+			int k = key.getInt(node);
+			assertTrue(lo < k && k < hi, "BST order at " + k);
+			int hl = check(left.get(node), lo, k);
+			int hr = check(right.get(node), k, hi);
+			assertTrue(Math.abs(hl - hr) <= 1, "AVL balance at " + k);
+			assertEquals(Math.max(hl, hr) + 1, height.getInt(node), "height of " + k);
+			size++;
+			return Math.max(hl, hr) + 1;
+		}
+
+		private static Field field(Class<?> c, String name) throws NoSuchFieldException {
+			Field f = c.getDeclaredField(name);
+			f.setAccessible(true);
+			return f;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * ShardedAVLTreeTest
+ *
+ * ShardedAVLTree against a TreeMap while its shards split and merge, single threaded and with
+ * writers racing over the same shards (and readers taking snapshots meanwhile). min and max lock one
+ * shard at a time: they see the smallest and largest keys while shards are retired under them, and
+ * do not wait for a resharding.
+ *
+ */
+
+class ShardedAVLTreeTest {
+
+	@Test
+	void reshardingKeepsContents() {
+		Random rnd = new Random(10);
+		ShardedAVLTree t = new ShardedAVLTree(1, 64);
+		TreeMap<Integer, String> m = new TreeMap<>();
+		int max_shards = 1;
+		for (int op = 0; op < 60000; op++) {
+			boolean growing = op < 20000;                          // grow, then delete most of the keys
+			int k = rnd.nextInt(4000) * 1000;
+			if (growing ? rnd.nextInt(3) > 0 : rnd.nextInt(10) == 0) {
+				assertEquals(m.containsKey(k), t.insert(k, "v" + k) == -1);
+				m.putIfAbsent(k, "v" + k);
+			} else {
+				assertEquals(!m.containsKey(k), t.delete(k) == -1);
+				m.remove(k);
+			}
+			assertEquals(m.get(k), t.search(k));
+			max_shards = Math.max(max_shards, t.shardCount());
+			if (op % 1000 == 0) {
+				assertContents(t, m);
+			}
+		}
+		assertContents(t, m);
+		assertTrue(max_shards > 8, "the tree was split: " + max_shards);
+		assertTrue(t.shardCount() < max_shards, "and merged again: " + t.shardCount());
+	}
+
+	@Test
+	void concurrentWritersOverSharedShards() throws InterruptedException {
+		int threads = 4;
+		ShardedAVLTree t = new ShardedAVLTree(2, 16);
+		List<TreeMap<Integer, String>> expected = new ArrayList<>();
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		List<Thread> workers = new ArrayList<>();
+		for (int w = 0; w < threads; w++) {
+			int id = w;
+			TreeMap<Integer, String> m = new TreeMap<>();
+			expected.add(m);
+			workers.add(new Thread(() -> {
+				try {
+					Random rnd = new Random(id);
+					for (int op = 0; op < 30000; op++) {
+						int k = rnd.nextInt(1000) * threads + id;     // the threads interleave in every shard
+						if (rnd.nextInt(op < 15000 ? 3 : 4) == 0 || (op >= 15000 && rnd.nextBoolean())) {
+							t.delete(k);
+							m.remove(k);
+						} else {
+							t.insert(k, "v" + k);
+							m.putIfAbsent(k, "v" + k);
+						}
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		Thread reader = new Thread(() -> {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					int[] keys = t.keysToArray();
+					for (int i = 1; i < keys.length; i++) {
+						assertTrue(keys[i - 1] < keys[i], "sorted snapshot");
+					}
+					t.min();
+					t.max();
+				}
+			} catch (Throwable e) {
+				failures.add(e);
+			}
+		});
+		workers.forEach(Thread::start);
+		reader.start();
+		for (Thread w : workers) {
+			w.join();
+		}
+		reader.interrupt();
+		reader.join();
+		assertTrue(failures.isEmpty(), () -> "failures: " + failures);
+		TreeMap<Integer, String> all = new TreeMap<>();
+		expected.forEach(all::putAll);
+		assertContents(t, all);
+	}
+
+	@Test
+	void minAndMaxDuringResharding() throws InterruptedException {
+		int threads = 4;
+		ShardedAVLTree t = new ShardedAVLTree(2, 16);
+		t.insert(-1, "low");                                       // the writers stay in between
+		t.insert(1 << 30, "high");
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		List<Thread> workers = new ArrayList<>();
+		for (int w = 0; w < threads; w++) {
+			int id = w;
+			workers.add(new Thread(() -> {
+				try {
+					Random rnd = new Random(100 + id);
+					for (int op = 0; op < 30000; op++) {
+						int k = rnd.nextInt(1000) * threads + id;
+						if (rnd.nextInt(op < 15000 ? 3 : 2) == 0) {    // grow, then shrink: splits and merges
+							t.delete(k);
+						} else {
+							t.insert(k, "v" + k);
+						}
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		List<Thread> readers = new ArrayList<>();
+		for (int r = 0; r < 2; r++) {
+			readers.add(new Thread(() -> {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						assertEquals("low", t.min());
+						assertEquals("high", t.max());
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		workers.forEach(Thread::start);
+		readers.forEach(Thread::start);
+		for (Thread w : workers) {
+			w.join();
+		}
+		for (Thread r : readers) {
+			r.interrupt();
+			r.join();
+		}
+		assertTrue(failures.isEmpty(), () -> "failures: " + failures);
+		assertTrue(t.shardCount() > 1);
+	}
+
+	@Test
+	void minAndMaxDoNotWaitForResizeLock() throws Exception {
+		ShardedAVLTree t = new ShardedAVLTree(4, 64);
+		for (int k = 0; k < 1000; k++) {
+			t.insert(k * 7, "v" + k);
+		}
+		Field field = ShardedAVLTree.class.getDeclaredField("resizeLock");
+		field.setAccessible(true);
+		ReentrantLock resize_lock = (ReentrantLock) field.get(t);
+		CountDownLatch held = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		Thread holder = new Thread(() -> {                         // stands for a long resharding
+			resize_lock.lock();
+			try {
+				held.countDown();
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				resize_lock.unlock();
+			}
+		});
+		holder.start();
+		held.await();
+		try {
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				assertEquals("v0", t.min());
+				assertEquals("v999", t.max());
+				assertEquals("v500", t.search(3500));
+			});
+		} finally {
+			done.countDown();
+			holder.join();
+		}
+	}
+
+	private static void assertContents(ShardedAVLTree t, TreeMap<Integer, String> m) {
+		int[] keys = new int[m.size()];
+		String[] infos = new String[m.size()];
+		int j = 0;
+		for (Map.Entry<Integer, String> e : m.entrySet()) {
+			keys[j] = e.getKey();
+			infos[j++] = e.getValue();
+		}
+		assertEquals(m.size(), t.size());
+		assertArrayEquals(keys, t.keysToArray());
+		assertArrayEquals(infos, t.infoToArray());
+		assertEquals(m.isEmpty() ? null : m.firstEntry().getValue(), t.min());
+		assertEquals(m.isEmpty() ? null : m.lastEntry().getValue(), t.max());
+		assertEquals(m.isEmpty(), t.empty());
+	}
+}
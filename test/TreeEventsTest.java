@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * TreeEventsTest
+ *
+ * with the AVLTree events enabled at threshold 0 every insert, delete, split and join is recorded,
+ * with the key, size, height and steps that the operation reports.
+ *
+ */
+
+class TreeEventsTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void operationsAreRecordedWithTheirFields() throws IOException {
+		AVLTree t = new AVLTree();
+		AVLTree right = new AVLTree();
+		TreeMetrics metrics = t.enableMetrics();           // split does not return its cost, the metrics have it
+		int height_before_split;
+		int join_cost;
+		int[] insert_steps = new int[8];
+		try (Recording recording = new Recording()) {
+			for (String name : new String[] {"avltree.Insert", "avltree.Delete", "avltree.Split", "avltree.Join"}) {
+				recording.enable(name).withThreshold(Duration.ZERO);
+			}
+			recording.start();
+			for (int k = 0; k < 8; k++) {
+				insert_steps[k] = t.insert(k, "v" + k);
+			}
+			t.insert(3, "again");                              // -1, recorded as well
+			t.delete(7);
+			t.delete(100);
+			height_before_split = t.getRoot().getHeight();
+			AVLTree[] parts = t.split(4);                      // reports the size and height before the split
+			right.insert(20, "v20");
+			join_cost = parts[0].join(parts[0].new AVLNode(10, "v10"), right);
+			recording.stop();
+			Path file = dir.resolve("events.jfr");
+			recording.dump(file);
+
+			List<RecordedEvent> inserts = events(file, "avltree.Insert");
+			assertEquals(10, inserts.size());                  // 8 into t, the duplicate, and 20 into right
+			for (int k = 0; k < 8; k++) {
+				RecordedEvent e = inserts.get(k);
+				assertEquals(k, e.getInt("key"));
+				assertEquals(k + 1, e.getInt("size"));
+				assertEquals(insert_steps[k], e.getInt("steps"));
+				assertEquals(1, e.getInt("allocatedNodes"));
+			}
+			RecordedEvent duplicate = inserts.get(8);
+			assertEquals(3, duplicate.getInt("key"));
+			assertEquals(8, duplicate.getInt("size"));
+			assertEquals(-1, duplicate.getInt("steps"));
+			assertEquals(0, duplicate.getInt("allocatedNodes"));
+
+			List<RecordedEvent> deletes = events(file, "avltree.Delete");
+			assertEquals(2, deletes.size());
+			assertEquals(7, deletes.get(0).getInt("key"));
+			assertEquals(7, deletes.get(0).getInt("size"));
+			assertTrue(deletes.get(0).getInt("steps") >= 0);
+			assertEquals(100, deletes.get(1).getInt("key"));
+			assertEquals(-1, deletes.get(1).getInt("steps"));
+
+			List<RecordedEvent> splits = events(file, "avltree.Split");
+			assertEquals(1, splits.size());
+			assertEquals(4, splits.get(0).getInt("key"));
+			assertEquals(7, splits.get(0).getInt("size"));
+			assertEquals(height_before_split, splits.get(0).getInt("height"));
+			assertEquals(1, metrics.getSplits());
+			assertEquals(metrics.getMaxSplitCost(), splits.get(0).getInt("steps"));
+
+			List<RecordedEvent> joins = events(file, "avltree.Join");
+			assertEquals(1, joins.size());                     // the joins inside split are not events
+			RecordedEvent join = joins.get(0);
+			assertEquals(10, join.getInt("key"));
+			assertEquals(6, join.getInt("size"));              // 0..3, 10 and 20
+			assertEquals(parts[0].getRoot().getHeight(), join.getInt("height"));
+			assertEquals(join_cost, join.getInt("steps"));
+		}
+	}
+
+	private static List<RecordedEvent> events(Path file, String name) throws IOException {
+		return RecordingFile.readAllEvents(file).stream()
+				.filter(e -> e.getEventType().getName().equals(name))
+				.sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * TreeMetricsTest
+ *
+ * the insert and delete counters of TreeMetrics count the operations of the user only:
+ * split and join relink existing nodes, even when a join has an empty side.
+ *
+ */
+
+class TreeMetricsTest {
+
+	@Test
+	void everyInsertPathIsCountedOnce() {
+		AVLTree t = new AVLTree();
+		TreeMetrics m = t.enableMetrics();
+		t.insert(1, "a");                              // into the empty tree
+		t.insert(2, "b");
+		t.insert(2, "b");                              // already there
+		t.put(3, "c");
+		t.put(3, "C");                                 // replaces the info
+		t.putIfAbsent(4, "d");
+		t.putIfAbsent(4, "D");
+		t.compute(5, (k, i) -> "e");
+		t.compute(5, (k, i) -> i + "e");
+		t.compute(6, (k, i) -> null);                  // stays absent
+		assertEquals(5, m.getInserts());
+		t.delete(1);
+		t.remove(2);
+		t.compute(3, (k, i) -> null);
+		t.computeIfPresent(4, (k, i) -> null);
+		t.delete(1);                                   // not there
+		assertEquals(4, m.getDeletes());
+		assertEquals(5, m.getInserts());
+	}
+
+	@Test
+	void splitAndJoinAreNotInserts() {
+		AVLTree t = new AVLTree();
+		TreeMetrics m = t.enableMetrics();
+		for (int k = 0; k < 100; k++) {
+			t.insert(k, Integer.toString(k));
+		}
+		AVLTree[] parts = t.split(50);                 // the parts share the metrics of t
+		assertEquals(1, m.getSplits());
+
+		AVLTree empty = new AVLTree();
+		parts[0].join(parts[0].new AVLNode(50, "50"), empty);    // empty right side, x is inserted into parts[0]
+		AVLTree left = new AVLTree();
+		left.enableMetrics();
+		TreeMetrics lm = left.metrics();
+		left.join(left.new AVLNode(-1, "-1"), parts[0]);         // empty left side
+		parts[1].join(parts[1].new AVLNode(200, "200"), new AVLTree());
+
+		assertEquals(100, m.getInserts());
+		assertEquals(0, m.getDeletes());
+		assertEquals(2, m.getJoins());
+		assertEquals(0, lm.getInserts());
+		assertEquals(1, lm.getJoins());
+		assertEquals(50, parts[1].size());
+		assertEquals(52, left.size());
+		AVLTreeInvariants.assertValid(left);
+		AVLTreeInvariants.assertValid(parts[1]);
+
+		AVLTree[] again = left.split(10);              // splits are not deletes either
+		assertEquals(0, lm.getDeletes());
+		assertEquals(0, lm.getInserts());
+		assertEquals(11, again[0].size());
+		assertEquals(40, again[1].size());
+	}
+}